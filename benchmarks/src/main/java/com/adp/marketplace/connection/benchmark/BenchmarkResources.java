@@ -0,0 +1,81 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.io.IOException;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+
+
+/**
+ * <p>
+ * BenchmarkResources provides client configurations with the client
+ * certificate and trust store bundled with {@link MockTokenServer}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+final class BenchmarkResources {
+
+	static final String CLIENT_ID = "88a73992-07f2-4714-ab4b-de782acd9c4d";
+	static final String CLIENT_SECRET = "a130adb7-aa51-49ac-9d02-0d4036b63541";
+
+	private BenchmarkResources() {
+	}
+
+	/**
+	 * Returns a client credentials configuration for this mock token server
+	 *
+	 * @param server started mock token server
+	 * @return ClientCredentialsConfiguration
+	 * @throws IOException
+	 */
+	static ClientCredentialsConfiguration newConfiguration(MockTokenServer server) throws IOException {
+
+		ClientCredentialsConfiguration configuration = newConfiguration();
+		server.configure(configuration);
+
+		return configuration;
+	}
+
+	/**
+	 * Returns a client credentials configuration with the mock client
+	 * certificate, for benchmarks not sending token requests
+	 *
+	 * @return ClientCredentialsConfiguration
+	 * @throws IOException
+	 */
+	static ClientCredentialsConfiguration newConfiguration() throws IOException {
+
+		ClientCredentialsConfiguration configuration = new ClientCredentialsConfiguration();
+		configuration.setClientID(CLIENT_ID);
+		configuration.setClientSecret(CLIENT_SECRET);
+		configuration.setSslCertPath(MockTokenServer.getClientKeyStorePath());
+		configuration.setKeyPassword(MockTokenServer.PASSWORD);
+		configuration.setStorePassword(MockTokenServer.PASSWORD);
+		configuration.setTrustStorePath(MockTokenServer.getTrustStorePath());
+		configuration.setTrustStorePassword(MockTokenServer.PASSWORD);
+		configuration.setTokenServerUrl("https://localhost" + MockTokenServer.TOKEN_PATH);
+		configuration.setApiRequestUrl("https://localhost");
+
+		return configuration;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.utils.HttpClientRegistry;
+import com.adp.marketplace.connection.utils.SSLContextCache;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * Measures end-to-end connect of client credentials connections against an
+ * in-process {@link MockTokenServer} over mutual TLS: validation, form encoding, the pooled TLS
+ * request and token parsing. Each benchmark thread connects its own connection.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectBenchmark {
+
+	private static final int MULTI_THREADS = 8;
+
+	private MockTokenServer server;
+	private ClientCredentialsConfiguration configuration;
+
+	@Setup
+	public void setUp() throws Exception {
+
+		server = new MockTokenServer();
+		server.start();
+
+		configuration = BenchmarkResources.newConfiguration(server);
+	}
+
+	@TearDown
+	public void tearDown() {
+		HttpClientRegistry.getInstance().shutdown();
+		SSLContextCache.getInstance().clear();
+		server.stop();
+	}
+
+	/**
+	 * Connection of a benchmark thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadConnection {
+
+		private ClientCredentialsConnection connection;
+
+		@Setup
+		public void setUp(ConnectBenchmark benchmark) throws Exception {
+			connection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance()
+					.createConnection(benchmark.configuration);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Token connect(ThreadConnection threadConnection) throws Exception {
+		return connect(threadConnection.connection);
+	}
+
+	@Benchmark
+	@Threads(MULTI_THREADS)
+	public Token connectMultiThread(ThreadConnection threadConnection) throws Exception {
+		return connect(threadConnection.connection);
+	}
+
+	private static Token connect(ClientCredentialsConnection connection) throws Exception {
+
+		connection.connect();
+
+		Token token = connection.getToken();
+
+		if ( token == null || token.getAccess_token() == null ) {
+			throw new IllegalStateException("Connect failed: " + connection.getErrorResponse());
+		}
+
+		return token;
+	}
+
+}
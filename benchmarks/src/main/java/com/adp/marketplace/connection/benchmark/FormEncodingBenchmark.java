@@ -0,0 +1,84 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+
+
+/**
+ * <p>
+ * Measures building the token request form: collecting the client credentials
+ * and grant type of a connection and encoding them as the request body.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormEncodingBenchmark {
+
+	private ClientCredentialsConnection connection;
+
+	@Setup
+	public void setUp() throws Exception {
+		connection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().createConnection(
+				BenchmarkResources.newConfiguration());
+	}
+
+	@Benchmark
+	public List<NameValuePair> getNameValuePairs() throws Exception {
+		return ConnectionUtils.getInstance().getNameValuePairs(connection);
+	}
+
+	@Benchmark
+	public byte[] encodeForm() throws Exception {
+
+		UrlEncodedFormEntity entity = new UrlEncodedFormEntity(
+				ConnectionUtils.getInstance().getNameValuePairs(connection));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+		entity.writeTo(outputStream);
+
+		return outputStream.toByteArray();
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.utils.HttpClientRegistry;
+import com.adp.marketplace.connection.utils.SSLContextCache;
+import com.adp.marketplace.connection.utils.SSLUtils;
+
+
+/**
+ * <p>
+ * Measures obtaining an HTTPS client: building and closing a new client with
+ * {@link SSLUtils#getHttpsClient}, against the pooled client of
+ * {@link HttpClientRegistry}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpClientBenchmark {
+
+	private ClientCredentialsConfiguration configuration;
+
+	@Setup
+	public void setUp() throws Exception {
+		configuration = BenchmarkResources.newConfiguration();
+	}
+
+	@TearDown
+	public void tearDown() {
+		HttpClientRegistry.getInstance().shutdown();
+		SSLContextCache.getInstance().clear();
+	}
+
+	@Benchmark
+	public void createHttpsClient(Blackhole blackhole) throws Exception {
+
+		CloseableHttpClient httpClient = SSLUtils.getInstance().getHttpsClient(configuration);
+		blackhole.consume(httpClient);
+		httpClient.close();
+	}
+
+	@Benchmark
+	public CloseableHttpClient registryHttpsClient() throws Exception {
+		return HttpClientRegistry.getInstance().getHttpsClient(configuration);
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ssl.SSLContexts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.utils.SSLContextCache;
+
+
+/**
+ * <p>
+ * Measures loading the client key store: reading the PKCS12 file, building an
+ * SSL context from it as done on every connect before contexts were cached,
+ * and the lookup in {@link SSLContextCache}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyStoreBenchmark {
+
+	private File keyStoreFile;
+	private char[] password;
+
+	@Setup
+	public void setUp() throws Exception {
+		keyStoreFile = new File(MockTokenServer.getClientKeyStorePath());
+		password = MockTokenServer.PASSWORD.toCharArray();
+	}
+
+	@TearDown
+	public void tearDown() {
+		SSLContextCache.getInstance().clear();
+	}
+
+	@Benchmark
+	public KeyStore loadKeyStore() throws Exception {
+
+		KeyStore keyStore = KeyStore.getInstance(MockTokenServer.KEY_STORE_TYPE);
+
+		InputStream inputStream = new FileInputStream(keyStoreFile);
+		try {
+			keyStore.load(inputStream, password);
+		} finally {
+			inputStream.close();
+		}
+
+		return keyStore;
+	}
+
+	@Benchmark
+	public SSLContext buildSSLContext() throws Exception {
+		return SSLContexts.custom().loadKeyMaterial(keyStoreFile, password, password).build();
+	}
+
+	@Benchmark
+	public SSLContext cachedSSLContext() throws Exception {
+		return SSLContextCache.getInstance().getSSLContext(keyStoreFile.getAbsolutePath(), password, password);
+	}
+
+}
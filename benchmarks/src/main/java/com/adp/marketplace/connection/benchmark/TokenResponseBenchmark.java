@@ -0,0 +1,95 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+import com.adp.marketplace.connection.utils.GsonTokenParser;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * Measures processing token server responses: parsing a token from the
+ * response entity, parsing the JSON alone, and reading an error response.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenResponseBenchmark {
+
+	private static final String TOKEN_JSON = "{\"access_token\":\"0fa2d9fe-5c5e-4f4d-9a2a-2a5e1b6a0c43\","
+			+ "\"token_type\":\"Bearer\",\"expires_in\":3600,\"scope\":\"api\"}";
+
+	private BasicHttpResponse tokenResponse;
+	private BasicHttpResponse errorResponse;
+
+	@Setup
+	public void setUp() {
+
+		// repeatable entities, each read opens a new stream
+		tokenResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		tokenResponse.setEntity(new ByteArrayEntity(TOKEN_JSON.getBytes(ContentType.APPLICATION_JSON.getCharset()),
+				ContentType.APPLICATION_JSON));
+
+		errorResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 401, "Unauthorized");
+		errorResponse.setEntity(new ByteArrayEntity(
+				"{\"error\":\"invalid_client\",\"error_description\":\"Client authentication failed\"}"
+				.getBytes(ContentType.APPLICATION_JSON.getCharset()), ContentType.APPLICATION_JSON));
+	}
+
+	@Benchmark
+	public Token processTokenResponse() throws Exception {
+		return ConnectionUtils.processTokenResponse(tokenResponse);
+	}
+
+	@Benchmark
+	public Token parseToken() throws Exception {
+		return GsonTokenParser.getInstance().parse(new StringReader(TOKEN_JSON));
+	}
+
+	@Benchmark
+	public String processErrorResponse() throws Exception {
+		return ConnectionUtils.processResponse(errorResponse);
+	}
+
+}
@@ -17,8 +17,17 @@
 */
 package com.adp.marketplace.connection.configuration;
 
+import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.constants.GrantType;
 import com.adp.marketplace.connection.core.ADPAPIConnection;
+import com.adp.marketplace.connection.metrics.ConnectionMetrics;
+import com.adp.marketplace.connection.metrics.NoOpConnectionMetrics;
+import com.adp.marketplace.connection.resilience.CircuitBreakerPolicy;
+import com.adp.marketplace.connection.resilience.RateLimitPolicy;
+import com.adp.marketplace.connection.resilience.RetryPolicy;
+import com.adp.marketplace.connection.store.TokenStore;
+import com.adp.marketplace.connection.utils.GsonTokenParser;
+import com.adp.marketplace.connection.utils.TokenParser;
 
 
 /**
@@ -42,11 +51,48 @@ public abstract class ConnectionConfiguration {
 	
 	protected String keyPassword = "";
 	protected String storePassword = "";
+
+	protected String trustStorePath = "";
+	protected String trustStorePassword = "";
 	
 	protected String tokenServerUrl = "";
 	protected String apiRequestUrl = "";
 	
 	protected GrantType grantType;
+	
+	protected int maxConnectionsPerRoute = Constants.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+	protected int maxConnectionsTotal = Constants.DEFAULT_MAX_CONNECTIONS_TOTAL;
+	
+	protected long idleConnectionTimeout = Constants.DEFAULT_IDLE_CONNECTION_TIMEOUT;
+	protected long keepAliveDuration = Constants.DEFAULT_KEEP_ALIVE_DURATION;
+	
+	protected long connectTimeout = Constants.DEFAULT_CONNECT_TIMEOUT;
+	protected long socketTimeout = Constants.DEFAULT_SOCKET_TIMEOUT;
+	protected long connectionRequestTimeout = Constants.DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+	protected long requestTimeout = Constants.DEFAULT_REQUEST_TIMEOUT;
+	
+	protected long tokenExpirySkew = Constants.DEFAULT_TOKEN_EXPIRY_SKEW;
+	
+	protected double tokenRefreshFraction = Constants.DEFAULT_TOKEN_REFRESH_FRACTION;
+	protected double tokenRefreshJitter = Constants.DEFAULT_TOKEN_REFRESH_JITTER;
+	
+	protected boolean singleFlight = false;
+	
+	protected boolean virtualThreadExecution = false;
+
+	protected TokenParser tokenParser = GsonTokenParser.getInstance();
+
+	protected ConnectionMetrics connectionMetrics = NoOpConnectionMetrics.getInstance();
+
+	protected TokenStore tokenStore = null;
+
+	protected long tokenLeaseDuration = Constants.DEFAULT_TOKEN_LEASE_DURATION;
+	
+	protected RetryPolicy retryPolicy = null;
+	
+	protected CircuitBreakerPolicy circuitBreakerPolicy = null;
+	
+	protected RateLimitPolicy rateLimitPolicy = null;
 
 	/**
 	 * 
@@ -199,6 +245,417 @@ public abstract class ConnectionConfiguration {
 		this.grantType = grantType;
 	}
 
+	/**
+	 * 
+	 * @return maxConnectionsPerRoute the maximum number of pooled connections
+	 *                                kept open to a single token server
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	/**
+	 * 
+	 * @param maxConnectionsPerRoute the maximum number of pooled connections
+	 *                               kept open to a single token server
+	 */
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	/**
+	 * 
+	 * @return maxConnectionsTotal the maximum number of connections held by 
+	 *                             the pooled https client
+	 */
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	/**
+	 * 
+	 * @param maxConnectionsTotal the maximum number of connections held by 
+	 *                            the pooled https client
+	 */
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	/**
+	 * 
+	 * @return idleConnectionTimeout time in milliseconds after which idle 
+	 *                               pooled connections are evicted
+	 */
+	public long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	/**
+	 * 
+	 * @param idleConnectionTimeout time in milliseconds after which idle 
+	 *                              pooled connections are evicted
+	 */
+	public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+		this.idleConnectionTimeout = idleConnectionTimeout;
+	}
+
+	/**
+	 * 
+	 * @return keepAliveDuration the maximum time in milliseconds a pooled 
+	 *                           connection is kept alive between requests
+	 */
+	public long getKeepAliveDuration() {
+		return keepAliveDuration;
+	}
+
+	/**
+	 * 
+	 * @param keepAliveDuration the maximum time in milliseconds a pooled 
+	 *                          connection is kept alive between requests
+	 */
+	public void setKeepAliveDuration(long keepAliveDuration) {
+		this.keepAliveDuration = keepAliveDuration;
+	}
+
+	/**
+	 * 
+	 * @return connectTimeout milliseconds to establish a connection, 0 for none
+	 */
+	public long getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * 
+	 * @param connectTimeout milliseconds to establish a connection including 
+	 *                       the TLS handshake, 0 for none
+	 */
+	public void setConnectTimeout(long connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * 
+	 * @return socketTimeout milliseconds of inactivity while reading a 
+	 *                       response, 0 for none
+	 */
+	public long getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * 
+	 * @param socketTimeout milliseconds of inactivity while reading a 
+	 *                      response, 0 for none
+	 */
+	public void setSocketTimeout(long socketTimeout) {
+		this.socketTimeout = socketTimeout;
+	}
+
+	/**
+	 * 
+	 * @return connectionRequestTimeout milliseconds to wait for a pooled 
+	 *                                  connection, 0 for none
+	 */
+	public long getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * 
+	 * @param connectionRequestTimeout milliseconds to wait for a pooled 
+	 *                                 connection when all connections of the 
+	 *                                 route are leased, 0 for none
+	 */
+	public void setConnectionRequestTimeout(long connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	/**
+	 * 
+	 * @return requestTimeout milliseconds after which a request is aborted, 
+	 *                        0 for none
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	/**
+	 * 
+	 * @param requestTimeout total milliseconds of a request, from leasing a 
+	 *                       connection to reading the response, after which 
+	 *                       it is aborted, 0 for none; bounds slow responses 
+	 *                       the socket timeout does not
+	 */
+	public void setRequestTimeout(long requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * 
+	 * @return tokenRefreshFraction the fraction of the token expiration time 
+	 *                              after which the token is proactively refreshed
+	 */
+	public double getTokenRefreshFraction() {
+		return tokenRefreshFraction;
+	}
+
+	/**
+	 * 
+	 * @param tokenRefreshFraction the fraction of the token expiration time,
+	 *                             between 0 and 1, after which the token is 
+	 *                             proactively refreshed
+	 */
+	public void setTokenRefreshFraction(double tokenRefreshFraction) {
+		this.tokenRefreshFraction = tokenRefreshFraction;
+	}
+
+	/**
+	 * 
+	 * @return tokenRefreshJitter the random fraction applied to the refresh delay
+	 *                            to spread refreshes of many connections
+	 */
+	public double getTokenRefreshJitter() {
+		return tokenRefreshJitter;
+	}
+
+	/**
+	 * 
+	 * @param tokenRefreshJitter the random fraction, between 0 and 1, applied 
+	 *                           to the refresh delay to spread refreshes of many 
+	 *                           connections
+	 */
+	public void setTokenRefreshJitter(double tokenRefreshJitter) {
+		this.tokenRefreshJitter = tokenRefreshJitter;
+	}
+
+	/**
+	 * 
+	 * @return tokenExpirySkew milliseconds before its expiration a token is no 
+	 *                         longer considered valid
+	 */
+	public long getTokenExpirySkew() {
+		return tokenExpirySkew;
+	}
+
+	/**
+	 * 
+	 * @param tokenExpirySkew milliseconds before its expiration a token is no 
+	 *                        longer considered valid, so requests never carry a 
+	 *                        token about to expire; at most half the expiration 
+	 *                        time of a token is applied
+	 */
+	public void setTokenExpirySkew(long tokenExpirySkew) {
+		this.tokenExpirySkew = tokenExpirySkew;
+	}
+
+	/**
+	 * 
+	 * @return singleFlight true if concurrent connect requests on a connection 
+	 *                      share a single token request
+	 */
+	public boolean isSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * 
+	 * @param singleFlight true to have concurrent connect requests on a 
+	 *                     connection wait for and share the outcome of a 
+	 *                     single token request
+	 */
+	public void setSingleFlight(boolean singleFlight) {
+		this.singleFlight = singleFlight;
+	}
+
+	/**
+	 * 
+	 * @return virtualThreadExecution true if asynchronous connect requests run 
+	 *                                the blocking token request on virtual 
+	 *                                threads
+	 */
+	public boolean isVirtualThreadExecution() {
+		return virtualThreadExecution;
+	}
+
+	/**
+	 * 
+	 * @param virtualThreadExecution true to run the blocking token request of 
+	 *                               asynchronous connect requests on virtual 
+	 *                               threads, or on pooled daemon threads where 
+	 *                               virtual threads are not available
+	 */
+	public void setVirtualThreadExecution(boolean virtualThreadExecution) {
+		this.virtualThreadExecution = virtualThreadExecution;
+	}
+
+	/**
+	 * 
+	 * @return trustStorePath file path to the trust store with the certificates 
+	 *                        of trusted servers, empty if the default trust 
+	 *                        store of the JVM is used
+	 */
+	public String getTrustStorePath() {
+		return trustStorePath;
+	}
+
+	/**
+	 * 
+	 * @param trustStorePath file path to the trust store with the certificates 
+	 *                       of trusted servers, e.g. of a private token server; 
+	 *                       the default trust store of the JVM is used if empty
+	 */
+	public void setTrustStorePath(String trustStorePath) {
+		this.trustStorePath = trustStorePath;
+	}
+
+	/**
+	 * 
+	 * @return trustStorePassword password to the trust store
+	 */
+	public String getTrustStorePassword() {
+		return trustStorePassword;
+	}
+
+	/**
+	 * 
+	 * @param trustStorePassword password to the trust store
+	 */
+	public void setTrustStorePassword(String trustStorePassword) {
+		this.trustStorePassword = trustStorePassword;
+	}
+
+	/**
+	 * 
+	 * @return tokenParser parser mapping token server responses to tokens
+	 */
+	public TokenParser getTokenParser() {
+		return tokenParser;
+	}
+
+	/**
+	 * 
+	 * @param tokenParser thread safe parser mapping token server responses to 
+	 *                    tokens, {@link GsonTokenParser} is used if null
+	 */
+	public void setTokenParser(TokenParser tokenParser) {
+		this.tokenParser = tokenParser;
+	}
+
+	/**
+	 * 
+	 * @return connectionMetrics instrumentation of token requests
+	 */
+	public ConnectionMetrics getConnectionMetrics() {
+		return connectionMetrics;
+	}
+
+	/**
+	 * 
+	 * @param connectionMetrics thread safe instrumentation of token requests, 
+	 *                          {@link NoOpConnectionMetrics} is used if null
+	 */
+	public void setConnectionMetrics(ConnectionMetrics connectionMetrics) {
+		this.connectionMetrics = connectionMetrics;
+	}
+
+	/**
+	 * 
+	 * @return tokenStore store persisting client credentials tokens across 
+	 *                    restarts, null if tokens are not persisted
+	 */
+	public TokenStore getTokenStore() {
+		return tokenStore;
+	}
+
+	/**
+	 * 
+	 * @param tokenStore thread safe store consulted before a client credentials 
+	 *                   token request and updated with the issued token, 
+	 *                   null to disable
+	 */
+	public void setTokenStore(TokenStore tokenStore) {
+		this.tokenStore = tokenStore;
+	}
+
+	/**
+	 * 
+	 * @return tokenLeaseDuration milliseconds a connection holds the lease of 
+	 *                            the token store while requesting a token
+	 */
+	public long getTokenLeaseDuration() {
+		return tokenLeaseDuration;
+	}
+
+	/**
+	 * 
+	 * @param tokenLeaseDuration milliseconds a connection holds the lease of the 
+	 *                           token store while requesting a token, and the 
+	 *                           longest other connections wait for its token; 
+	 *                           should exceed the token request timeout
+	 */
+	public void setTokenLeaseDuration(long tokenLeaseDuration) {
+		this.tokenLeaseDuration = tokenLeaseDuration;
+	}
+
+	/**
+	 * 
+	 * @return retryPolicy policy retrying failed token requests, null if a 
+	 *                     token request is attempted once
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * 
+	 * @param retryPolicy policy retrying token requests failed with an I/O 
+	 *                    error or a transient http status, null to attempt 
+	 *                    token requests once
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * 
+	 * @return circuitBreakerPolicy policy of the circuit breaker of the token 
+	 *                              server, null if none
+	 */
+	public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+		return circuitBreakerPolicy;
+	}
+
+	/**
+	 * 
+	 * @param circuitBreakerPolicy policy of the circuit breaker shared by all 
+	 *                             connections of the token server url, failing 
+	 *                             token requests fast while the server fails, 
+	 *                             null to disable
+	 */
+	public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+		this.circuitBreakerPolicy = circuitBreakerPolicy;
+	}
+
+	/**
+	 * 
+	 * @return rateLimitPolicy policy of the rate limiter of the client id, 
+	 *                         null if requests are not rate limited
+	 */
+	public RateLimitPolicy getRateLimitPolicy() {
+		return rateLimitPolicy;
+	}
+
+	/**
+	 * 
+	 * @param rateLimitPolicy policy of the rate limiter shared by all 
+	 *                        connections of the client id, pacing token and 
+	 *                        api requests, null to disable
+	 */
+	public void setRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+		this.rateLimitPolicy = rateLimitPolicy;
+	}
+
 	/**
 	 * @return String the String representation of this {@link ConnectionConfiguration} object
 	 */
@@ -17,6 +17,10 @@
 */
 package com.adp.marketplace.connection.constants;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import com.adp.marketplace.connection.core.ADPAPIConnection;
 
 /**
@@ -33,7 +37,9 @@ public interface Constants {
 	public static final int HTTP_REDIRECT = 302;
 	public static final int HTTP_CLIENT_ERROR = 400;
 	public static final int HTTP_CLIENT_INVALID = 401;
+	public static final int HTTP_TOO_MANY_REQUESTS = 429;
 	public static final int HTTP_SERVER_ERROR = 500;
+	public static final int HTTP_SERVICE_UNAVAILABLE = 503;
 	
 	// User Agents
 	public static final String CONNECTION_USER_AGENT = "adp-connection-java/1.0.0";
@@ -61,7 +67,95 @@ public interface Constants {
 	public static final String ACCESS_TOKEN = "access_token";
 	public static final String TOKEN = "token";
 
+	// grant type - 'refresh token', also the name of the refresh token parameter
+	public static final String REFRESH_TOKEN = "refresh_token";
+
+	// maximum size in bytes of token server responses
+	public static final int MAX_RESPONSE_SIZE = 65536;
+
 	// SSL/TLS Protocol version
 	public static final String TLS_VERSION =  "TLSv1.2";
-	
+
+	// http context attribute holding the TLS handshake duration in nanoseconds of a new connection
+	public static final String TLS_HANDSHAKE_NANOS = "adp.tls.handshake.nanos";
+
+	// pooled https client defaults - durations in milliseconds
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 200;
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+	public static final long DEFAULT_KEEP_ALIVE_DURATION = 60000;
+
+	// pooled clients replaced after a certificate change are closed once their
+	// requests in flight completed, polled at this interval up to the drain timeout
+	public static final long CLIENT_DRAIN_INTERVAL = 100;
+	public static final long CLIENT_DRAIN_TIMEOUT = 60000;
+
+	// http request timeouts in milliseconds - connect, socket read, lease of a 
+	// pooled connection and the total duration of a request
+	public static final long DEFAULT_CONNECT_TIMEOUT = 10000;
+	public static final long DEFAULT_SOCKET_TIMEOUT = 30000;
+	public static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000;
+	public static final long DEFAULT_REQUEST_TIMEOUT = 60000;
+
+	// tokens are considered expired this many milliseconds early, at most half their expiration time
+	public static final long DEFAULT_TOKEN_EXPIRY_SKEW = 30000;
+
+	// proactive token refresh defaults - fractions of token expiration, delay in milliseconds
+	public static final double DEFAULT_TOKEN_REFRESH_FRACTION = 0.75;
+	public static final double DEFAULT_TOKEN_REFRESH_JITTER = 0.1;
+	public static final long DEFAULT_TOKEN_REFRESH_RETRY_DELAY = 30000;
+	public static final int DEFAULT_TOKEN_REFRESH_THREADS = 2;
+
+	// connection manager defaults - time to live in milliseconds
+	public static final int DEFAULT_CONNECTION_CACHE_MAX_SIZE = 1000;
+	public static final long DEFAULT_CONNECTION_CACHE_TTL = 3600000;
+
+	// name prefix of the threads running blocking connect requests asynchronously
+	public static final String CONNECT_THREAD_NAME = "adp-connect-";
+
+	// bounds of the thread pool running blocking connect requests without virtual
+	// threads, overridden by the system properties of the same name
+	public static final String CONNECT_THREADS_PROPERTY = "adp.connect.threads";
+	public static final String CONNECT_QUEUE_CAPACITY_PROPERTY = "adp.connect.queueCapacity";
+	public static final int DEFAULT_CONNECT_THREADS = DEFAULT_MAX_CONNECTIONS_TOTAL;
+	public static final int DEFAULT_CONNECT_QUEUE_CAPACITY = 10000;
+
+	// name of the thread aborting requests past their timeout
+	public static final String TIMEOUT_THREAD_NAME = "adp-timeout";
+
+	// number of records requested per page of ADP API collections
+	public static final int DEFAULT_API_PAGE_SIZE = 100;
+
+	// token store lease held by the node refreshing a shared token, and poll 
+	// interval of nodes waiting for it - in milliseconds
+	public static final long DEFAULT_TOKEN_LEASE_DURATION = 30000;
+	public static final long TOKEN_LEASE_POLL_INTERVAL = 100;
+
+	// token request retry defaults - delays and duration in milliseconds
+	public static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_RETRY_BASE_DELAY = 100;
+	public static final long DEFAULT_RETRY_MAX_DELAY = 5000;
+	public static final long DEFAULT_RETRY_MAX_DURATION = 30000;
+	public static final List<Integer> DEFAULT_RETRY_STATUS_CODES =
+			Collections.unmodifiableList(Arrays.asList(429, 500, 502, 503, 504));
+
+	// token server circuit breaker defaults - rates between 0 and 1, durations in milliseconds
+	public static final double DEFAULT_CIRCUIT_FAILURE_RATE_THRESHOLD = 0.5;
+	public static final double DEFAULT_CIRCUIT_SLOW_CALL_RATE_THRESHOLD = 0.5;
+	public static final long DEFAULT_CIRCUIT_SLOW_CALL_DURATION = 10000;
+	public static final int DEFAULT_CIRCUIT_WINDOW_SIZE = 20;
+	public static final int DEFAULT_CIRCUIT_MINIMUM_CALLS = 10;
+	public static final long DEFAULT_CIRCUIT_OPEN_DURATION = 30000;
+	public static final int DEFAULT_CIRCUIT_HALF_OPEN_CALLS = 3;
+
+	// client side rate limit defaults - permits per second, burst of permits 
+	// and the milliseconds a request waits at most for a permit
+	public static final double DEFAULT_RATE_LIMIT_PERMITS_PER_SECOND = 10;
+	public static final int DEFAULT_RATE_LIMIT_BURST = 10;
+	public static final long DEFAULT_RATE_LIMIT_MAX_WAIT = 30000;
+
+	// concurrent connect requests of a bulk connect, matching the connections 
+	// per route of the pooled https client
+	public static final int DEFAULT_BULK_CONNECT_PARALLELISM = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
 }
@@ -0,0 +1,528 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.resilience.RateLimiterRegistry;
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
+import com.adp.marketplace.connection.utils.HttpClientRegistry;
+import com.adp.marketplace.connection.vo.ADPAPIResponse;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * ADPAPIClient executes requests against ADP APIs with the token of a connection.
+ * Requests are sent to {@link ConnectionConfiguration#getApiRequestUrl()} through
+ * the pooled mutual TLS client of the connection, see {@link HttpClientRegistry},
+ * so API requests share connections and TLS sessions with token requests.
+ * </p>
+ *
+ * <p>
+ * The bearer token is added to each request, connecting first if the connection
+ * has no valid token. A request answered with 401 is replayed once with a new
+ * token, unless a concurrent request already refreshed it; a rejected token
+ * request fails with {@link ConnectionException}. Responses of other statuses,
+ * and of a replayed request, are returned to the caller.
+ * </p>
+ *
+ * <p>
+ * Requests are executed with the timeouts of the connection configuration and
+ * aborted once its request timeout elapsed, including a replay. Each request
+ * takes a permit of the rate limiters of the client, see
+ * {@link RateLimiterRegistry}, and a 429 or 503 response with a Retry-After
+ * pauses them for that long.
+ * </p>
+ *
+ * <pre>
+ * ADPAPIClient client = new ADPAPIClient(connection);
+ * ADPAPIResponse response = client.get("/hr/v2/workers");
+ * </pre>
+ *
+ * <p>
+ * Large collections are iterated page by page with {@link #iterate(String, String, Class, int)}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class ADPAPIClient {
+
+	// reads the status, headers and body of a response
+	private static final ResponseHandler<ADPAPIResponse> RESPONSE_HANDLER = new ResponseHandler<ADPAPIResponse>() {
+
+		@Override
+		public ADPAPIResponse handleResponse(HttpResponse httpResponse) throws IOException {
+
+			Map<String, String> headers = new HashMap<String, String>();
+			for ( Header header : httpResponse.getAllHeaders() ) {
+				headers.put(header.getName(), header.getValue());
+			}
+
+			String body = httpResponse.getEntity() == null ? null
+					: EntityUtils.toString(httpResponse.getEntity(), Consts.UTF_8);
+
+			return new ADPAPIResponse(httpResponse.getStatusLine().getStatusCode(),
+					httpResponse.getStatusLine().toString(), headers, body);
+		}
+	};
+
+	private final AbstractADPAPIConnection connection;
+
+	/**
+	 * constructor
+	 *
+	 * @param connection		   connection providing the token and configuration
+	 * @throws ConnectionException throws exception if connection is null or
+	 * 							   not supported
+	 */
+	public ADPAPIClient(ADPAPIConnection connection) throws ConnectionException {
+
+		if ( connection == null ) {
+			throw new ConnectionException("Connection is Null!");
+		}
+
+		if ( !(connection instanceof AbstractADPAPIConnection) ) {
+			throw new ConnectionException("Connection Type is Not Supported!");
+		}
+
+		this.connection = (AbstractADPAPIConnection) connection;
+	}
+
+	/**
+	 * Returns the connection of this client
+	 *
+	 * @return ADPAPIConnection connection providing the token and configuration
+	 */
+	public ADPAPIConnection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Executes a GET request
+	 *
+	 * @param path				   path relative to the api request url, or an
+	 * 							   absolute url
+	 * @return ADPAPIResponse	   API response
+	 * @throws ConnectionException thrown if no token can be acquired or the
+	 * 							   request fails
+	 */
+	public ADPAPIResponse get(String path) throws ConnectionException {
+		return execute(new HttpGet(getRequestUrl(path)));
+	}
+
+	/**
+	 * Executes a POST request with a JSON body
+	 *
+	 * @param path				   path relative to the api request url, or an
+	 * 							   absolute url
+	 * @param json				   JSON request body
+	 * @return ADPAPIResponse	   API response
+	 * @throws ConnectionException thrown if no token can be acquired or the
+	 * 							   request fails
+	 */
+	public ADPAPIResponse post(String path, String json) throws ConnectionException {
+
+		HttpPost post = new HttpPost(getRequestUrl(path));
+		post.setEntity(new StringEntity(StringUtils.defaultString(json), ContentType.APPLICATION_JSON));
+
+		return execute(post);
+	}
+
+	/**
+	 * Returns an iterator over the records of an ADP API collection fetched in
+	 * pages of {@link Constants#DEFAULT_API_PAGE_SIZE} records
+	 *
+	 * @param path		 path of the collection relative to the api request url
+	 * @param collection name of the JSON array holding the records, e.g. "workers"
+	 * @param type		 type records are deserialized to
+	 * @param <T>		 type of the records
+	 * @return ADPAPIPageIterator iterator fetching pages lazily
+	 * @see ADPAPIPageIterator
+	 */
+	public <T> ADPAPIPageIterator<T> iterate(String path, String collection, Class<T> type) {
+		return iterate(path, collection, type, Constants.DEFAULT_API_PAGE_SIZE);
+	}
+
+	/**
+	 * Returns an iterator over the records of an ADP API collection fetched in
+	 * pages with <code>$top</code> and <code>$skip</code> query parameters
+	 *
+	 * @param path		 path of the collection relative to the api request url
+	 * @param collection name of the JSON array holding the records, e.g. "workers"
+	 * @param type		 type records are deserialized to
+	 * @param pageSize	 number of records requested per page
+	 * @param <T>		 type of the records
+	 * @return ADPAPIPageIterator iterator fetching pages lazily
+	 * @see ADPAPIPageIterator
+	 */
+	public <T> ADPAPIPageIterator<T> iterate(String path, String collection, Class<T> type, int pageSize) {
+		return new ADPAPIPageIterator<T>(this, path, collection, type, pageSize);
+	}
+
+	/**
+	 * Executes a GET request and passes the response to the handler, e.g. to
+	 * stream the response body instead of reading it into memory
+	 *
+	 * @param path				   path relative to the api request url, or an
+	 * 							   absolute url
+	 * @param responseHandler	   handler of the response, not called with a
+	 * 							   401 response that is replayed
+	 * @param <T>				   type returned by the handler
+	 * @return T				   value returned by the handler
+	 * @throws ConnectionException thrown if no token can be acquired or the
+	 * 							   request or handler fails
+	 */
+	public <T> T get(String path, ResponseHandler<? extends T> responseHandler) throws ConnectionException {
+		return execute(new HttpGet(getRequestUrl(path)), responseHandler);
+	}
+
+	/**
+	 * Executes a request with the bearer token of the connection, replaying
+	 * it once with a new token if answered with 401. The request entity, if
+	 * any, must be repeatable.
+	 *
+	 * @param request			   request to execute
+	 * @return ADPAPIResponse	   API response
+	 * @throws ConnectionException thrown if no token can be acquired or
+	 * 							   refreshed, or the request fails
+	 */
+	public ADPAPIResponse execute(HttpRequestBase request) throws ConnectionException {
+		return execute(request, RESPONSE_HANDLER);
+	}
+
+	/**
+	 * Executes a request with the bearer token of the connection, replaying
+	 * it once with a new token if answered with 401, and passes the response
+	 * to the handler. The request entity, if any, must be repeatable.
+	 *
+	 * @param request			   request to execute
+	 * @param responseHandler	   handler of the response, not called with a
+	 * 							   401 response that is replayed
+	 * @param <T>				   type returned by the handler
+	 * @return T				   value returned by the handler
+	 * @throws ConnectionException thrown if no token can be acquired or
+	 * 							   refreshed, or the request or handler fails
+	 */
+	public <T> T execute(HttpRequestBase request, ResponseHandler<? extends T> responseHandler)
+			throws ConnectionException {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+		CloseableHttpClient httpClient = HttpClientRegistry.getInstance().getHttpsClient(connectionConfiguration);
+
+		if ( request.getConfig() == null ) {
+			request.setConfig(HttpClientRegistry.getInstance().getRequestConfig(connectionConfiguration));
+		}
+
+		if ( !request.containsHeader(HttpHeaders.USER_AGENT) ) {
+			request.setHeader(HttpHeaders.USER_AGENT, Constants.USERINFO_USER_AGENT);
+		}
+
+		if ( !request.containsHeader(HttpHeaders.ACCEPT) ) {
+			request.setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType());
+		}
+
+		Token token = getValidToken();
+		CloseableHttpResponse httpResponse = null;
+
+		ScheduledFuture<?> timeout = scheduleAbort(request, connectionConfiguration.getRequestTimeout());
+
+		try {
+
+			httpResponse = execute(httpClient, request, token);
+
+			if ( httpResponse.getStatusLine().getStatusCode() == Constants.HTTP_CLIENT_INVALID ) {
+
+				close(httpResponse);
+				httpResponse = null;
+
+				httpResponse = execute(httpClient, request, refreshToken(token));
+			}
+
+			return responseHandler.handleResponse(httpResponse);
+
+		} catch (IOException e) {
+			throw new ConnectionException(e);
+		} finally {
+
+			if ( timeout != null ) {
+				timeout.cancel(false);
+			}
+
+			try {
+				close(httpResponse);
+			} catch (IOException e) {
+				throw new ConnectionException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns a new token after this token was refused, unless a concurrent
+	 * request already refreshed it
+	 *
+	 * @param token
+	 * @return Token
+	 * @throws ConnectionException
+	 */
+	private Token refreshToken(Token token) throws ConnectionException {
+
+		// token was revoked or expired early, refresh unless a concurrent request already did
+		if ( connection.getToken() == token ) {
+
+			connection.connect();
+
+			// the prior token is kept if the token request was rejected
+			if ( connection.getToken() == token ) {
+				throw newTokenRejectedException();
+			}
+		}
+
+		Token refreshedToken = connection.getToken();
+
+		if ( !isValid(refreshedToken) ) {
+			throw newTokenRejectedException();
+		}
+
+		return refreshedToken;
+	}
+
+	/**
+	 * Returns the valid token of the connection, connecting first if none
+	 *
+	 * @return Token
+	 * @throws ConnectionException
+	 */
+	private Token getValidToken() throws ConnectionException {
+
+		if ( !connection.isConnectionIndicator() ) {
+			connection.connect();
+		}
+
+		Token token = connection.getToken();
+
+		if ( !isValid(token) ) {
+			throw newTokenRejectedException();
+		}
+
+		return token;
+	}
+
+	/**
+	 * Returns the exception of a rejected token request with the error
+	 * response of the connection
+	 *
+	 * @return ConnectionException
+	 */
+	private ConnectionException newTokenRejectedException() {
+		return new ConnectionException(StringUtils.defaultIfBlank(connection.getErrorResponse(),
+				"Token request was rejected"));
+	}
+
+	/**
+	 * Executes the request with this token once permitted by the rate limiter
+	 * of the client, which is paused for the Retry-After of a throttled response
+	 *
+	 * @param httpClient
+	 * @param request
+	 * @param token
+	 * @return CloseableHttpResponse
+	 * @throws IOException
+	 * @throws ConnectionException
+	 */
+	private CloseableHttpResponse execute(CloseableHttpClient httpClient, HttpRequestBase request, Token token)
+			throws IOException, ConnectionException {
+
+		try {
+			RateLimiterRegistry.getInstance().acquire(getConnectionConfiguration());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		}
+
+		request.setHeader(HttpHeaders.AUTHORIZATION,
+				StringUtils.defaultIfBlank(token.getToken_type(), "Bearer") + " " + token.getAccess_token());
+
+		CloseableHttpResponse httpResponse = httpClient.execute(request);
+
+		RateLimiterRegistry.getInstance().throttled(getConnectionConfiguration(),
+				ConnectionUtils.getRetryAfter(httpResponse));
+
+		return httpResponse;
+	}
+
+	/**
+	 * Schedules aborting the request once the request timeout elapsed
+	 *
+	 * @param request
+	 * @param requestTimeout
+	 * @return ScheduledFuture
+	 */
+	private static ScheduledFuture<?> scheduleAbort(final HttpRequestBase request, long requestTimeout) {
+
+		return ExecutorUtils.getInstance().scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+				request.abort();
+			}
+		}, requestTimeout);
+	}
+
+	/**
+	 * Consumes unread content so the pooled connection can be reused and
+	 * closes the response
+	 *
+	 * @param httpResponse
+	 * @throws IOException
+	 */
+	private static void close(CloseableHttpResponse httpResponse) throws IOException {
+
+		if ( httpResponse != null ) {
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+			httpResponse.close();
+		}
+	}
+
+	/**
+	 * Returns the url of this path relative to the api request url, or the
+	 * path itself if it is an absolute https url on the host of the api
+	 * request url. The bearer token is never sent over plain http or to
+	 * another host.
+	 *
+	 * @param path
+	 * @return String
+	 * @throws ConnectionException
+	 */
+	private String getRequestUrl(String path) throws ConnectionException {
+
+		String trimmedPath = StringUtils.trimToEmpty(path);
+
+		if ( StringUtils.startsWithIgnoreCase(trimmedPath, "http://") ) {
+			throw new ConnectionException("API Request URL must use https!!");
+		}
+
+		String apiRequestUrl = StringUtils.trimToEmpty(getConnectionConfiguration().getApiRequestUrl());
+
+		if ( apiRequestUrl.isEmpty() ) {
+			throw new ConnectionException("API Request URL is Not Set in configuration!!");
+		}
+
+		if ( StringUtils.startsWithIgnoreCase(trimmedPath, "https://") ) {
+
+			if ( !isSameServer(trimmedPath, apiRequestUrl) ) {
+				throw new ConnectionException("API Request URL host does not match configuration!!");
+			}
+
+			return trimmedPath;
+		}
+
+		if ( trimmedPath.isEmpty() ) {
+			return apiRequestUrl;
+		}
+
+		return StringUtils.removeEnd(apiRequestUrl, "/") + (trimmedPath.startsWith("/") ? "" : "/") + trimmedPath;
+	}
+
+	/**
+	 * Returns true if both urls have the same host and port, the default https
+	 * port if none
+	 *
+	 * @param url
+	 * @param apiRequestUrl
+	 * @return boolean
+	 * @throws ConnectionException
+	 */
+	private static boolean isSameServer(String url, String apiRequestUrl) throws ConnectionException {
+
+		try {
+
+			URI uri = new URI(url);
+			URI apiRequestUri = new URI(apiRequestUrl);
+
+			return uri.getHost() != null && uri.getHost().equalsIgnoreCase(apiRequestUri.getHost())
+					&& getPort(uri) == getPort(apiRequestUri);
+
+		} catch (URISyntaxException e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	/**
+	 * Returns the port of the uri, 443 if none
+	 *
+	 * @param uri
+	 * @return int
+	 */
+	private static int getPort(URI uri) {
+		return uri.getPort() < 0 ? 443 : uri.getPort();
+	}
+
+	/**
+	 * Returns the configuration of the connection
+	 *
+	 * @return ConnectionConfiguration
+	 * @throws ConnectionException
+	 */
+	private ConnectionConfiguration getConnectionConfiguration() throws ConnectionException {
+
+		ConnectionConfiguration connectionConfiguration = connection.getConnectionConfiguration();
+
+		if ( connectionConfiguration == null ) {
+			throw new ConnectionException("Connection Configuration is Not Set in request!!");
+		}
+
+		return connectionConfiguration;
+	}
+
+	/**
+	 * Returns true if this token has an access token
+	 *
+	 * @param token
+	 * @return boolean
+	 */
+	private static boolean isValid(Token token) {
+		return token != null && StringUtils.isNotBlank(token.getAccess_token());
+	}
+
+}
@@ -17,8 +17,13 @@
 */
 package com.adp.marketplace.connection.core;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
 import com.adp.marketplace.connection.constants.GrantType;
 import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
 import com.adp.marketplace.connection.vo.Token;
 
 
@@ -57,6 +62,72 @@ public interface ADPAPIConnection {
 	 */
 	public void connect() throws ConnectionException;
 	
+	/**
+	 * <p>
+	 * Initiates a non-blocking connect request to ADP Authorization Server or 
+	 * Token Server based on the type of connection configuration. The returned 
+	 * future completes with the issued {@link Token} which is also mapped with 
+	 * this connection
+	 * </p>
+	 * 
+	 * <p>
+	 * The default implementation runs {@link #connect()} on the shared connect 
+	 * executor of {@link ExecutorUtils}
+	 * </p>
+	 * 
+	 * @return CompletableFuture future completed with the issued token or 
+	 * 							 exceptionally with a {@link ConnectionException} 
+	 * 							 in case of incomplete configuration, invalid 
+	 * 							 configurations data passed or server error
+	 */
+	public default CompletableFuture<Token> connectAsync() {
+		
+		try {
+			
+			return CompletableFuture.supplyAsync(new Supplier<Token>() {
+				
+				@Override
+				public Token get() {
+					
+					try {
+						connect();
+					} catch (ConnectionException e) {
+						throw new CompletionException(e);
+					}
+					
+					if ( !isConnectionIndicator() ) {
+						throw new CompletionException(new ConnectionException("Token request was rejected"));
+					}
+					
+					return getToken();
+				}
+			}, ExecutorUtils.getInstance().getConnectExecutor());
+			
+		} catch (RuntimeException e) {
+			
+			CompletableFuture<Token> future = new CompletableFuture<Token>();
+			future.completeExceptionally(new ConnectionException(e));
+			
+			return future;
+		}
+	}
+	
+	/**
+	 * Returns a future completed with the token associated with this connection 
+	 * if it is valid, otherwise initiates a non-blocking connect request
+	 * 
+	 * @return CompletableFuture future completed with a valid token
+	 * @see #connectAsync()
+	 */
+	public default CompletableFuture<Token> getValidTokenAsync() {
+		
+		if ( isConnectionIndicator() ) {
+			return CompletableFuture.completedFuture(getToken());
+		}
+		
+		return connectAsync();
+	}
+	
 	/**
 	 * Invokes API to disconnect the connection - currently this method is 
 	 * implemented  to reset the connection to null
@@ -83,4 +154,22 @@ public interface ADPAPIConnection {
 	 */
 	public boolean isConnectionIndicator();
 	
+	/**
+	 * Returns true if the connection is alive and its token remains valid for
+	 * at least the given milliseconds. Use before long running work to refresh
+	 * a token about to expire up front.
+	 * 
+	 * <p>
+	 * The default implementation does not know when the token expires, it 
+	 * answers {@link #isConnectionIndicator()} for now and false otherwise so 
+	 * the token is refreshed up front
+	 * </p>
+	 * 
+	 * @param millis milliseconds the token must remain valid, 0 for now
+	 * @return boolean
+	 */
+	public default boolean isValidFor(long millis) {
+		return millis <= 0 && isConnectionIndicator();
+	}
+	
 }
@@ -17,6 +17,13 @@
 */
 package com.adp.marketplace.connection.core;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
@@ -24,9 +31,13 @@ import org.apache.commons.lang3.StringUtils;
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
 import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.constants.GrantType;
 import com.adp.marketplace.connection.exception.ConnectionException;
 import com.adp.marketplace.connection.exception.InvalidGrantTypeException;
+import com.adp.marketplace.connection.vo.BulkConnectResult;
+import com.adp.marketplace.connection.vo.ConnectResult;
+import com.adp.marketplace.connection.vo.Token;
 
 
 /**
@@ -36,7 +47,6 @@ import com.adp.marketplace.connection.exception.InvalidGrantTypeException;
  */
 public class ADPAPIConnectionFactory {
 	
-	private static ADPAPIConnectionFactory INSTANCE = null;
 	private static final Logger LOGGER = Logger.getLogger(ADPAPIConnectionFactory.class.getName());
 	
 	/**
@@ -52,15 +62,7 @@ public class ADPAPIConnectionFactory {
 	 */
 	public static ADPAPIConnectionFactory getInstance() {
 		
-		if ( INSTANCE == null ) {		
-			synchronized (ADPAPIConnectionFactory.class) {
-	            if ( INSTANCE == null ) {
-	                INSTANCE = new ADPAPIConnectionFactory();
-	            }
-	        }
-	    }
-		
-	    return INSTANCE;
+		return Holder.INSTANCE;
 	}
 
 	/**
@@ -111,6 +113,141 @@ public class ADPAPIConnectionFactory {
 		
 		return aDPAPIConnection;
 	}
+
+	/**
+	 * Creates and connects a connection for each configuration, running
+	 * {@link Constants#DEFAULT_BULK_CONNECT_PARALLELISM} connect requests
+	 * concurrently
+	 * 
+	 * @param connectionConfigurations configurations to connect, e.g. of all 
+	 *                                 client organizations at startup
+	 * @return BulkConnectResult       result of each configuration and the 
+	 *                                 aggregated timing
+	 * @throws ConnectionException     throws exception if the configurations 
+	 *                                 are null or the caller is interrupted
+	 * @see #connectAll(Collection, int)
+	 */
+	public BulkConnectResult connectAll(Collection<? extends ConnectionConfiguration> connectionConfigurations)
+		throws ConnectionException {
+		
+		return connectAll(connectionConfigurations, Constants.DEFAULT_BULK_CONNECT_PARALLELISM);
+	}
+
+	/**
+	 * Creates and connects a connection for each configuration with at most 
+	 * parallelism connect requests in flight, and waits until all completed. 
+	 * Connect requests are sent through {@link ADPAPIConnection#connectAsync()}, 
+	 * so they share the pooled https clients and cached SSL contexts of their 
+	 * certificates, and a failing configuration does not fail the others.
+	 * 
+	 * @param connectionConfigurations configurations to connect, e.g. of all 
+	 *                                 client organizations at startup
+	 * @param parallelism              maximum number of concurrent connect 
+	 *                                 requests, at most the connections per 
+	 *                                 route of the pooled client is sensible
+	 * @return BulkConnectResult       result of each configuration, in the 
+	 *                                 order of the configurations, and the 
+	 *                                 aggregated timing
+	 * @throws ConnectionException     throws exception if the configurations 
+	 *                                 are null, parallelism is not greater 
+	 *                                 than zero or the caller is interrupted
+	 */
+	public BulkConnectResult connectAll(Collection<? extends ConnectionConfiguration> connectionConfigurations,
+			int parallelism) throws ConnectionException {
+		
+		if ( connectionConfigurations == null ) { 
+			throw new ConnectionException(new IllegalArgumentException("Connection Configurations cannot be null"));
+		}
+		
+		if ( parallelism <= 0 ) {
+			throw new ConnectionException(new IllegalArgumentException("Parallelism must be greater than zero"));
+		}
+		
+		ConnectResult[] results = new ConnectResult[connectionConfigurations.size()];
+		Semaphore permits = new Semaphore(parallelism);
+		CountDownLatch completed = new CountDownLatch(results.length);
+		
+		long start = System.nanoTime();
+		int index = 0;
+		
+		try {
+			
+			for ( ConnectionConfiguration connectionConfiguration : connectionConfigurations ) {
+				permits.acquire();
+				connect(connectionConfiguration, index++, results, permits, completed);
+			}
+			
+			completed.await();
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		}
+		
+		return new BulkConnectResult(Arrays.asList(results), 
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+	
+	/**
+	 * Creates and connects the connection of a bulk connect, storing its result 
+	 * and releasing its permit once the connect request completed
+	 * 
+	 * @param connectionConfiguration
+	 * @param index
+	 * @param results
+	 * @param permits
+	 * @param completed
+	 */
+	private void connect(final ConnectionConfiguration connectionConfiguration, final int index, 
+			final ConnectResult[] results, final Semaphore permits, final CountDownLatch completed) {
+		
+		final long start = System.nanoTime();
+		final ADPAPIConnection connection;
+		
+		try {
+			connection = createConnection(connectionConfiguration);
+		} catch (ConnectionException e) {
+			results[index] = new ConnectResult(connectionConfiguration, null, null, e, 0);
+			permits.release();
+			completed.countDown();
+			return;
+		}
+		
+		try {
+			
+			connection.connectAsync().whenComplete(new BiConsumer<Token, Throwable>() {
+				
+				@Override
+				public void accept(Token token, Throwable failure) {
+					
+					if ( failure instanceof CompletionException && failure.getCause() != null ) {
+						failure = failure.getCause();
+					}
+					
+					ConnectionException exception = null;
+					
+					if ( failure instanceof ConnectionException ) {
+						exception = (ConnectionException) failure;
+					} else if ( failure != null ) {
+						exception = new ConnectionException(failure);
+					}
+					
+					results[index] = new ConnectResult(connectionConfiguration, connection, 
+							exception == null ? token : null, exception, 
+							TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					
+					permits.release();
+					completed.countDown();
+				}
+			});
+			
+		} catch (RuntimeException e) {
+			results[index] = new ConnectResult(connectionConfiguration, connection, null, 
+					new ConnectionException(e), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			permits.release();
+			completed.countDown();
+		}
+	}
 		
 	
 	/**
@@ -143,5 +280,13 @@ public class ADPAPIConnectionFactory {
 		}
 
 	}
-	
-}
\ No newline at end of file
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final ADPAPIConnectionFactory INSTANCE = new ADPAPIConnectionFactory();
+	}
+
+}
@@ -0,0 +1,364 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.core;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ContentType;
+
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
+import com.adp.marketplace.connection.utils.GsonTokenParser;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/**
+ * <p>
+ * ADPAPIPageIterator iterates the records of an ADP API collection, such as the
+ * workers of <code>/hr/v2/workers</code>, fetching pages lazily with
+ * <code>$top</code> and <code>$skip</code> query parameters.
+ * </p>
+ *
+ * <p>
+ * Records are deserialized one at a time from the response stream, the response
+ * body is never held in memory. While the records of a page are consumed, the
+ * next page is fetched concurrently on the connect executor of {@link ExecutorUtils},
+ * so at most two pages are held regardless of the collection size. Iteration
+ * ends with a page holding fewer records than the page size, or an empty or
+ * 204 response.
+ * </p>
+ *
+ * <p>
+ * Iterators are not thread safe. An iterator that is not iterated to the end
+ * should be closed to cancel the prefetched page.
+ * </p>
+ *
+ * <pre>
+ * try ( ADPAPIPageIterator&lt;Worker&gt; workers = client.iterate("/hr/v2/workers", "workers", Worker.class) ) {
+ *     while ( workers.hasNext() ) {
+ *         Worker worker = workers.next();
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> type records are deserialized to
+ *
+ * @see ADPAPIClient#iterate(String, String, Class, int)
+ *
+ * @author tallaprs
+ *
+ */
+public class ADPAPIPageIterator<T> implements AutoCloseable {
+
+	private static final Gson GSON = GsonTokenParser.getInstance().getGson();
+
+	private final ADPAPIClient client;
+	private final String path;
+	private final String collection;
+	private final Class<T> type;
+	private final int pageSize;
+
+	private Iterator<T> records = Collections.<T>emptyIterator();
+	private Future<List<T>> nextPage;
+	private int skip;
+	private int pageCount;
+	private boolean lastPage;
+	private boolean closed;
+
+	/**
+	 * constructor
+	 *
+	 * @param client	 client executing the page requests
+	 * @param path		 path of the collection relative to the api request url,
+	 * 					 may include query parameters
+	 * @param collection name of the JSON array holding the records, e.g. "workers"
+	 * @param type		 type records are deserialized to with Gson
+	 * @param pageSize	 number of records requested per page
+	 */
+	public ADPAPIPageIterator(ADPAPIClient client, String path, String collection, Class<T> type, int pageSize) {
+
+		if ( client == null || StringUtils.isBlank(collection) || type == null ) {
+			throw new IllegalArgumentException("Client, collection and type must not be null");
+		}
+
+		if ( pageSize <= 0 ) {
+			throw new IllegalArgumentException("Page size must be greater than zero");
+		}
+
+		this.client = client;
+		this.path = StringUtils.trimToEmpty(path);
+		this.collection = collection;
+		this.type = type;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Returns true if the collection has more records, fetching the next page
+	 * if the records of the current page are consumed
+	 *
+	 * @return boolean			   true if {@link #next()} returns a record
+	 * @throws ConnectionException thrown if a page request fails or its
+	 * 							   response is invalid
+	 */
+	public boolean hasNext() throws ConnectionException {
+
+		while ( !records.hasNext() ) {
+
+			if ( closed || lastPage ) {
+				return false;
+			}
+
+			if ( nextPage == null ) {
+				nextPage = fetch(skip);
+			}
+
+			List<T> page;
+
+			try {
+				page = await(nextPage);
+			} finally {
+				nextPage = null;
+			}
+
+			pageCount++;
+			skip += pageSize;
+			lastPage = page.size() < pageSize;
+
+			// fetch the next page while the records of this page are consumed
+			if ( !lastPage ) {
+				nextPage = fetch(skip);
+			}
+
+			records = page.iterator();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the next record of the collection
+	 *
+	 * @return T					   next record
+	 * @throws ConnectionException	   thrown if a page request fails or its
+	 * 								   response is invalid
+	 * @throws NoSuchElementException  thrown if the collection has no more records
+	 */
+	public T next() throws ConnectionException {
+
+		if ( !hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		return records.next();
+	}
+
+	/**
+	 * Returns the number of pages fetched so far
+	 *
+	 * @return int number of pages fetched
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * Returns the number of records requested per page
+	 *
+	 * @return int page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Ends the iteration and cancels the prefetched page
+	 */
+	@Override
+	public void close() {
+
+		closed = true;
+		records = Collections.<T>emptyIterator();
+
+		if ( nextPage != null ) {
+			nextPage.cancel(true);
+			nextPage = null;
+		}
+	}
+
+	/**
+	 * Starts fetching the page at this offset on the connect executor
+	 *
+	 * @param offset
+	 * @return Future
+	 * @throws ConnectionException
+	 */
+	private Future<List<T>> fetch(int offset) throws ConnectionException {
+
+		final String pagePath = new StringBuilder(path)
+				.append(path.indexOf('?') < 0 ? '?' : '&')
+				.append("$top=").append(pageSize)
+				.append("&$skip=").append(offset)
+				.toString();
+
+		try {
+
+			return ExecutorUtils.getInstance().getConnectExecutor().submit(new Callable<List<T>>() {
+
+				@Override
+				public List<T> call() throws Exception {
+					return client.get(pagePath, new PageHandler());
+				}
+			});
+
+		} catch (RuntimeException e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	/**
+	 * Waits for the page and rethrows its failure
+	 *
+	 * @param page
+	 * @return List
+	 * @throws ConnectionException
+	 */
+	private List<T> await(Future<List<T>> page) throws ConnectionException {
+
+		try {
+			return page.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		} catch (ExecutionException e) {
+
+			if ( e.getCause() instanceof ConnectionException ) {
+				throw (ConnectionException) e.getCause();
+			}
+
+			throw new ConnectionException(e.getCause());
+		}
+	}
+
+	/**
+	 * Deserializes the records of a page from the response stream
+	 */
+	private final class PageHandler implements ResponseHandler<List<T>> {
+
+		@Override
+		public List<T> handleResponse(HttpResponse httpResponse) throws IOException {
+
+			int statusCode = httpResponse.getStatusLine().getStatusCode();
+			HttpEntity entity = httpResponse.getEntity();
+
+			if ( statusCode == HttpStatus.SC_NO_CONTENT ) {
+				return Collections.<T>emptyList();
+			}
+
+			if ( statusCode < 200 || statusCode >= 300 ) {
+				throw new HttpResponseException(statusCode, httpResponse.getStatusLine().toString());
+			}
+
+			if ( entity == null ) {
+				return Collections.<T>emptyList();
+			}
+
+			Charset charset = ContentType.getOrDefault(entity).getCharset();
+
+			// an empty response ends the iteration like a 204 response
+			PushbackInputStream content = new PushbackInputStream(entity.getContent());
+			int first = content.read();
+
+			if ( first < 0 ) {
+				content.close();
+				return Collections.<T>emptyList();
+			}
+
+			content.unread(first);
+
+			JsonReader reader = new JsonReader(new InputStreamReader(content,
+					charset != null ? charset : Consts.UTF_8));
+
+			try {
+				return read(reader);
+			} catch (JsonParseException e) {
+				throw new IOException("Invalid API response", e);
+			} catch (IllegalStateException e) {
+				throw new IOException("Invalid API response", e);
+			} finally {
+				reader.close();
+			}
+		}
+
+		/**
+		 * Reads the records of the collection array of the response object,
+		 * skipping all other fields
+		 *
+		 * @param reader
+		 * @return List
+		 * @throws IOException
+		 */
+		private List<T> read(JsonReader reader) throws IOException {
+
+			List<T> page = new ArrayList<T>(pageSize);
+
+			reader.beginObject();
+
+			while ( reader.hasNext() ) {
+
+				if ( collection.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY ) {
+
+					reader.beginArray();
+					while ( reader.hasNext() ) {
+						T record = GSON.fromJson(reader, type);
+						page.add(record);
+					}
+					reader.endArray();
+
+				} else {
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+
+			return page;
+		}
+	}
+
+}
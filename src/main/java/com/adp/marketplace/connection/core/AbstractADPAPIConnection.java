@@ -0,0 +1,1310 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.core;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.CircuitBreakerOpenException;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.exception.ConnectionValidatorException;
+import com.adp.marketplace.connection.exception.RateLimitExceededException;
+import com.adp.marketplace.connection.metrics.ConnectionMetrics;
+import com.adp.marketplace.connection.metrics.NoOpConnectionMetrics;
+import com.adp.marketplace.connection.resilience.CircuitBreaker;
+import com.adp.marketplace.connection.resilience.CircuitBreakerRegistry;
+import com.adp.marketplace.connection.resilience.RateLimiterRegistry;
+import com.adp.marketplace.connection.resilience.RetryPolicy;
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
+import com.adp.marketplace.connection.utils.HttpClientRegistry;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * AbstractADPAPIConnection is the abstract base class of {@link ADPAPIConnection}
+ * implementations which performs the token request and coordinates concurrent
+ * calls to {@link #connect()}.
+ * </p>
+ *
+ * <p>
+ * When {@link ConnectionConfiguration#isSingleFlight()} is enabled, concurrent
+ * calls to {@link #connect()} on the same connection collapse into a single
+ * token request: the first caller performs the request while the other callers
+ * wait for it and share its outcome, including any {@link ConnectionException}.
+ * Concurrent calls to {@link #connectAsync()} likewise share one non-blocking
+ * request.
+ * </p>
+ *
+ * <p>
+ * The token, its expiry time, the connection status and the error response are
+ * published together as one immutable snapshot, so a connection can be shared
+ * across threads and {@link #getToken()} reads never block or observe a token
+ * paired with the status of another.
+ * </p>
+ *
+ * <p>
+ * Token requests are recorded through the {@link ConnectionMetrics} of the
+ * configuration, broken down into TLS handshake, request and token parsing.
+ * </p>
+ *
+ * <p>
+ * Subclasses may share tokens across restarts and nodes: a connection publishes
+ * the token of {@link #loadStoredToken()} instead of requesting one if it
+ * expires later than its own token, and every issued token is passed to
+ * {@link #storeToken(Token)}. Only the connection holding the lease of
+ * {@link #acquireTokenLease()} requests a token, the others wait for it to be
+ * stored.
+ * </p>
+ *
+ * @see AuthorizationCodeConnection
+ * @see ClientCredentialsConnection
+ *
+ * @author tallaprs
+ *
+ */
+public abstract class AbstractADPAPIConnection implements ADPAPIConnection {
+
+	private final AtomicReference<FutureTask<Token>> inFlight = new AtomicReference<FutureTask<Token>>();
+
+	private final AtomicReference<CompletableFuture<Token>> asyncInFlight =
+			new AtomicReference<CompletableFuture<Token>>();
+
+	private final AtomicReference<TokenState> tokenState = new AtomicReference<TokenState>(TokenState.EMPTY);
+
+	/**
+	 * Initiates a connect request to ADP Authorization Server or Token Server based
+	 * on the type of connection configuration. In single flight mode concurrent
+	 * callers share the outcome of one in-flight request.
+	 *
+	 * @throws ConnectionException exception thrown when validation fails on
+	 * 							   configuration and connection
+	 */
+	@Override
+	public void connect() throws ConnectionException {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+
+		if ( connectionConfiguration != null && connectionConfiguration.isSingleFlight() ) {
+			connectSingleFlight();
+		} else {
+			doConnect();
+		}
+	}
+
+	/**
+	 * Initiates a non-blocking connect request to ADP Authorization Server or
+	 * Token Server. The returned future completes with the issued {@link Token},
+	 * or exceptionally with a {@link ConnectionException} when validation fails,
+	 * the request fails or the server rejects it. In single flight mode
+	 * concurrent callers share the outcome of one in-flight request.
+	 *
+	 * <p>
+	 * The future is completed on an I/O dispatcher thread of the http client;
+	 * blocking work should be chained with the async variants of
+	 * {@link CompletableFuture}. With
+	 * {@link ConnectionConfiguration#isVirtualThreadExecution()} enabled, or a
+	 * {@link ConnectionConfiguration#getTokenStore()} set, the blocking token
+	 * request runs on the connect executor instead, which also completes the
+	 * future.
+	 * </p>
+	 *
+	 * @return CompletableFuture future completed with the issued token
+	 */
+	@Override
+	public CompletableFuture<Token> connectAsync() {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+
+		if ( connectionConfiguration == null || !connectionConfiguration.isSingleFlight() ) {
+			CompletableFuture<Token> future = new CompletableFuture<Token>();
+			doConnectAsync(future);
+			return future;
+		}
+
+		CompletableFuture<Token> flight = asyncInFlight.get();
+
+		while ( flight == null ) {
+
+			final CompletableFuture<Token> future = new CompletableFuture<Token>();
+
+			if ( asyncInFlight.compareAndSet(null, future) ) {
+				future.whenComplete((token, throwable) -> asyncInFlight.compareAndSet(future, null));
+				doConnectAsync(future);
+				flight = future;
+			} else {
+				flight = asyncInFlight.get();
+			}
+		}
+
+		// callers get their own stage so cancelling it leaves the shared request running
+		return flight.thenApply(token -> token);
+	}
+
+	/**
+	 * Returns the token on this connection if it is still valid, otherwise
+	 * initiates a non-blocking connect request for a new token
+	 *
+	 * @return CompletableFuture future completed with a valid token
+	 * @see #connectAsync()
+	 */
+	@Override
+	public CompletableFuture<Token> getValidTokenAsync() {
+
+		if ( isConnectionIndicator() ) {
+			return CompletableFuture.completedFuture(getToken());
+		}
+
+		return connectAsync();
+	}
+
+	/**
+	 * Returns the Connection configuration
+	 *
+	 * @return Connection Configuration  returns this connection configuration
+	 */
+	public abstract ConnectionConfiguration getConnectionConfiguration();
+
+	/**
+	 * Returns true if the configuration of this connection is valid for a
+	 * token request
+	 *
+	 * @return boolean 						true if validation passed
+	 * @throws ConnectionValidatorException exception thrown when validation
+	 * 										fails on configuration
+	 */
+	protected abstract boolean validateTokenRequest() throws ConnectionValidatorException;
+
+	/**
+	 * Performs the connect request to ADP Authorization Server or Token Server
+	 * and maps the issued {@link Token} to this connection
+	 *
+	 * @throws ConnectionException exception thrown when validation fails on
+	 * 							   configuration and connection
+	 */
+	protected void doConnect() throws ConnectionException {
+
+		CloseableHttpResponse httpResponse = null;
+
+		ConnectionMetrics connectionMetrics = getConnectionMetrics();
+		boolean validated = false;
+		boolean requested = false;
+		boolean circuitOpen = false;
+		long start = 0;
+		Token token = null;
+
+		try {
+
+			if ( validateTokenRequest() ) {
+
+				validated = true;
+
+				if ( awaitStoredToken() ) {
+					return;
+				}
+
+				requested = true;
+				start = System.nanoTime();
+
+				//get POST response using the pooled https client shared across connections
+				CloseableHttpClient httpClient = HttpClientRegistry.getInstance()
+						.getHttpsClient(getConnectionConfiguration());
+				RetryPolicy retryPolicy = getConnectionConfiguration().getRetryPolicy();
+				CircuitBreaker circuitBreaker = CircuitBreakerRegistry.getInstance()
+						.getCircuitBreaker(getConnectionConfiguration());
+
+				int attempts = 0;
+				long delay = 0;
+
+				while ( true ) {
+
+					if ( attempts > 0 ) {
+						Thread.sleep(delay);
+					}
+
+					// paced to the quota of the client before contacting the token server
+					RateLimiterRegistry.getInstance().acquire(getConnectionConfiguration());
+
+					// fail fast without contacting the failing token server
+					if ( circuitBreaker != null && !circuitBreaker.tryAcquirePermission() ) {
+						circuitOpen = true;
+						circuitOpened();
+						break;
+					}
+
+					TokenRequest tokenRequest = createTokenRequest();
+					HttpPost post = tokenRequest.getPost();
+					HttpClientContext context = HttpClientContext.create();
+					boolean retryable = isTokenRequestRetryable(tokenRequest);
+					attempts++;
+
+					long requestStart = System.nanoTime();
+					ScheduledFuture<?> timeout = scheduleAbort(post);
+
+					try {
+
+						try {
+							httpResponse = httpClient.execute(post, context);
+						} catch (IOException e) {
+
+							if ( circuitBreaker != null ) {
+								circuitBreaker.onFailure(System.nanoTime() - requestStart);
+							}
+
+							delay = getRetryDelay(retryPolicy, attempts, delay, 0, start);
+
+							// a request aborted by the request timeout used up the time allowed
+							if ( delay < 0 || !retryable || post.isAborted() || !retryPolicy.isRetryable(e) ) {
+								throw e;
+							}
+
+							continue;
+						}
+
+						recordTokenRequest(connectionMetrics, context, System.nanoTime() - requestStart);
+
+						if ( httpResponse == null ) {
+							break;
+						}
+
+						recordCall(circuitBreaker, httpResponse.getStatusLine().getStatusCode(),
+								System.nanoTime() - requestStart);
+
+						token = handleTokenResponse(httpResponse, tokenRequest);
+
+					} finally {
+						if ( timeout != null ) {
+							timeout.cancel(false);
+						}
+					}
+
+					// honour the Retry-After of a throttled token request
+					long retryAfter = ConnectionUtils.getRetryAfter(httpResponse);
+					RateLimiterRegistry.getInstance().throttled(getConnectionConfiguration(), retryAfter);
+
+					if ( token != null || !retryable
+							|| !isRetryable(retryPolicy, httpResponse.getStatusLine().getStatusCode()) ) {
+						break;
+					}
+
+					delay = getRetryDelay(retryPolicy, attempts, delay, retryAfter, start);
+
+					if ( delay < 0 ) {
+						break;
+					}
+
+					// release the pooled connection while waiting to retry
+					EntityUtils.consumeQuietly(httpResponse.getEntity());
+					httpResponse.close();
+					httpResponse = null;
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		} catch (RateLimitExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ConnectionException(e);
+		} finally {
+
+			if ( validated ) {
+				releaseTokenLease();
+			}
+
+			if ( requested ) {
+				connectionMetrics.recordTokenFetch(getConnectionConfiguration(),
+						httpResponse != null ? httpResponse.getStatusLine().getStatusCode() : 0,
+						token != null, System.nanoTime() - start);
+			}
+
+			try {
+				if ( httpResponse != null ) {
+					// consume unread content so the pooled connection can be reused
+					EntityUtils.consumeQuietly(httpResponse.getEntity());
+					httpResponse.close();
+				}
+			} catch (IOException e) {
+				throw new ConnectionException(e);
+			}
+		}
+
+		if ( circuitOpen && !isTokenUnexpired() ) {
+			throw new CircuitBreakerOpenException(getErrorResponse());
+		}
+	}
+
+	/**
+	 * Returns true if the circuit breaker of the token server is open and
+	 * the token of this connection has not expired
+	 *
+	 * @return boolean
+	 */
+	private boolean isServedByOpenCircuit() {
+
+		CircuitBreaker circuitBreaker = CircuitBreakerRegistry.getInstance()
+				.getCircuitBreaker(getConnectionConfiguration());
+
+		return circuitBreaker != null && circuitBreaker.getState() == CircuitBreaker.State.OPEN
+				&& isTokenUnexpired();
+	}
+
+	/**
+	 * Records a token request failed fast by the open circuit breaker of the
+	 * token server. The token of this connection is kept, and served as long
+	 * as it has not expired, while the circuit is open.
+	 */
+	private void circuitOpened() {
+		setErrorResponse("Circuit breaker is open for token server "
+				+ getConnectionConfiguration().getTokenServerUrl().trim());
+	}
+
+	/**
+	 * Returns true if the token of this connection has not expired, ignoring
+	 * the {@link ConnectionConfiguration#getTokenExpirySkew()}
+	 *
+	 * @return boolean
+	 */
+	private boolean isTokenUnexpired() {
+
+		TokenState current = tokenState.get();
+
+		return current.token != null && StringUtils.isNotBlank(current.token.getAccess_token())
+				&& System.nanoTime() - current.expiresAt < 0;
+	}
+
+	/**
+	 * Records the outcome of a token request with the circuit breaker. 429
+	 * and 5xx responses are failures of the token server, other responses
+	 * such as a rejected client are successful calls.
+	 *
+	 * @param circuitBreaker circuit breaker of the token server, null if none
+	 * @param statusCode	 http status of the token server response
+	 * @param durationNanos	 duration of the token request
+	 */
+	private static void recordCall(CircuitBreaker circuitBreaker, int statusCode, long durationNanos) {
+
+		if ( circuitBreaker == null ) {
+			return;
+		}
+
+		if ( statusCode == Constants.HTTP_TOO_MANY_REQUESTS || statusCode >= Constants.HTTP_SERVER_ERROR ) {
+			circuitBreaker.onFailure(durationNanos);
+		} else {
+			circuitBreaker.onSuccess(durationNanos);
+		}
+	}
+
+	/**
+	 * Schedules aborting the token request once the request timeout of the
+	 * configuration elapsed
+	 *
+	 * @param request token request
+	 * @return ScheduledFuture future to cancel once the request completed,
+	 * 						   null if the configuration has no request timeout
+	 */
+	private ScheduledFuture<?> scheduleAbort(final HttpPost request) {
+
+		return ExecutorUtils.getInstance().scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+				request.abort();
+			}
+		}, getConnectionConfiguration().getRequestTimeout());
+	}
+
+	/**
+	 * Returns true if a token response with this http status is retried
+	 *
+	 * @param retryPolicy retry policy of the configuration, null if none
+	 * @param statusCode  http status of the token server response
+	 * @return boolean
+	 */
+	private static boolean isRetryable(RetryPolicy retryPolicy, int statusCode) {
+		return retryPolicy != null && retryPolicy.isRetryable(statusCode);
+	}
+
+	/**
+	 * Returns the milliseconds to wait before retrying the token request, at
+	 * least the Retry-After of the token server, or -1 if attempts are
+	 * exhausted or the retry would start past the maximum duration of the
+	 * retry policy
+	 *
+	 * @param retryPolicy	retry policy of the configuration, null if none
+	 * @param attempts		number of attempts made so far
+	 * @param previousDelay delay before the previous attempt
+	 * @param retryAfter	milliseconds the token server asked to wait, 0 if none
+	 * @param start			{@link System#nanoTime()} of the first attempt
+	 * @return long
+	 */
+	private static long getRetryDelay(RetryPolicy retryPolicy, int attempts, long previousDelay,
+			long retryAfter, long start) {
+
+		if ( retryPolicy == null ) {
+			return -1;
+		}
+
+		long delay = retryPolicy.nextDelay(attempts, previousDelay);
+
+		if ( delay >= 0 ) {
+			delay = Math.max(delay, retryAfter);
+		}
+
+		if ( delay < 0 || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + delay
+				> retryPolicy.getMaxDuration() ) {
+			return -1;
+		}
+
+		return delay;
+	}
+
+	/**
+	 * Performs the connect request using the non-blocking https client and
+	 * completes the future with its outcome
+	 *
+	 * @param future future to complete
+	 */
+	private void doConnectAsync(final CompletableFuture<Token> future) {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+
+		// waiting for the lease of a token store or between retries blocks
+		if ( connectionConfiguration != null && ( connectionConfiguration.isVirtualThreadExecution()
+				|| connectionConfiguration.getTokenStore() != null
+				|| connectionConfiguration.getRetryPolicy() != null ) ) {
+			doConnectOnExecutor(future);
+			return;
+		}
+
+		try {
+
+			if ( !validateTokenRequest() || restoreToken() ) {
+				future.complete(getToken());
+				return;
+			}
+
+		} catch (Exception e) {
+			future.completeExceptionally(new ConnectionException(e));
+			return;
+		}
+
+		// waits for a permit of the rate limiter without blocking the caller
+		RateLimiterRegistry.getInstance().acquireAsync(connectionConfiguration)
+				.whenComplete(new BiConsumer<Void, Throwable>() {
+
+			@Override
+			public void accept(Void permit, Throwable failure) {
+
+				if ( failure instanceof CompletionException && failure.getCause() != null ) {
+					failure = failure.getCause();
+				}
+
+				if ( failure == null ) {
+					requestTokenAsync(future);
+				} else if ( failure instanceof ConnectionException ) {
+					future.completeExceptionally(failure);
+				} else {
+					future.completeExceptionally(new ConnectionException(failure));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sends the token request using the non-blocking https client, once
+	 * permitted by the rate limiter, and completes the future with its outcome
+	 *
+	 * @param future future to complete
+	 */
+	private void requestTokenAsync(final CompletableFuture<Token> future) {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+
+		try {
+
+			final CircuitBreaker circuitBreaker = CircuitBreakerRegistry.getInstance()
+					.getCircuitBreaker(connectionConfiguration);
+
+			if ( circuitBreaker != null && !circuitBreaker.tryAcquirePermission() ) {
+
+				circuitOpened();
+
+				if ( isTokenUnexpired() ) {
+					future.complete(getToken());
+				} else {
+					future.completeExceptionally(new CircuitBreakerOpenException(getErrorResponse()));
+				}
+				return;
+			}
+
+			final ConnectionMetrics connectionMetrics = getConnectionMetrics();
+			final long start = System.nanoTime();
+
+			// the outcome of the call is recorded once, by the response or the timeout
+			final AtomicBoolean recorded = new AtomicBoolean();
+
+			final TokenRequest tokenRequest = createTokenRequest();
+
+			final Future<HttpResponse> response = HttpClientRegistry.getInstance()
+					.getHttpsAsyncClient(getConnectionConfiguration())
+					.execute(tokenRequest.getPost(), new FutureCallback<HttpResponse>() {
+
+				@Override
+				public void completed(HttpResponse httpResponse) {
+
+					connectionMetrics.recordTokenRequest(getConnectionConfiguration(), System.nanoTime() - start);
+
+					if ( recorded.compareAndSet(false, true) ) {
+						recordCall(circuitBreaker, httpResponse.getStatusLine().getStatusCode(),
+								System.nanoTime() - start);
+					}
+
+					RateLimiterRegistry.getInstance().throttled(getConnectionConfiguration(),
+							ConnectionUtils.getRetryAfter(httpResponse));
+
+					Token token = null;
+					Exception failure = null;
+
+					try {
+						token = handleTokenResponse(httpResponse, tokenRequest);
+					} catch (Exception e) {
+						failure = e;
+					} finally {
+						EntityUtils.consumeQuietly(httpResponse.getEntity());
+					}
+
+					// recorded before completing so the request is counted once callers resume
+					connectionMetrics.recordTokenFetch(getConnectionConfiguration(),
+							httpResponse.getStatusLine().getStatusCode(), token != null,
+							System.nanoTime() - start);
+
+					if ( token != null ) {
+						future.complete(token);
+					} else if ( failure != null ) {
+						future.completeExceptionally(new ConnectionException(failure));
+					} else {
+						future.completeExceptionally(new ConnectionException(StringUtils.defaultIfBlank(
+								getErrorResponse(), httpResponse.getStatusLine().toString())));
+					}
+				}
+
+				@Override
+				public void failed(Exception e) {
+
+					if ( circuitBreaker != null && recorded.compareAndSet(false, true) ) {
+						circuitBreaker.onFailure(System.nanoTime() - start);
+					}
+
+					connectionMetrics.recordTokenFetch(getConnectionConfiguration(), 0, false,
+							System.nanoTime() - start);
+					future.completeExceptionally(new ConnectionException(e));
+				}
+
+				@Override
+				public void cancelled() {
+					future.cancel(false);
+				}
+			});
+
+			final long requestTimeout = connectionConfiguration.getRequestTimeout();
+
+			// fail the token request once the request timeout elapsed
+			final ScheduledFuture<?> timeout = ExecutorUtils.getInstance().scheduleTimeout(new Runnable() {
+
+				@Override
+				public void run() {
+
+					if ( future.completeExceptionally(new ConnectionException(
+							"Token request timed out after " + requestTimeout + " ms")) ) {
+
+						if ( circuitBreaker != null && recorded.compareAndSet(false, true) ) {
+							circuitBreaker.onFailure(System.nanoTime() - start);
+						}
+
+						response.cancel(true);
+					}
+				}
+			}, requestTimeout);
+
+			if ( timeout != null ) {
+				future.whenComplete(new BiConsumer<Token, Throwable>() {
+
+					@Override
+					public void accept(Token token, Throwable failure) {
+						timeout.cancel(false);
+					}
+				});
+			}
+
+		} catch (Exception e) {
+			future.completeExceptionally(new ConnectionException(e));
+		}
+	}
+
+	/**
+	 * Performs the blocking connect request on the shared connect executor,
+	 * virtual threads where supported, and completes the future with its outcome
+	 *
+	 * @param future future to complete
+	 */
+	private void doConnectOnExecutor(final CompletableFuture<Token> future) {
+
+		try {
+
+			ExecutorUtils.getInstance().getConnectExecutor().execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					Token previousToken = getToken();
+
+					try {
+
+						doConnect();
+
+						// a new token is issued unless the request was rejected
+						Token token = getToken();
+
+						// the unexpired token is served while the circuit breaker is open
+						if ( token != null && ( token != previousToken || isServedByOpenCircuit() )
+								&& StringUtils.isNotBlank(token.getAccess_token()) ) {
+							future.complete(token);
+						} else {
+							future.completeExceptionally(new ConnectionException(StringUtils.defaultIfBlank(
+									getErrorResponse(), "Token request was rejected")));
+						}
+
+					} catch (ConnectionException e) {
+						future.completeExceptionally(e);
+					} catch (RuntimeException e) {
+						future.completeExceptionally(new ConnectionException(e));
+					}
+				}
+			});
+
+		} catch (RuntimeException e) {
+			future.completeExceptionally(new ConnectionException(e));
+		}
+	}
+
+	/**
+	 * Returns the POST request to acquire an access token with the client
+	 * credentials and grant type of this connection
+	 *
+	 * @return TokenRequest					token request
+	 * @throws ConnectionException			thrown if connection is invalid
+	 * @throws UnsupportedEncodingException thrown if request parameters
+	 * 										cannot be encoded
+	 */
+	protected TokenRequest createTokenRequest() throws ConnectionException, UnsupportedEncodingException {
+
+		//map Client credentials and grant types to post request
+		return new TokenRequest(createTokenRequest(ConnectionUtils.getInstance().getNameValuePairs(this)), null);
+	}
+
+	/**
+	 * Returns the POST request to the token server of this connection with
+	 * the name value pairs as its form entity
+	 *
+	 * @param nameValuePairs				form parameters of the token request
+	 * @return HttpPost						token request
+	 * @throws UnsupportedEncodingException thrown if request parameters
+	 * 										cannot be encoded
+	 */
+	protected HttpPost createTokenRequest(List<NameValuePair> nameValuePairs) throws UnsupportedEncodingException {
+
+		//create POST request to acquire access token
+		HttpPost post = new HttpPost(getConnectionConfiguration().getTokenServerUrl().trim());
+		post.addHeader("User-Agent", Constants.CONNECTION_USER_AGENT);
+		post.setConfig(HttpClientRegistry.getInstance().getRequestConfig(getConnectionConfiguration()));
+		post.setEntity(new UrlEncodedFormEntity(nameValuePairs));
+
+		return post;
+	}
+
+	/**
+	 * Returns true if the token request may be sent again when it failed
+	 * transiently. Token requests of client credentials are idempotent and
+	 * retried by the retry policy of the configuration.
+	 *
+	 * @param tokenRequest	token request
+	 * @return boolean		true if the token request may be retried
+	 */
+	protected boolean isTokenRequestRetryable(TokenRequest tokenRequest) {
+		return true;
+	}
+
+	/**
+	 * Maps the token server response to this connection. The issued token is
+	 * published on success, otherwise the error response is recorded through
+	 * {@link #tokenRejected(String)}
+	 *
+	 * @param httpResponse token server response
+	 * @param tokenRequest token request the token server responded to
+	 * @return Token	   issued token or null if the request was rejected
+	 * @throws Exception   thrown if processing of the response fails
+	 */
+	protected Token handleTokenResponse(HttpResponse httpResponse, TokenRequest tokenRequest) throws Exception {
+
+		int responseStatusCode = httpResponse.getStatusLine().getStatusCode();
+
+		if ( responseStatusCode == Constants.HTTP_SUCCESS ) {
+
+			// set token, publishing expiry and status together
+			ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+			ConnectionMetrics connectionMetrics = getConnectionMetrics();
+
+			long start = System.nanoTime();
+			Token token = ConnectionUtils.processTokenResponse(httpResponse, 
+					connectionConfiguration != null ? connectionConfiguration.getTokenParser() : null);
+			connectionMetrics.recordTokenParse(connectionConfiguration, System.nanoTime() - start);
+
+			tokenIssued(token, tokenRequest);
+			connectionMetrics.monitorConnection(this);
+
+			storeToken(token);
+
+			return token;
+		}
+
+		String errorResponse = null;
+
+		if ( responseStatusCode == Constants.HTTP_CLIENT_ERROR  ||
+		     responseStatusCode == Constants.HTTP_CLIENT_INVALID ||
+		     responseStatusCode == Constants.HTTP_SERVER_ERROR )  {
+
+			errorResponse = ConnectionUtils.processResponse(httpResponse);
+
+			String httpStatusLine = httpResponse.getStatusLine().toString();
+			if ( StringUtils.isNotBlank(httpStatusLine)) {
+				errorResponse = new StringBuffer( httpStatusLine )
+						.append(" ")
+						.append(errorResponse)
+						.toString();
+			}
+		}
+
+		tokenRejected(errorResponse);
+
+		return null;
+	}
+
+	/**
+	 * Returns the stored token to publish instead of requesting one if it
+	 * expires later than the token of this connection. Returns null by default.
+	 *
+	 * @return Token stored token with <code>expires_in</code> set to the seconds
+	 * 				 remaining, null to request a token
+	 */
+	protected Token loadStoredToken() {
+		return null;
+	}
+
+	/**
+	 * Stores the token just issued by the token server. Does nothing by default.
+	 *
+	 * @param token issued token
+	 */
+	protected void storeToken(Token token) {
+	}
+
+	/**
+	 * Acquires the lease to request a token on behalf of all connections
+	 * sharing the stored token. Grants every lease by default.
+	 *
+	 * @return boolean true if this connection may request a token
+	 */
+	protected boolean acquireTokenLease() {
+		return true;
+	}
+
+	/**
+	 * Releases the lease if this connection holds it. Does nothing by default.
+	 */
+	protected void releaseTokenLease() {
+	}
+
+	/**
+	 * Publishes the stored token, waiting for it while another connection holds
+	 * the lease. The wait ends once the lease expires and this connection
+	 * requests a token itself.
+	 *
+	 * @return boolean 				true if a stored token was published, false if
+	 * 								this connection must request a token
+	 * @throws InterruptedException thrown if interrupted while waiting
+	 */
+	private boolean awaitStoredToken() throws InterruptedException {
+
+		if ( restoreToken() ) {
+			return true;
+		}
+
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(getConnectionConfiguration().getTokenLeaseDuration());
+
+		while ( !acquireTokenLease() ) {
+
+			if ( System.nanoTime() - deadline >= 0 ) {
+				return false;
+			}
+
+			Thread.sleep(Constants.TOKEN_LEASE_POLL_INTERVAL);
+
+			if ( restoreToken() ) {
+				return true;
+			}
+		}
+
+		// the previous holder may have stored its token right before releasing the lease
+		return restoreToken();
+	}
+
+	/**
+	 * Publishes the stored token if it is not the token of this connection and
+	 * expires later, within the second precision of stored expiry times, so
+	 * tokens issued to other connections are shared
+	 *
+	 * @return boolean true if a stored token was published
+	 */
+	private boolean restoreToken() {
+
+		Token token = loadStoredToken();
+
+		if ( token == null || StringUtils.isBlank(token.getAccess_token()) || token.getExpires_in() <= 0 ) {
+			return false;
+		}
+
+		Token current = getToken();
+
+		if ( current != null && StringUtils.isNotBlank(current.getAccess_token())
+				&& ( token.getAccess_token().equals(current.getAccess_token())
+						|| token.getExpires_in() + 1 < getTokenTimeToExpiry() ) ) {
+			return false;
+		}
+
+		tokenIssued(token);
+		getConnectionMetrics().monitorConnection(this);
+
+		return true;
+	}
+
+	/**
+	 * Returns the metrics of the configuration of this connection, or
+	 * {@link NoOpConnectionMetrics} if none
+	 *
+	 * @return ConnectionMetrics
+	 */
+	private ConnectionMetrics getConnectionMetrics() {
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+
+		if ( connectionConfiguration == null || connectionConfiguration.getConnectionMetrics() == null ) {
+			return NoOpConnectionMetrics.getInstance();
+		}
+
+		return connectionConfiguration.getConnectionMetrics();
+	}
+
+	/**
+	 * Records the token request, breaking out the TLS handshake if a new
+	 * connection was opened
+	 *
+	 * @param connectionMetrics
+	 * @param context
+	 * @param durationNanos
+	 */
+	private void recordTokenRequest(ConnectionMetrics connectionMetrics, HttpClientContext context,
+			long durationNanos) {
+
+		Object handshakeNanos = context.getAttribute(Constants.TLS_HANDSHAKE_NANOS);
+
+		if ( handshakeNanos instanceof Long ) {
+			long handshake = (Long) handshakeNanos;
+			connectionMetrics.recordTlsHandshake(getConnectionConfiguration(), handshake);
+			durationNanos = Math.max(0, durationNanos - handshake);
+		}
+
+		connectionMetrics.recordTokenRequest(getConnectionConfiguration(), durationNanos);
+	}
+
+	/**
+	 * Joins the in-flight connect request or starts one if none is in flight
+	 *
+	 * @throws ConnectionException
+	 */
+	private void connectSingleFlight() throws ConnectionException {
+
+		FutureTask<Token> flight = inFlight.get();
+
+		while ( flight == null ) {
+
+			FutureTask<Token> task = new FutureTask<Token>(new Callable<Token>() {
+
+				@Override
+				public Token call() throws Exception {
+					doConnect();
+					return getToken();
+				}
+			});
+
+			if ( inFlight.compareAndSet(null, task) ) {
+				try {
+					task.run();
+				} finally {
+					inFlight.compareAndSet(task, null);
+				}
+				flight = task;
+			} else {
+				flight = inFlight.get();
+			}
+		}
+
+		await(flight);
+	}
+
+	/**
+	 * Waits for the in-flight connect request and rethrows its failure
+	 *
+	 * @param flight
+	 * @return Token
+	 * @throws ConnectionException
+	 */
+	private Token await(FutureTask<Token> flight) throws ConnectionException {
+
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if ( cause instanceof ConnectionException ) {
+				throw (ConnectionException) cause;
+			} else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			} else if ( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+
+			throw new ConnectionException(cause);
+		}
+	}
+
+	/**
+	 *  Returns the token on this connection
+	 *
+	 *  @return Token
+	 */
+	@Override
+	public Token getToken() {
+		return tokenState.get().token;
+	}
+
+	/**
+	 * Sets the token on this connection
+	 *
+	 * @param token sets token to this connection
+	 */
+	public void setToken(Token token) {
+
+		TokenState current;
+		do {
+			current = tokenState.get();
+		} while ( !tokenState.compareAndSet(current, new TokenState(token, current.expiresAt,
+				current.validUntil, current.connectionAlive, current.errorResponse)) );
+	}
+
+	/**
+	 * Returns errors
+	 *
+	 * @return String error message
+	 */
+	public String getErrorResponse() {
+		return tokenState.get().errorResponse;
+	}
+
+	/**
+	 *
+	 * @param errorResponse sets the http error status
+	 */
+	public void setErrorResponse(String errorResponse) {
+
+		TokenState current;
+		do {
+			current = tokenState.get();
+		} while ( !tokenState.compareAndSet(current, new TokenState(current.token, current.expiresAt,
+				current.validUntil, current.connectionAlive, errorResponse)) );
+	}
+
+	/**
+	 *  Returns true or false based on the validation or access token. Expiry
+	 *  is evaluated first and nothing is allocated while the token is valid.
+	 *
+	 *  @return boolean  returns true when token is valid and not expired
+	 */
+	@Override
+	public boolean isConnectionIndicator() {
+
+		TokenState current = tokenState.get();
+
+		if ( !current.connectionAlive ) {
+			return false;
+		}
+
+		if ( isValidToken(current, System.nanoTime()) ) {
+			return true;
+		}
+
+		// mark the connection as not alive unless the token changed meanwhile
+		tokenState.compareAndSet(current, new TokenState(current.token, current.expiresAt,
+				current.validUntil, false, current.errorResponse));
+
+		return false;
+	}
+
+	/**
+	 * Returns true if this connection is alive and its token remains valid for
+	 * at least the given milliseconds, that is beyond now plus millis before
+	 * its expiry less the {@link ConnectionConfiguration#getTokenExpirySkew()}.
+	 * Does not change the state of the connection and allocates nothing.
+	 *
+	 * @param millis milliseconds the token must remain valid, 0 for now
+	 * @return boolean true if the token is valid for at least millis
+	 */
+	@Override
+	public boolean isValidFor(long millis) {
+
+		TokenState current = tokenState.get();
+
+		return current.connectionAlive
+				&& isValidToken(current, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+	}
+
+	/**
+	 * Returns the seconds until the token on this connection expires
+	 *
+	 * @return double seconds until expiry, 0 if the connection has no token
+	 * 				  or is not alive
+	 */
+	public double getTokenTimeToExpiry() {
+
+		TokenState current = tokenState.get();
+
+		if ( !current.connectionAlive || current.token == null ) {
+			return 0;
+		}
+
+		return Math.max(0, (current.expiresAt - System.nanoTime()) / 1e9);
+	}
+
+	/**
+	 * Returns the milliseconds the token on this connection remains valid,
+	 * that is until its expiry less the
+	 * {@link ConnectionConfiguration#getTokenExpirySkew()}. Reads the clock
+	 * once and allocates nothing.
+	 *
+	 * @return long milliseconds of validity, 0 if the connection has no token,
+	 * 				is not alive or the token is no longer valid
+	 */
+	public long remainingValidity() {
+
+		TokenState current = tokenState.get();
+
+		if ( !current.connectionAlive || current.token == null ) {
+			return 0;
+		}
+
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(current.validUntil - System.nanoTime()));
+	}
+
+	/**
+	 * Publishes the token issued by the token server along with its expiry
+	 * time and marks this connection as alive. Expiry is tracked on the
+	 * monotonic clock, unaffected by adjustments of the system time.
+	 *
+	 * @param token issued token
+	 */
+	protected void tokenIssued(Token token) {
+
+		long expiresIn = TimeUnit.SECONDS.toNanos(Math.max(0, token.getExpires_in()));
+
+		ConnectionConfiguration connectionConfiguration = getConnectionConfiguration();
+		long skew = connectionConfiguration != null
+				? TimeUnit.MILLISECONDS.toNanos(Math.max(0, connectionConfiguration.getTokenExpirySkew())) : 0;
+
+		long expiresAt = System.nanoTime() + expiresIn;
+		// short lived tokens stay valid for at least half their expiration time
+		long validUntil = expiresAt - Math.min(skew, expiresIn / 2);
+
+		TokenState current;
+		do {
+			current = tokenState.get();
+		} while ( !tokenState.compareAndSet(current, new TokenState(token, expiresAt, validUntil,
+				true, current.errorResponse)) );
+	}
+
+	/**
+	 * Publishes the token issued in response to the token request
+	 *
+	 * @param token			issued token
+	 * @param tokenRequest	token request the token was issued for
+	 */
+	protected void tokenIssued(Token token, TokenRequest tokenRequest) {
+		tokenIssued(token);
+	}
+
+	/**
+	 * Marks this connection as not alive after a failed token request. A
+	 * failed renewal of a token that is still valid, such as a proactive
+	 * refresh, only records the error response and keeps the connection alive.
+	 *
+	 * @param errorResponse error returned by the token server, current error
+	 * 						response is kept if null
+	 */
+	protected void tokenRejected(String errorResponse) {
+
+		TokenState current;
+		do {
+			current = tokenState.get();
+		} while ( !tokenState.compareAndSet(current, new TokenState(current.token, current.expiresAt,
+				current.validUntil, current.connectionAlive && isValidToken(current, System.nanoTime()),
+				errorResponse != null ? errorResponse : current.errorResponse)) );
+	}
+
+	/**
+	 * Resets the token on this connection to an empty token
+	 */
+	protected void resetTokenState() {
+
+		TokenState current;
+		do {
+			current = tokenState.get();
+		} while ( !tokenState.compareAndSet(current, new TokenState(new Token(), System.nanoTime(),
+				System.nanoTime(), false, current.errorResponse)) );
+	}
+
+	/**
+	 * Returns true if the token is still valid at the given time of the
+	 * monotonic clock, that is before the deadline until the token is valid
+	 * and its access token is not blank
+	 *
+	 * @param state token state to verify
+	 * @param time  {@link System#nanoTime()} to verify the token at
+	 * @return boolean
+	 */
+	private static boolean isValidToken(TokenState state, long time) {
+
+		return time - state.validUntil < 0 && state.token != null
+				&& StringUtils.isNotBlank(state.token.getAccess_token());
+	}
+
+	/**
+	 * Token request sent to the token server along with the refresh token it
+	 * renews the token with, so concurrent requests of a connection are each
+	 * handled by the grant they were sent with
+	 */
+	protected static final class TokenRequest {
+
+		private final HttpPost post;
+		private final String refreshToken;
+
+		/**
+		 * constructor
+		 *
+		 * @param post			POST request to the token server
+		 * @param refreshToken	refresh token sent with the request, null if the
+		 * 						request does not renew a token
+		 */
+		protected TokenRequest(HttpPost post, String refreshToken) {
+			this.post = post;
+			this.refreshToken = refreshToken;
+		}
+
+		/**
+		 * @return HttpPost POST request to the token server
+		 */
+		public HttpPost getPost() {
+			return post;
+		}
+
+		/**
+		 * @return String refresh token sent with the request, null if the
+		 * 				  request does not renew a token
+		 */
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the token on this connection, its expiry and
+	 * validity deadlines in {@link System#nanoTime()} and the status of the
+	 * connection
+	 */
+	private static final class TokenState {
+
+		private static final TokenState EMPTY = new TokenState(null, System.nanoTime(), System.nanoTime(),
+				false, null);
+
+		private final Token token;
+		private final long expiresAt;
+		private final long validUntil;
+		private final boolean connectionAlive;
+		private final String errorResponse;
+
+		private TokenState(Token token, long expiresAt, long validUntil, boolean connectionAlive,
+				String errorResponse) {
+			this.token = token;
+			this.expiresAt = expiresAt;
+			this.validUntil = validUntil;
+			this.connectionAlive = connectionAlive;
+			this.errorResponse = errorResponse;
+		}
+	}
+
+}
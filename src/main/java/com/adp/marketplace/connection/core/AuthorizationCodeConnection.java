@@ -17,27 +17,18 @@
 */
 package com.adp.marketplace.connection.core;
 
-import java.io.IOException;
-import java.util.List;
+import java.io.UnsupportedEncodingException;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.Header;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.params.CoreProtocolPNames;
 
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
-import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.constants.GrantType;
 import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.exception.ConnectionValidatorException;
 import com.adp.marketplace.connection.utils.ConnectionUtils;
 import com.adp.marketplace.connection.utils.ConnectionValidatorUtils;
-import com.adp.marketplace.connection.utils.SSLUtils;
 import com.adp.marketplace.connection.vo.Token;
 
 
@@ -54,24 +45,29 @@ import com.adp.marketplace.connection.vo.Token;
  * </p>
  * 
  * <p>
+ * The authorization code of the configuration is exchanged for a token once. 
+ * Later calls to {@link #connect()} renew the token with its refresh token 
+ * (grant type refresh_token) without another authorization of the user, until 
+ * a new authorization code is set. Registered with {@link TokenRefreshScheduler} 
+ * the token is renewed before it expires.
+ * </p>
+ * 
+ * <p>
  * @see AuthorizationCodeConnection
  * @see ClientCredentialsConnection
  * @author tallaprs
  *
  */
-public class AuthorizationCodeConnection implements ADPAPIConnection {
+public class AuthorizationCodeConnection extends AbstractADPAPIConnection {
 	
 	private static final Logger LOGGER = Logger.getLogger(AuthorizationCodeConnection.class.getName());
 	
-	private boolean isConnectionAlive;
-	private double tokenTimeTracker;
-
-	private String errorResponse = null;
 	private String authorizationUrl = null;
-	private String refreshToken = null;
 		
-	private ConnectionConfiguration connectionConfiguration;
-	private Token token;
+	private volatile ConnectionConfiguration connectionConfiguration;
+	
+	// authorization code of the configuration last sent to the token server
+	private volatile String exchangedCode = null;
 
 	/**
 	 * constructor
@@ -92,96 +88,96 @@ public class AuthorizationCodeConnection implements ADPAPIConnection {
 	}
 	
 	/**
-	 * Initiates a connect request to ADP Authorization Server on the type of 
-	 * connection configuration. Validations are performed on the connection 
-	 * configurations and if request is valid access token will be issued 
-	 * and {@link Token} is mapped with this connection. In case of error, 
-	 * connection exceptions are thrown or error details are returned
+	 * Returns true if client id, authorization code parameters, SSL certificate 
+	 * and token server url of the connection configuration are valid for a 
+	 * token request
 	 * 
-	 * @throws ConnectionException exception thrown when validation fails on configuration 
-	 * 							   and connection
+	 * @return boolean 						true if validation passed
+	 * @throws ConnectionValidatorException exception thrown when validation 
+	 * 										fails on configuration
 	 */
 	@Override
-	public void connect() throws ConnectionException {
-
-		int responseStatusCode;
-		StringBuffer sb = null;
-		CloseableHttpClient httpClient = null;
-		CloseableHttpResponse httpResponse = null;
+	protected boolean validateTokenRequest() throws ConnectionValidatorException {
 		
-		try {
-			
-			ConnectionValidatorUtils validatorInstance = ConnectionValidatorUtils.getInstance();
-			boolean isValid = validatorInstance.validateAuthCodeTokenRequest(
+		if ( getRefreshGrantToken() != null ) {
+			return ConnectionValidatorUtils.getInstance().validateRefreshTokenRequest(
 					(AuthorizationCodeConfiguration) this.getConnectionConfiguration());
-			
-			if ( isValid ) {				
-				//create a https client
-				httpClient = SSLUtils.getInstance().getHttpsClient(connectionConfiguration);				
-			
-				//create POST request to acquire access token
-				HttpPost post = new HttpPost(connectionConfiguration.getTokenServerUrl().trim());
-				post.addHeader("User-Agent", Constants.CONNECTION_USER_AGENT);
-				
-				List<NameValuePair> nameValuePairs = ConnectionUtils.getInstance().getNameValuePairs(this);
-			
-				//map Client credentials and grant types to post request
-				post.setEntity(new UrlEncodedFormEntity(nameValuePairs));
-			
-				//get POST response
-				httpResponse = httpClient.execute(post);
-			
-				if ( httpResponse != null ) {		
-					
-					responseStatusCode = httpResponse.getStatusLine().getStatusCode();
-					
-					if ( responseStatusCode == Constants.HTTP_SUCCESS ) {
-						
-						isConnectionAlive = true;
-						
-						// set token 
-						token = ConnectionUtils.processTokenResponse(httpResponse);
-						this.setToken(token);
-						
-						// set time tracker based on expiration
-						this.tokenTimeTracker = (System.currentTimeMillis() / 1000.0) + token.getExpires_in();
-						
-					} else 	{
-						
-						if ( responseStatusCode == Constants.HTTP_CLIENT_ERROR  ||
-						     responseStatusCode == Constants.HTTP_CLIENT_INVALID ||
-						     responseStatusCode == Constants.HTTP_SERVER_ERROR )  {
-							
-							 this.errorResponse = ConnectionUtils.processResponse(httpResponse);
-							 String httpStatusLine = httpResponse.getStatusLine().toString();
-							 if ( StringUtils.isNotBlank(httpStatusLine)) {
-								 
-								 sb = new StringBuffer( httpStatusLine )
-									 			.append(" ")
-									 			.append(errorResponse);
-							 	this.errorResponse = sb.toString();
-							 }
-						}
-					}
-				}
-			}
-			
-		} catch (Exception e) {
-			throw new ConnectionException(e);
-		} finally {
-			try {
-				if ( httpResponse != null ) {	
-					httpResponse.close();
-				}
-				if ( httpClient != null ) {
-					httpClient.close();
-				}
-			} catch (IOException e) {
-				throw new ConnectionException(e);
-			}	
 		}
+		
+		return ConnectionValidatorUtils.getInstance().validateAuthCodeTokenRequest(
+				(AuthorizationCodeConfiguration) this.getConnectionConfiguration());
 	}
 	
+	/**
+	 * Returns the POST request renewing the token with its refresh token, or 
+	 * exchanging the authorization code of the configuration if it was not 
+	 * exchanged yet or no refresh token was issued
+	 * 
+	 * @return TokenRequest					token request
+	 * @throws ConnectionException			thrown if connection is invalid
+	 * @throws UnsupportedEncodingException thrown if request parameters
+	 * 										cannot be encoded
+	 */
+	@Override
+	protected TokenRequest createTokenRequest() throws ConnectionException, UnsupportedEncodingException {
+		
+		ConnectionConfiguration configuration = getConnectionConfiguration();
+		String refreshToken = getRefreshGrantToken();
+		
+		if ( refreshToken == null ) {
+			// authorization codes are single use, rejected or not
+			exchangedCode = ((AuthorizationCodeConfiguration) configuration).getAuthorizationCode();
+			return super.createTokenRequest();
+		}
+		
+		return new TokenRequest(createTokenRequest(ConnectionUtils.getInstance()
+				.getRefreshTokenNameValuePairs(configuration, refreshToken)), refreshToken);
+	}
+	
+	/**
+	 * Returns false for the exchange of an authorization code, which is single
+	 * use and may have been redeemed by a request that failed to respond
+	 * 
+	 * @param tokenRequest	token request
+	 * @return boolean		true if the token request renews the token with its
+	 * 						refresh token
+	 */
+	@Override
+	protected boolean isTokenRequestRetryable(TokenRequest tokenRequest) {
+		return tokenRequest.getRefreshToken() != null;
+	}
+	
+	/**
+	 * Publishes the issued token, keeping the refresh token the request was 
+	 * sent with if the token server renewed the token without rotating it
+	 * 
+	 * @param token			issued token
+	 * @param tokenRequest	token request the token was issued for
+	 */
+	@Override
+	protected void tokenIssued(Token token, TokenRequest tokenRequest) {
+		
+		if ( tokenRequest.getRefreshToken() != null && StringUtils.isBlank(token.getRefresh_token()) ) {
+			token.setRefresh_token(tokenRequest.getRefreshToken());
+		}
+		
+		super.tokenIssued(token, tokenRequest);
+	}
+	
+	/**
+	 * Records the error response of a rejected token request, leaving the 
+	 * status of the connection as is
+	 * 
+	 * @param errorResponse error returned by the token server
+	 */
+	@Override
+	protected void tokenRejected(String errorResponse) {
+		
+		if ( errorResponse != null ) {
+			setErrorResponse(errorResponse);
+		}
+	}
+
 	/**
 	 * Invokes API to disconnect the connection - currently this method is implemented 
 	 * to reset the connection to null.
@@ -191,9 +187,11 @@ public class AuthorizationCodeConnection implements ADPAPIConnection {
 	@Override
 	public void disconnect() throws ConnectionException {
 		
-		this.isConnectionAlive = false;
-		this.token = new Token();
-		this.tokenTimeTracker = 0.0;
+		// stop proactive refresh if this connection was scheduled
+		TokenRefreshScheduler.cancelIfRunning(this);
+		
+		resetTokenState();
+		this.exchangedCode = null;
 		this.connectionConfiguration = null;
 	}
 
@@ -234,33 +232,36 @@ public class AuthorizationCodeConnection implements ADPAPIConnection {
 	} 
 
 	/**
-	 *  Returns true or false based on the validation or access token.
-	 *  
-	 *  @return boolean  returns true when token is valid and not expired
+	 * Returns the refresh token issued with the token on this connection, used 
+	 * by {@link #connect()} to renew the token
+	 * 
+	 * @return String refresh token, null if none was issued
 	 */
-	@Override
-	public boolean isConnectionIndicator()  {		
+	public String getRefreshToken() {
 		
-		if ( this.token == null ) {
-			isConnectionAlive = false;
-		} else {
-			if ( StringUtils.isBlank(token.getAccess_token()) || !isValidToken() ) {
-				isConnectionAlive = false;
-			}
-		}
+		Token token = getToken();
 		
-		return isConnectionAlive;
+		return token != null ? StringUtils.trimToNull(token.getRefresh_token()) : null;
 	}
 	
 	/**
-	 * Returns a new token from server if the current token is still valid and 
-	 * hasn't expired
+	 * Returns the refresh token to renew the token with, unless a new 
+	 * authorization code was set on the configuration since the last exchange
 	 * 
-	 * @return String
+	 * @return String refresh token, null to exchange the authorization code
 	 */
-	public String getRefreshToken() {
-		//unimplemented for this iteration
-		return refreshToken;
+	private String getRefreshGrantToken() {
+		
+		String refreshToken = getRefreshToken();
+		ConnectionConfiguration configuration = getConnectionConfiguration();
+		
+		if ( refreshToken == null || !(configuration instanceof AuthorizationCodeConfiguration) ) {
+			return null;
+		}
+		
+		String code = ((AuthorizationCodeConfiguration) configuration).getAuthorizationCode();
+		
+		return StringUtils.isBlank(code) || code.equals(exchangedCode) ? refreshToken : null;
 	}
 
 	/**
@@ -268,6 +269,7 @@ public class AuthorizationCodeConnection implements ADPAPIConnection {
 	 *  
 	 * @return Connection Configuration  returns this connection configuration
 	 */
+	@Override
 	public ConnectionConfiguration getConnectionConfiguration() {
 		return connectionConfiguration;
 	}
@@ -282,59 +284,5 @@ public class AuthorizationCodeConnection implements ADPAPIConnection {
 	public void setConnectionConfiguration(ConnectionConfiguration connectionConfiguration) {
 		this.connectionConfiguration = connectionConfiguration;
 	}
-	
-	/**
-	 *  Returns the token on this connection
-	 *  
-	 *  @return Token 
-	 */
-	public Token getToken() {
-		return token;
-	}
-
-	/**
-	 * Sets the tokens on this connection
-	 * 
-	 * @param token sets token to this connection
-	 */
-	public void setToken(Token token) {
-		this.token = token;
-	}
-	
-	/**
-	 * Returns errors
-	 * 
-	 * @return String error message
-	 */
-	public String getErrorResponse() {
-		return errorResponse;
-	}
-
-	/**
-	 * 
-	 * @param errorResponse sets the http error status
-	 */
-	public void setErrorResponse(String errorResponse) {
-		this.errorResponse = errorResponse;
-	}
-
-	/**
-	 * Returns true if token is still valid since issued based on delta of 
-	 * current time and token time tracker that has the token expired time
-	 * 
-	 * @return boolean 
-	 */
-	private boolean isValidToken() {
-		
-		boolean valid = false;
-		double currentTime = (System.currentTimeMillis() / 1000.0);
-		
-		if ( StringUtils.isNotBlank(token.getAccess_token()) || 
-				( currentTime < this.tokenTimeTracker ) ) {
-			valid = true;
-		} 
-		
-		return valid; 
-	}
 
 }
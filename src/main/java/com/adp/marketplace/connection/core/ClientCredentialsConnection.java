@@ -18,28 +18,18 @@
 package com.adp.marketplace.connection.core;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.http.Header;
-import org.apache.http.HttpEntity;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.util.EntityUtils;
-
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
 import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
-import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.exception.ConnectionException;
-import com.adp.marketplace.connection.utils.ConnectionUtils;
+import com.adp.marketplace.connection.exception.ConnectionValidatorException;
+import com.adp.marketplace.connection.store.TokenStore;
 import com.adp.marketplace.connection.utils.ConnectionValidatorUtils;
-import com.adp.marketplace.connection.utils.SSLUtils;
+import com.adp.marketplace.connection.vo.ConnectionKey;
 import com.adp.marketplace.connection.vo.Token;
 
 
@@ -48,17 +38,14 @@ import com.adp.marketplace.connection.vo.Token;
  * @author tallaprs
  *
  */
-public class ClientCredentialsConnection implements ADPAPIConnection {
+public class ClientCredentialsConnection extends AbstractADPAPIConnection {
 	
 	private static final Logger LOGGER = Logger.getLogger(ClientCredentialsConnection.class.getName());
 	
-	private String errorResponse = null;
-	
-	private boolean isConnectionAlive;
-	private double tokenTimeTracker;
-	
-	private ConnectionConfiguration connectionConfiguration;
-	private Token token = null;
+	private volatile ConnectionConfiguration connectionConfiguration;
+
+	// identifies this connection as owner of token store leases
+	private final String leaseOwner = UUID.randomUUID().toString();
 
 	/**
 	 * constructor
@@ -77,137 +64,139 @@ public class ClientCredentialsConnection implements ADPAPIConnection {
 	}
 	
 	/**
-	 * Initiates a connect request to ADP Authorization Server on the type of 
-	 * connection configuration. Validations are performed on the connection 
-	 * configurations and if request is valid access token will be issued 
-	 * and {@link Token} is mapped with this connection. In case of error, 
-	 * connection exceptions are thrown or error details are returned
+	 * Returns true if client credentials, SSL certificate and token server url
+	 * of the connection configuration are valid for a token request
 	 * 
-	 * @throws ConnectionException exception thrown when validation fails on 
-	 * 							   configuration and connection
-	 *						   
+	 * @return boolean 						true if validation passed
+	 * @throws ConnectionValidatorException exception thrown when validation 
+	 * 										fails on configuration
 	 */
 	@Override
-	public void connect() throws ConnectionException {
-	
-		int responseStatusCode;
-		
-		Token token = null;
-		
-		StringBuffer sb = null;
-		CloseableHttpClient httpClient = null;
-		CloseableHttpResponse httpResponse = null;
-		
+	protected boolean validateTokenRequest() throws ConnectionValidatorException {
+		return ConnectionValidatorUtils.getInstance().validate(this.getConnectionConfiguration());
+	}
+
+	/**
+	 * Returns the token of the {@link TokenStore} of the connection configuration,
+	 * if any, so restarted applications and other nodes reuse the token issued
+	 * for the same client
+	 *
+	 * @return Token stored token, null if none or the store failed
+	 */
+	@Override
+	protected Token loadStoredToken() {
+
+		ConnectionConfiguration configuration = this.connectionConfiguration;
+		TokenStore tokenStore = configuration != null ? configuration.getTokenStore() : null;
+
+		if ( tokenStore == null ) {
+			return null;
+		}
+
 		try {
-			ConnectionValidatorUtils validatorInstance = ConnectionValidatorUtils.getInstance();
-			boolean isValid = validatorInstance.validate(this.getConnectionConfiguration());
-			
-			if ( isValid ) {
-				
-				//create a https client
-				httpClient = SSLUtils.getInstance().getHttpsClient(connectionConfiguration);
-			
-				//create POST request to acquire access token
-				HttpPost post = new HttpPost(connectionConfiguration.getTokenServerUrl().trim());
-				post.addHeader("User-Agent", Constants.CONNECTION_USER_AGENT);
-				
-				ConnectionUtils connectionInstance = ConnectionUtils.getInstance();
-				
-				List<NameValuePair> nameValuePairs = connectionInstance.getNameValuePairs(this);
-			
-				//map Client credentials and grant types to post request
-				post.setEntity(new UrlEncodedFormEntity(nameValuePairs));
-			
-				//get POST response
-				httpResponse = httpClient.execute(post);
-			
-				if ( httpResponse != null ) {	
-					responseStatusCode = httpResponse.getStatusLine().getStatusCode();
-					if ( httpResponse.getStatusLine().getStatusCode() == Constants.HTTP_SUCCESS) {
-						
-						// set token 
-						token = ConnectionUtils.processTokenResponse(httpResponse);
-						
-						this.setToken(token);
-						isConnectionAlive = true;
-						
-						this.tokenTimeTracker = (System.currentTimeMillis() / 1000.0) + token.getExpires_in();
-					
-						HttpEntity entity = httpResponse.getEntity();
-						Header[] headers = httpResponse.getAllHeaders();
-						
-					} else{
-							isConnectionAlive = false;
-						
-							if ( responseStatusCode == Constants.HTTP_CLIENT_ERROR  ||
-							     responseStatusCode == Constants.HTTP_CLIENT_INVALID ||
-							     responseStatusCode == Constants.HTTP_SERVER_ERROR )  {
-								
-								this.errorResponse = ConnectionUtils.processResponse(httpResponse);
-								
-								String httpStatusLine = httpResponse.getStatusLine().toString();
-								if ( StringUtils.isNotBlank(httpStatusLine)) {
-									 
-									 sb = new StringBuffer( httpStatusLine )
-										 			.append(" ")
-										 			.append(errorResponse);
-								 	this.errorResponse = sb.toString();
-								 }
-							}
-					}
-				}
-			}
-	
-		} catch (Exception e) {
-			throw new ConnectionException(e);
-		} finally {
-			try {
-				if ( httpResponse != null ) {	
-					httpResponse.close();
-				}
-				if ( httpClient != null ) {
-					httpClient.close();
-				}
-			} catch (IOException e) {
-				throw new ConnectionException(e);
-			}
+			return tokenStore.load(ConnectionKey.of(configuration));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to load stored token, requesting a new token", e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Failed to load stored token, requesting a new token", e);
 		}
-		
+
+		return null;
 	}
 
 	/**
-	 * Invokes API to disconnect the connection - currently this method is implemented 
-	 * to reset the connection to null.
-	 *  
-	 *  @throws ConnectionException  throws exceptions in the event of object 
+	 * Saves the issued token to the {@link TokenStore} of the connection
+	 * configuration, if any
+	 *
+	 * @param token issued token
 	 */
 	@Override
-	public void disconnect() throws ConnectionException {
-		
-		this.isConnectionAlive = false;
-		this.token = new Token();
-		this.tokenTimeTracker = 0.0;
-		this.connectionConfiguration = null;
-		
+	protected void storeToken(Token token) {
+
+		ConnectionConfiguration configuration = this.connectionConfiguration;
+		TokenStore tokenStore = configuration != null ? configuration.getTokenStore() : null;
+
+		if ( tokenStore == null ) {
+			return;
+		}
+
+		try {
+			tokenStore.save(ConnectionKey.of(configuration), token);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to store token", e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Failed to store token", e);
+		}
+	}
+
+	/**
+	 * Acquires the lease of the {@link TokenStore} of the connection configuration,
+	 * if any, so one connection requests the token shared by all connections of
+	 * the same client
+	 *
+	 * @return boolean true if this connection may request a token, also if the
+	 * 				   store failed
+	 */
+	@Override
+	protected boolean acquireTokenLease() {
+
+		ConnectionConfiguration configuration = this.connectionConfiguration;
+		TokenStore tokenStore = configuration != null ? configuration.getTokenStore() : null;
+
+		if ( tokenStore == null ) {
+			return true;
+		}
+
+		try {
+			return tokenStore.acquireLease(ConnectionKey.of(configuration), leaseOwner,
+					configuration.getTokenLeaseDuration());
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to acquire token lease, requesting a new token", e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Failed to acquire token lease, requesting a new token", e);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Releases the lease of the {@link TokenStore} of the connection configuration
+	 * if this connection holds it
+	 */
+	@Override
+	protected void releaseTokenLease() {
+
+		ConnectionConfiguration configuration = this.connectionConfiguration;
+		TokenStore tokenStore = configuration != null ? configuration.getTokenStore() : null;
+
+		if ( tokenStore == null ) {
+			return;
+		}
+
+		try {
+			tokenStore.releaseLease(ConnectionKey.of(configuration), leaseOwner);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to release token lease", e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Failed to release token lease", e);
+		}
 	}
 
 	/**
-	 *  Returns true or false based on the validation or access token.
+	 * Invokes API to disconnect the connection - currently this method is implemented 
+	 * to reset the connection to null.
 	 *  
-	 *  @return boolean  returns true when token is valid and not expired
+	 *  @throws ConnectionException  throws exceptions in the event of object 
 	 */
 	@Override
-	public boolean isConnectionIndicator() {
+	public void disconnect() throws ConnectionException {
 		
-		if ( this.token == null ) {
-			isConnectionAlive = false;
-		} else {
-			if ( StringUtils.isBlank(token.getAccess_token()) || !isValidToken() ) {
-				isConnectionAlive = false;
-			}
-		}
+		// stop proactive refresh if this connection was scheduled
+		TokenRefreshScheduler.cancelIfRunning(this);
+		
+		resetTokenState();
+		this.connectionConfiguration = null;
 		
-		return isConnectionAlive;
 	}
 
 	/**
@@ -215,6 +204,7 @@ public class ClientCredentialsConnection implements ADPAPIConnection {
 	 *  
 	 * @return Connection Configuration  returns this connection configuration
 	 */
+	@Override
 	public ConnectionConfiguration getConnectionConfiguration() {
 		return connectionConfiguration;
 	}
@@ -229,58 +219,4 @@ public class ClientCredentialsConnection implements ADPAPIConnection {
 	public void setConnectionConfiguration(ConnectionConfiguration connectionConfiguration) {
 		this.connectionConfiguration = connectionConfiguration;
 	}
-	
-	/**
-	 *  Returns the token on this connection
-	 *  
-	 *  @return Token 
-	 */
-	public Token getToken() {
-		return token;
-	}
-
-	/**
-	 * 
-	 * @param token sets token to this connection
-	 */
-	public void setToken(Token token) {
-		this.token = token;
-	}
-	
-	/**
-	 * Returns errors
-	 * 
-	 * @return String error message
-	 */
-	public String getErrorResponse() {
-		return errorResponse;
-	}
-
-	/**
-	 * 
-	 * @param errorResponse sets the http error status
-	 */
-	public void setErrorResponse(String errorResponse) {
-		this.errorResponse = errorResponse;
-	}
-	
-	/**
-	 * Returns true if token is still valid since issued based on delta of 
-	 * current time and token time tracker that has the token expired time
-	 * 
-	 * 
-	 * @return boolean 
-	 */
-	private boolean isValidToken() {
-		
-		boolean valid = false;
-		double currentTime = (System.currentTimeMillis() / 1000.0);
-		
-		if ( StringUtils.isNotBlank(token.getAccess_token()) || 
-				( currentTime < this.tokenTimeTracker ) ) {
-			valid = true;
-		} 
-		
-		return valid; 
-	}
 }
@@ -0,0 +1,391 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * ConnectionManager is a bounded cache of connections for applications serving
+ * many client organizations. Connections are keyed by {@link ConnectionKey}, that
+ * is client id, grant type, scope, token server url and a fingerprint of the client
+ * secret and, for the authorization code grant, of the authorization code, so the
+ * connection and token of one user are never returned for another. Connections
+ * are created through {@link ADPAPIConnectionFactory} on first use. A cached
+ * connection keeps the configuration it was created with.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most {@link #getMaxSize()} connections and evicts the least
+ * recently used connection beyond that. A connection with a token expires once
+ * its token is no longer valid, checked on the live token of the connection so
+ * proactive refreshes keep it cached; a connection without a token expires
+ * {@link #getTtl()} milliseconds after it was cached. An expired connection is
+ * replaced by a new connection on the next lookup. Lookups take constant time
+ * and hit, miss, eviction and expiration counts are recorded.
+ * </p>
+ *
+ * @see ConnectionKey
+ *
+ * @author tallaprs
+ *
+ */
+public class ConnectionManager {
+
+	private final int maxSize;
+	private final long ttl;
+
+	private final Lock lock = new ReentrantLock();
+
+	// access ordered, the eldest entry is the least recently used
+	private final LinkedHashMap<ConnectionKey, Entry> connections =
+			new LinkedHashMap<ConnectionKey, Entry>(16, 0.75f, true);
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expirationCount = new AtomicLong();
+
+	/**
+	 * constructor with default size {@link Constants#DEFAULT_CONNECTION_CACHE_MAX_SIZE}
+	 * and time to live {@link Constants#DEFAULT_CONNECTION_CACHE_TTL}
+	 */
+	public ConnectionManager() {
+		this(Constants.DEFAULT_CONNECTION_CACHE_MAX_SIZE, Constants.DEFAULT_CONNECTION_CACHE_TTL);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param maxSize maximum number of cached connections
+	 * @param ttl	  time to live in milliseconds of connections without token
+	 */
+	public ConnectionManager(int maxSize, long ttl) {
+
+		if ( maxSize <= 0 ) {
+			throw new IllegalArgumentException("Connection cache size must be greater than zero");
+		}
+
+		if ( ttl <= 0 ) {
+			throw new IllegalArgumentException("Connection cache time to live must be greater than zero");
+		}
+
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Returns the cached connection for the {@link ConnectionKey} of this
+	 * configuration, creating and caching a new connection if none is cached
+	 * or the cached connection expired
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @return ADPAPIConnection		  cached connection
+	 * @throws ConnectionException	  throws exception if configuration is null
+	 * 								  or invalid
+	 */
+	public ADPAPIConnection getConnection(ConnectionConfiguration connectionConfiguration)
+			throws ConnectionException {
+		return getEntry(connectionConfiguration).connection;
+	}
+
+	/**
+	 * Returns a valid token of the cached connection for this configuration,
+	 * connecting first if the connection has no valid token. The connection
+	 * then expires from the cache together with its token.
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @return Token				  token of the cached connection
+	 * @throws ConnectionException	  throws exception if configuration is null
+	 * 								  or invalid or the connect request fails
+	 */
+	public Token getToken(ConnectionConfiguration connectionConfiguration) throws ConnectionException {
+
+		Entry entry = getEntry(connectionConfiguration);
+		ADPAPIConnection connection = entry.connection;
+
+		if ( !connection.isConnectionIndicator() ) {
+			connection.connect();
+		}
+
+		return connection.getToken();
+	}
+
+	/**
+	 * Removes the cached connection for this configuration
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @return ADPAPIConnection		  removed connection, null if none was cached
+	 */
+	public ADPAPIConnection remove(ConnectionConfiguration connectionConfiguration) {
+
+		Entry entry = null;
+
+		lock.lock();
+		try {
+			entry = connections.remove(ConnectionKey.of(connectionConfiguration));
+		} finally {
+			lock.unlock();
+		}
+
+		if ( entry == null ) {
+			return null;
+		}
+
+		release(entry);
+
+		return entry.connection;
+	}
+
+	/**
+	 * Removes all expired connections. Expired connections are otherwise
+	 * replaced on lookup or evicted once least recently used.
+	 *
+	 * @return int number of removed connections
+	 */
+	public int evictExpired() {
+
+		int removed = 0;
+		long now = System.nanoTime();
+
+		lock.lock();
+		try {
+			Iterator<Entry> iterator = connections.values().iterator();
+			while ( iterator.hasNext() ) {
+				Entry entry = iterator.next();
+				if ( entry.isExpired(now) ) {
+					iterator.remove();
+					release(entry);
+					removed++;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		expirationCount.addAndGet(removed);
+
+		return removed;
+	}
+
+	/**
+	 * Removes all cached connections, statistics are kept
+	 */
+	public void clear() {
+
+		lock.lock();
+		try {
+			for ( Entry entry : connections.values() ) {
+				release(entry);
+			}
+			connections.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of cached connections
+	 *
+	 * @return int number of cached connections
+	 */
+	public int size() {
+
+		lock.lock();
+		try {
+			return connections.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of cached connections
+	 *
+	 * @return int maximum number of cached connections
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the time to live of cached connections without token
+	 *
+	 * @return long time to live in milliseconds
+	 */
+	public long getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * Returns the number of lookups that found a cached connection
+	 *
+	 * @return long hit count
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups that created a new connection
+	 *
+	 * @return long miss count
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the ratio of lookups that found a cached connection
+	 *
+	 * @return double hit rate between 0 and 1, 0 if there were no lookups
+	 */
+	public double getHitRate() {
+
+		long hits = hitCount.get();
+		long lookups = hits + missCount.get();
+
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Returns the number of least recently used connections evicted to stay
+	 * within the maximum size
+	 *
+	 * @return long eviction count
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Returns the number of connections removed after they expired
+	 *
+	 * @return long expiration count
+	 */
+	public long getExpirationCount() {
+		return expirationCount.get();
+	}
+
+	/**
+	 * Returns the cache entry for this configuration, replacing expired entries
+	 * and evicting the least recently used entries beyond the maximum size
+	 *
+	 * @param connectionConfiguration
+	 * @return Entry
+	 * @throws ConnectionException
+	 */
+	private Entry getEntry(ConnectionConfiguration connectionConfiguration) throws ConnectionException {
+
+		if ( connectionConfiguration == null ) {
+			throw new ConnectionException("Connection Configuration is Not Set in request!!");
+		}
+
+		ConnectionKey key = ConnectionKey.of(connectionConfiguration);
+		long now = System.nanoTime();
+
+		lock.lock();
+		try {
+
+			Entry entry = connections.get(key);
+
+			if ( entry != null ) {
+
+				if ( !entry.isExpired(now) ) {
+					hitCount.incrementAndGet();
+					return entry;
+				}
+
+				connections.remove(key);
+				release(entry);
+				expirationCount.incrementAndGet();
+			}
+
+			missCount.incrementAndGet();
+
+			entry = new Entry(ADPAPIConnectionFactory.getInstance().createConnection(connectionConfiguration),
+					now + TimeUnit.MILLISECONDS.toNanos(ttl));
+			connections.put(key, entry);
+
+			Iterator<Map.Entry<ConnectionKey, Entry>> iterator = connections.entrySet().iterator();
+			while ( connections.size() > maxSize && iterator.hasNext() ) {
+				Entry eldest = iterator.next().getValue();
+				iterator.remove();
+				release(eldest);
+				evictionCount.incrementAndGet();
+			}
+
+			return entry;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the proactive token refresh of a connection leaving the cache
+	 *
+	 * @param entry
+	 */
+	private void release(Entry entry) {
+
+		if ( entry.connection instanceof AbstractADPAPIConnection ) {
+			TokenRefreshScheduler.cancelIfRunning((AbstractADPAPIConnection) entry.connection);
+		}
+	}
+
+	/**
+	 * A cached connection, expiring with the token of the connection, which
+	 * proactive refreshes keep valid, or at the time to live if it has none
+	 */
+	private static final class Entry {
+
+		private final ADPAPIConnection connection;
+
+		// System.nanoTime() the time to live of a connection without token elapses
+		private final long expiresAt;
+
+		private Entry(ADPAPIConnection connection, long expiresAt) {
+			this.connection = connection;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+
+			if ( connection.getToken() != null ) {
+				return !connection.isValidFor(0);
+			}
+
+			return now - expiresAt >= 0;
+		}
+	}
+
+}
@@ -0,0 +1,339 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.core;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * TokenRefreshScheduler is a singleton scheduler that proactively re-acquires
+ * access tokens of registered connections in the background, so request threads
+ * find a valid token instead of calling {@link ADPAPIConnection#connect()} on
+ * expiry.
+ * </p>
+ *
+ * <p>
+ * A token is refreshed after {@link ConnectionConfiguration#getTokenRefreshFraction()}
+ * of its expiration time, randomized by {@link ConnectionConfiguration#getTokenRefreshJitter()}
+ * to avoid connections created together from refreshing at the same instant. Failed
+ * refreshes are retried after {@link Constants#DEFAULT_TOKEN_REFRESH_RETRY_DELAY}
+ * milliseconds. Refreshes run on a small pool of shared daemon threads.
+ * </p>
+ *
+ * <p>
+ * Refresh is opt-in: connections are refreshed only after being passed to
+ * {@link #schedule(AbstractADPAPIConnection)} and until they are cancelled
+ * or disconnected. An {@link AuthorizationCodeConnection} is refreshed with its
+ * refresh token, without another authorization of the user.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class TokenRefreshScheduler {
+
+	private static volatile TokenRefreshScheduler INSTANCE = null;
+
+	private static final Lock INSTANCE_LOCK = new ReentrantLock();
+
+	private static final Logger LOGGER = Logger.getLogger(TokenRefreshScheduler.class.getName());
+
+	private static final Random RANDOM = new Random();
+
+	private final ScheduledExecutorService executor;
+
+	private final ConcurrentMap<AbstractADPAPIConnection, Registration> registrations =
+			new ConcurrentHashMap<AbstractADPAPIConnection, Registration>();
+
+	/**
+	 * constructor
+	 */
+	private TokenRefreshScheduler() {
+
+		executor = Executors.newScheduledThreadPool(Constants.DEFAULT_TOKEN_REFRESH_THREADS, new ThreadFactory() {
+
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "adp-token-refresh-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link TokenRefreshScheduler}
+	 *
+	 * @return TokenRefreshScheduler a singleton instance
+	 */
+	public static TokenRefreshScheduler getInstance() {
+
+		TokenRefreshScheduler instance = INSTANCE;
+
+		if ( instance == null ) {
+			INSTANCE_LOCK.lock();
+			try {
+				instance = INSTANCE;
+				if ( instance == null ) {
+					instance = new TokenRefreshScheduler();
+					INSTANCE = instance;
+				}
+			} finally {
+				INSTANCE_LOCK.unlock();
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Registers this connection for proactive token refresh. If the connection
+	 * has no valid token a token is acquired right away, otherwise the refresh
+	 * is scheduled based on the expiration time of the current token.
+	 *
+	 * @param connection		   connection whose token is to be refreshed
+	 * @throws ConnectionException throws exception if connection or its
+	 * 							   configuration is null
+	 */
+	public void schedule(AbstractADPAPIConnection connection) throws ConnectionException {
+
+		if ( connection == null ) {
+			throw new ConnectionException("Connection is Null!");
+		}
+
+		if ( connection.getConnectionConfiguration() == null ) {
+			throw new ConnectionException("Connection Configuration is Not Set in request!!");
+		}
+
+		long delay = 0;
+
+		if ( connection.isConnectionIndicator() ) {
+			// a token issued a while ago is refreshed before it is no longer valid
+			delay = Math.min(getRefreshDelay(connection.getConnectionConfiguration(), connection.getToken()),
+					connection.remainingValidity());
+		}
+
+		Registration registration = new Registration(connection);
+		Registration previous = registrations.put(connection, registration);
+
+		if ( previous != null ) {
+			previous.cancel();
+		}
+
+		registration.schedule(delay);
+	}
+
+	/**
+	 * Stops the proactive token refresh of this connection
+	 *
+	 * @param connection connection to stop refreshing
+	 */
+	public void cancel(AbstractADPAPIConnection connection) {
+
+		if ( connection != null ) {
+			Registration registration = registrations.remove(connection);
+			if ( registration != null ) {
+				registration.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Stops the proactive token refresh of this connection without creating
+	 * the scheduler if it is not running
+	 *
+	 * @param connection connection to stop refreshing
+	 */
+	static void cancelIfRunning(AbstractADPAPIConnection connection) {
+
+		TokenRefreshScheduler instance = INSTANCE;
+
+		if ( instance != null ) {
+			instance.cancel(connection);
+		}
+	}
+
+	/**
+	 * Returns true if this connection is registered for proactive token refresh
+	 *
+	 * @param connection connection to verify
+	 * @return boolean   true if the token of the connection is refreshed
+	 */
+	public boolean isScheduled(AbstractADPAPIConnection connection) {
+		return connection != null && registrations.containsKey(connection);
+	}
+
+	/**
+	 * Returns the delay in milliseconds after which this token is to be refreshed
+	 * computed from the token expiration time and the refresh fraction and jitter
+	 * of the configuration
+	 *
+	 * @param connectionConfiguration configuration with refresh fraction and jitter
+	 * @param token					  token to be refreshed
+	 * @return long					  delay in milliseconds, never more than the
+	 * 								  token expiration time
+	 */
+	public long getRefreshDelay(ConnectionConfiguration connectionConfiguration, Token token) {
+
+		if ( token == null || token.getExpires_in() <= 0 ) {
+			return 0;
+		}
+
+		long expiresInMillis = token.getExpires_in() * 1000L;
+
+		double fraction = connectionConfiguration.getTokenRefreshFraction();
+		if ( fraction <= 0 || fraction > 1 ) {
+			fraction = Constants.DEFAULT_TOKEN_REFRESH_FRACTION;
+		}
+
+		double jitter = Math.min(Math.max(connectionConfiguration.getTokenRefreshJitter(), 0), 1);
+
+		// spread evenly within +/- jitter of the refresh time
+		double delay = expiresInMillis * fraction * (1 + jitter * (2 * RANDOM.nextDouble() - 1));
+
+		return Math.min(expiresInMillis, Math.max(0, (long) delay));
+	}
+
+	/**
+	 * Cancels all scheduled refreshes and stops the refresh threads. A new
+	 * scheduler is created on the next call to {@link #getInstance()}
+	 */
+	public void shutdown() {
+
+		INSTANCE_LOCK.lock();
+		try {
+			if ( INSTANCE == this ) {
+				INSTANCE = null;
+			}
+		} finally {
+			INSTANCE_LOCK.unlock();
+		}
+
+		for ( Registration registration : registrations.values() ) {
+			registration.cancel();
+		}
+		registrations.clear();
+
+		executor.shutdownNow();
+	}
+
+	/**
+	 * A connection registered for refresh, reschedules itself after each
+	 * refresh until cancelled
+	 */
+	private final class Registration implements Runnable {
+
+		private final AbstractADPAPIConnection connection;
+
+		private volatile boolean cancelled;
+		private volatile ScheduledFuture<?> future;
+
+		private Registration(AbstractADPAPIConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public void run() {
+
+			if ( cancelled ) {
+				return;
+			}
+
+			// connection was disconnected
+			if ( connection.getConnectionConfiguration() == null ) {
+				TokenRefreshScheduler.this.cancel(connection);
+				return;
+			}
+
+			Token previousToken = connection.getToken();
+
+			try {
+				connection.connect();
+			} catch (ConnectionException e) {
+				LOGGER.log(Level.WARNING, "Proactive token refresh failed", e);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Proactive token refresh failed", e);
+			}
+
+			Token token = connection.getToken();
+			ConnectionConfiguration connectionConfiguration = connection.getConnectionConfiguration();
+
+			if ( connectionConfiguration == null ) {
+				TokenRefreshScheduler.this.cancel(connection);
+				return;
+			}
+
+			boolean refreshed = token != null && token != previousToken
+					&& StringUtils.isNotBlank(token.getAccess_token());
+
+			if ( connectionConfiguration.getConnectionMetrics() != null ) {
+				connectionConfiguration.getConnectionMetrics().recordTokenRefresh(connectionConfiguration, refreshed);
+			}
+
+			// a short lived token is refreshed before it is no longer valid
+			schedule(refreshed ? Math.min(getRefreshDelay(connectionConfiguration, token),
+					connection.remainingValidity()) : Constants.DEFAULT_TOKEN_REFRESH_RETRY_DELAY);
+		}
+
+		private void schedule(long delay) {
+
+			try {
+				if ( !cancelled ) {
+					future = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+				}
+			} catch (RejectedExecutionException e) {
+				// scheduler was shut down
+				cancelled = true;
+			}
+		}
+
+		private void cancel() {
+
+			cancelled = true;
+
+			ScheduledFuture<?> scheduledFuture = future;
+			if ( scheduledFuture != null ) {
+				scheduledFuture.cancel(false);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.exception;
+
+
+/**
+ * Thrown to indicate a token request was failed fast, without contacting the
+ * token server, because its circuit breaker is open and the connection has
+ * no unexpired token to keep serving
+ *
+ * @author tallaprs
+ *
+ */
+public class CircuitBreakerOpenException extends ConnectionException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * constructs a {@link CircuitBreakerOpenException} with a detail message
+	 *
+	 * @param message describes the error message
+	 */
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
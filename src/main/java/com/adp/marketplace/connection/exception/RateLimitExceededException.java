@@ -0,0 +1,40 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.exception;
+
+
+/**
+ * Thrown to indicate a request was not sent because no permit of its rate
+ * limiter became available within the maximum wait
+ *
+ * @author tallaprs
+ *
+ */
+public class RateLimitExceededException extends ConnectionException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * constructs a {@link RateLimitExceededException} with a detail message
+	 *
+	 * @param message describes the error message
+	 */
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.metrics;
+
+import org.apache.http.pool.ConnPoolControl;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.AbstractADPAPIConnection;
+
+
+/**
+ * <p>
+ * ConnectionMetrics is the instrumentation interface of token requests. It is
+ * set on {@link ConnectionConfiguration#setConnectionMetrics(ConnectionMetrics)}
+ * and defaults to {@link NoOpConnectionMetrics}.
+ * </p>
+ *
+ * <p>
+ * A token request is broken down into the TLS handshake of a new pooled
+ * connection, the request itself until the response is received, and the
+ * parsing of the issued token. The whole token request is recorded along with
+ * the response status once complete.
+ * </p>
+ *
+ * <p>
+ * Implementations are called on the connecting thread and must be thread safe
+ * and cheap; {@link MicrometerConnectionMetrics} binds these to a Micrometer
+ * meter registry.
+ * </p>
+ *
+ * @see NoOpConnectionMetrics
+ * @see MicrometerConnectionMetrics
+ *
+ * @author tallaprs
+ *
+ */
+public interface ConnectionMetrics {
+
+	/**
+	 * Records the TLS handshake of a new connection to the token server. Token
+	 * requests on pooled connections perform no handshake and are not recorded.
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @param durationNanos			  handshake duration in nanoseconds
+	 */
+	void recordTlsHandshake(ConnectionConfiguration connectionConfiguration, long durationNanos);
+
+	/**
+	 * Records the token request from sending the request until the response
+	 * is received, excluding the TLS handshake
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @param durationNanos			  request duration in nanoseconds
+	 */
+	void recordTokenRequest(ConnectionConfiguration connectionConfiguration, long durationNanos);
+
+	/**
+	 * Records the parsing of an issued token from the token server response
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @param durationNanos			  parse duration in nanoseconds
+	 */
+	void recordTokenParse(ConnectionConfiguration connectionConfiguration, long durationNanos);
+
+	/**
+	 * Records a completed token request
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @param status				  http status of the response, 0 if no
+	 * 								  response was received
+	 * @param success				  true if a token was issued
+	 * @param durationNanos			  total duration in nanoseconds
+	 */
+	void recordTokenFetch(ConnectionConfiguration connectionConfiguration, int status, boolean success,
+			long durationNanos);
+
+	/**
+	 * Records a proactive token refresh
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @param success				  true if a new token was issued
+	 */
+	void recordTokenRefresh(ConnectionConfiguration connectionConfiguration, boolean success);
+
+	/**
+	 * Monitors the time to expiry of the token of this connection. Called
+	 * each time a token is issued, implementations must tolerate repeated calls.
+	 *
+	 * @param connection connection issued a token
+	 */
+	void monitorConnection(AbstractADPAPIConnection connection);
+
+	/**
+	 * Monitors the utilization of a pool of token server connections. Called
+	 * each time a pooled client is used, implementations must tolerate repeated
+	 * calls and a pool replaced under the same name.
+	 *
+	 * @param name name identifying the pool
+	 * @param pool connection pool
+	 */
+	void monitorConnectionPool(String name, ConnPoolControl<?> pool);
+
+}
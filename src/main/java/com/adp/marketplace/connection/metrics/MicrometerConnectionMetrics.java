@@ -0,0 +1,325 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.AbstractADPAPIConnection;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+
+/**
+ * <p>
+ * MicrometerConnectionMetrics binds {@link ConnectionMetrics} to a Micrometer
+ * {@link MeterRegistry}. Micrometer is an optional dependency of this library
+ * and must be on the classpath to use this class.
+ * </p>
+ *
+ * <p>
+ * Token requests are recorded as the timers {@value #TOKEN_FETCH} tagged with
+ * grant type, response status and outcome, and {@value #TOKEN_HANDSHAKE},
+ * {@value #TOKEN_REQUEST} and {@value #TOKEN_PARSE} tagged with grant type.
+ * Token requests and proactive refreshes are counted by {@value #TOKEN_REQUESTS}
+ * and {@value #TOKEN_REFRESHES}.
+ * </p>
+ *
+ * <p>
+ * The gauge {@value #TOKEN_EXPIRY} reports the seconds until the token of each
+ * client id and grant type expires, and the gauges {@value #POOL_LEASED},
+ * {@value #POOL_AVAILABLE}, {@value #POOL_PENDING} and {@value #POOL_MAX} report
+ * the utilization of each pool of token server connections. Gauges follow the
+ * latest connection or pool monitored under the same client id and grant type
+ * or pool name, connections are referenced weakly.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class MicrometerConnectionMetrics implements ConnectionMetrics {
+
+	public static final String TOKEN_FETCH = "adp.token.fetch";
+	public static final String TOKEN_HANDSHAKE = "adp.token.fetch.handshake";
+	public static final String TOKEN_REQUEST = "adp.token.fetch.request";
+	public static final String TOKEN_PARSE = "adp.token.fetch.parse";
+	public static final String TOKEN_REQUESTS = "adp.token.requests";
+	public static final String TOKEN_REFRESHES = "adp.token.refreshes";
+	public static final String TOKEN_EXPIRY = "adp.token.expiry";
+
+	public static final String POOL_LEASED = "adp.pool.connections.leased";
+	public static final String POOL_AVAILABLE = "adp.pool.connections.available";
+	public static final String POOL_PENDING = "adp.pool.connections.pending";
+	public static final String POOL_MAX = "adp.pool.connections.max";
+
+	public static final String TAG_GRANT_TYPE = "grant.type";
+	public static final String TAG_STATUS = "status";
+	public static final String TAG_OUTCOME = "outcome";
+	public static final String TAG_CLIENT_ID = "client.id";
+	public static final String TAG_POOL = "pool";
+
+	private final MeterRegistry meterRegistry;
+
+	// keyed by client id and grant type, the tags of the token expiry gauge
+	private final ConcurrentMap<String, AtomicReference<WeakReference<AbstractADPAPIConnection>>> connections =
+			new ConcurrentHashMap<String, AtomicReference<WeakReference<AbstractADPAPIConnection>>>();
+
+	private final ConcurrentMap<String, AtomicReference<ConnPoolControl<?>>> pools =
+			new ConcurrentHashMap<String, AtomicReference<ConnPoolControl<?>>>();
+
+	/**
+	 * constructor
+	 *
+	 * @param meterRegistry registry meters are registered with
+	 */
+	public MicrometerConnectionMetrics(MeterRegistry meterRegistry) {
+
+		if ( meterRegistry == null ) {
+			throw new IllegalArgumentException("Meter registry must not be null");
+		}
+
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Returns the registry meters are registered with
+	 *
+	 * @return MeterRegistry meter registry
+	 */
+	public MeterRegistry getMeterRegistry() {
+		return meterRegistry;
+	}
+
+	@Override
+	public void recordTlsHandshake(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+		record(TOKEN_HANDSHAKE, Tags.of(TAG_GRANT_TYPE, getGrantType(connectionConfiguration)), durationNanos);
+	}
+
+	@Override
+	public void recordTokenRequest(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+		record(TOKEN_REQUEST, Tags.of(TAG_GRANT_TYPE, getGrantType(connectionConfiguration)), durationNanos);
+	}
+
+	@Override
+	public void recordTokenParse(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+		record(TOKEN_PARSE, Tags.of(TAG_GRANT_TYPE, getGrantType(connectionConfiguration)), durationNanos);
+	}
+
+	@Override
+	public void recordTokenFetch(ConnectionConfiguration connectionConfiguration, int status, boolean success,
+			long durationNanos) {
+
+		Tags tags = Tags.of(TAG_GRANT_TYPE, getGrantType(connectionConfiguration),
+				TAG_STATUS, status > 0 ? String.valueOf(status) : "none",
+				TAG_OUTCOME, getOutcome(success));
+
+		record(TOKEN_FETCH, tags, durationNanos);
+		Counter.builder(TOKEN_REQUESTS).tags(tags).register(meterRegistry).increment();
+	}
+
+	@Override
+	public void recordTokenRefresh(ConnectionConfiguration connectionConfiguration, boolean success) {
+
+		Counter.builder(TOKEN_REFRESHES)
+				.tags(TAG_GRANT_TYPE, getGrantType(connectionConfiguration), TAG_OUTCOME, getOutcome(success))
+				.register(meterRegistry)
+				.increment();
+	}
+
+	@Override
+	public void monitorConnection(AbstractADPAPIConnection connection) {
+
+		ConnectionConfiguration connectionConfiguration = connection == null ? null
+				: connection.getConnectionConfiguration();
+
+		if ( connectionConfiguration == null ) {
+			return;
+		}
+
+		String clientID = ConnectionKey.of(connectionConfiguration).getClientID();
+		String grantType = getGrantType(connectionConfiguration);
+		String key = clientID + '|' + grantType;
+
+		AtomicReference<WeakReference<AbstractADPAPIConnection>> monitored = connections.get(key);
+
+		if ( monitored == null ) {
+
+			AtomicReference<WeakReference<AbstractADPAPIConnection>> created =
+					new AtomicReference<WeakReference<AbstractADPAPIConnection>>(
+							new WeakReference<AbstractADPAPIConnection>(connection));
+
+			monitored = connections.putIfAbsent(key, created);
+
+			if ( monitored == null ) {
+				Gauge.builder(TOKEN_EXPIRY, created,
+						new ToDoubleFunction<AtomicReference<WeakReference<AbstractADPAPIConnection>>>() {
+
+							@Override
+							public double applyAsDouble(AtomicReference<WeakReference<AbstractADPAPIConnection>> reference) {
+								AbstractADPAPIConnection current = reference.get().get();
+								return current == null ? Double.NaN : current.getTokenTimeToExpiry();
+							}
+						})
+						.tags(TAG_CLIENT_ID, clientID, TAG_GRANT_TYPE, grantType)
+						.baseUnit("seconds")
+						.strongReference(true)
+						.register(meterRegistry);
+				return;
+			}
+		}
+
+		if ( monitored.get().get() != connection ) {
+			monitored.set(new WeakReference<AbstractADPAPIConnection>(connection));
+		}
+	}
+
+	@Override
+	public void monitorConnectionPool(String name, ConnPoolControl<?> pool) {
+
+		if ( name == null || pool == null ) {
+			return;
+		}
+
+		AtomicReference<ConnPoolControl<?>> monitored = pools.get(name);
+
+		if ( monitored == null ) {
+
+			AtomicReference<ConnPoolControl<?>> created = new AtomicReference<ConnPoolControl<?>>(pool);
+
+			monitored = pools.putIfAbsent(name, created);
+
+			if ( monitored == null ) {
+				registerPoolGauge(POOL_LEASED, name, created, new PoolStatistic() {
+
+					@Override
+					public double get(PoolStats stats) {
+						return stats.getLeased();
+					}
+				});
+				registerPoolGauge(POOL_AVAILABLE, name, created, new PoolStatistic() {
+
+					@Override
+					public double get(PoolStats stats) {
+						return stats.getAvailable();
+					}
+				});
+				registerPoolGauge(POOL_PENDING, name, created, new PoolStatistic() {
+
+					@Override
+					public double get(PoolStats stats) {
+						return stats.getPending();
+					}
+				});
+				registerPoolGauge(POOL_MAX, name, created, new PoolStatistic() {
+
+					@Override
+					public double get(PoolStats stats) {
+						return stats.getMax();
+					}
+				});
+				return;
+			}
+		}
+
+		if ( monitored.get() != pool ) {
+			monitored.set(pool);
+		}
+	}
+
+	/**
+	 * Records the duration on the timer with this name and tags
+	 *
+	 * @param name
+	 * @param tags
+	 * @param durationNanos
+	 */
+	private void record(String name, Tags tags, long durationNanos) {
+		Timer.builder(name).tags(tags).register(meterRegistry).record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registers a gauge reporting a statistic of the pool currently monitored
+	 * under this name
+	 *
+	 * @param gaugeName
+	 * @param poolName
+	 * @param monitored
+	 * @param statistic
+	 */
+	private void registerPoolGauge(String gaugeName, String poolName,
+			AtomicReference<ConnPoolControl<?>> monitored, final PoolStatistic statistic) {
+
+		Gauge.builder(gaugeName, monitored, new ToDoubleFunction<AtomicReference<ConnPoolControl<?>>>() {
+
+					@Override
+					public double applyAsDouble(AtomicReference<ConnPoolControl<?>> reference) {
+						return statistic.get(reference.get().getTotalStats());
+					}
+				})
+				.tags(TAG_POOL, poolName)
+				.baseUnit("connections")
+				.strongReference(true)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Returns the grant type tag of this configuration
+	 *
+	 * @param connectionConfiguration
+	 * @return String
+	 */
+	private static String getGrantType(ConnectionConfiguration connectionConfiguration) {
+
+		if ( connectionConfiguration == null || connectionConfiguration.getGrantType() == null ) {
+			return "none";
+		}
+
+		return connectionConfiguration.getGrantType().getValue();
+	}
+
+	/**
+	 * Returns the outcome tag
+	 *
+	 * @param success
+	 * @return String
+	 */
+	private static String getOutcome(boolean success) {
+		return success ? "success" : "failure";
+	}
+
+	/**
+	 * A statistic of a connection pool reported by a gauge
+	 */
+	private interface PoolStatistic {
+		double get(PoolStats stats);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.metrics;
+
+import org.apache.http.pool.ConnPoolControl;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.AbstractADPAPIConnection;
+
+
+/**
+ * <p>
+ * NoOpConnectionMetrics is the default singleton {@link ConnectionMetrics}
+ * which records nothing.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class NoOpConnectionMetrics implements ConnectionMetrics {
+
+	/**
+	 * constructor
+	 */
+	private NoOpConnectionMetrics() {
+	}
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link NoOpConnectionMetrics}
+	 *
+	 * @return NoOpConnectionMetrics a singleton instance
+	 */
+	public static NoOpConnectionMetrics getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	@Override
+	public void recordTlsHandshake(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+	}
+
+	@Override
+	public void recordTokenRequest(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+	}
+
+	@Override
+	public void recordTokenParse(ConnectionConfiguration connectionConfiguration, long durationNanos) {
+	}
+
+	@Override
+	public void recordTokenFetch(ConnectionConfiguration connectionConfiguration, int status, boolean success,
+			long durationNanos) {
+	}
+
+	@Override
+	public void recordTokenRefresh(ConnectionConfiguration connectionConfiguration, boolean success) {
+	}
+
+	@Override
+	public void monitorConnection(AbstractADPAPIConnection connection) {
+	}
+
+	@Override
+	public void monitorConnectionPool(String name, ConnPoolControl<?> pool) {
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final NoOpConnectionMetrics INSTANCE = new NoOpConnectionMetrics();
+	}
+
+}
@@ -0,0 +1,282 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * <p>
+ * CircuitBreaker guards a token server against requests while it is failing.
+ * It is <b>closed</b> while calls succeed, <b>open</b> once the failure or
+ * slow call rate of the recent calls reaches the thresholds of its
+ * {@link CircuitBreakerPolicy}, failing calls fast, and <b>half open</b> after
+ * the open duration, letting trial calls through to decide whether to close
+ * or open again.
+ * </p>
+ *
+ * <p>
+ * Callers ask {@link #tryAcquirePermission()} before each call and report its
+ * outcome with {@link #onSuccess(long)} or {@link #onFailure(long)}. Circuit
+ * breakers are thread safe and shared by all connections of a token server
+ * through the {@link CircuitBreakerRegistry}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class CircuitBreaker {
+
+	/**
+	 * State of a circuit breaker
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final byte FAILED = 1;
+	private static final byte SLOW = 2;
+
+	private final String name;
+	private final CircuitBreakerPolicy policy;
+
+	// locks rather than monitors so calls never pin virtual threads
+	private final Lock lock = new ReentrantLock();
+
+	private State state = State.CLOSED;
+
+	// outcomes of the most recent calls while closed
+	private final byte[] outcomes;
+	private int index;
+	private int calls;
+	private int failedCalls;
+	private int slowCalls;
+
+	private long openedAt;
+	private int trialCalls;
+	private int trialSuccesses;
+
+	/**
+	 * constructor
+	 *
+	 * @param name	 name of the circuit breaker, e.g. the token server url
+	 * @param policy thresholds and durations of the circuit breaker
+	 */
+	public CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+
+		if ( policy == null ) {
+			throw new IllegalArgumentException("Circuit breaker policy must not be null");
+		}
+
+		this.name = name;
+		this.policy = policy;
+		this.outcomes = new byte[Math.max(1, policy.getWindowSize())];
+	}
+
+	/**
+	 * Returns true if a call is permitted. An open circuit permits no calls
+	 * until the open duration elapsed, then permits the trial calls of the half
+	 * open state.
+	 *
+	 * @return boolean true if the call may proceed, false to fail it fast
+	 */
+	public boolean tryAcquirePermission() {
+
+		lock.lock();
+		try {
+
+			if ( state == State.OPEN ) {
+
+				if ( System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(policy.getOpenDuration()) ) {
+					return false;
+				}
+
+				state = State.HALF_OPEN;
+				trialCalls = 0;
+				trialSuccesses = 0;
+			}
+
+			if ( state == State.HALF_OPEN ) {
+
+				if ( trialCalls >= Math.max(1, policy.getHalfOpenCalls()) ) {
+					return false;
+				}
+
+				trialCalls++;
+			}
+
+			return true;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records a successful call, slow if it took longer than the slow call
+	 * duration
+	 *
+	 * @param durationNanos duration of the call in nanoseconds
+	 */
+	public void onSuccess(long durationNanos) {
+		record(false, durationNanos);
+	}
+
+	/**
+	 * Records a failed call
+	 *
+	 * @param durationNanos duration of the call in nanoseconds
+	 */
+	public void onFailure(long durationNanos) {
+		record(true, durationNanos);
+	}
+
+	/**
+	 * Returns the state of this circuit breaker
+	 *
+	 * @return State closed, open or half open
+	 */
+	public State getState() {
+
+		lock.lock();
+		try {
+			return state;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes this circuit breaker and clears the recorded calls
+	 */
+	public void reset() {
+
+		lock.lock();
+		try {
+			close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the name of this circuit breaker
+	 *
+	 * @return name name of the circuit breaker
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the policy of this circuit breaker
+	 *
+	 * @return policy thresholds and durations of the circuit breaker
+	 */
+	public CircuitBreakerPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Records the outcome of a call and transitions the state
+	 *
+	 * @param failed
+	 * @param durationNanos
+	 */
+	private void record(boolean failed, long durationNanos) {
+
+		boolean slow = durationNanos > TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallDuration());
+
+		lock.lock();
+		try {
+
+			switch ( state ) {
+
+			case HALF_OPEN:
+
+				if ( failed || slow ) {
+					open();
+				} else if ( ++trialSuccesses >= Math.max(1, policy.getHalfOpenCalls()) ) {
+					close();
+				}
+				break;
+
+			case CLOSED:
+
+				byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+
+				if ( calls == outcomes.length ) {
+					// evict the oldest outcome
+					failedCalls -= outcomes[index] & FAILED;
+					slowCalls -= (outcomes[index] & SLOW) >> 1;
+				} else {
+					calls++;
+				}
+
+				outcomes[index] = outcome;
+				index = (index + 1) % outcomes.length;
+				failedCalls += outcome & FAILED;
+				slowCalls += (outcome & SLOW) >> 1;
+
+				if ( calls >= Math.min(Math.max(1, policy.getMinimumCalls()), outcomes.length)
+						&& ( failedCalls >= policy.getFailureRateThreshold() * calls
+							|| slowCalls >= policy.getSlowCallRateThreshold() * calls ) ) {
+					open();
+				}
+				break;
+
+			default:
+				// calls started before the circuit opened
+				break;
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Opens the circuit, must be called holding the lock
+	 */
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+	}
+
+	/**
+	 * Closes the circuit and clears the window, must be called holding the lock
+	 */
+	private void close() {
+		state = State.CLOSED;
+		index = 0;
+		calls = 0;
+		failedCalls = 0;
+		slowCalls = 0;
+	}
+
+	/**
+	 * @return String the String representation of this {@link CircuitBreaker} object
+	 */
+	@Override
+	public String toString() {
+		return "CircuitBreaker [name=" + name + ", state=" + getState() + "]";
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import com.adp.marketplace.connection.constants.Constants;
+
+
+/**
+ * <p>
+ * CircuitBreakerPolicy configures the {@link CircuitBreaker} guarding a token
+ * server. The outcomes of the most recent token requests are kept in a window;
+ * once it holds the minimum number of calls, the circuit opens when the rate
+ * of failed or of slow calls reaches its threshold. Failed calls are I/O
+ * errors and 429 or 5xx responses, slow calls take longer than the slow call
+ * duration.
+ * </p>
+ *
+ * <p>
+ * An open circuit fails token requests fast for the open duration, then lets
+ * a number of trial calls through; the circuit closes if all of them succeed
+ * and opens again otherwise.
+ * </p>
+ *
+ * <pre>
+ * CircuitBreakerPolicy circuitBreakerPolicy = new CircuitBreakerPolicy();
+ * circuitBreakerPolicy.setOpenDuration(60000);
+ * connectionConfiguration.setCircuitBreakerPolicy(circuitBreakerPolicy);
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class CircuitBreakerPolicy {
+
+	private double failureRateThreshold = Constants.DEFAULT_CIRCUIT_FAILURE_RATE_THRESHOLD;
+	private double slowCallRateThreshold = Constants.DEFAULT_CIRCUIT_SLOW_CALL_RATE_THRESHOLD;
+
+	private long slowCallDuration = Constants.DEFAULT_CIRCUIT_SLOW_CALL_DURATION;
+
+	private int windowSize = Constants.DEFAULT_CIRCUIT_WINDOW_SIZE;
+	private int minimumCalls = Constants.DEFAULT_CIRCUIT_MINIMUM_CALLS;
+
+	private long openDuration = Constants.DEFAULT_CIRCUIT_OPEN_DURATION;
+	private int halfOpenCalls = Constants.DEFAULT_CIRCUIT_HALF_OPEN_CALLS;
+
+	/**
+	 *
+	 * @return failureRateThreshold ratio between 0 and 1 of failed calls in the
+	 * 								window opening the circuit
+	 */
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	/**
+	 *
+	 * @param failureRateThreshold ratio between 0 and 1 of failed calls in the
+	 * 							   window opening the circuit
+	 */
+	public void setFailureRateThreshold(double failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	/**
+	 *
+	 * @return slowCallRateThreshold ratio between 0 and 1 of slow calls in the
+	 * 								 window opening the circuit
+	 */
+	public double getSlowCallRateThreshold() {
+		return slowCallRateThreshold;
+	}
+
+	/**
+	 *
+	 * @param slowCallRateThreshold ratio between 0 and 1 of slow calls in the
+	 * 								window opening the circuit
+	 */
+	public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	/**
+	 *
+	 * @return slowCallDuration milliseconds after which a call is slow
+	 */
+	public long getSlowCallDuration() {
+		return slowCallDuration;
+	}
+
+	/**
+	 *
+	 * @param slowCallDuration milliseconds after which a call is slow, should
+	 * 						   be below the socket timeout
+	 */
+	public void setSlowCallDuration(long slowCallDuration) {
+		this.slowCallDuration = slowCallDuration;
+	}
+
+	/**
+	 *
+	 * @return windowSize number of most recent calls the rates are computed of
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 *
+	 * @param windowSize number of most recent calls the rates are computed of
+	 */
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 *
+	 * @return minimumCalls number of calls in the window before the circuit
+	 * 						can open
+	 */
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	/**
+	 *
+	 * @param minimumCalls number of calls in the window before the circuit
+	 * 					   can open, at most the window size
+	 */
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	/**
+	 *
+	 * @return openDuration milliseconds an open circuit fails calls fast
+	 */
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	/**
+	 *
+	 * @param openDuration milliseconds an open circuit fails calls fast before
+	 * 					   letting trial calls through
+	 */
+	public void setOpenDuration(long openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	/**
+	 *
+	 * @return halfOpenCalls number of trial calls closing the circuit
+	 */
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	/**
+	 *
+	 * @param halfOpenCalls number of trial calls let through after the open
+	 * 						duration, all of which must succeed to close the
+	 * 						circuit
+	 */
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * @return String the String representation of this {@link CircuitBreakerPolicy} object
+	 */
+	@Override
+	public String toString() {
+		return "CircuitBreakerPolicy [failureRateThreshold=" + failureRateThreshold + ", slowCallRateThreshold="
+				+ slowCallRateThreshold + ", slowCallDuration=" + slowCallDuration + ", windowSize=" + windowSize
+				+ ", minimumCalls=" + minimumCalls + ", openDuration=" + openDuration + ", halfOpenCalls="
+				+ halfOpenCalls + "]";
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+
+
+/**
+ * <p>
+ * CircuitBreakerRegistry is a singleton registry of the {@link CircuitBreaker}
+ * of each token server url, shared by all connections requesting tokens from
+ * the same server so that a failing server is detected and spared once for
+ * the whole application.
+ * </p>
+ *
+ * <p>
+ * A circuit breaker is created on first use with the {@link CircuitBreakerPolicy}
+ * of that configuration; configurations of the same token server should share
+ * their policy.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class CircuitBreakerRegistry {
+
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers =
+			new ConcurrentHashMap<String, CircuitBreaker>();
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link CircuitBreakerRegistry}
+	 *
+	 * @return CircuitBreakerRegistry a singleton instance
+	 */
+	public static CircuitBreakerRegistry getInstance() {
+
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the circuit breaker of the token server url of this configuration
+	 *
+	 * @param connectionConfiguration has token server url and circuit breaker
+	 * 								  policy
+	 * @return CircuitBreaker		  shared circuit breaker, null if the
+	 * 								  configuration has no circuit breaker policy
+	 */
+	public CircuitBreaker getCircuitBreaker(ConnectionConfiguration connectionConfiguration) {
+
+		if ( connectionConfiguration == null || connectionConfiguration.getCircuitBreakerPolicy() == null
+				|| connectionConfiguration.getTokenServerUrl() == null ) {
+			return null;
+		}
+
+		String tokenServerUrl = connectionConfiguration.getTokenServerUrl().trim();
+		CircuitBreaker circuitBreaker = circuitBreakers.get(tokenServerUrl);
+
+		if ( circuitBreaker == null ) {
+
+			CircuitBreaker created = new CircuitBreaker(tokenServerUrl,
+					connectionConfiguration.getCircuitBreakerPolicy());
+
+			circuitBreaker = circuitBreakers.putIfAbsent(tokenServerUrl, created);
+
+			if ( circuitBreaker == null ) {
+				circuitBreaker = created;
+			}
+		}
+
+		return circuitBreaker;
+	}
+
+	/**
+	 * Removes all circuit breakers, new circuit breakers are created closed on
+	 * the next token request
+	 */
+	public void clear() {
+		circuitBreakers.clear();
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final CircuitBreakerRegistry INSTANCE = new CircuitBreakerRegistry();
+	}
+
+}
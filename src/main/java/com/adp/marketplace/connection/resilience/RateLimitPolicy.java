@@ -0,0 +1,110 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import com.adp.marketplace.connection.constants.Constants;
+
+
+/**
+ * <p>
+ * RateLimitPolicy configures a token bucket {@link RateLimiter}. The bucket
+ * holds up to the burst of permits and refills at the permits per second; each
+ * token or api request takes a permit, waiting at most the maximum wait for
+ * one before it fails with a
+ * {@link com.adp.marketplace.connection.exception.RateLimitExceededException}.
+ * </p>
+ *
+ * <pre>
+ * RateLimitPolicy rateLimitPolicy = new RateLimitPolicy();
+ * rateLimitPolicy.setPermitsPerSecond(5);
+ * rateLimitPolicy.setBurst(20);
+ * connectionConfiguration.setRateLimitPolicy(rateLimitPolicy);
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class RateLimitPolicy {
+
+	private double permitsPerSecond = Constants.DEFAULT_RATE_LIMIT_PERMITS_PER_SECOND;
+
+	private int burst = Constants.DEFAULT_RATE_LIMIT_BURST;
+
+	private long maxWait = Constants.DEFAULT_RATE_LIMIT_MAX_WAIT;
+
+	/**
+	 *
+	 * @return permitsPerSecond sustained rate the bucket refills at
+	 */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 *
+	 * @param permitsPerSecond sustained rate the bucket refills at, should be
+	 * 						   below the quota of the client
+	 */
+	public void setPermitsPerSecond(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+	}
+
+	/**
+	 *
+	 * @return burst number of permits the bucket holds
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	/**
+	 *
+	 * @param burst number of permits the bucket holds, taken without waiting
+	 * 				after an idle period
+	 */
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	/**
+	 *
+	 * @return maxWait milliseconds a request waits at most for a permit
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 *
+	 * @param maxWait milliseconds a request waits at most for a permit, 0 to
+	 * 				  fail requests without waiting
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * @return String the String representation of this {@link RateLimitPolicy} object
+	 */
+	@Override
+	public String toString() {
+		return "RateLimitPolicy [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + ", maxWait="
+				+ maxWait + "]";
+	}
+
+}
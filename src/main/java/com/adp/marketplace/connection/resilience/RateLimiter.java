@@ -0,0 +1,294 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.adp.marketplace.connection.exception.RateLimitExceededException;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
+
+
+/**
+ * <p>
+ * RateLimiter is a token bucket pacing requests to the rate of its
+ * {@link RateLimitPolicy}. The bucket holds up to the burst of permits and
+ * refills continuously at the permits per second, so requests after an idle
+ * period proceed at once and sustained load is spread evenly instead of
+ * being rejected by the server.
+ * </p>
+ *
+ * <p>
+ * A permit is taken with {@link #tryAcquire()} without waiting, with
+ * {@link #acquire()} blocking the caller, or with {@link #acquireAsync()}
+ * completing a future once the permit is available. Waiting callers reserve
+ * their permit up front, so they are served in order and never wait longer
+ * than the maximum wait of the policy. A Retry-After of the server is honoured
+ * with {@link #pause(long)}.
+ * </p>
+ *
+ * <p>
+ * Rate limiters are thread safe and shared by all connections of a client id
+ * through the {@link RateLimiterRegistry}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class RateLimiter {
+
+	private final String name;
+	private final RateLimitPolicy policy;
+
+	// locks rather than monitors so waiting callers never pin virtual threads
+	private final Lock lock = new ReentrantLock();
+
+	// permits in the bucket, negative once permits are reserved ahead
+	private double permits;
+
+	// System.nanoTime() the permits were refilled at, in the future while paused
+	private long refilledAt;
+
+	/**
+	 * constructor
+	 *
+	 * @param name	 name of the rate limiter, e.g. the client id
+	 * @param policy rate, burst and maximum wait of the rate limiter
+	 */
+	public RateLimiter(String name, RateLimitPolicy policy) {
+
+		if ( policy == null || policy.getPermitsPerSecond() <= 0 ) {
+			throw new IllegalArgumentException("Rate limit policy must have a positive rate");
+		}
+
+		this.name = name;
+		this.policy = policy;
+		this.permits = getBurst();
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Takes a permit if one is available now
+	 *
+	 * @return boolean true if the request may proceed, false otherwise
+	 */
+	public boolean tryAcquire() {
+		return reserve(0) == 0;
+	}
+
+	/**
+	 * Takes a permit, waiting for it up to the timeout
+	 *
+	 * @param timeout milliseconds to wait at most
+	 * @return boolean true if the request may proceed, false if no permit is
+	 * 				   available within the timeout, in which case none is taken
+	 * @throws InterruptedException thrown if interrupted while waiting
+	 */
+	public boolean tryAcquire(long timeout) throws InterruptedException {
+
+		long wait = reserve(TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout)));
+
+		if ( wait < 0 ) {
+			return false;
+		}
+
+		TimeUnit.NANOSECONDS.sleep(wait);
+		return true;
+	}
+
+	/**
+	 * Takes a permit, waiting for it up to the maximum wait of the policy
+	 *
+	 * @throws RateLimitExceededException thrown if no permit is available
+	 * 									  within the maximum wait
+	 * @throws InterruptedException		  thrown if interrupted while waiting
+	 */
+	public void acquire() throws RateLimitExceededException, InterruptedException {
+
+		if ( !tryAcquire(policy.getMaxWait()) ) {
+			throw exceeded();
+		}
+	}
+
+	/**
+	 * Takes a permit without blocking the caller. The returned future
+	 * completes on the shared connect executor once the permit is available,
+	 * or exceptionally with a {@link RateLimitExceededException} if none is
+	 * available within the maximum wait of the policy.
+	 *
+	 * @return CompletableFuture completed once the request may proceed
+	 */
+	public CompletableFuture<Void> acquireAsync() {
+
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		long wait = reserve(TimeUnit.MILLISECONDS.toNanos(Math.max(0, policy.getMaxWait())));
+
+		if ( wait < 0 ) {
+			future.completeExceptionally(exceeded());
+		} else if ( wait == 0 ) {
+			future.complete(null);
+		} else {
+
+			// dependent stages run on the connect executor, not the timeout thread
+			ExecutorUtils.getInstance().scheduleTimeout(new Runnable() {
+
+				@Override
+				public void run() {
+
+					try {
+						ExecutorUtils.getInstance().getConnectExecutor().execute(new Runnable() {
+
+							@Override
+							public void run() {
+								future.complete(null);
+							}
+						});
+					} catch (RuntimeException e) {
+						future.completeExceptionally(e);
+					}
+				}
+			}, TimeUnit.NANOSECONDS.toMillis(wait - 1) + 1);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Grants no new permits for the given duration, e.g. the Retry-After of a
+	 * 429 response, after which the bucket resumes with a single permit.
+	 * Permits reserved before the pause are not revoked.
+	 *
+	 * @param millis milliseconds to pause for
+	 */
+	public void pause(long millis) {
+
+		if ( millis <= 0 ) {
+			return;
+		}
+
+		lock.lock();
+		try {
+
+			long now = System.nanoTime();
+			refill(now);
+
+			long resumeAt = now + TimeUnit.MILLISECONDS.toNanos(millis);
+
+			if ( resumeAt - refilledAt > 0 ) {
+				refilledAt = resumeAt;
+				permits = Math.min(permits, 1);
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the name of this rate limiter
+	 *
+	 * @return name name of the rate limiter
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the policy of this rate limiter
+	 *
+	 * @return policy rate, burst and maximum wait of the rate limiter
+	 */
+	public RateLimitPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Reserves a permit if it is available within the maximum wait
+	 *
+	 * @param maxWaitNanos nanoseconds the caller waits at most
+	 * @return long		   nanoseconds to wait before using the reserved
+	 * 					   permit, -1 if none was reserved
+	 */
+	private long reserve(long maxWaitNanos) {
+
+		lock.lock();
+		try {
+
+			long now = System.nanoTime();
+			refill(now);
+
+			long wait = Math.max(0, refilledAt - now);
+
+			if ( permits < 1 ) {
+				wait += (long) Math.ceil((1 - permits) * TimeUnit.SECONDS.toNanos(1)
+						/ policy.getPermitsPerSecond());
+			}
+
+			if ( wait > maxWaitNanos ) {
+				return -1;
+			}
+
+			permits -= 1;
+			return wait;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the permits accrued since the last refill, must be called holding
+	 * the lock
+	 *
+	 * @param now System.nanoTime()
+	 */
+	private void refill(long now) {
+
+		if ( now - refilledAt > 0 ) {
+			permits = Math.min(getBurst(), permits + (now - refilledAt) * policy.getPermitsPerSecond()
+					/ TimeUnit.SECONDS.toNanos(1));
+			refilledAt = now;
+		}
+	}
+
+	/**
+	 * @return int burst of the policy, at least one permit
+	 */
+	private int getBurst() {
+		return Math.max(1, policy.getBurst());
+	}
+
+	/**
+	 * @return RateLimitExceededException
+	 */
+	private RateLimitExceededException exceeded() {
+		return new RateLimitExceededException("Rate limit exceeded for " + name + ", no permit within "
+				+ policy.getMaxWait() + " ms");
+	}
+
+	/**
+	 * @return String the String representation of this {@link RateLimiter} object
+	 */
+	@Override
+	public String toString() {
+		return "RateLimiter [name=" + name + ", policy=" + policy + "]";
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.exception.RateLimitExceededException;
+
+
+/**
+ * <p>
+ * RateLimiterRegistry is a singleton registry of the {@link RateLimiter} of
+ * each client id, shared by all connections and api clients of the same
+ * client so that its quota is respected across the whole application, and of
+ * an optional global rate limiter pacing the requests of all clients.
+ * </p>
+ *
+ * <p>
+ * A rate limiter is created on first use with the {@link RateLimitPolicy} of
+ * that configuration; configurations of the same client id should share their
+ * policy. Token and api requests take a permit of the client rate limiter,
+ * then of the global rate limiter.
+ * </p>
+ *
+ * <pre>
+ * RateLimitPolicy globalPolicy = new RateLimitPolicy();
+ * globalPolicy.setPermitsPerSecond(100);
+ * RateLimiterRegistry.getInstance().setGlobalRateLimiter(new RateLimiter("global", globalPolicy));
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class RateLimiterRegistry {
+
+	private final ConcurrentMap<String, RateLimiter> rateLimiters =
+			new ConcurrentHashMap<String, RateLimiter>();
+
+	private volatile RateLimiter globalRateLimiter = null;
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link RateLimiterRegistry}
+	 *
+	 * @return RateLimiterRegistry a singleton instance
+	 */
+	public static RateLimiterRegistry getInstance() {
+
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the rate limiter of the client id of this configuration
+	 *
+	 * @param connectionConfiguration has client id and rate limit policy
+	 * @return RateLimiter			  shared rate limiter, null if the
+	 * 								  configuration has no rate limit policy
+	 */
+	public RateLimiter getRateLimiter(ConnectionConfiguration connectionConfiguration) {
+
+		if ( connectionConfiguration == null || connectionConfiguration.getRateLimitPolicy() == null
+				|| connectionConfiguration.getClientID() == null ) {
+			return null;
+		}
+
+		String clientID = connectionConfiguration.getClientID().trim();
+		RateLimiter rateLimiter = rateLimiters.get(clientID);
+
+		if ( rateLimiter == null ) {
+
+			RateLimiter created = new RateLimiter(clientID, connectionConfiguration.getRateLimitPolicy());
+
+			rateLimiter = rateLimiters.putIfAbsent(clientID, created);
+
+			if ( rateLimiter == null ) {
+				rateLimiter = created;
+			}
+		}
+
+		return rateLimiter;
+	}
+
+	/**
+	 *
+	 * @return globalRateLimiter rate limiter of the requests of all clients,
+	 * 							 null if none
+	 */
+	public RateLimiter getGlobalRateLimiter() {
+		return globalRateLimiter;
+	}
+
+	/**
+	 *
+	 * @param globalRateLimiter rate limiter of the requests of all clients,
+	 * 							null to disable
+	 */
+	public void setGlobalRateLimiter(RateLimiter globalRateLimiter) {
+		this.globalRateLimiter = globalRateLimiter;
+	}
+
+	/**
+	 * Takes a permit of the client and of the global rate limiter, waiting
+	 * for each up to its maximum wait
+	 *
+	 * @param connectionConfiguration has client id and rate limit policy
+	 * @throws RateLimitExceededException thrown if a permit is not available
+	 * 									  within the maximum wait
+	 * @throws InterruptedException		  thrown if interrupted while waiting
+	 */
+	public void acquire(ConnectionConfiguration connectionConfiguration)
+			throws RateLimitExceededException, InterruptedException {
+
+		RateLimiter rateLimiter = getRateLimiter(connectionConfiguration);
+
+		if ( rateLimiter != null ) {
+			rateLimiter.acquire();
+		}
+
+		RateLimiter global = globalRateLimiter;
+
+		if ( global != null ) {
+			global.acquire();
+		}
+	}
+
+	/**
+	 * Takes a permit of the client and of the global rate limiter without
+	 * blocking the caller
+	 *
+	 * @param connectionConfiguration has client id and rate limit policy
+	 * @return CompletableFuture	  completed once the request may proceed,
+	 * 								  at once if not rate limited
+	 */
+	public CompletableFuture<Void> acquireAsync(ConnectionConfiguration connectionConfiguration) {
+
+		RateLimiter rateLimiter = getRateLimiter(connectionConfiguration);
+		final RateLimiter global = globalRateLimiter;
+
+		if ( rateLimiter == null ) {
+			return global != null ? global.acquireAsync() : CompletableFuture.<Void>completedFuture(null);
+		}
+
+		if ( global == null ) {
+			return rateLimiter.acquireAsync();
+		}
+
+		return rateLimiter.acquireAsync().thenCompose(new Function<Void, CompletionStage<Void>>() {
+
+			@Override
+			public CompletionStage<Void> apply(Void permit) {
+				return global.acquireAsync();
+			}
+		});
+	}
+
+	/**
+	 * Pauses the rate limiter of the client id, or the global rate limiter
+	 * if the client has none, for the Retry-After of a throttled response
+	 *
+	 * @param connectionConfiguration has client id and rate limit policy
+	 * @param retryAfter			  milliseconds the server asked to wait
+	 */
+	public void throttled(ConnectionConfiguration connectionConfiguration, long retryAfter) {
+
+		if ( retryAfter <= 0 ) {
+			return;
+		}
+
+		RateLimiter rateLimiter = getRateLimiter(connectionConfiguration);
+
+		if ( rateLimiter == null ) {
+			rateLimiter = globalRateLimiter;
+		}
+
+		if ( rateLimiter != null ) {
+			rateLimiter.pause(retryAfter);
+		}
+	}
+
+	/**
+	 * Removes all client rate limiters and the global rate limiter
+	 */
+	public void clear() {
+		rateLimiters.clear();
+		globalRateLimiter = null;
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final RateLimiterRegistry INSTANCE = new RateLimiterRegistry();
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.net.ssl.SSLException;
+
+import com.adp.marketplace.connection.constants.Constants;
+
+
+/**
+ * <p>
+ * RetryPolicy configures the retries of a token request that failed with an
+ * I/O error or a transient http status, such as 503. Retries are delayed with
+ * exponential backoff and decorrelated jitter: each delay is random between
+ * the base delay and three times the previous delay, capped by the maximum
+ * delay, so clients failing together do not retry in lockstep.
+ * </p>
+ *
+ * <p>
+ * A token request is attempted at most {@link #getMaxAttempts()} times and no
+ * retry is started past {@link #getMaxDuration()} since the first attempt.
+ * Policies are read by concurrent token requests and should not be changed
+ * once configured.
+ * </p>
+ *
+ * <pre>
+ * RetryPolicy retryPolicy = new RetryPolicy();
+ * retryPolicy.setMaxAttempts(5);
+ * connectionConfiguration.setRetryPolicy(retryPolicy);
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class RetryPolicy {
+
+	private int maxAttempts = Constants.DEFAULT_RETRY_MAX_ATTEMPTS;
+
+	private long baseDelay = Constants.DEFAULT_RETRY_BASE_DELAY;
+	private long maxDelay = Constants.DEFAULT_RETRY_MAX_DELAY;
+	private long maxDuration = Constants.DEFAULT_RETRY_MAX_DURATION;
+
+	private Set<Integer> retryStatusCodes = Collections.unmodifiableSet(
+			new HashSet<Integer>(Constants.DEFAULT_RETRY_STATUS_CODES));
+
+	/**
+	 * Returns true if a response with this http status is retried
+	 *
+	 * @param statusCode http status of the token server response
+	 * @return boolean	 true if the status is one of the retry status codes
+	 */
+	public boolean isRetryable(int statusCode) {
+		return retryStatusCodes.contains(statusCode);
+	}
+
+	/**
+	 * Returns true if a token request failed with this exception is retried.
+	 * SSL failures, such as an untrusted certificate, are not transient and
+	 * are never retried.
+	 *
+	 * @param exception exception thrown by the token request
+	 * @return boolean	true if the request is retried
+	 */
+	public boolean isRetryable(IOException exception) {
+		return !(exception instanceof SSLException);
+	}
+
+	/**
+	 * Returns the milliseconds to wait before the next attempt
+	 *
+	 * @param attempts		number of attempts made so far
+	 * @param previousDelay delay before the previous attempt, 0 after the
+	 * 						first attempt
+	 * @return long			delay in milliseconds, -1 if attempts are exhausted
+	 */
+	public long nextDelay(int attempts, long previousDelay) {
+
+		if ( attempts >= maxAttempts ) {
+			return -1;
+		}
+
+		long base = Math.max(0, baseDelay);
+		long upper = Math.max(base, Math.max(previousDelay, base) * 3);
+
+		long delay = upper > base ? ThreadLocalRandom.current().nextLong(base, upper + 1) : base;
+
+		return Math.min(delay, Math.max(base, maxDelay));
+	}
+
+	/**
+	 *
+	 * @return maxAttempts maximum number of attempts of a token request,
+	 * 					   including the first
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 *
+	 * @param maxAttempts maximum number of attempts of a token request,
+	 * 					  including the first, 1 disables retries
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 *
+	 * @return baseDelay milliseconds of the shortest delay before a retry
+	 */
+	public long getBaseDelay() {
+		return baseDelay;
+	}
+
+	/**
+	 *
+	 * @param baseDelay milliseconds of the shortest delay before a retry
+	 */
+	public void setBaseDelay(long baseDelay) {
+		this.baseDelay = baseDelay;
+	}
+
+	/**
+	 *
+	 * @return maxDelay milliseconds of the longest delay before a retry
+	 */
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 *
+	 * @param maxDelay milliseconds of the longest delay before a retry
+	 */
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 *
+	 * @return maxDuration milliseconds since the first attempt after which no
+	 * 					   retry is started
+	 */
+	public long getMaxDuration() {
+		return maxDuration;
+	}
+
+	/**
+	 *
+	 * @param maxDuration milliseconds since the first attempt after which no
+	 * 					  retry is started, the overall deadline of a token
+	 * 					  request
+	 */
+	public void setMaxDuration(long maxDuration) {
+		this.maxDuration = maxDuration;
+	}
+
+	/**
+	 *
+	 * @return retryStatusCodes unmodifiable set of http status codes retried
+	 */
+	public Set<Integer> getRetryStatusCodes() {
+		return retryStatusCodes;
+	}
+
+	/**
+	 *
+	 * @param retryStatusCodes http status codes retried, 429, 500, 502, 503
+	 * 						   and 504 by default
+	 */
+	public void setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+		this.retryStatusCodes = retryStatusCodes == null ? Collections.<Integer>emptySet()
+				: Collections.unmodifiableSet(new HashSet<Integer>(retryStatusCodes));
+	}
+
+	/**
+	 * @return String the String representation of this {@link RetryPolicy} object
+	 */
+	@Override
+	public String toString() {
+		return "RetryPolicy [maxAttempts=" + maxAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay
+				+ ", maxDuration=" + maxDuration + ", retryStatusCodes=" + retryStatusCodes + "]";
+	}
+
+}
@@ -0,0 +1,559 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adp.marketplace.connection.utils.GsonTokenParser;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+
+/**
+ * <p>
+ * FileTokenStore is a {@link TokenStore} keeping each token in its own file of
+ * a directory, so JVMs sharing the directory start with the tokens issued
+ * before they restarted.
+ * </p>
+ *
+ * <p>
+ * The file of a token is named after the SHA-256 hash of its
+ * {@link ConnectionKey}, so client ids never appear on disk. Its content is
+ * encrypted with AES/GCM under the given key, bound to the connection key so a
+ * file copied to another name fails to decrypt. Tokens are written to a
+ * temporary file and atomically moved in place, readers never observe a
+ * partially written token.
+ * </p>
+ *
+ * <p>
+ * On a directory shared by many nodes, such as a network file system, leases
+ * are files created exclusively next to the token file. A lease left by a
+ * failed node is taken over once expired, by the one node exclusively creating
+ * a guard file named after that lease.
+ * </p>
+ *
+ * <pre>
+ * SecretKey key = new SecretKeySpec(keyBytes, "AES");
+ * configuration.setTokenStore(new FileTokenStore(new File("/var/lib/app/tokens"), key));
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class FileTokenStore implements TokenStore {
+
+	private static final String CIPHER = "AES/GCM/NoPadding";
+	private static final String FILE_SUFFIX = ".token";
+	private static final String LEASE_SUFFIX = ".lease";
+
+	private static final byte VERSION = 1;
+	private static final int IV_LENGTH = 12;
+	private static final int TAG_LENGTH = 128;
+
+	private static final Gson GSON = GsonTokenParser.getInstance().getGson();
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final Path directory;
+	private final SecretKey key;
+
+	/**
+	 * constructor
+	 *
+	 * @param directory directory holding the token files, created on first save
+	 * @param key		AES key encrypting the token files, 128, 192 or 256 bits
+	 */
+	public FileTokenStore(File directory, SecretKey key) {
+
+		if ( directory == null ) {
+			throw new IllegalArgumentException("Token store directory must not be null");
+		}
+
+		if ( key == null || !"AES".equalsIgnoreCase(key.getAlgorithm()) ) {
+			throw new IllegalArgumentException("Token store key must be an AES key");
+		}
+
+		this.directory = directory.toPath();
+		this.key = key;
+	}
+
+	/**
+	 * Returns the stored token of the connection key
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @return Token		token with <code>expires_in</code> set to the seconds
+	 * 						remaining, null if none is stored or it expired
+	 * @throws IOException	thrown if the token file cannot be read or decrypted
+	 */
+	@Override
+	public Token load(ConnectionKey connectionKey) throws IOException {
+
+		byte[] content;
+
+		try {
+			content = Files.readAllBytes(getFile(connectionKey, FILE_SUFFIX));
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(content);
+
+		if ( buffer.remaining() <= 1 + IV_LENGTH || buffer.get() != VERSION ) {
+			throw new IOException("Invalid token store file for " + connectionKey);
+		}
+
+		byte[] iv = new byte[IV_LENGTH];
+		buffer.get(iv);
+
+		Entry entry;
+
+		try {
+
+			Cipher cipher = Cipher.getInstance(CIPHER);
+			cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+			cipher.updateAAD(getName(connectionKey).getBytes(StandardCharsets.UTF_8));
+
+			byte[] plaintext = cipher.doFinal(content, buffer.position(), buffer.remaining());
+			entry = GSON.fromJson(new String(plaintext, StandardCharsets.UTF_8), Entry.class);
+
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Invalid token store file for " + connectionKey, e);
+		} catch (JsonParseException e) {
+			throw new IOException("Invalid token store file for " + connectionKey, e);
+		}
+
+		if ( entry == null || entry.token == null ) {
+			return null;
+		}
+
+		long remaining = (entry.expiresAt - System.currentTimeMillis()) / 1000;
+
+		if ( remaining <= 0 ) {
+			return null;
+		}
+
+		entry.token.setExpires_in(remaining);
+
+		return entry.token;
+	}
+
+	/**
+	 * Encrypts the token to a temporary file and atomically replaces the token
+	 * file of the connection key with it
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param token			token just issued
+	 * @throws IOException	thrown if the token file cannot be written
+	 */
+	@Override
+	public void save(ConnectionKey connectionKey, Token token) throws IOException {
+
+		if ( token == null ) {
+			return;
+		}
+
+		Entry entry = new Entry();
+		entry.token = token;
+		entry.expiresAt = System.currentTimeMillis() + (token.getExpires_in() * 1000);
+
+		byte[] iv = new byte[IV_LENGTH];
+		RANDOM.nextBytes(iv);
+
+		byte[] ciphertext;
+
+		try {
+
+			Cipher cipher = Cipher.getInstance(CIPHER);
+			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+			cipher.updateAAD(getName(connectionKey).getBytes(StandardCharsets.UTF_8));
+
+			ciphertext = cipher.doFinal(GSON.toJson(entry).getBytes(StandardCharsets.UTF_8));
+
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Failed to encrypt token for " + connectionKey, e);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + IV_LENGTH + ciphertext.length);
+		buffer.put(VERSION).put(iv).put(ciphertext);
+		buffer.flip();
+
+		Files.createDirectories(directory);
+
+		replace(getFile(connectionKey, FILE_SUFFIX), buffer);
+	}
+
+	/**
+	 * Deletes the token file of the connection key, if any
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @throws IOException	thrown if the token file cannot be deleted
+	 */
+	@Override
+	public void remove(ConnectionKey connectionKey) throws IOException {
+		Files.deleteIfExists(getFile(connectionKey, FILE_SUFFIX));
+	}
+
+	/**
+	 * Creates the lease file of the connection key for the owner, taking over
+	 * a lease that expired. A lease file is created complete and exclusively,
+	 * and is only replaced or deleted by the node that exclusively created the
+	 * guard file of the lease it observed, so racing nodes never both hold it.
+	 *
+	 * @param connectionKey	 key of client id, grant type, scope, token
+	 * 						 server url and credentials
+	 * @param owner			 unique id of the connection requesting a token
+	 * @param durationMillis milliseconds until the lease expires unless released
+	 * @return boolean		 true if the owner holds the lease
+	 * @throws IOException	 thrown if the lease file cannot be created
+	 */
+	@Override
+	public boolean acquireLease(ConnectionKey connectionKey, String owner, long durationMillis)
+			throws IOException {
+
+		Files.createDirectories(directory);
+
+		Path file = getFile(connectionKey, LEASE_SUFFIX);
+
+		for ( int attempt = 0; attempt < 2; attempt++ ) {
+
+			long now = System.currentTimeMillis();
+			Lease lease = readLease(file, durationMillis);
+
+			if ( lease == null ) {
+
+				if ( createLease(file, new Lease(owner, now + durationMillis)) ) {
+					return true;
+				}
+
+			} else if ( owner.equals(lease.owner) ) {
+				return true;
+			} else if ( lease.expiresAt > now ) {
+				return false;
+			} else if ( updateLease(file, lease, new Lease(owner, now + durationMillis), durationMillis) ) {
+				return true;
+			}
+
+			// another owner created or took over the lease meanwhile, checked again
+		}
+
+		return false;
+	}
+
+	/**
+	 * Deletes the lease file of the connection key if the owner holds it
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param owner			unique id of the connection that requested a token
+	 * @throws IOException	thrown if the lease file cannot be deleted
+	 */
+	@Override
+	public void releaseLease(ConnectionKey connectionKey, String owner) throws IOException {
+
+		Path file = getFile(connectionKey, LEASE_SUFFIX);
+		Lease lease = readLease(file, 0);
+
+		if ( lease != null && owner.equals(lease.owner) ) {
+			updateLease(file, lease, null, 0);
+		}
+	}
+
+	/**
+	 * Returns the directory holding the token files
+	 *
+	 * @return File token store directory
+	 */
+	public File getDirectory() {
+		return directory.toFile();
+	}
+
+	/**
+	 * Returns the lease of a lease file
+	 *
+	 * @param file
+	 * @param durationMillis milliseconds a lease file that cannot be read is
+	 * 						 held after it was last modified
+	 * @return Lease		 lease, null if there is no lease file
+	 * @throws IOException
+	 */
+	private static Lease readLease(Path file, long durationMillis) throws IOException {
+
+		try {
+
+			String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+			String[] lease = content.split("\n");
+
+			if ( lease.length == 3 && lease[1].matches("\\d+") ) {
+				return new Lease(lease[0], Long.parseLong(lease[1]), lease[2]);
+			}
+
+			// left by a failed node or an earlier version, the content identifies it
+			return new Lease(null, Files.getLastModifiedTime(file).toMillis() + durationMillis,
+					Integer.toHexString(content.hashCode()));
+
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the lease file with the lease unless it exists, linking it to a
+	 * temporary file so it is never observed partially written
+	 *
+	 * @param file
+	 * @param lease
+	 * @return boolean true if the lease file was created
+	 * @throws IOException
+	 */
+	private static boolean createLease(Path file, Lease lease) throws IOException {
+
+		Path temp = createTempFile(file, lease.toByteBuffer());
+
+		try {
+
+			try {
+				Files.createLink(file, temp);
+			} catch (UnsupportedOperationException e) {
+				Files.move(temp, file);
+			}
+
+			return true;
+
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Replaces the observed lease of the lease file with the lease, or deletes
+	 * it if the lease is null. Only the node exclusively creating the guard
+	 * file of the observed lease changes it, and only if still observed.
+	 *
+	 * @param file
+	 * @param observed		 lease read from the lease file
+	 * @param lease			 lease replacing it, null to delete the lease file
+	 * @param durationMillis milliseconds after which a guard file left by a
+	 * 						 failed node is deleted
+	 * @return boolean		 true if the observed lease was replaced or deleted
+	 * @throws IOException
+	 */
+	private static boolean updateLease(Path file, Lease observed, Lease lease, long durationMillis)
+			throws IOException {
+
+		Path guard = file.resolveSibling(file.getFileName() + "." + observed.id);
+
+		try {
+			Files.createFile(guard);
+		} catch (FileAlreadyExistsException e) {
+
+			try {
+				if ( Files.getLastModifiedTime(guard).toMillis() + durationMillis < System.currentTimeMillis() ) {
+					Files.deleteIfExists(guard);
+				}
+			} catch (NoSuchFileException ex) {
+				// released meanwhile
+			}
+
+			return false;
+		}
+
+		try {
+
+			Lease current = readLease(file, durationMillis);
+
+			if ( current == null || !observed.id.equals(current.id) ) {
+				return false;
+			}
+
+			if ( lease == null ) {
+				Files.deleteIfExists(file);
+			} else {
+				replace(file, lease.toByteBuffer());
+			}
+
+			return true;
+
+		} finally {
+			Files.deleteIfExists(guard);
+		}
+	}
+
+	/**
+	 * Writes the content to a temporary file and atomically replaces the file
+	 * with it
+	 *
+	 * @param file
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private static void replace(Path file, ByteBuffer buffer) throws IOException {
+
+		Path temp = createTempFile(file, buffer);
+
+		try {
+
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Writes the content to a new temporary file next to the file
+	 *
+	 * @param file
+	 * @param buffer
+	 * @return Path temporary file, to be moved or deleted by the caller
+	 * @throws IOException
+	 */
+	private static Path createTempFile(Path file, ByteBuffer buffer) throws IOException {
+
+		// created owner readable only on POSIX file systems
+		Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+		try {
+
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+
+			try {
+				while ( buffer.hasRemaining() ) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		return temp;
+	}
+
+	/**
+	 * Returns the file of the connection key with the suffix
+	 *
+	 * @param connectionKey
+	 * @param suffix
+	 * @return Path
+	 * @throws IOException
+	 */
+	private Path getFile(ConnectionKey connectionKey, String suffix) throws IOException {
+
+		if ( connectionKey == null ) {
+			throw new IllegalArgumentException("Connection key must not be null");
+		}
+
+		try {
+
+			byte[] hash = MessageDigest.getInstance("SHA-256")
+					.digest(getName(connectionKey).getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder name = new StringBuilder(hash.length * 2 + suffix.length());
+			for ( byte b : hash ) {
+				name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return directory.resolve(name.append(suffix).toString());
+
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Returns the unique name of the connection key
+	 *
+	 * @param connectionKey
+	 * @return String
+	 */
+	private static String getName(ConnectionKey connectionKey) {
+		return connectionKey.getClientID() + '\n' + connectionKey.getGrantType() + '\n'
+				+ StringUtils.defaultString(connectionKey.getScope()) + '\n'
+				+ StringUtils.defaultString(connectionKey.getTokenServerUrl()) + '\n'
+				+ StringUtils.defaultString(connectionKey.getCredentialFingerprint());
+	}
+
+	/**
+	 * Owner and absolute expiry time in milliseconds of a lease, with a random
+	 * id telling apart leases of the same owner
+	 */
+	private static final class Lease {
+
+		private final String owner;
+		private final long expiresAt;
+		private final String id;
+
+		private Lease(String owner, long expiresAt) {
+			this(owner, expiresAt, Long.toHexString(RANDOM.nextLong()));
+		}
+
+		private Lease(String owner, long expiresAt, String id) {
+			this.owner = owner;
+			this.expiresAt = expiresAt;
+			this.id = id;
+		}
+
+		private ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap((owner + '\n' + expiresAt + '\n' + id).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Stored token and its absolute expiry time in milliseconds
+	 */
+	private static final class Entry {
+
+		private Token token;
+		private long expiresAt;
+	}
+
+}
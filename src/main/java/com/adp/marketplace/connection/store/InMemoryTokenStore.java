@@ -0,0 +1,187 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * InMemoryTokenStore is a {@link TokenStore} holding tokens and leases in memory,
+ * shared by the connections of one JVM. It stands in for a remote store in
+ * tests and single node deployments; tokens do not survive restarts.
+ * </p>
+ *
+ * <p>
+ * Leases are granted atomically per connection key, so concurrent connections
+ * of the same client request exactly one token.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class InMemoryTokenStore implements TokenStore {
+
+	private final ConcurrentMap<ConnectionKey, Entry> tokens = new ConcurrentHashMap<ConnectionKey, Entry>();
+
+	private final ConcurrentMap<ConnectionKey, Lease> leases = new ConcurrentHashMap<ConnectionKey, Lease>();
+
+	/**
+	 * Returns a copy of the stored token of the connection key
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @return Token		token with <code>expires_in</code> set to the seconds
+	 * 						remaining, null if none is stored or it expired
+	 */
+	@Override
+	public Token load(ConnectionKey connectionKey) {
+
+		Entry entry = tokens.get(connectionKey);
+
+		if ( entry == null ) {
+			return null;
+		}
+
+		long remaining = (entry.expiresAt - System.currentTimeMillis()) / 1000;
+
+		if ( remaining <= 0 ) {
+			tokens.remove(connectionKey, entry);
+			return null;
+		}
+
+		Token token = copy(entry.token);
+		token.setExpires_in(remaining);
+
+		return token;
+	}
+
+	/**
+	 * Stores a copy of the token for the connection key
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param token			token just issued
+	 */
+	@Override
+	public void save(ConnectionKey connectionKey, Token token) {
+
+		if ( token != null ) {
+			tokens.put(connectionKey, new Entry(copy(token),
+					System.currentTimeMillis() + (token.getExpires_in() * 1000)));
+		}
+	}
+
+	/**
+	 * Removes the stored token of the connection key, if any
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 */
+	@Override
+	public void remove(ConnectionKey connectionKey) {
+		tokens.remove(connectionKey);
+	}
+
+	/**
+	 * Acquires the lease of the connection key for the owner, unless another
+	 * owner holds a lease that has not expired
+	 *
+	 * @param connectionKey	 key of client id, grant type, scope, token
+	 * 						 server url and credentials
+	 * @param owner			 unique id of the connection requesting a token
+	 * @param durationMillis milliseconds until the lease expires unless released
+	 * @return boolean		 true if the owner holds the lease
+	 */
+	@Override
+	public boolean acquireLease(ConnectionKey connectionKey, final String owner, final long durationMillis) {
+
+		final long now = System.currentTimeMillis();
+
+		Lease lease = leases.compute(connectionKey, (key, current) ->
+				current == null || current.expiresAt <= now || current.owner.equals(owner)
+						? new Lease(owner, now + durationMillis) : current);
+
+		return lease.owner.equals(owner);
+	}
+
+	/**
+	 * Releases the lease of the connection key if the owner holds it
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param owner			unique id of the connection that requested a token
+	 */
+	@Override
+	public void releaseLease(ConnectionKey connectionKey, final String owner) {
+		leases.computeIfPresent(connectionKey, (key, current) -> current.owner.equals(owner) ? null : current);
+	}
+
+	/**
+	 * Returns a copy of the token, so stored tokens are not shared with
+	 * connections
+	 *
+	 * @param token
+	 * @return Token
+	 */
+	private static Token copy(Token token) {
+
+		Token copy = new Token();
+		copy.setAccess_token(token.getAccess_token());
+		copy.setId_token(token.getId_token());
+		copy.setRefresh_token(token.getRefresh_token());
+		copy.setScope(token.getScope());
+		copy.setToken_type(token.getToken_type());
+		copy.setExpires_in(token.getExpires_in());
+
+		return copy;
+	}
+
+	/**
+	 * Stored token and its absolute expiry time in milliseconds
+	 */
+	private static final class Entry {
+
+		private final Token token;
+		private final long expiresAt;
+
+		private Entry(Token token, long expiresAt) {
+			this.token = token;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Owner of a lease and its absolute expiry time in milliseconds
+	 */
+	private static final class Lease {
+
+		private final String owner;
+		private final long expiresAt;
+
+		private Lease(String owner, long expiresAt) {
+			this.owner = owner;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
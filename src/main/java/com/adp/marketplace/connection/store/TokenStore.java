@@ -0,0 +1,124 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.store;
+
+import java.io.IOException;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * TokenStore persists client credentials tokens so they survive restarts. It
+ * is set on {@link ConnectionConfiguration#setTokenStore(TokenStore)} and is
+ * disabled by default.
+ * </p>
+ *
+ * <p>
+ * A {@link ClientCredentialsConnection} loads the stored token of its
+ * {@link ConnectionKey} before requesting one from the token server, and uses
+ * it if it expires later than its own token. Every token the server issues is
+ * saved. Stores keep the absolute expiry time of a token; a loaded token has
+ * its <code>expires_in</code> set to the seconds remaining.
+ * </p>
+ *
+ * <p>
+ * A store shared by many nodes, such as a remote cache, also coordinates token
+ * requests with leases: only the connection holding the lease of a connection
+ * key requests a token, the others wait for it to be stored. Leases are best
+ * effort, a duplicate token request is harmless. Stores without leases grant
+ * every lease.
+ * </p>
+ *
+ * <p>
+ * Implementations are called on the connecting thread and must be thread safe.
+ * A store failure never fails a connect; the token is then requested from the
+ * token server.
+ * </p>
+ *
+ * @see FileTokenStore
+ * @see InMemoryTokenStore
+ *
+ * @author tallaprs
+ *
+ */
+public interface TokenStore {
+
+	/**
+	 * Returns the stored token of the connection key
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @return Token		token with <code>expires_in</code> set to the seconds
+	 * 						remaining, null if none is stored or it expired
+	 * @throws IOException	thrown if the stored token cannot be read
+	 */
+	Token load(ConnectionKey connectionKey) throws IOException;
+
+	/**
+	 * Stores the token issued for the connection key, replacing the stored one
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param token			token just issued, expiring in <code>expires_in</code>
+	 * 						seconds from now
+	 * @throws IOException	thrown if the token cannot be stored
+	 */
+	void save(ConnectionKey connectionKey, Token token) throws IOException;
+
+	/**
+	 * Removes the stored token of the connection key, if any
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @throws IOException	thrown if the stored token cannot be removed
+	 */
+	void remove(ConnectionKey connectionKey) throws IOException;
+
+	/**
+	 * Acquires the lease of the connection key for the owner, unless another
+	 * owner holds a lease that has not expired. Grants every lease by default.
+	 *
+	 * @param connectionKey	 key of client id, grant type, scope, token
+	 * 						 server url and credentials
+	 * @param owner			 unique id of the connection requesting a token
+	 * @param durationMillis milliseconds until the lease expires unless released
+	 * @return boolean		 true if the owner holds the lease
+	 * @throws IOException	 thrown if the lease cannot be acquired
+	 */
+	default boolean acquireLease(ConnectionKey connectionKey, String owner, long durationMillis)
+			throws IOException {
+		return true;
+	}
+
+	/**
+	 * Releases the lease of the connection key if the owner holds it. Does
+	 * nothing by default.
+	 *
+	 * @param connectionKey key of client id, grant type, scope, token
+	 * 						server url and credentials
+	 * @param owner			unique id of the connection that requested a token
+	 * @throws IOException	thrown if the lease cannot be released
+	 */
+	default void releaseLease(ConnectionKey connectionKey, String owner) throws IOException {
+	}
+
+}
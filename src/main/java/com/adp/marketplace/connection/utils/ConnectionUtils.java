@@ -17,17 +17,30 @@
 */
 package com.adp.marketplace.connection.utils;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.ParseException;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicNameValuePair;
 
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
@@ -39,7 +52,6 @@ import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
 import com.adp.marketplace.connection.vo.Token;
-import com.google.gson.Gson;
 
 
 /**
@@ -56,7 +68,6 @@ import com.google.gson.Gson;
  */
 public class ConnectionUtils {
 	
-	private static ConnectionUtils INSTANCE = null;
 	private static final Logger LOGGER = Logger.getLogger(ConnectionUtils.class.getName());
 	
 	/**
@@ -66,15 +77,7 @@ public class ConnectionUtils {
 	 */
 	public static ConnectionUtils getInstance() {
 		
-		if ( INSTANCE == null ) {		
-			synchronized (SSLUtils.class) {
-	            if ( INSTANCE == null ) {
-	                INSTANCE = new ConnectionUtils();
-	            }
-	        }
-	    }
-		
-	    return INSTANCE;
+		return Holder.INSTANCE;
 	}
 
 	/**
@@ -158,6 +161,34 @@ public class ConnectionUtils {
 		return nameValuePairs;
 	}
 	
+	/**
+	 * Returns a List of name value pairs consisting of client credentials, the
+	 * refresh_token grant type and the refresh token to renew an access token
+	 * without another authorization of the user
+	 * 
+	 * @param connectionConfiguration configuration with client credentials 
+	 * @param refreshToken			  refresh token issued with the current token
+	 * @return List<NameValuePair>	  A list with client credentials, grant type
+	 * 								  and refresh token
+	 * @throws ConnectionException	  throws exception if configuration is null
+	 */
+	public List<NameValuePair> getRefreshTokenNameValuePairs(ConnectionConfiguration connectionConfiguration,
+		String refreshToken) throws ConnectionException {
+		
+		if ( connectionConfiguration == null ) {
+			throw new ConnectionException("Connection Configuration is Not Set in request!!");
+		}
+		
+		List<NameValuePair> nameValuePairs = new ArrayList<NameValuePair>();
+		
+		nameValuePairs.add(new BasicNameValuePair(Constants.CLIENT_ID, connectionConfiguration.getClientID()));
+		nameValuePairs.add(new BasicNameValuePair(Constants.CLIENT_SECRET, connectionConfiguration.getClientSecret()));
+		nameValuePairs.add(new BasicNameValuePair(Constants.GRANT_TYPE, Constants.REFRESH_TOKEN));
+		nameValuePairs.add(new BasicNameValuePair(Constants.REFRESH_TOKEN, refreshToken));
+		
+		return nameValuePairs;
+	}
+	
 	/**
 	 * Returns a List of name value pairs consisting of client credentials, code,
 	 * redirect url and grant type associated to this connection
@@ -183,94 +214,196 @@ public class ConnectionUtils {
 	
 	/**
 	 * Returns a simple value object {@link Token} after processing JSON response
-	 * obtained as part of the Http Post execution to token server.  
+	 * obtained as part of the Http Post execution to token server with the 
+	 * default {@link GsonTokenParser}.
+	 * 
+	 * @param response	    contains JSON response from token server
+	 * @return Token        value object to map access token, expiration time, 
+	 *                      scope and token type, null if response is empty
+	 * @throws Exception 	thrown if processing of IO stream fail
+	 */
+	public static Token processTokenResponse(HttpResponse response) throws Exception {
+		return processTokenResponse(response, GsonTokenParser.getInstance());
+	}
+	
+	/**
+	 * Returns a simple value object {@link Token} after processing JSON response
+	 * obtained as part of the Http Post execution to token server. The token is
+	 * parsed directly from the response stream, decoded with the charset of the
+	 * response or UTF-8, and responses larger than 
+	 * {@link Constants#MAX_RESPONSE_SIZE} bytes are rejected.
 	 * 
 	 * @param response	    contains JSON response from token server
+	 * @param tokenParser   parser mapping the response, {@link GsonTokenParser} 
+	 *                      is used if null
 	 * @return Token        value object to map access token, expiration time, 
-	 *                      scope and token type
-	 * throws 				// thrown if processing of IO stream fail
-	 * @throws Exception 
+	 *                      scope and token type, null if response is empty
+	 * @throws Exception 	thrown if processing of IO stream fail
 	 */
-	public static Token processTokenResponse(CloseableHttpResponse response) throws Exception {
+	public static Token processTokenResponse(HttpResponse response, TokenParser tokenParser) 
+		throws Exception {
 		
-		Gson gson = null;
 		Token token = null;
-		String tokenString = null;
+		Reader reader = null;
 			
 		try {
 			
-			if ( response != null ) {
+			if ( response != null && response.getEntity() != null ) {
+				
+				reader = getReader(response.getEntity());
 				
-				tokenString = processResponse(response);
+				if ( tokenParser == null ) {
+					tokenParser = GsonTokenParser.getInstance();
+				}
 				
-				gson = new Gson();
-				if ( StringUtils.isNotBlank(tokenString)) {
-					token = gson.fromJson(tokenString, Token.class);
-				} 
+				token = tokenParser.parse(reader);
 			}		
 		} catch ( UnsupportedOperationException e ) {
 			throw new Exception(e);
 		} catch ( IOException e ) {
 			throw new Exception(e);
 		} finally {
-			try {
-				if ( response != null) {
-					response.close();
-				}
-			} catch (IOException e) {
-				throw new Exception(e);
-			}
+			close(reader, response);
 		}
 
 		return token;
 	}
 	
 	/**
+	 * Returns the body of this response decoded with the charset of the response 
+	 * or UTF-8. Responses larger than {@link Constants#MAX_RESPONSE_SIZE} bytes 
+	 * are rejected.
 	 * 
-	 * @param httpResponse
-	 * @return String
-	 * @throws IOException 
+	 * @param httpResponse  response from the server
+	 * @return String		response body, null if response is empty
+	 * @throws Exception 	thrown if processing of IO stream fail
 	 */
-	public static String processResponse(CloseableHttpResponse httpResponse) 
+	public static String processResponse(HttpResponse httpResponse) 
 		throws Exception {
 			
-		String response = null;
-		StringBuffer stringBuffer = null;
-		InputStreamReader inputStreamReader = null;
-		int value=0;
+		StringBuilder stringBuilder = null;
+		Reader reader = null;
 		
-		if ( httpResponse != null ) {
-			
-			try {
-			
-				inputStreamReader = new InputStreamReader(httpResponse.getEntity().getContent());
-				BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+		try {
 			
-				stringBuffer = new StringBuffer();
+			if ( httpResponse != null && httpResponse.getEntity() != null ) {
+				
+				reader = getReader(httpResponse.getEntity());
+				stringBuilder = new StringBuilder();
 				
-				// reads to the end of the stream 
-		         while((value = bufferedReader.read()) != -1) {		        	 
-		            // add character
-		            stringBuffer.append((char)value);
-		         }				
-			} catch ( UnsupportedOperationException e ) {
-				throw new Exception(e);
-			} catch ( IOException e ) {
-				throw new Exception(e);
-			} finally {
-				try {
-					httpResponse.close();
-				} catch (IOException e) {
-					throw new Exception(e);
+				char[] buffer = new char[1024];
+				int read = 0;
+				
+				// reads to the end of the stream
+				while ( (read = reader.read(buffer)) != -1 ) {
+					stringBuilder.append(buffer, 0, read);
 				}
 			}
+		} catch ( UnsupportedOperationException e ) {
+			throw new Exception(e);
+		} catch ( IOException e ) {
+			throw new Exception(e);
+		} finally {
+			close(reader, httpResponse);
 		}
 		
-		if ( stringBuffer != null && stringBuffer.length() > 0 ) {
-			response = stringBuffer.toString();
+		if ( stringBuilder == null || stringBuilder.length() == 0 ) {
+			return null;
 		}
 			
-		return response;
+		return stringBuilder.toString();
+	}
+	
+	/**
+	 * Returns the milliseconds a 429 or 503 response asks the client to wait 
+	 * before its next request, from a Retry-After header of either delay 
+	 * seconds or an http date
+	 * 
+	 * @param httpResponse  response from the server
+	 * @return long			milliseconds to wait, 0 if the response has no 
+	 * 						valid Retry-After header
+	 */
+	public static long getRetryAfter(HttpResponse httpResponse) {
+		
+		if ( httpResponse == null || httpResponse.getStatusLine() == null ) {
+			return 0;
+		}
+		
+		int statusCode = httpResponse.getStatusLine().getStatusCode();
+		
+		if ( statusCode != Constants.HTTP_TOO_MANY_REQUESTS 
+				&& statusCode != Constants.HTTP_SERVICE_UNAVAILABLE ) {
+			return 0;
+		}
+		
+		Header header = httpResponse.getFirstHeader("Retry-After");
+		
+		if ( header == null || StringUtils.isBlank(header.getValue()) ) {
+			return 0;
+		}
+		
+		String value = header.getValue().trim();
+		
+		if ( StringUtils.isNumeric(value) ) {
+			try {
+				return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+		
+		Date date = DateUtils.parseDate(value);
+		
+		return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+	}
+	
+	/**
+	 * Returns a reader of the entity content decoded with the charset of the 
+	 * entity or UTF-8, limited to {@link Constants#MAX_RESPONSE_SIZE} bytes
+	 * 
+	 * @param entity
+	 * @return Reader
+	 * @throws IOException
+	 */
+	private static Reader getReader(HttpEntity entity) throws IOException {
+		
+		Charset charset = null;
+		
+		try {
+			ContentType contentType = ContentType.get(entity);
+			if ( contentType != null ) {
+				charset = contentType.getCharset();
+			}
+		} catch (ParseException e) {
+			LOGGER.fine("Invalid content type, decoding response as UTF-8");
+		} catch (UnsupportedCharsetException e) {
+			LOGGER.fine("Unsupported charset, decoding response as UTF-8");
+		}
+		
+		return new InputStreamReader(new BoundedInputStream(entity.getContent(), Constants.MAX_RESPONSE_SIZE), 
+				charset != null ? charset : Consts.UTF_8);
+	}
+	
+	/**
+	 * Closes the reader, which releases the connection of the response for 
+	 * reuse, and the response
+	 * 
+	 * @param reader
+	 * @param httpResponse
+	 * @throws Exception
+	 */
+	private static void close(Reader reader, HttpResponse httpResponse) throws Exception {
+		
+		try {
+			if ( reader != null ) {
+				reader.close();
+			}
+			if ( httpResponse instanceof CloseableHttpResponse ) {
+				((CloseableHttpResponse) httpResponse).close();
+			}
+		} catch (IOException e) {
+			throw new Exception(e);
+		}
 	}
 	
 	/**
@@ -360,5 +493,60 @@ public class ConnectionUtils {
 
 		return nameValuePairs;
 	}
-	
-}
\ No newline at end of file
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final ConnectionUtils INSTANCE = new ConnectionUtils();
+	}
+
+	/**
+	 * Input stream failing once more than a maximum number of bytes are read, 
+	 * guarding against unexpectedly large responses
+	 */
+	private static final class BoundedInputStream extends FilterInputStream {
+
+		private final long maxSize;
+		private long count;
+
+		private BoundedInputStream(InputStream inputStream, long maxSize) {
+			super(inputStream);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if ( value != -1 ) {
+				count(1);
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if ( read > 0 ) {
+				count(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long length) throws IOException {
+			long skipped = super.skip(length);
+			count(skipped);
+			return skipped;
+		}
+
+		private void count(long read) throws IOException {
+			count += read;
+			if ( count > maxSize ) {
+				throw new IOException("Response exceeds " + maxSize + " bytes");
+			}
+		}
+	}
+
+}
@@ -41,8 +41,6 @@ import com.adp.marketplace.connection.exception.ConnectionValidatorException;
  */
 public class ConnectionValidatorUtils {
 	
-	private static ConnectionValidatorUtils INSTANCE = null;
-	
 	private static final Logger LOGGER = Logger.getLogger(ConnectionValidatorUtils.class.getName());
 	
 	/**
@@ -52,15 +50,7 @@ public class ConnectionValidatorUtils {
 	 */
 	public static ConnectionValidatorUtils getInstance() {
 		
-		if ( INSTANCE == null ) {		
-			synchronized (SSLUtils.class) {
-	            if ( INSTANCE == null ) {
-	                INSTANCE = new ConnectionValidatorUtils();
-	            }
-	        }
-	    }
-		
-	    return INSTANCE;
+		return Holder.INSTANCE;
 	}
 	
 	/**
@@ -168,6 +158,39 @@ public class ConnectionValidatorUtils {
 		
 	}
 	
+	/**
+	 * Returns true if {@link AuthorizationCodeConfiguration} has required ssl 
+	 * attributes, client id and token server url to renew a token with a 
+	 * refresh token, false otherwise
+	 * 
+	 * @param connectionConfiguration  		has the configuration details for AuthorizationCode
+	 * 								   		connection 
+	 * @return boolean valid 		   		returns true if validation passed, false otherwise
+	 * @throws ConnectionValidatorException Exception thrown in case of missing certificate 
+	 *                             			file, invalid file path or invalid trust store or key 
+	 *                             			store, missing client id or token server url or 
+	 *                                      null or empty connection or configurations 
+	 */
+	public boolean validateRefreshTokenRequest(AuthorizationCodeConfiguration connectionConfiguration) 
+			throws ConnectionValidatorException {
+		
+		boolean valid = true;
+		
+		if ( connectionConfiguration == null ) {
+			throw new ConnectionValidatorException("Connection Configuration is Not Set in request!!");
+		}
+		
+		boolean isValidSSL = validateSSLFields(connectionConfiguration);
+		boolean isValidClientCredentials = validateClientCredentials(true, connectionConfiguration);
+		boolean isValidURLs = validateUrls(connectionConfiguration);
+		
+		if ( isValidSSL && isValidClientCredentials && isValidURLs ) {
+			return valid;
+		}
+		
+		return valid;
+	}
+	
 	/**
 	 * Returns true if client credentials are not empty, false otherwise
 	 * 
@@ -317,4 +340,12 @@ public class ConnectionValidatorUtils {
 		return valid;
 	}
 
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final ConnectionValidatorUtils INSTANCE = new ConnectionValidatorUtils();
+	}
+
 }
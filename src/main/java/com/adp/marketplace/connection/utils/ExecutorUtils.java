@@ -0,0 +1,256 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.adp.marketplace.connection.constants.Constants;
+
+
+/**
+ * <p>
+ * ExecutorUtils is a singleton utility class that provides the executors running
+ * blocking connect requests off the caller thread.
+ * </p>
+ *
+ * <p>
+ * On runtimes with virtual threads (Java 21 and later) connect requests run on
+ * a new virtual thread each, so thousands of concurrent token requests park
+ * cheaply during socket I/O. The library targets Java 8, so virtual threads are
+ * looked up reflectively; on older runtimes a bounded pool of daemon threads is
+ * used instead. Its number of threads and queue capacity default to
+ * {@link Constants#DEFAULT_CONNECT_THREADS} and
+ * {@link Constants#DEFAULT_CONNECT_QUEUE_CAPACITY}, overridden by the system
+ * properties {@value Constants#CONNECT_THREADS_PROPERTY} and
+ * {@value Constants#CONNECT_QUEUE_CAPACITY_PROPERTY}. Requests submitted while
+ * all threads are busy and the queue is full are rejected, failing the
+ * connect request instead of starting more threads.
+ * </p>
+ *
+ * <p>
+ * Request timeouts are scheduled on a single shared daemon thread, see
+ * {@link #scheduleTimeout(Runnable, long)}.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class ExecutorUtils {
+
+	private static final Logger LOGGER = Logger.getLogger(ExecutorUtils.class.getName());
+
+	private final Method virtualThreadExecutorFactory;
+
+	private final int connectThreads;
+	private final int connectQueueCapacity;
+
+	private final ExecutorService connectExecutor;
+
+	private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+	/**
+	 * constructor
+	 */
+	private ExecutorUtils() {
+
+		virtualThreadExecutorFactory = findVirtualThreadExecutorFactory();
+		connectThreads = getPositiveInteger(Constants.CONNECT_THREADS_PROPERTY, Constants.DEFAULT_CONNECT_THREADS);
+		connectQueueCapacity = getPositiveInteger(Constants.CONNECT_QUEUE_CAPACITY_PROPERTY,
+				Constants.DEFAULT_CONNECT_QUEUE_CAPACITY);
+		connectExecutor = newConnectExecutor();
+
+		timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, Constants.TIMEOUT_THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		// most timeouts are cancelled once their request completes
+		timeoutScheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link ExecutorUtils}
+	 *
+	 * @return ExecutorUtils a singleton instance
+	 */
+	public static ExecutorUtils getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns true if this runtime supports virtual threads
+	 *
+	 * @return boolean true if executors create virtual threads
+	 */
+	public boolean isVirtualThreadSupported() {
+		return virtualThreadExecutorFactory != null;
+	}
+
+	/**
+	 * Returns the shared executor running blocking connect requests, creating
+	 * a virtual thread per request where supported
+	 *
+	 * @return ExecutorService shared executor, must not be shut down by the caller
+	 */
+	public ExecutorService getConnectExecutor() {
+		return connectExecutor;
+	}
+
+	/**
+	 * Schedules the task aborting a request once its timeout elapsed. The
+	 * task must be short and must not block; the returned future should be
+	 * cancelled once the request completes.
+	 *
+	 * @param task	   task aborting the request
+	 * @param timeout  milliseconds after which the task runs
+	 * @return ScheduledFuture future cancelling the task, null if the
+	 * 						   timeout is 0 or less
+	 */
+	public ScheduledFuture<?> scheduleTimeout(Runnable task, long timeout) {
+
+		if ( timeout <= 0 ) {
+			return null;
+		}
+
+		return timeoutScheduler.schedule(task, timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns a new executor for blocking connect requests that starts a
+	 * virtual thread for each task where supported. Otherwise it is a bounded
+	 * pool of daemon threads, see {@link #newBoundedExecutor(int, int)}, sized
+	 * by the connect thread and queue capacity properties, which rejects tasks
+	 * with a {@link java.util.concurrent.RejectedExecutionException} while all
+	 * threads are busy and its queue is full.
+	 *
+	 * @return ExecutorService new executor owned by the caller
+	 */
+	public ExecutorService newConnectExecutor() {
+
+		if ( virtualThreadExecutorFactory != null ) {
+			try {
+				return (ExecutorService) virtualThreadExecutorFactory.invoke(null);
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Failed to create virtual thread executor", e);
+			}
+		}
+
+		return newBoundedExecutor(connectThreads, connectQueueCapacity);
+	}
+
+	/**
+	 * Returns a new pool of at most maxThreads daemon threads, idle threads
+	 * ending after a minute. Tasks wait in a queue of the given capacity while
+	 * all threads are busy, and are rejected with a
+	 * {@link java.util.concurrent.RejectedExecutionException} once it is full.
+	 *
+	 * @param maxThreads	   maximum number of threads
+	 * @param queueCapacity	   maximum number of tasks waiting for a thread
+	 * @return ExecutorService new executor owned by the caller
+	 */
+	public ExecutorService newBoundedExecutor(int maxThreads, int queueCapacity) {
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+
+					private final AtomicInteger threadCount = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								Constants.CONNECT_THREAD_NAME + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	/**
+	 * Returns the positive integer value of the system property, or the
+	 * default value if it is not set or not a positive integer
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return int
+	 */
+	private static int getPositiveInteger(String name, int defaultValue) {
+
+		Integer value = Integer.getInteger(name);
+
+		if ( value == null || value <= 0 ) {
+			return defaultValue;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns Executors.newVirtualThreadPerTaskExecutor() if this runtime
+	 * supports virtual threads, null otherwise
+	 *
+	 * @return Method
+	 */
+	private static Method findVirtualThreadExecutorFactory() {
+
+		try {
+
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+			// preview releases throw unless preview features are enabled
+			((ExecutorService) method.invoke(null)).shutdown();
+
+			return method;
+
+		} catch (NoSuchMethodException e) {
+			LOGGER.fine("Virtual threads not supported, using platform threads");
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Virtual threads not enabled, using platform threads", e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final ExecutorUtils INSTANCE = new ExecutorUtils();
+	}
+
+}
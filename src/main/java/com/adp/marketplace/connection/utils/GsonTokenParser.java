@@ -0,0 +1,100 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+
+/**
+ * <p>
+ * GsonTokenParser is the default {@link TokenParser}. It holds a single
+ * {@link Gson} instance built with {@link TokenTypeAdapter}, so tokens are
+ * bound without reflection and no Gson instance is created per response.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class GsonTokenParser implements TokenParser {
+
+	private final Gson gson;
+
+	/**
+	 * constructor
+	 */
+	private GsonTokenParser() {
+		gson = new GsonBuilder()
+				.registerTypeAdapter(Token.class, new TokenTypeAdapter())
+				.create();
+	}
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link GsonTokenParser}
+	 *
+	 * @return GsonTokenParser a singleton instance
+	 */
+	public static GsonTokenParser getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the shared Gson instance mapping {@link Token} through
+	 * {@link TokenTypeAdapter}
+	 *
+	 * @return Gson thread safe Gson instance
+	 */
+	public Gson getGson() {
+		return gson;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.adp.marketplace.connection.utils.TokenParser#parse(java.io.Reader)
+	 */
+	@Override
+	public Token parse(Reader reader) throws IOException {
+
+		try {
+			// an empty response yields a null token
+			return gson.fromJson(new JsonReader(reader), Token.class);
+		} catch (JsonParseException e) {
+			
+			// Gson wraps failures of the underlying stream
+			if ( e.getCause() instanceof IOException ) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw new IOException("Invalid token response", e);
+		}
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final GsonTokenParser INSTANCE = new GsonTokenParser();
+	}
+
+}
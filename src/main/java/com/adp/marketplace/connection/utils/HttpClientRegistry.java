@@ -0,0 +1,544 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.metrics.ConnectionMetrics;
+
+
+/**
+ * <p>
+ * HttpClientRegistry is a singleton registry of long-lived, pooled <b>secured</b>
+ * http clients shared across connections. Clients are keyed by SSL certificate
+ * path, TLS version and token server host so that connections using the same
+ * certificate against the same server reuse warm TLS sessions instead of
+ * performing a full handshake on every token request.
+ * </p>
+ *
+ * <p>
+ * Non-blocking clients used by asynchronous token requests are pooled the same
+ * way, keyed alike but held apart from the blocking clients.
+ * </p>
+ *
+ * <p>
+ * The connection pool of blocking clients is passed to the {@link ConnectionMetrics}
+ * of the configuration on each use, named by the registry key.
+ * </p>
+ *
+ * <p>
+ * A client is replaced when the certificate file it was built with changes on
+ * disk. The replaced client is closed once the requests in flight on its pool
+ * completed, so reloading a certificate never aborts requests of other threads.
+ * </p>
+ *
+ * <p>
+ * Clients are built with the timeouts of the configuration creating them.
+ * Configurations sharing a client apply their own timeouts per request with
+ * {@link #getRequestConfig(ConnectionConfiguration)}.
+ * </p>
+ *
+ * <p>
+ * Clients returned by this registry are owned by the registry and must not be
+ * closed by the caller; use {@link #shutdown()} to release all pooled connections.
+ * </p>
+ *
+ * @see PoolingHttpClientConnectionManager
+ * @see SSLUtils
+ *
+ * @author tallaprs
+ *
+ */
+public class HttpClientRegistry {
+
+	private static final Logger LOGGER = Logger.getLogger(HttpClientRegistry.class.getName());
+
+	private final ConcurrentMap<String, PooledHttpClient> clients =
+			new ConcurrentHashMap<String, PooledHttpClient>();
+
+	private final ConcurrentMap<String, PooledHttpAsyncClient> asyncClients =
+			new ConcurrentHashMap<String, PooledHttpAsyncClient>();
+
+	// locks rather than monitors so creating clients never pins virtual threads
+	private final Lock clientsLock = new ReentrantLock();
+	private final Lock asyncClientsLock = new ReentrantLock();
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link HttpClientRegistry}
+	 *
+	 * @return HttpClientRegistry a singleton instance
+	 */
+	public static HttpClientRegistry getInstance() {
+
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns a pooled instance of {@link CloseableHttpClient} shared by all
+	 * configurations with the same certificate and passwords, TLS version and
+	 * token server host.
+	 * The client is created on first use with the pool settings of the given
+	 * configuration and recreated when the certificate file changes on disk.
+	 *
+	 * @param connectionConfiguration has file path to SSL certificate,
+	 * 								  password to trust store or key, token server
+	 * 								  url and pool settings
+	 * @return CloseableHttpClient    a shared http client, must not be closed
+	 * 								  by the caller
+	 * @throws ConnectionException    Exception in case of missing certificate
+	 *                                file, invalid file path, invalid trust
+	 *                                store or key store or invalid token server url
+	 */
+	public CloseableHttpClient getHttpsClient(ConnectionConfiguration connectionConfiguration)
+			throws ConnectionException {
+
+		String key = getClientKey(connectionConfiguration);
+		SSLContext sslContext = SSLUtils.getInstance().getSSLContext(connectionConfiguration);
+
+		PooledHttpClient pooledHttpClient = clients.get(key);
+
+		if ( pooledHttpClient == null || pooledHttpClient.sslContext != sslContext ) {
+			clientsLock.lock();
+			try {
+				pooledHttpClient = clients.get(key);
+				if ( pooledHttpClient == null || pooledHttpClient.sslContext != sslContext ) {
+
+					// certificate was reloaded, release the stale client once drained
+					if ( pooledHttpClient != null ) {
+						retire(pooledHttpClient.httpClient, pooledHttpClient.connectionManager);
+					}
+
+					pooledHttpClient = createPooledHttpClient(connectionConfiguration, sslContext);
+					clients.put(key, pooledHttpClient);
+				}
+			} finally {
+				clientsLock.unlock();
+			}
+		}
+
+		ConnectionMetrics connectionMetrics = connectionConfiguration.getConnectionMetrics();
+		if ( connectionMetrics != null ) {
+			connectionMetrics.monitorConnectionPool(key, pooledHttpClient.connectionManager);
+		}
+
+		return pooledHttpClient.httpClient;
+	}
+
+	/**
+	 * Returns a started, pooled instance of {@link CloseableHttpAsyncClient} 
+	 * shared by all configurations with the same certificate and passwords, TLS
+	 * version and token server host. The client is created on first use with the pool 
+	 * settings of the given configuration and recreated when the certificate 
+	 * file changes on disk.
+	 *
+	 * @param connectionConfiguration has file path to SSL certificate,
+	 * 								  password to trust store or key, token server
+	 * 								  url and pool settings
+	 * @return CloseableHttpAsyncClient a shared non-blocking http client, must 
+	 * 								  not be closed by the caller
+	 * @throws ConnectionException    Exception in case of missing certificate
+	 *                                file, invalid file path, invalid trust
+	 *                                store or key store or invalid token server url
+	 */
+	public CloseableHttpAsyncClient getHttpsAsyncClient(ConnectionConfiguration connectionConfiguration)
+			throws ConnectionException {
+
+		String key = getClientKey(connectionConfiguration);
+		SSLContext sslContext = SSLUtils.getInstance().getSSLContext(connectionConfiguration);
+
+		PooledHttpAsyncClient pooledHttpAsyncClient = asyncClients.get(key);
+
+		if ( pooledHttpAsyncClient == null || pooledHttpAsyncClient.sslContext != sslContext ) {
+			asyncClientsLock.lock();
+			try {
+				pooledHttpAsyncClient = asyncClients.get(key);
+				if ( pooledHttpAsyncClient == null || pooledHttpAsyncClient.sslContext != sslContext ) {
+
+					// certificate was reloaded, release the stale client once drained
+					if ( pooledHttpAsyncClient != null ) {
+						retire(pooledHttpAsyncClient.httpAsyncClient, pooledHttpAsyncClient.connectionManager);
+					}
+
+					pooledHttpAsyncClient = createPooledHttpAsyncClient(connectionConfiguration, sslContext);
+					asyncClients.put(key, pooledHttpAsyncClient);
+				}
+			} finally {
+				asyncClientsLock.unlock();
+			}
+		}
+
+		return pooledHttpAsyncClient.httpAsyncClient;
+	}
+
+	/**
+	 * Returns the request configuration with the connect, socket and
+	 * connection request timeouts of this configuration
+	 *
+	 * @param connectionConfiguration has timeouts in milliseconds
+	 * @return RequestConfig		  request configuration to set on requests
+	 * 								  executed for this configuration
+	 */
+	public RequestConfig getRequestConfig(ConnectionConfiguration connectionConfiguration) {
+
+		return RequestConfig.custom()
+				.setConnectTimeout(toTimeout(connectionConfiguration.getConnectTimeout()))
+				.setSocketTimeout(toTimeout(connectionConfiguration.getSocketTimeout()))
+				.setConnectionRequestTimeout(toTimeout(connectionConfiguration.getConnectionRequestTimeout()))
+				.build();
+	}
+
+	/**
+	 * Returns a snapshot of the connection pool statistics for the client
+	 * associated with this configuration or null if no client was created yet
+	 *
+	 * @param connectionConfiguration the configuration the client is keyed by
+	 * @return PoolStats			  leased, pending, available and max connections
+	 * @throws ConnectionException	  thrown if token server url is invalid
+	 */
+	public PoolStats getPoolStats(ConnectionConfiguration connectionConfiguration)
+			throws ConnectionException {
+
+		PooledHttpClient pooledHttpClient = clients.get(getClientKey(connectionConfiguration));
+
+		return pooledHttpClient == null ? null : pooledHttpClient.connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Closes all pooled clients and releases their connections. Clients are
+	 * recreated on the next call to {@link #getHttpsClient(ConnectionConfiguration)}
+	 * or {@link #getHttpsAsyncClient(ConnectionConfiguration)}
+	 */
+	public void shutdown() {
+
+		clientsLock.lock();
+		try {
+			for ( PooledHttpClient pooledHttpClient : clients.values() ) {
+				close(pooledHttpClient.httpClient);
+			}
+			clients.clear();
+		} finally {
+			clientsLock.unlock();
+		}
+
+		asyncClientsLock.lock();
+		try {
+			for ( PooledHttpAsyncClient pooledHttpAsyncClient : asyncClients.values() ) {
+				close(pooledHttpAsyncClient.httpAsyncClient);
+			}
+			asyncClients.clear();
+		} finally {
+			asyncClientsLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the pooled client and its connections
+	 *
+	 * @param client
+	 */
+	private static void close(Closeable client) {
+
+		try {
+			client.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to close pooled https client", e);
+		}
+	}
+
+	/**
+	 * Closes the replaced client once no connection of its pool is leased or
+	 * awaited, or the drain timeout elapsed
+	 *
+	 * @param client
+	 * @param pool
+	 */
+	private static void retire(final Closeable client, final ConnPoolControl<?> pool) {
+
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Constants.CLIENT_DRAIN_TIMEOUT);
+
+		ExecutorUtils.getInstance().scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+
+				PoolStats poolStats = pool.getTotalStats();
+
+				if ( poolStats.getLeased() + poolStats.getPending() > 0 && System.nanoTime() - deadline < 0 ) {
+					ExecutorUtils.getInstance().scheduleTimeout(this, Constants.CLIENT_DRAIN_INTERVAL);
+					return;
+				}
+
+				Runnable closeTask = new Runnable() {
+
+					@Override
+					public void run() {
+						close(client);
+					}
+				};
+
+				// closing waits for the I/O threads of the client, kept off the timeout thread
+				try {
+					ExecutorUtils.getInstance().getConnectExecutor().execute(closeTask);
+				} catch (RejectedExecutionException e) {
+					closeTask.run();
+				}
+			}
+		}, Constants.CLIENT_DRAIN_INTERVAL);
+	}
+
+	/**
+	 * Returns the registry key of this configuration consisting of SSL certificate
+	 * path, a hash of its passwords, TLS version and token server host
+	 *
+	 * @param connectionConfiguration
+	 * @return String
+	 * @throws ConnectionException
+	 */
+	private String getClientKey(ConnectionConfiguration connectionConfiguration)
+			throws ConnectionException {
+
+		if ( connectionConfiguration == null ) {
+			throw new ConnectionException("Connection Configuration is Not Set in request!!");
+		}
+
+		String host = null;
+		String passwordHash = null;
+
+		try {
+
+			URI uri = new URI(StringUtils.trimToEmpty(connectionConfiguration.getTokenServerUrl()));
+			host = uri.getHost() + ":" + uri.getPort();
+
+			passwordHash = SSLContextCache.getPasswordHash(
+					StringUtils.trimToEmpty(connectionConfiguration.getStorePassword()).toCharArray(),
+					StringUtils.trimToEmpty(connectionConfiguration.getKeyPassword()).toCharArray(),
+					StringUtils.trimToEmpty(connectionConfiguration.getTrustStorePassword()).toCharArray());
+
+		} catch (URISyntaxException e) {
+			throw new ConnectionException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new ConnectionException(e);
+		}
+
+		return new StringBuilder(StringUtils.trimToEmpty(connectionConfiguration.getSslCertPath()))
+				.append('|')
+				.append(StringUtils.trimToEmpty(connectionConfiguration.getTrustStorePath()))
+				.append('|')
+				.append(passwordHash)
+				.append('|')
+				.append(Constants.TLS_VERSION)
+				.append('|')
+				.append(host)
+				.toString();
+	}
+
+	/**
+	 * Returns a new pooled client built with the pool settings of this configuration
+	 *
+	 * @param connectionConfiguration
+	 * @param sslContext
+	 * @return PooledHttpClient
+	 */
+	private PooledHttpClient createPooledHttpClient(ConnectionConfiguration connectionConfiguration,
+			SSLContext sslContext) {
+
+		SSLConnectionSocketFactory sslsf = SSLUtils.getInstance().getSSLConnectionSocketFactory(sslContext);
+
+		Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("https", sslsf)
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager =
+				new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+		connectionManager.setDefaultMaxPerRoute(connectionConfiguration.getMaxConnectionsPerRoute());
+		connectionManager.setMaxTotal(connectionConfiguration.getMaxConnectionsTotal());
+
+		ConnectionKeepAliveStrategy keepAliveStrategy = getKeepAliveStrategy(connectionConfiguration);
+
+		// connections are authenticated with the client certificate the pool is
+		// keyed by, so connection state tracking is disabled to allow reuse.
+		// requests are retried by the retry policy of the configuration only
+		CloseableHttpClient httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(keepAliveStrategy)
+				.evictExpiredConnections()
+				.evictIdleConnections(connectionConfiguration.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+				.disableConnectionState()
+				.disableAutomaticRetries()
+				.setDefaultRequestConfig(getRequestConfig(connectionConfiguration))
+				.build();
+
+		return new PooledHttpClient(httpClient, connectionManager, sslContext);
+	}
+
+	/**
+	 * Returns a new started non-blocking client built with the pool settings 
+	 * of this configuration
+	 *
+	 * @param connectionConfiguration
+	 * @param sslContext
+	 * @return PooledHttpAsyncClient
+	 * @throws ConnectionException
+	 */
+	private PooledHttpAsyncClient createPooledHttpAsyncClient(ConnectionConfiguration connectionConfiguration,
+			SSLContext sslContext) throws ConnectionException {
+
+		Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+				.register("https", SSLUtils.getInstance().getSSLIOSessionStrategy(sslContext))
+				.build();
+
+		PoolingNHttpClientConnectionManager connectionManager = null;
+
+		try {
+			connectionManager = new PoolingNHttpClientConnectionManager(
+					new DefaultConnectingIOReactor(), sessionStrategyRegistry);
+		} catch (IOReactorException e) {
+			throw new ConnectionException(e);
+		}
+
+		connectionManager.setDefaultMaxPerRoute(connectionConfiguration.getMaxConnectionsPerRoute());
+		connectionManager.setMaxTotal(connectionConfiguration.getMaxConnectionsTotal());
+
+		CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(getKeepAliveStrategy(connectionConfiguration))
+				.disableConnectionState()
+				.setDefaultRequestConfig(getRequestConfig(connectionConfiguration))
+				.build();
+
+		httpAsyncClient.start();
+
+		return new PooledHttpAsyncClient(httpAsyncClient, connectionManager, sslContext);
+	}
+
+	/**
+	 * Returns a keep alive strategy that honors server keep alive hints but 
+	 * never exceeds the configured duration
+	 *
+	 * @param connectionConfiguration
+	 * @return ConnectionKeepAliveStrategy
+	 */
+	private ConnectionKeepAliveStrategy getKeepAliveStrategy(ConnectionConfiguration connectionConfiguration) {
+
+		final long keepAliveDuration = connectionConfiguration.getKeepAliveDuration();
+
+		return new ConnectionKeepAliveStrategy() {
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+				return ( duration > 0 && duration < keepAliveDuration ) ? duration : keepAliveDuration;
+			}
+		};
+	}
+
+	/**
+	 * Returns the timeout in milliseconds as expected by {@link RequestConfig},
+	 * 0 for none
+	 *
+	 * @param timeout
+	 * @return int
+	 */
+	private static int toTimeout(long timeout) {
+		return (int) Math.min(Math.max(timeout, 0), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Holds a pooled http client along with its connection manager and the
+	 * ssl context it was built with
+	 */
+	private static final class PooledHttpClient {
+
+		private final CloseableHttpClient httpClient;
+		private final PoolingHttpClientConnectionManager connectionManager;
+		private final SSLContext sslContext;
+
+		private PooledHttpClient(CloseableHttpClient httpClient,
+				PoolingHttpClientConnectionManager connectionManager, SSLContext sslContext) {
+			this.httpClient = httpClient;
+			this.connectionManager = connectionManager;
+			this.sslContext = sslContext;
+		}
+	}
+
+	/**
+	 * Holds a pooled non-blocking http client along with its connection 
+	 * manager and the ssl context it was built with
+	 */
+	private static final class PooledHttpAsyncClient {
+
+		private final CloseableHttpAsyncClient httpAsyncClient;
+		private final PoolingNHttpClientConnectionManager connectionManager;
+		private final SSLContext sslContext;
+
+		private PooledHttpAsyncClient(CloseableHttpAsyncClient httpAsyncClient,
+				PoolingNHttpClientConnectionManager connectionManager, SSLContext sslContext) {
+			this.httpAsyncClient = httpAsyncClient;
+			this.connectionManager = connectionManager;
+			this.sslContext = sslContext;
+		}
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final HttpClientRegistry INSTANCE = new HttpClientRegistry();
+	}
+
+}
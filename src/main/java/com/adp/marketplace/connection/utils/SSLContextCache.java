@@ -0,0 +1,255 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
+
+
+/**
+ * <p>
+ * SSLContextCache is a singleton cache of {@link SSLContext} instances loaded
+ * from key stores on disk. Entries are keyed by the canonical path of the
+ * certificate file and a hash of its passwords, and validated against a
+ * fingerprint of the file modification time and file size, so repeated connects
+ * sharing a certificate skip key store parsing while a replaced certificate file
+ * is picked up automatically. Configurations opening the same file with 
+ * different passwords are cached apart. An optional trust store is part of the
+ * key and fingerprint.
+ * </p>
+ *
+ * @see SSLUtils
+ *
+ * @author tallaprs
+ *
+ */
+public class SSLContextCache {
+
+	private static final Logger LOGGER = Logger.getLogger(SSLContextCache.class.getName());
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final ConcurrentMap<String, CachedSSLContext> sslContexts =
+			new ConcurrentHashMap<String, CachedSSLContext>();
+
+	// a lock rather than a monitor so key store I/O never pins virtual threads
+	private final Lock lock = new ReentrantLock();
+
+	/**
+	 * Returns a lazy loaded singleton instance of {@link SSLContextCache}
+	 *
+	 * @return SSLContextCache a singleton instance
+	 */
+	public static SSLContextCache getInstance() {
+
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns an {@link SSLContext} loaded with the key material of the key store
+	 * at this file path. The key store is read from disk only if it is not cached
+	 * yet or the file or passwords changed since it was cached. Servers are 
+	 * verified against the default trust store of the JVM.
+	 *
+	 * @param filePath		file path to the key store
+	 * @param storePassword password to the key store
+	 * @param keyPassword	password to the key
+	 * @return SSLContext   ssl context with the key material of the key store
+	 * @throws Exception	Exception in case of missing certificate file, invalid
+	 * 						file path or invalid key store or passwords
+	 */
+	public SSLContext getSSLContext(String filePath, char[] storePassword, char[] keyPassword)
+			throws Exception {
+		return getSSLContext(filePath, storePassword, keyPassword, null, null);
+	}
+
+	/**
+	 * Returns an {@link SSLContext} loaded with the key material of the key store
+	 * at this file path and the trusted certificates of the trust store at this
+	 * trust store path. The stores are read from disk only if they are not cached
+	 * yet or the files or passwords changed since they were cached.
+	 *
+	 * @param filePath		     file path to the key store
+	 * @param storePassword      password to the key store
+	 * @param keyPassword	     password to the key
+	 * @param trustStorePath     file path to the trust store, the default trust 
+	 * 							 store of the JVM is used if blank
+	 * @param trustStorePassword password to the trust store, may be null
+	 * @return SSLContext        ssl context with the key material of the key 
+	 * 							 store and trust material of the trust store
+	 * @throws Exception	     Exception in case of missing certificate file, 
+	 * 							 invalid file path or invalid stores or passwords
+	 */
+	public SSLContext getSSLContext(String filePath, char[] storePassword, char[] keyPassword,
+			String trustStorePath, char[] trustStorePassword) throws Exception {
+
+		File file = new File(filePath);
+		File trustStoreFile = StringUtils.isBlank(trustStorePath) ? null : new File(trustStorePath);
+
+		String canonicalPath = file.getCanonicalPath();
+		String key = canonicalPath + ':' + getPasswordHash(storePassword, keyPassword);
+		String fingerprint = getFingerprint(file);
+
+		if ( trustStoreFile != null ) {
+			key = key + File.pathSeparator + trustStoreFile.getCanonicalPath()
+					+ ':' + getPasswordHash(trustStorePassword);
+			fingerprint = fingerprint + File.pathSeparator + getFingerprint(trustStoreFile);
+		}
+
+		CachedSSLContext cached = sslContexts.get(key);
+
+		if ( cached == null || !cached.fingerprint.equals(fingerprint) ) {
+			lock.lock();
+			try {
+				cached = sslContexts.get(key);
+				if ( cached == null || !cached.fingerprint.equals(fingerprint) ) {
+
+					if ( cached != null ) {
+						LOGGER.info("Key store " + canonicalPath + " changed, reloading SSL context");
+					}
+
+					SSLContextBuilder sslContextBuilder = SSLContexts.custom()
+					        .loadKeyMaterial(file, storePassword, keyPassword);
+
+					if ( trustStoreFile != null ) {
+						sslContextBuilder.loadTrustMaterial(trustStoreFile, trustStorePassword);
+					}
+
+					cached = new CachedSSLContext(fingerprint, sslContextBuilder.build());
+					sslContexts.put(key, cached);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		return cached.sslContext;
+	}
+
+	/**
+	 * Removes all cached ssl contexts, key stores are read from disk on next use
+	 */
+	public void clear() {
+		sslContexts.clear();
+	}
+
+	/**
+	 * Returns the number of cached ssl contexts
+	 *
+	 * @return int number of cached ssl contexts
+	 */
+	public int size() {
+		return sslContexts.size();
+	}
+
+	/**
+	 * Returns a SHA-256 hash of the passwords, so passwords are never held by
+	 * the keys of cached ssl contexts or pooled clients
+	 *
+	 * @param passwords		passwords to the key store and key, null if none
+	 * @return String		hex encoded hash of the passwords
+	 * @throws NoSuchAlgorithmException thrown if SHA-256 is not supported
+	 */
+	static String getPasswordHash(char[]... passwords) throws NoSuchAlgorithmException {
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		for ( int i = 0; i < passwords.length; i++ ) {
+			if ( i > 0 ) {
+				digest.update((byte) 0);
+			}
+			digest.update(toBytes(passwords[i]));
+		}
+
+		return new BigInteger(1, digest.digest()).toString(16);
+	}
+
+	/**
+	 * Returns the fingerprint of the key store file consisting of modification
+	 * time and size
+	 *
+	 * @param file
+	 * @return String
+	 */
+	private String getFingerprint(File file) {
+
+		return new StringBuilder()
+				.append(file.lastModified())
+				.append(':')
+				.append(file.length())
+				.toString();
+	}
+
+	/**
+	 * Returns the UTF-8 encoded bytes of the password
+	 *
+	 * @param password
+	 * @return byte[]
+	 */
+	private static byte[] toBytes(char[] password) {
+
+		if ( password == null ) {
+			return new byte[0];
+		}
+
+		ByteBuffer byteBuffer = UTF_8.encode(CharBuffer.wrap(password));
+		byte[] bytes = new byte[byteBuffer.remaining()];
+		byteBuffer.get(bytes);
+
+		return bytes;
+	}
+
+	/**
+	 * Holds a cached ssl context along with the fingerprint of its key store
+	 */
+	private static final class CachedSSLContext {
+
+		private final String fingerprint;
+		private final SSLContext sslContext;
+
+		private CachedSSLContext(String fingerprint, SSLContext sslContext) {
+			this.fingerprint = fingerprint;
+			this.sslContext = sslContext;
+		}
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final SSLContextCache INSTANCE = new SSLContextCache();
+	}
+
+}
@@ -17,8 +17,8 @@
 */
 package com.adp.marketplace.connection.utils;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -28,10 +28,13 @@ import java.util.logging.Logger;
 
 import javax.net.ssl.SSLContext;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.SSLContexts;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.protocol.HttpContext;
 
 import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
 import com.adp.marketplace.connection.constants.Constants;
@@ -52,8 +55,6 @@ import com.adp.marketplace.connection.exception.ConnectionValidatorException;
  */
 public class SSLUtils {
 	
-	private static SSLUtils INSTANCE = null;
-	
 	private static final Logger LOGGER = Logger.getLogger(SSLUtils.class.getName());
 	
 	/**
@@ -63,15 +64,7 @@ public class SSLUtils {
 	 */
 	public static SSLUtils getInstance() {
 		
-		if ( INSTANCE == null ) {			
-			synchronized (SSLUtils.class) {			
-	            if ( INSTANCE == null ) {
-	                INSTANCE = new SSLUtils();
-	            }
-	        }
-	    }
-		
-	    return INSTANCE;
+		return Holder.INSTANCE;
 	}
 
 	/**
@@ -106,7 +99,10 @@ public class SSLUtils {
 				keyPassword = connectionConfiguration.getKeyPassword().trim().toCharArray();
 				storePassword = connectionConfiguration.getStorePassword().trim().toCharArray();
 				
-				closeableHttpClient = getHttpsClient(filePath, storePassword, keyPassword);
+				closeableHttpClient = getHttpsClient(filePath, storePassword, keyPassword,
+						StringUtils.trimToNull(connectionConfiguration.getTrustStorePath()),
+						StringUtils.trimToEmpty(connectionConfiguration.getTrustStorePassword()).toCharArray(),
+						HttpClientRegistry.getInstance().getRequestConfig(connectionConfiguration));
 				
 			}
 			
@@ -130,7 +126,8 @@ public class SSLUtils {
 	 * @throws CertificateException
 	 * @throws IOException
 	 */
-	private final CloseableHttpClient getHttpsClient(String filePath, char[] storePassword, char[] keyPassword) 
+	private final CloseableHttpClient getHttpsClient(String filePath, char[] storePassword, char[] keyPassword,
+			String trustStorePath, char[] trustStorePassword, RequestConfig requestConfig) 
 			throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException, 
 			UnrecoverableKeyException, CertificateException, IOException, Exception {
 		
@@ -142,17 +139,12 @@ public class SSLUtils {
 		//System.out.println("SSLUTILS.keyPassword" + keyPassword.toString() );
 		
 		try {
-					
-			SSLContext sslcontext = SSLContexts.custom()
-			        .loadKeyMaterial(new File(filePath), storePassword, keyPassword)
-			        .build();
 			
-			// Allow TLSv1.* protocol only
-			SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslcontext, 
-					new String[] { Constants.TLS_VERSION }, null, 
-					SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+			SSLContext sslcontext = SSLContextCache.getInstance().getSSLContext(filePath, storePassword, keyPassword, 
+					trustStorePath, trustStorePassword);
+			SSLConnectionSocketFactory sslsf = getSSLConnectionSocketFactory(sslcontext);
 			
-			httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
+			httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).setDefaultRequestConfig(requestConfig).build();
 			
 		} catch (Exception e) {
 			throw new ConnectionException(e);
@@ -161,5 +153,112 @@ public class SSLUtils {
 		return httpclient;
 	}
 	
+	/**
+	 * Returns an {@link SSLContext} loaded with the key material of the configured 
+	 * SSL certificate and the trust material of the configured trust store, or 
+	 * the default trust store of the JVM if none. Key stores are cached by 
+	 * {@link SSLContextCache} and read from disk only when the certificate file 
+	 * or passwords change.
+	 * 
+	 * @param connectionConfiguration has file path to SSL certificate, 
+	 * 								  password to trust store or key
+	 * @return SSLContext 		   ssl context with the key material of the certificate
+	 * @throws ConnectionException Exception in case of missing certificate 
+	 *                             file, invalid file path or invalid trust 
+	 *                             store or key key store
+	 * 
+	 * @see HttpClientRegistry
+	 */
+	protected SSLContext getSSLContext(ConnectionConfiguration connectionConfiguration) 
+			throws ConnectionException {
+		
+		SSLContext sslcontext = null;
+		
+		try {
+			
+			boolean isValid = ConnectionValidatorUtils.getInstance().validateSSLFields(connectionConfiguration);
+			
+			if ( isValid ) {
+				sslcontext = SSLContextCache.getInstance().getSSLContext(
+						connectionConfiguration.getSslCertPath().trim(), 
+						connectionConfiguration.getStorePassword().trim().toCharArray(), 
+						connectionConfiguration.getKeyPassword().trim().toCharArray(),
+						StringUtils.trimToNull(connectionConfiguration.getTrustStorePath()),
+						StringUtils.trimToEmpty(connectionConfiguration.getTrustStorePassword()).toCharArray());
+			}
+			
+		} catch (ConnectionValidatorException e) {
+			throw new ConnectionException(e);
+		} catch (Exception e) {
+			throw new ConnectionException(e);
+		}
+		
+		return sslcontext;
+	}
 	
-}
\ No newline at end of file
+	/**
+	 * Returns an {@link SSLConnectionSocketFactory} that allows TLSv1.* protocol only.
+	 * The duration of each TLS handshake is set on the http context of the request 
+	 * as {@link Constants#TLS_HANDSHAKE_NANOS}
+	 * 
+	 * @param sslcontext 				  ssl context with the key material
+	 * @return SSLConnectionSocketFactory socket factory restricted to 
+	 * 									  {@link Constants#TLS_VERSION}
+	 */
+	protected SSLConnectionSocketFactory getSSLConnectionSocketFactory(SSLContext sslcontext) {
+		
+		// Allow TLSv1.* protocol only
+		return new HandshakeTimingSocketFactory(sslcontext);
+	}
+	
+	/**
+	 * Returns an {@link SSLIOSessionStrategy} for non-blocking clients that allows 
+	 * TLSv1.* protocol only
+	 * 
+	 * @param sslcontext 			ssl context with the key material
+	 * @return SSLIOSessionStrategy session strategy restricted to 
+	 * 								{@link Constants#TLS_VERSION}
+	 */
+	protected SSLIOSessionStrategy getSSLIOSessionStrategy(SSLContext sslcontext) {
+		
+		// Allow TLSv1.* protocol only
+		return new SSLIOSessionStrategy(sslcontext, 
+				new String[] { Constants.TLS_VERSION }, null, 
+				SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+	}
+
+	/**
+	 * Socket factory that times the TLS handshake of new connections
+	 */
+	private static final class HandshakeTimingSocketFactory extends SSLConnectionSocketFactory {
+
+		private HandshakeTimingSocketFactory(SSLContext sslcontext) {
+			super(sslcontext, new String[] { Constants.TLS_VERSION }, null, 
+					SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) 
+				throws IOException {
+
+			long start = System.nanoTime();
+
+			Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+
+			if ( context != null ) {
+				context.setAttribute(Constants.TLS_HANDSHAKE_NANOS, System.nanoTime() - start);
+			}
+
+			return sslSocket;
+		}
+	}
+
+	/**
+	 * Holds the singleton instance, created by the class loader on first 
+	 * access without locking
+	 */
+	private static final class Holder {
+		private static final SSLUtils INSTANCE = new SSLUtils();
+	}
+
+}
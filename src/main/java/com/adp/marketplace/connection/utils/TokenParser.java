@@ -0,0 +1,55 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * <p>
+ * TokenParser maps the JSON response of the token server to a {@link Token}.
+ * Implementations must be thread safe, a single instance parses the responses
+ * of all connections sharing a configuration.
+ * </p>
+ *
+ * <p>
+ * {@link GsonTokenParser} is used by default, an application may plug in a
+ * different JSON library through {@link ConnectionConfiguration#setTokenParser(TokenParser)}.
+ * </p>
+ *
+ * @see GsonTokenParser
+ *
+ * @author tallaprs
+ *
+ */
+public interface TokenParser {
+
+	/**
+	 * Returns the token read from this JSON response. Unknown fields are ignored.
+	 *
+	 * @param reader	 JSON response of the token server, closed by the caller
+	 * @return Token	 value object of the response, null if response is empty
+	 * @throws IOException thrown if reading or parsing the response fails
+	 */
+	public Token parse(Reader reader) throws IOException;
+
+}
@@ -0,0 +1,143 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import java.io.IOException;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+
+/**
+ * <p>
+ * TokenTypeAdapter maps the fields of the token server response to {@link Token}
+ * by name, without reflection. Unknown fields and null values are skipped and
+ * expires_in is accepted as a number or a numeric string. The adapter is
+ * stateless and thread safe.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public class TokenTypeAdapter extends TypeAdapter<Token> {
+
+	private static final String ACCESS_TOKEN = "access_token";
+	private static final String EXPIRES_IN = "expires_in";
+	private static final String ID_TOKEN = "id_token";
+	private static final String REFRESH_TOKEN = "refresh_token";
+	private static final String SCOPE = "scope";
+	private static final String TOKEN_TYPE = "token_type";
+
+	/* (non-Javadoc)
+	 * @see com.google.gson.TypeAdapter#read(com.google.gson.stream.JsonReader)
+	 */
+	@Override
+	public Token read(JsonReader in) throws IOException {
+
+		if ( in.peek() == JsonToken.NULL ) {
+			in.nextNull();
+			return null;
+		}
+
+		Token token = new Token();
+
+		in.beginObject();
+
+		while ( in.hasNext() ) {
+
+			String name = in.nextName();
+
+			if ( in.peek() == JsonToken.NULL ) {
+				in.nextNull();
+				continue;
+			}
+
+			switch ( name ) {
+				case ACCESS_TOKEN:
+					token.setAccess_token(in.nextString());
+					break;
+				case EXPIRES_IN:
+					try {
+						token.setExpires_in(in.nextLong());
+					} catch (NumberFormatException e) {
+						throw new JsonSyntaxException(e);
+					}
+					break;
+				case ID_TOKEN:
+					token.setId_token(in.nextString());
+					break;
+				case REFRESH_TOKEN:
+					token.setRefresh_token(in.nextString());
+					break;
+				case SCOPE:
+					token.setScope(in.nextString());
+					break;
+				case TOKEN_TYPE:
+					token.setToken_type(in.nextString());
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return token;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.gson.TypeAdapter#write(com.google.gson.stream.JsonWriter, java.lang.Object)
+	 */
+	@Override
+	public void write(JsonWriter out, Token token) throws IOException {
+
+		if ( token == null ) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		writeString(out, ACCESS_TOKEN, token.getAccess_token());
+		out.name(EXPIRES_IN).value(token.getExpires_in());
+		writeString(out, ID_TOKEN, token.getId_token());
+		writeString(out, REFRESH_TOKEN, token.getRefresh_token());
+		writeString(out, SCOPE, token.getScope());
+		writeString(out, TOKEN_TYPE, token.getToken_type());
+		out.endObject();
+	}
+
+	/**
+	 * Writes the field unless its value is null
+	 *
+	 * @param out
+	 * @param name
+	 * @param value
+	 * @throws IOException
+	 */
+	private static void writeString(JsonWriter out, String name, String value) throws IOException {
+
+		if ( value != null ) {
+			out.name(name).value(value);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.vo;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * <p>
+ * ADPAPIResponse class is an immutable value object holding the status, headers
+ * and body of an ADP API response
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public final class ADPAPIResponse {
+
+	private final int statusCode;
+	private final String statusLine;
+	private final Map<String, String> headers;
+	private final String body;
+
+	/**
+	 * constructor
+	 *
+	 * @param statusCode http status code
+	 * @param statusLine http status line
+	 * @param headers	 response headers, the last value of repeated headers
+	 * @param body		 response body, null if none
+	 */
+	public ADPAPIResponse(int statusCode, String statusLine, Map<String, String> headers, String body) {
+
+		Map<String, String> caseInsensitiveHeaders = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+
+		if ( headers != null ) {
+			caseInsensitiveHeaders.putAll(headers);
+		}
+
+		this.statusCode = statusCode;
+		this.statusLine = statusLine;
+		this.headers = Collections.unmodifiableMap(caseInsensitiveHeaders);
+		this.body = body;
+	}
+
+	/**
+	 * Returns the http status code
+	 *
+	 * @return statusCode http status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Returns the http status line
+	 *
+	 * @return statusLine http status line
+	 */
+	public String getStatusLine() {
+		return statusLine;
+	}
+
+	/**
+	 * Returns true if the status code is 2xx
+	 *
+	 * @return boolean true if the request succeeded
+	 */
+	public boolean isSuccess() {
+		return statusCode >= 200 && statusCode < 300;
+	}
+
+	/**
+	 * Returns the value of a response header
+	 *
+	 * @param name   case insensitive header name
+	 * @return value header value, null if absent
+	 */
+	public String getHeader(String name) {
+		return name == null ? null : headers.get(name);
+	}
+
+	/**
+	 * Returns the response headers
+	 *
+	 * @return headers unmodifiable, case insensitive map of header names to values
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Returns the response body
+	 *
+	 * @return body response body, null if none
+	 */
+	public String getBody() {
+		return body;
+	}
+
+	/**
+	 * @return String the String representation of this {@link ADPAPIResponse} object
+	 */
+	@Override
+	public String toString() {
+		return "ADPAPIResponse [statusLine=" + statusLine + ", headers=" + headers + ", body=" + body + "]";
+	}
+
+}
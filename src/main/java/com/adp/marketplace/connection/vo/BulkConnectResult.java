@@ -0,0 +1,186 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.vo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * <p>
+ * BulkConnectResult class is an immutable value object holding the
+ * {@link ConnectResult} of each configuration of a bulk connect, in the order
+ * of the configurations, and the aggregated timing of the bulk connect.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public final class BulkConnectResult {
+
+	private final List<ConnectResult> results;
+	private final long elapsedTime;
+	private final int successCount;
+
+	// connect times in ascending order
+	private final long[] connectTimes;
+
+	/**
+	 * constructor
+	 *
+	 * @param results	  results of the configurations, in their order
+	 * @param elapsedTime milliseconds the bulk connect took
+	 */
+	public BulkConnectResult(List<ConnectResult> results, long elapsedTime) {
+
+		this.results = Collections.unmodifiableList(new ArrayList<ConnectResult>(results));
+		this.elapsedTime = elapsedTime;
+
+		int successes = 0;
+		connectTimes = new long[this.results.size()];
+
+		for ( int i = 0; i < connectTimes.length; i++ ) {
+
+			ConnectResult result = this.results.get(i);
+			connectTimes[i] = result.getConnectTime();
+
+			if ( result.isSuccess() ) {
+				successes++;
+			}
+		}
+
+		Arrays.sort(connectTimes);
+		successCount = successes;
+	}
+
+	/**
+	 * Returns the result of each configuration
+	 *
+	 * @return results results of the configurations, in their order
+	 */
+	public List<ConnectResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns the results of the configurations that failed to connect
+	 *
+	 * @return List results with an exception, in the order of the configurations
+	 */
+	public List<ConnectResult> getFailures() {
+
+		List<ConnectResult> failures = new ArrayList<ConnectResult>();
+
+		for ( ConnectResult result : results ) {
+			if ( !result.isSuccess() ) {
+				failures.add(result);
+			}
+		}
+
+		return failures;
+	}
+
+	/**
+	 * Returns the number of configurations connected
+	 *
+	 * @return int success count
+	 */
+	public int getSuccessCount() {
+		return successCount;
+	}
+
+	/**
+	 * Returns the number of configurations that failed to connect
+	 *
+	 * @return int failure count
+	 */
+	public int getFailureCount() {
+		return results.size() - successCount;
+	}
+
+	/**
+	 * Returns the wall clock time of the bulk connect
+	 *
+	 * @return elapsedTime milliseconds from the first connect request until
+	 * 					   the last completed
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Returns the average connect time of the configurations
+	 *
+	 * @return double average connect time in milliseconds, 0 if none
+	 */
+	public double getAverageConnectTime() {
+
+		if ( connectTimes.length == 0 ) {
+			return 0;
+		}
+
+		double total = 0;
+
+		for ( long connectTime : connectTimes ) {
+			total += connectTime;
+		}
+
+		return total / connectTimes.length;
+	}
+
+	/**
+	 * Returns the longest connect time of the configurations
+	 *
+	 * @return long maximum connect time in milliseconds, 0 if none
+	 */
+	public long getMaxConnectTime() {
+		return connectTimes.length == 0 ? 0 : connectTimes[connectTimes.length - 1];
+	}
+
+	/**
+	 * Returns the connect time below which the given percentage of the
+	 * configurations connected, e.g. 99 for the 99th percentile
+	 *
+	 * @param percentile percentile between 0 and 100
+	 * @return long		 connect time in milliseconds, 0 if none
+	 */
+	public long getConnectTime(double percentile) {
+
+		if ( connectTimes.length == 0 ) {
+			return 0;
+		}
+
+		int rank = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * connectTimes.length);
+
+		return connectTimes[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * @return String the String representation of this {@link BulkConnectResult} object
+	 */
+	@Override
+	public String toString() {
+		return "BulkConnectResult [configurations=" + results.size() + ", successCount=" + successCount
+				+ ", failureCount=" + getFailureCount() + ", elapsedTime=" + elapsedTime
+				+ ", averageConnectTime=" + getAverageConnectTime() + ", maxConnectTime=" + getMaxConnectTime()
+				+ "]";
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.vo;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnection;
+import com.adp.marketplace.connection.exception.ConnectionException;
+
+
+/**
+ * <p>
+ * ConnectResult class is an immutable value object holding the outcome of
+ * connecting one configuration of a bulk connect: the connection and its
+ * token, or the exception the connection failed with, and the connect time.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public final class ConnectResult {
+
+	private final ConnectionConfiguration connectionConfiguration;
+	private final ADPAPIConnection connection;
+	private final Token token;
+	private final ConnectionException exception;
+	private final long connectTime;
+
+	/**
+	 * constructor
+	 *
+	 * @param connectionConfiguration configuration connected
+	 * @param connection			  connection of the configuration, null if
+	 * 								  it could not be created
+	 * @param token					  token issued, null if the connection failed
+	 * @param exception				  exception the connection failed with, null
+	 * 								  if a token was issued
+	 * @param connectTime			  milliseconds the connect request took
+	 */
+	public ConnectResult(ConnectionConfiguration connectionConfiguration, ADPAPIConnection connection,
+			Token token, ConnectionException exception, long connectTime) {
+
+		this.connectionConfiguration = connectionConfiguration;
+		this.connection = connection;
+		this.token = token;
+		this.exception = exception;
+		this.connectTime = connectTime;
+	}
+
+	/**
+	 * Returns the configuration connected
+	 *
+	 * @return connectionConfiguration configuration connected
+	 */
+	public ConnectionConfiguration getConnectionConfiguration() {
+		return connectionConfiguration;
+	}
+
+	/**
+	 * Returns the connection of the configuration
+	 *
+	 * @return connection connection of the configuration, null if it could not
+	 * 					  be created
+	 */
+	public ADPAPIConnection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Returns the token issued to the connection
+	 *
+	 * @return token token issued, null if the connection failed
+	 */
+	public Token getToken() {
+		return token;
+	}
+
+	/**
+	 * Returns the exception the connection failed with
+	 *
+	 * @return exception exception the connection failed with, null if a token
+	 * 					 was issued
+	 */
+	public ConnectionException getException() {
+		return exception;
+	}
+
+	/**
+	 * Returns the milliseconds the connect request took
+	 *
+	 * @return connectTime connect time in milliseconds
+	 */
+	public long getConnectTime() {
+		return connectTime;
+	}
+
+	/**
+	 * Returns true if a token was issued
+	 *
+	 * @return boolean true if the connection succeeded
+	 */
+	public boolean isSuccess() {
+		return token != null && exception == null;
+	}
+
+	/**
+	 * @return String the String representation of this {@link ConnectResult} object
+	 */
+	@Override
+	public String toString() {
+		return "ConnectResult [clientID=" + ( connectionConfiguration == null ? null
+				: connectionConfiguration.getClientID() ) + ", success=" + isSuccess() + ", connectTime="
+				+ connectTime + ", exception=" + exception + "]";
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.vo;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.GrantType;
+
+
+/**
+ * <p>
+ * ConnectionKey class is an immutable value object that identifies the connection
+ * of a client organization by client id, grant type, scope and token server url,
+ * and by a fingerprint of its credentials: the client secret and, for the
+ * authorization code grant, the authorization code of the user. Connections of
+ * different users, environments or rotated secrets therefore never share a key.
+ * The fingerprint is a SHA-256 hash, so credentials are never held by the key.
+ * </p>
+ *
+ * @author tallaprs
+ *
+ */
+public final class ConnectionKey implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String clientID;
+	private final GrantType grantType;
+	private final String scope;
+	private final String tokenServerUrl;
+	private final String credentialFingerprint;
+
+	/**
+	 * constructor
+	 *
+	 * @param clientID  client id of the client organization
+	 * @param grantType grant type of the connection
+	 * @param scope 	requested scope, null if none
+	 */
+	public ConnectionKey(String clientID, GrantType grantType, String scope) {
+		this(clientID, grantType, scope, null, null);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param clientID				client id of the client organization
+	 * @param grantType				grant type of the connection
+	 * @param scope					requested scope, null if none
+	 * @param tokenServerUrl		token server url, null if none
+	 * @param credentialFingerprint fingerprint of the credentials, null if none
+	 */
+	private ConnectionKey(String clientID, GrantType grantType, String scope, String tokenServerUrl,
+			String credentialFingerprint) {
+		this.clientID = StringUtils.trimToEmpty(clientID);
+		this.grantType = grantType;
+		this.scope = StringUtils.trimToNull(scope);
+		this.tokenServerUrl = StringUtils.trimToNull(tokenServerUrl);
+		this.credentialFingerprint = credentialFingerprint;
+	}
+
+	/**
+	 * Returns the key identifying connections created with this configuration
+	 *
+	 * @param connectionConfiguration configuration of the connection
+	 * @return ConnectionKey		  key of client id, grant type, scope, token
+	 * 								  server url and credentials
+	 */
+	public static ConnectionKey of(ConnectionConfiguration connectionConfiguration) {
+
+		String scope = null;
+		String authorizationCode = null;
+
+		if ( connectionConfiguration instanceof AuthorizationCodeConfiguration ) {
+			scope = ((AuthorizationCodeConfiguration) connectionConfiguration).getScope();
+			authorizationCode = ((AuthorizationCodeConfiguration) connectionConfiguration).getAuthorizationCode();
+		}
+
+		return new ConnectionKey(connectionConfiguration.getClientID(),
+				connectionConfiguration.getGrantType(), scope, connectionConfiguration.getTokenServerUrl(),
+				fingerprint(connectionConfiguration.getClientSecret(), authorizationCode));
+	}
+
+	/**
+	 * Returns the hex SHA-256 hash of the client secret and authorization code
+	 *
+	 * @param clientSecret
+	 * @param authorizationCode
+	 * @return String hash, null if neither is set
+	 */
+	private static String fingerprint(String clientSecret, String authorizationCode) {
+
+		if ( StringUtils.isEmpty(clientSecret) && StringUtils.isEmpty(authorizationCode) ) {
+			return null;
+		}
+
+		try {
+
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest((StringUtils.defaultString(clientSecret)
+					+ '\n' + StringUtils.defaultString(authorizationCode)).getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder fingerprint = new StringBuilder(hash.length * 2);
+			for ( byte b : hash ) {
+				fingerprint.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return fingerprint.toString();
+
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the client id
+	 *
+	 * @return clientID client id of the client organization
+	 */
+	public String getClientID() {
+		return clientID;
+	}
+
+	/**
+	 * Returns the grant type
+	 *
+	 * @return grantType grant type of the connection
+	 */
+	public GrantType getGrantType() {
+		return grantType;
+	}
+
+	/**
+	 * Returns the scope
+	 *
+	 * @return scope requested scope, null if none
+	 */
+	public String getScope() {
+		return scope;
+	}
+
+	/**
+	 * Returns the token server url
+	 *
+	 * @return tokenServerUrl token server url, null if none
+	 */
+	public String getTokenServerUrl() {
+		return tokenServerUrl;
+	}
+
+	/**
+	 * Returns the fingerprint of the credentials
+	 *
+	 * @return credentialFingerprint SHA-256 hash of the client secret and
+	 * 								 authorization code, null if none
+	 */
+	public String getCredentialFingerprint() {
+		return credentialFingerprint;
+	}
+
+	@Override
+	public int hashCode() {
+
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + clientID.hashCode();
+		result = prime * result + ((grantType == null) ? 0 : grantType.hashCode());
+		result = prime * result + ((scope == null) ? 0 : scope.hashCode());
+		result = prime * result + ((tokenServerUrl == null) ? 0 : tokenServerUrl.hashCode());
+		result = prime * result + ((credentialFingerprint == null) ? 0 : credentialFingerprint.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+
+		if ( this == obj ) {
+			return true;
+		}
+
+		if ( !(obj instanceof ConnectionKey) ) {
+			return false;
+		}
+
+		ConnectionKey other = (ConnectionKey) obj;
+
+		return clientID.equals(other.clientID)
+				&& grantType == other.grantType
+				&& StringUtils.equals(scope, other.scope)
+				&& StringUtils.equals(tokenServerUrl, other.tokenServerUrl)
+				&& StringUtils.equals(credentialFingerprint, other.credentialFingerprint);
+	}
+
+	/**
+	 * @return String the String representation of this {@link ConnectionKey} object
+	 */
+	@Override
+	public String toString() {
+		return "ConnectionKey [clientID=" + clientID + ", grantType=" + grantType + ", scope=" + scope
+				+ ", tokenServerUrl=" + tokenServerUrl + "]";
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class MicrometerConnectionMetricsTest {
+
+	SimpleMeterRegistry meterRegistry = null;
+	MicrometerConnectionMetrics connectionMetrics = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		meterRegistry = new SimpleMeterRegistry();
+		connectionMetrics = new MicrometerConnectionMetrics(meterRegistry);
+
+		server = new MockTokenServer();
+		server.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		server.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		server.setExpiresIn(120);
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setConnectionMetrics(connectionMetrics);
+		server.configure(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		meterRegistry.close();
+	}
+
+	/**
+	 * verifies a token request is recorded broken down into TLS handshake,
+	 * request and parse along with the token expiry and pool gauges
+	 */
+	@Test
+	public void recordTokenFetch() throws Exception {
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+
+		connection.connect();
+		connection.connect();
+
+		Timer fetch = meterRegistry.get(MicrometerConnectionMetrics.TOKEN_FETCH)
+				.tags(MicrometerConnectionMetrics.TAG_GRANT_TYPE, "client_credentials",
+						MicrometerConnectionMetrics.TAG_STATUS, "200",
+						MicrometerConnectionMetrics.TAG_OUTCOME, "success")
+				.timer();
+
+		assertEquals(2, fetch.count());
+		assertEquals(2, (long) meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REQUESTS)
+				.tag(MicrometerConnectionMetrics.TAG_STATUS, "200").counter().count());
+
+		// the second request reuses the pooled connection without handshake
+		Timer handshake = meterRegistry.get(MicrometerConnectionMetrics.TOKEN_HANDSHAKE).timer();
+		assertEquals(1, handshake.count());
+		assertTrue(handshake.totalTime(TimeUnit.NANOSECONDS) > 0);
+
+		assertEquals(2, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REQUEST).timer().count());
+		assertEquals(2, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_PARSE).timer().count());
+
+		Gauge expiry = meterRegistry.get(MicrometerConnectionMetrics.TOKEN_EXPIRY)
+				.tag(MicrometerConnectionMetrics.TAG_CLIENT_ID, "88a73992-07f2-4714-ab4b-de782acd9c4d")
+				.gauge();
+		assertTrue(expiry.value() > 100 && expiry.value() <= 120);
+
+		assertEquals(0, meterRegistry.get(MicrometerConnectionMetrics.POOL_LEASED).gauge().value(), 0);
+		assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.POOL_AVAILABLE).gauge().value(), 0);
+		assertEquals(clientCredentialsConfiguration.getMaxConnectionsTotal(),
+				meterRegistry.get(MicrometerConnectionMetrics.POOL_MAX).gauge().value(), 0);
+
+		connection.disconnect();
+	}
+
+	/**
+	 * verifies rejected and failed token requests are recorded as failures
+	 * by status
+	 */
+	@Test
+	public void recordTokenFetchFailure() throws Exception {
+
+		server.setResponseStatus(401);
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+
+		connection.connect();
+
+		assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_FETCH)
+				.tags(MicrometerConnectionMetrics.TAG_STATUS, "401",
+						MicrometerConnectionMetrics.TAG_OUTCOME, "failure")
+				.timer().count());
+		assertNull(meterRegistry.find(MicrometerConnectionMetrics.TOKEN_PARSE).timer());
+		assertNull(meterRegistry.find(MicrometerConnectionMetrics.TOKEN_EXPIRY).gauge());
+
+		// nothing listening on the port
+		ServerSocket serverSocket = new ServerSocket(0);
+		serverSocket.close();
+		clientCredentialsConfiguration.setTokenServerUrl("https://localhost:" + serverSocket.getLocalPort()
+				+ MockTokenServer.TOKEN_PATH);
+
+		try {
+			connection.connect();
+			assertTrue(false);
+		} catch (Exception e) {
+			assertNotNull(e);
+		}
+
+		assertEquals(1, (long) meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REQUESTS)
+				.tags(MicrometerConnectionMetrics.TAG_STATUS, "none",
+						MicrometerConnectionMetrics.TAG_OUTCOME, "failure")
+				.counter().count());
+	}
+
+	/**
+	 * verifies asynchronous token requests are recorded
+	 */
+	@Test
+	public void recordTokenFetchAsync() throws Exception {
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+
+		assertNotNull(connection.connectAsync().get(10, TimeUnit.SECONDS));
+
+		assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_FETCH)
+				.tags(MicrometerConnectionMetrics.TAG_STATUS, "200",
+						MicrometerConnectionMetrics.TAG_OUTCOME, "success")
+				.timer().count());
+		assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REQUEST).timer().count());
+		assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_PARSE).timer().count());
+	}
+
+	/**
+	 * verifies gauges follow the latest connection and pool monitored under
+	 * the same name
+	 */
+	@Test
+	public void monitorReplaced() throws Exception {
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		connection.connect();
+
+		ClientCredentialsConnection replacement = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		replacement.connect();
+
+		connection.disconnect();
+
+		Gauge expiry = meterRegistry.get(MicrometerConnectionMetrics.TOKEN_EXPIRY).gauge();
+		assertSame(expiry, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_EXPIRY).gauges().iterator().next());
+		assertTrue(expiry.value() > 0);
+
+		// same client id and grant type against another token server
+		MockTokenServer otherServer = new MockTokenServer();
+		otherServer.setExpiresIn(120);
+		otherServer.start();
+
+		try {
+
+			ClientCredentialsConfiguration otherConfiguration = new ClientCredentialsConfiguration();
+			otherConfiguration.setClientID(clientCredentialsConfiguration.getClientID());
+			otherConfiguration.setClientSecret(clientCredentialsConfiguration.getClientSecret());
+			otherConfiguration.setConnectionMetrics(connectionMetrics);
+			otherServer.configure(otherConfiguration);
+
+			ClientCredentialsConnection otherConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+					.getInstance().createConnection(otherConfiguration);
+			otherConnection.connect();
+
+			replacement.disconnect();
+
+			assertEquals(1, meterRegistry.get(MicrometerConnectionMetrics.TOKEN_EXPIRY).gauges().size());
+			assertTrue(expiry.value() > 0);
+			assertTrue(otherConnection.isConnectionIndicator());
+
+		} finally {
+			otherServer.stop();
+		}
+
+		PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+		pool.setMaxTotal(7);
+
+		connectionMetrics.monitorConnectionPool("replaced", new PoolingHttpClientConnectionManager());
+		connectionMetrics.monitorConnectionPool("replaced", pool);
+
+		assertEquals(7, meterRegistry.get(MicrometerConnectionMetrics.POOL_MAX)
+				.tag(MicrometerConnectionMetrics.TAG_POOL, "replaced").gauge().value(), 0);
+
+		pool.close();
+	}
+
+	/**
+	 * verifies proactive refreshes are counted by outcome
+	 */
+	@Test
+	public void recordTokenRefresh() {
+
+		connectionMetrics.recordTokenRefresh(clientCredentialsConfiguration, true);
+		connectionMetrics.recordTokenRefresh(clientCredentialsConfiguration, false);
+		connectionMetrics.recordTokenRefresh(clientCredentialsConfiguration, false);
+
+		assertEquals(1, (long) meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REFRESHES)
+				.tag(MicrometerConnectionMetrics.TAG_OUTCOME, "success").counter().count());
+		assertEquals(2, (long) meterRegistry.get(MicrometerConnectionMetrics.TOKEN_REFRESHES)
+				.tag(MicrometerConnectionMetrics.TAG_OUTCOME, "failure").counter().count());
+	}
+
+	/**
+	 * verifies connections default to the no-op metrics
+	 */
+	@Test
+	public void defaultNoOpMetrics() {
+
+		assertSame(NoOpConnectionMetrics.getInstance(), new ClientCredentialsConfiguration().getConnectionMetrics());
+	}
+}
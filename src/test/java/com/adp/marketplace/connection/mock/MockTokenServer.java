@@ -0,0 +1,983 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.mock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
+
+
+/**
+ * <p>
+ * MockTokenServer is an embeddable HTTPS token server for tests and benchmarks
+ * that run without the ADP token server. It listens on a free loopback port,
+ * requires a client certificate by default (mutual TLS) and answers token
+ * requests like the ADP token server, with configurable latency, error rate,
+ * forced 400, 401 or 500 responses and token expiration. Settings may be
+ * changed while the server runs, e.g. to simulate a brownout.
+ * </p>
+ *
+ * <p>
+ * Requests to {@link #API_PATH} are answered like an ADP API: the bearer token
+ * must be one issued by this server and not revoked, otherwise 401 is returned.
+ * GET requests with <code>$top</code> and <code>$skip</code> are answered with a
+ * page of the {@link #setWorkerCount(int) workers} collection, or 204 past its
+ * end; other GET requests are answered with the requested path and POST requests
+ * echo the request body.
+ * </p>
+ *
+ * <p>
+ * The server, client and trust stores are bundled with the tests: the server
+ * certificate is issued for localhost and 127.0.0.1 and the trust store holds
+ * both the server and the client certificate. {@link #configure(ConnectionConfiguration)}
+ * points a configuration at this server with the bundled client certificate.
+ * </p>
+ *
+ * <pre>
+ * MockTokenServer server = new MockTokenServer();
+ * server.start();
+ * server.configure(clientCredentialsConfiguration);
+ * ...
+ * server.stop();
+ * </pre>
+ *
+ * @author tallaprs
+ *
+ */
+public class MockTokenServer {
+
+	private static final Logger LOGGER = Logger.getLogger(MockTokenServer.class.getName());
+
+	public static final String TOKEN_PATH = "/auth/oauth/v2/token";
+
+	public static final String API_PATH = "/hr/v2/workers";
+
+	public static final String PASSWORD = "adpmock1";
+
+	public static final String KEY_STORE_TYPE = "PKCS12";
+
+	private static final String SERVER_KEY_STORE = "/certs/mock-server.p12";
+	private static final String CLIENT_KEY_STORE = "/certs/mock-client.p12";
+	private static final String TRUST_STORE = "/certs/mock-truststore.p12";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static final Map<String, File> RESOURCES = new HashMap<String, File>();
+
+	private volatile long latency = 0;
+	private volatile double errorRate = 0;
+	private volatile int errorStatus = Constants.HTTP_SERVER_ERROR;
+	private volatile int responseStatus = Constants.HTTP_SUCCESS;
+	private volatile long expiresIn = 3600;
+	private volatile String clientID;
+	private volatile String clientSecret;
+	private volatile int workerCount = 0;
+	private volatile int endOfCollectionStatus = 204;
+	private volatile String retryAfter = null;
+
+	private boolean clientAuthRequired = true;
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger tokenCount = new AtomicInteger();
+	private final AtomicInteger apiRequestCount = new AtomicInteger();
+	private final AtomicInteger refreshCount = new AtomicInteger();
+	private final AtomicInteger failureCount = new AtomicInteger();
+
+	private final Set<String> accessTokens = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Set<String> refreshTokens = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private SSLServerSocket serverSocket;
+	private ExecutorService executor;
+
+	/**
+	 * Starts this server on a free loopback port
+	 *
+	 * @throws Exception thrown if the bundled certificates cannot be loaded or
+	 * 					 the port cannot be bound
+	 */
+	public void start() throws Exception {
+
+		if ( serverSocket != null ) {
+			throw new IllegalStateException("Mock token server is already started");
+		}
+
+		serverSocket = (SSLServerSocket) newServerSSLContext().getServerSocketFactory()
+				.createServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+		serverSocket.setEnabledProtocols(new String[] { Constants.TLS_VERSION });
+		serverSocket.setNeedClientAuth(clientAuthRequired);
+
+		// a thread per connection, virtual where supported, otherwise pooled and bounded
+		executor = ExecutorUtils.getInstance().newConnectExecutor();
+
+		final SSLServerSocket acceptingSocket = serverSocket;
+
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				while ( !acceptingSocket.isClosed() ) {
+					try {
+						final Socket socket = acceptingSocket.accept();
+						executor.execute(new Runnable() {
+
+							@Override
+							public void run() {
+								serve(socket);
+							}
+						});
+					} catch (IOException e) {
+						// closed on stop
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops this server and closes open connections
+	 */
+	public void stop() {
+
+		if ( serverSocket == null ) {
+			return;
+		}
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Failed to close mock token server", e);
+		}
+
+		executor.shutdownNow();
+
+		serverSocket = null;
+		executor = null;
+	}
+
+	/**
+	 * Returns the port of this server
+	 *
+	 * @return int local port, -1 if not started
+	 */
+	public int getPort() {
+		return serverSocket == null ? -1 : serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the token url of this server
+	 *
+	 * @return String https url of the token endpoint
+	 */
+	public String getTokenServerUrl() {
+		return "https://localhost:" + getPort() + TOKEN_PATH;
+	}
+
+	/**
+	 * Points this configuration at this server, with the bundled client
+	 * certificate and trust store
+	 *
+	 * @param connectionConfiguration configuration to update
+	 * @throws IOException thrown if the bundled certificates cannot be read
+	 */
+	public void configure(ConnectionConfiguration connectionConfiguration) throws IOException {
+
+		connectionConfiguration.setSslCertPath(getClientKeyStorePath());
+		connectionConfiguration.setStorePassword(PASSWORD);
+		connectionConfiguration.setKeyPassword(PASSWORD);
+		connectionConfiguration.setTrustStorePath(getTrustStorePath());
+		connectionConfiguration.setTrustStorePassword(PASSWORD);
+		connectionConfiguration.setTokenServerUrl(getTokenServerUrl());
+		connectionConfiguration.setApiRequestUrl("https://localhost:" + getPort());
+	}
+
+	/**
+	 * Returns the file path of the bundled client key store
+	 *
+	 * @return String file path to the client key store
+	 * @throws IOException thrown if the key store cannot be read
+	 */
+	public static String getClientKeyStorePath() throws IOException {
+		return getResource(CLIENT_KEY_STORE).getAbsolutePath();
+	}
+
+	/**
+	 * Returns the file path of the bundled trust store with the server and
+	 * client certificates
+	 *
+	 * @return String file path to the trust store
+	 * @throws IOException thrown if the trust store cannot be read
+	 */
+	public static String getTrustStorePath() throws IOException {
+		return getResource(TRUST_STORE).getAbsolutePath();
+	}
+
+	/**
+	 * Returns the number of requests received
+	 *
+	 * @return int request count
+	 */
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of tokens issued
+	 *
+	 * @return int token count
+	 */
+	public int getTokenCount() {
+		return tokenCount.get();
+	}
+
+	/**
+	 * Returns the number of tokens issued for a refresh token
+	 *
+	 * @return int refresh count
+	 */
+	public int getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	/**
+	 * Returns the number of API requests received
+	 *
+	 * @return int API request count
+	 */
+	public int getApiRequestCount() {
+		return apiRequestCount.get();
+	}
+
+	/**
+	 * Resets the request, token and API request counts
+	 */
+	public void resetCounts() {
+		requestCount.set(0);
+		tokenCount.set(0);
+		apiRequestCount.set(0);
+	}
+
+	/**
+	 * Revokes all issued tokens, API requests with these tokens are answered
+	 * with 401
+	 */
+	public void revokeTokens() {
+		accessTokens.clear();
+	}
+
+	/**
+	 * Revokes all issued refresh tokens, refresh token requests are answered
+	 * with 400 invalid_grant
+	 */
+	public void revokeRefreshTokens() {
+		refreshTokens.clear();
+	}
+
+	/**
+	 * @return latency delay in milliseconds before each response
+	 */
+	public long getLatency() {
+		return latency;
+	}
+
+	/**
+	 * @param latency delay in milliseconds before each response
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * @return errorRate ratio between 0 and 1 of requests answered with the
+	 * 					 error status
+	 */
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * @param errorRate ratio between 0 and 1 of requests answered with the
+	 * 					error status, e.g. 0.2 during a brownout
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @return errorStatus http status of responses failed by the error rate
+	 */
+	public int getErrorStatus() {
+		return errorStatus;
+	}
+
+	/**
+	 * @param errorStatus http status of responses failed by the error rate,
+	 * 					  500 by default
+	 */
+	public void setErrorStatus(int errorStatus) {
+		this.errorStatus = errorStatus;
+	}
+
+	/**
+	 * @param failureCount number of the next token requests answered with the
+	 * 					   error status, e.g. 2 for a transient outage
+	 */
+	public void setFailureCount(int failureCount) {
+		this.failureCount.set(failureCount);
+	}
+
+	/**
+	 * @param retryAfter Retry-After header of error responses, delay seconds
+	 * 					 or an http date, null for none
+	 */
+	public void setRetryAfter(String retryAfter) {
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * @return responseStatus http status of all responses, 200 to answer
+	 * 						  requests normally
+	 */
+	public int getResponseStatus() {
+		return responseStatus;
+	}
+
+	/**
+	 * @param responseStatus http status of all responses, e.g. 400, 401 or
+	 * 						 500; 200 to answer requests normally
+	 */
+	public void setResponseStatus(int responseStatus) {
+		this.responseStatus = responseStatus;
+	}
+
+	/**
+	 * @return expiresIn expiration in seconds of issued tokens
+	 */
+	public long getExpiresIn() {
+		return expiresIn;
+	}
+
+	/**
+	 * @param expiresIn expiration in seconds of issued tokens
+	 */
+	public void setExpiresIn(long expiresIn) {
+		this.expiresIn = expiresIn;
+	}
+
+	/**
+	 * @return clientID expected client id, null if any client is accepted
+	 */
+	public String getClientID() {
+		return clientID;
+	}
+
+	/**
+	 * @param clientID expected client id, requests of other clients are
+	 * 				   rejected with 401; null to accept any client
+	 */
+	public void setClientID(String clientID) {
+		this.clientID = clientID;
+	}
+
+	/**
+	 * @return clientSecret expected client secret, null if not verified
+	 */
+	public String getClientSecret() {
+		return clientSecret;
+	}
+
+	/**
+	 * @param clientSecret expected client secret, requests with another
+	 * 					   secret are rejected with 401; null to skip
+	 */
+	public void setClientSecret(String clientSecret) {
+		this.clientSecret = clientSecret;
+	}
+
+	/**
+	 * @return workerCount number of records of the workers collection
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * @param workerCount number of records of the workers collection paged
+	 * 					  with $top and $skip
+	 */
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * @return endOfCollectionStatus status of the empty response to a page
+	 * 								 past the end of the workers collection
+	 */
+	public int getEndOfCollectionStatus() {
+		return endOfCollectionStatus;
+	}
+
+	/**
+	 * @param endOfCollectionStatus status of the empty response to a page
+	 * 								past the end of the workers collection,
+	 * 								204 by default
+	 */
+	public void setEndOfCollectionStatus(int endOfCollectionStatus) {
+		this.endOfCollectionStatus = endOfCollectionStatus;
+	}
+
+	/**
+	 * @return clientAuthRequired true if clients must present a certificate
+	 */
+	public boolean isClientAuthRequired() {
+		return clientAuthRequired;
+	}
+
+	/**
+	 * @param clientAuthRequired true if clients must present a certificate
+	 * 							 trusted by the bundled trust store, takes
+	 * 							 effect on start
+	 */
+	public void setClientAuthRequired(boolean clientAuthRequired) {
+		this.clientAuthRequired = clientAuthRequired;
+	}
+
+	/**
+	 * Answers the requests of a kept alive connection until either side
+	 * closes it
+	 *
+	 * @param socket
+	 */
+	private void serve(Socket socket) {
+
+		try {
+
+			socket.setTcpNoDelay(true);
+
+			InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+			OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+
+			Map<String, String> headers;
+
+			while ( (headers = readHead(inputStream)) != null ) {
+
+				int contentLength = headers.containsKey("content-length") ?
+						Integer.parseInt(headers.get("content-length")) : 0;
+
+				byte[] body = new byte[contentLength];
+				int offset = 0;
+				while ( offset < contentLength ) {
+					int read = inputStream.read(body, offset, contentLength - offset);
+					if ( read == -1 ) {
+						return;
+					}
+					offset += read;
+				}
+
+				requestCount.incrementAndGet();
+
+				respond(outputStream, headers, new String(body, UTF_8));
+
+				if ( "close".equalsIgnoreCase(headers.get("connection")) ) {
+					return;
+				}
+			}
+
+		} catch (IOException e) {
+			// closed by either side or failed handshake
+			LOGGER.log(Level.FINEST, "Mock token server connection closed", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Writes the response to a token or API request
+	 *
+	 * @param outputStream
+	 * @param headers
+	 * @param form
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void respond(OutputStream outputStream, Map<String, String> headers, String form)
+			throws IOException, InterruptedException {
+
+		if ( latency > 0 ) {
+			Thread.sleep(latency);
+		}
+
+		String path = headers.get(":path");
+
+		if ( path.startsWith(API_PATH) ) {
+			respondApi(outputStream, headers, form);
+			return;
+		}
+
+		if ( !TOKEN_PATH.equals(path) ) {
+			write(outputStream, 404, error("not_found", "Unknown path " + path));
+			return;
+		}
+
+		if ( responseStatus != Constants.HTTP_SUCCESS ) {
+			writeError(outputStream, responseStatus);
+			return;
+		}
+
+		if ( failureCount.get() > 0 && failureCount.getAndDecrement() > 0 ) {
+			writeError(outputStream, errorStatus);
+			return;
+		}
+
+		if ( errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate ) {
+			writeError(outputStream, errorStatus);
+			return;
+		}
+
+		Map<String, String> parameters = parseForm(form);
+		String grantType = parameters.get("grant_type");
+
+		if ( grantType == null ) {
+			write(outputStream, Constants.HTTP_CLIENT_ERROR, error("invalid_request", "Missing grant_type"));
+			return;
+		}
+
+		if ( (clientID != null && !clientID.equals(parameters.get("client_id")))
+				|| (clientSecret != null && !clientSecret.equals(parameters.get("client_secret"))) ) {
+			write(outputStream, Constants.HTTP_CLIENT_INVALID, error("invalid_client", "Client authentication failed"));
+			return;
+		}
+
+		String accessToken = UUID.randomUUID().toString();
+
+		StringBuilder token = new StringBuilder()
+				.append("{\"access_token\":\"").append(accessToken)
+				.append("\",\"token_type\":\"Bearer\",\"expires_in\":").append(expiresIn);
+
+		if ( "authorization_code".equals(grantType) ) {
+
+			if ( parameters.get("code") == null ) {
+				write(outputStream, Constants.HTTP_CLIENT_ERROR, error("invalid_grant", "Missing code"));
+				return;
+			}
+
+			token.append(",\"scope\":\"openid\",\"refresh_token\":\"").append(refreshToken()).append('"');
+
+		} else if ( "refresh_token".equals(grantType) ) {
+
+			// refresh tokens are single use and rotated
+			if ( parameters.get("refresh_token") == null || !refreshTokens.remove(parameters.get("refresh_token")) ) {
+				write(outputStream, Constants.HTTP_CLIENT_ERROR, error("invalid_grant", "Invalid refresh token"));
+				return;
+			}
+
+			refreshCount.incrementAndGet();
+			token.append(",\"scope\":\"openid\",\"refresh_token\":\"").append(refreshToken()).append('"');
+
+		} else if ( "client_credentials".equals(grantType) ) {
+
+			token.append(",\"scope\":\"api\"");
+
+		} else {
+			write(outputStream, Constants.HTTP_CLIENT_ERROR, error("unsupported_grant_type", grantType));
+			return;
+		}
+
+		tokenCount.incrementAndGet();
+		accessTokens.add(accessToken);
+
+		write(outputStream, Constants.HTTP_SUCCESS, token.append('}').toString());
+	}
+
+	/**
+	 * Writes the response to an API request, 401 unless authorized by a
+	 * bearer token issued by this server
+	 *
+	 * @param outputStream
+	 * @param headers
+	 * @param body
+	 * @throws IOException
+	 */
+	private void respondApi(OutputStream outputStream, Map<String, String> headers, String body)
+			throws IOException {
+
+		apiRequestCount.incrementAndGet();
+
+		String authorization = headers.get("authorization");
+
+		if ( authorization == null || !authorization.startsWith("Bearer ")
+				|| !accessTokens.contains(authorization.substring("Bearer ".length())) ) {
+			write(outputStream, Constants.HTTP_CLIENT_INVALID, error("invalid_token", "The access token is invalid"));
+			return;
+		}
+
+		String path = headers.get(":path");
+		int query = path.indexOf('?');
+		Map<String, String> parameters = query < 0 ? new HashMap<String, String>()
+				: parseForm(path.substring(query + 1));
+
+		if ( "POST".equals(headers.get(":method")) ) {
+			write(outputStream, Constants.HTTP_SUCCESS, body);
+		} else if ( parameters.containsKey("$top") ) {
+			respondPage(outputStream, Integer.parseInt(parameters.get("$top")),
+					parameters.containsKey("$skip") ? Integer.parseInt(parameters.get("$skip")) : 0);
+		} else {
+			write(outputStream, Constants.HTTP_SUCCESS, "{\"path\":\"" + headers.get(":path") + "\"}");
+		}
+	}
+
+	/**
+	 * Writes a page of the workers collection, an empty response past its end
+	 *
+	 * @param outputStream
+	 * @param top
+	 * @param skip
+	 * @throws IOException
+	 */
+	private void respondPage(OutputStream outputStream, int top, int skip) throws IOException {
+
+		int end = Math.min(workerCount, skip + top);
+
+		if ( skip >= end ) {
+			write(outputStream, endOfCollectionStatus, "");
+			return;
+		}
+
+		StringBuilder page = new StringBuilder("{\"workers\":[");
+
+		for ( int index = skip; index < end; index++ ) {
+			if ( index > skip ) {
+				page.append(',');
+			}
+			page.append("{\"associateOID\":\"G").append(index)
+					.append("\",\"workerID\":{\"idValue\":\"").append(index).append("\"}}");
+		}
+
+		write(outputStream, Constants.HTTP_SUCCESS, page.append("],\"meta\":{\"totalNumber\":")
+				.append(workerCount).append("}}").toString());
+	}
+
+	/**
+	 * Writes the OAuth error response for this status, with the Retry-After
+	 * header if one is set
+	 *
+	 * @param outputStream
+	 * @param status
+	 * @throws IOException
+	 */
+	private void writeError(OutputStream outputStream, int status) throws IOException {
+
+		String header = retryAfter;
+
+		write(outputStream, status, error(status), header == null ? "" : "Retry-After: " + header + "\r\n");
+	}
+
+	/**
+	 * Writes a JSON response
+	 *
+	 * @param outputStream
+	 * @param status
+	 * @param json
+	 * @throws IOException
+	 */
+	private static void write(OutputStream outputStream, int status, String json) throws IOException {
+		write(outputStream, status, json, "");
+	}
+
+	/**
+	 * Writes a JSON response with additional header lines
+	 *
+	 * @param outputStream
+	 * @param status
+	 * @param json
+	 * @param headers
+	 * @throws IOException
+	 */
+	private static void write(OutputStream outputStream, int status, String json, String headers)
+			throws IOException {
+
+		byte[] body = json.getBytes(UTF_8);
+
+		outputStream.write(new StringBuilder()
+				.append("HTTP/1.1 ").append(status).append(' ').append(getReasonPhrase(status)).append("\r\n")
+				.append("Content-Type: application/json;charset=UTF-8\r\n")
+				.append(headers)
+				.append("Cache-Control: no-store\r\n")
+				.append("Content-Length: ").append(body.length).append("\r\n\r\n")
+				.toString().getBytes(ASCII));
+		outputStream.write(body);
+		outputStream.flush();
+	}
+
+	/**
+	 * Returns a new refresh token accepted by the next refresh token request
+	 *
+	 * @return String
+	 */
+	private String refreshToken() {
+
+		String refreshToken = UUID.randomUUID().toString();
+		refreshTokens.add(refreshToken);
+
+		return refreshToken;
+	}
+
+	/**
+	 * Returns the OAuth error response for this status
+	 *
+	 * @param status
+	 * @return String
+	 */
+	private static String error(int status) {
+
+		switch ( status ) {
+			case Constants.HTTP_CLIENT_ERROR:
+				return error("invalid_request", "The request is invalid");
+			case Constants.HTTP_CLIENT_INVALID:
+				return error("invalid_client", "Client authentication failed");
+			default:
+				return error("server_error", "The token server is unavailable");
+		}
+	}
+
+	private static String error(String error, String description) {
+		return "{\"error\":\"" + error + "\",\"error_description\":\"" + description + "\"}";
+	}
+
+	private static String getReasonPhrase(int status) {
+
+		switch ( status ) {
+			case 200:
+				return "OK";
+			case 204:
+				return "No Content";
+			case 400:
+				return "Bad Request";
+			case 401:
+				return "Unauthorized";
+			case 404:
+				return "Not Found";
+			case 429:
+				return "Too Many Requests";
+			case 500:
+				return "Internal Server Error";
+			case 503:
+				return "Service Unavailable";
+			default:
+				return "Error";
+		}
+	}
+
+	/**
+	 * Reads the request line and headers
+	 *
+	 * @param inputStream
+	 * @return Map lower case header names to values, the request method and
+	 * 			   path as ":method" and ":path"; null at the end of the stream
+	 * @throws IOException
+	 */
+	private static Map<String, String> readHead(InputStream inputStream) throws IOException {
+
+		Map<String, String> headers = null;
+		StringBuilder line = new StringBuilder();
+
+		int value;
+
+		while ( (value = inputStream.read()) != -1 ) {
+
+			if ( value == '\r' ) {
+				continue;
+			}
+
+			if ( value != '\n' ) {
+				line.append((char) value);
+				continue;
+			}
+
+			if ( headers == null ) {
+
+				// request line, skipping blank lines between requests
+				if ( line.length() > 0 ) {
+					String[] requestLine = line.toString().split(" ");
+					headers = new HashMap<String, String>();
+					headers.put(":method", requestLine[0]);
+					headers.put(":path", requestLine.length > 1 ? requestLine[1] : "");
+				}
+
+			} else if ( line.length() == 0 ) {
+				return headers;
+			} else {
+				int separator = line.indexOf(":");
+				if ( separator > 0 ) {
+					headers.put(line.substring(0, separator).trim().toLowerCase(Locale.ROOT),
+							line.substring(separator + 1).trim());
+				}
+			}
+
+			line.setLength(0);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the parameters of an url encoded form
+	 *
+	 * @param form
+	 * @return Map
+	 * @throws UnsupportedEncodingException
+	 */
+	private static Map<String, String> parseForm(String form) throws UnsupportedEncodingException {
+
+		Map<String, String> parameters = new HashMap<String, String>();
+
+		for ( String pair : form.split("&") ) {
+			int separator = pair.indexOf('=');
+			if ( separator > 0 ) {
+				parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+						URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * Returns the ssl context of this server with the bundled server
+	 * certificate, trusting the bundled client certificate
+	 *
+	 * @return SSLContext
+	 * @throws Exception
+	 */
+	private static SSLContext newServerSSLContext() throws Exception {
+
+		KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagerFactory.init(loadKeyStore(SERVER_KEY_STORE), PASSWORD.toCharArray());
+
+		TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagerFactory.init(loadKeyStore(TRUST_STORE));
+
+		SSLContext sslContext = SSLContext.getInstance(Constants.TLS_VERSION);
+		sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+
+		return sslContext;
+	}
+
+	private static KeyStore loadKeyStore(String resource) throws Exception {
+
+		KeyStore keyStore = KeyStore.getInstance(KEY_STORE_TYPE);
+
+		InputStream inputStream = new FileInputStream(getResource(resource));
+		try {
+			keyStore.load(inputStream, PASSWORD.toCharArray());
+		} finally {
+			inputStream.close();
+		}
+
+		return keyStore;
+	}
+
+	/**
+	 * Returns the file of a bundled resource, copied to a temporary file if the
+	 * resource is packaged in a jar
+	 *
+	 * @param resource
+	 * @return File
+	 * @throws IOException
+	 */
+	private static File getResource(String resource) throws IOException {
+
+		synchronized ( RESOURCES ) {
+
+			File file = RESOURCES.get(resource);
+
+			if ( file == null ) {
+
+				URL url = MockTokenServer.class.getResource(resource);
+
+				if ( url == null ) {
+					throw new IOException("Missing mock token server resource " + resource);
+				}
+
+				if ( "file".equals(url.getProtocol()) ) {
+					try {
+						file = new File(url.toURI());
+					} catch (URISyntaxException e) {
+						throw new IOException(e);
+					}
+				} else {
+					file = File.createTempFile("adp-mock-", ".p12");
+					file.deleteOnExit();
+
+					InputStream inputStream = url.openStream();
+					try {
+						Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					} finally {
+						inputStream.close();
+					}
+				}
+
+				RESOURCES.put(resource, file);
+			}
+
+			return file;
+		}
+	}
+
+}
@@ -0,0 +1,287 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.exception.CircuitBreakerOpenException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.resilience.CircuitBreaker.State;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class CircuitBreakerTest {
+
+	CircuitBreakerPolicy circuitBreakerPolicy = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		circuitBreakerPolicy = new CircuitBreakerPolicy();
+		circuitBreakerPolicy.setWindowSize(4);
+		circuitBreakerPolicy.setMinimumCalls(2);
+		circuitBreakerPolicy.setOpenDuration(200);
+		circuitBreakerPolicy.setHalfOpenCalls(1);
+
+		server = new MockTokenServer();
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setCircuitBreakerPolicy(circuitBreakerPolicy);
+		server.configure(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		CircuitBreakerRegistry.getInstance().clear();
+	}
+
+	/**
+	 * verifies the circuit opens on the failure rate of the most recent calls
+	 * and closes after successful trial calls
+	 */
+	@Test
+	public void failureRate() throws Exception {
+
+		circuitBreakerPolicy.setMinimumCalls(4);
+
+		CircuitBreaker circuitBreaker = new CircuitBreaker("token-server", circuitBreakerPolicy);
+
+		circuitBreaker.onSuccess(0);
+		circuitBreaker.onSuccess(0);
+		circuitBreaker.onSuccess(0);
+		circuitBreaker.onFailure(0);
+
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		// the oldest success is evicted from the window
+		circuitBreaker.onFailure(0);
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+
+		Thread.sleep(250);
+
+		// one trial call
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+		circuitBreaker.onFailure(0);
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+
+		Thread.sleep(250);
+
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onSuccess(0);
+
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		// the window starts empty
+		circuitBreaker.onFailure(0);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+	}
+
+	/**
+	 * verifies the circuit opens on the rate of slow calls
+	 */
+	@Test
+	public void slowCalls() {
+
+		circuitBreakerPolicy.setSlowCallDuration(10);
+
+		CircuitBreaker circuitBreaker = new CircuitBreaker("token-server", circuitBreakerPolicy);
+
+		circuitBreaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+		circuitBreaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+
+		circuitBreaker.reset();
+
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+	}
+
+	/**
+	 * verifies connections of a token server share its circuit breaker
+	 */
+	@Test
+	public void getCircuitBreaker() throws Exception {
+
+		CircuitBreaker circuitBreaker = CircuitBreakerRegistry.getInstance()
+				.getCircuitBreaker(clientCredentialsConfiguration);
+
+		ClientCredentialsConfiguration another = new ClientCredentialsConfiguration();
+		another.setTokenServerUrl(clientCredentialsConfiguration.getTokenServerUrl() + " ");
+		another.setCircuitBreakerPolicy(new CircuitBreakerPolicy());
+
+		assertSame(circuitBreaker, CircuitBreakerRegistry.getInstance().getCircuitBreaker(another));
+		assertEquals(clientCredentialsConfiguration.getTokenServerUrl(), circuitBreaker.getName());
+
+		another.setCircuitBreakerPolicy(null);
+
+		assertEquals(null, CircuitBreakerRegistry.getInstance().getCircuitBreaker(another));
+	}
+
+	/**
+	 * verifies token requests fail fast while the circuit is open, serving
+	 * the unexpired token of the connection, and resume once it closes
+	 */
+	@Test
+	public void failFast() throws Exception {
+
+		ClientCredentialsConnection clientCredentialsConnection = createConnection();
+
+		clientCredentialsConnection.connect();
+		Token token = clientCredentialsConnection.getToken();
+
+		server.setResponseStatus(503);
+
+		clientCredentialsConnection.connect();
+
+		assertEquals(2, server.getRequestCount());
+		assertEquals(State.OPEN, CircuitBreakerRegistry.getInstance()
+				.getCircuitBreaker(clientCredentialsConfiguration).getState());
+
+		// the unexpired token is served without contacting the token server
+		clientCredentialsConnection.connect();
+
+		assertSame(token, clientCredentialsConnection.getToken());
+		assertSame(token, clientCredentialsConnection.connectAsync().get());
+		assertTrue(clientCredentialsConnection.getErrorResponse().startsWith("Circuit breaker is open"));
+
+		// a connection without a token fails fast
+		ClientCredentialsConnection another = createConnection();
+
+		try {
+			another.connect();
+			assertTrue(false);
+		} catch (CircuitBreakerOpenException e) {
+			assertTrue(e.getMessage().contains(clientCredentialsConfiguration.getTokenServerUrl()));
+		}
+
+		try {
+			another.connectAsync().get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+		}
+
+		assertEquals(2, server.getRequestCount());
+
+		// a successful trial call closes the circuit
+		server.setResponseStatus(200);
+		Thread.sleep(250);
+
+		another.connect();
+
+		assertTrue(another.isConnectionIndicator());
+		assertEquals(3, server.getRequestCount());
+		assertEquals(State.CLOSED, CircuitBreakerRegistry.getInstance()
+				.getCircuitBreaker(clientCredentialsConfiguration).getState());
+	}
+
+	/**
+	 * Returns a new connection of the mock token server
+	 *
+	 * @return ClientCredentialsConnection
+	 * @throws Exception
+	 */
+	private ClientCredentialsConnection createConnection() throws Exception {
+		return (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance()
+				.createConnection(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * verifies a token request timing out while its response is handled is
+	 * recorded once, not as a success and as a failure
+	 */
+	@Test
+	public void recordOnce() throws Exception {
+
+		circuitBreakerPolicy.setFailureRateThreshold(0.3);
+
+		// the pooled connection to the token server is established first
+		ADPAPIConnectionFactory.getInstance().createConnection(clientCredentialsConfiguration).connect();
+
+		clientCredentialsConfiguration.setRequestTimeout(200);
+
+		SlowResponseConnection connection = new SlowResponseConnection(clientCredentialsConfiguration);
+
+		try {
+			connection.connectAsync().get(10, TimeUnit.SECONDS);
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getMessage().contains("timed out"));
+		}
+
+		// the response completing after the timeout is not recorded again
+		Thread.sleep(300);
+
+		assertEquals(State.CLOSED,
+				CircuitBreakerRegistry.getInstance().getCircuitBreaker(clientCredentialsConfiguration).getState());
+	}
+
+	/**
+	 * connection handling token responses slower than the request timeout
+	 */
+	private static class SlowResponseConnection extends ClientCredentialsConnection {
+
+		private SlowResponseConnection(ConnectionConfiguration connectionConfiguration) {
+			super(connectionConfiguration);
+		}
+
+		@Override
+		protected Token handleTokenResponse(HttpResponse httpResponse, TokenRequest tokenRequest) throws Exception {
+			Thread.sleep(400);
+			return super.handleTokenResponse(httpResponse, tokenRequest);
+		}
+	}
+
+}
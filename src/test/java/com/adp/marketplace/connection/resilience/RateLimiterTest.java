@@ -0,0 +1,318 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.exception.RateLimitExceededException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class RateLimiterTest {
+
+	RateLimitPolicy rateLimitPolicy = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		rateLimitPolicy = new RateLimitPolicy();
+		rateLimitPolicy.setPermitsPerSecond(10);
+		rateLimitPolicy.setBurst(1);
+		rateLimitPolicy.setMaxWait(1000);
+
+		server = new MockTokenServer();
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setRateLimitPolicy(rateLimitPolicy);
+		server.configure(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		RateLimiterRegistry.getInstance().clear();
+	}
+
+	/**
+	 * verifies the bucket grants its burst at once and refills at the rate
+	 */
+	@Test
+	public void tryAcquire() throws Exception {
+
+		rateLimitPolicy.setBurst(2);
+
+		RateLimiter rateLimiter = new RateLimiter("client", rateLimitPolicy);
+
+		assertTrue(rateLimiter.tryAcquire());
+		assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+
+		// a permit is not taken if not available within the timeout
+		assertFalse(rateLimiter.tryAcquire(10));
+
+		Thread.sleep(150);
+
+		assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+	}
+
+	/**
+	 * verifies blocking callers wait for their permit up to the maximum wait
+	 */
+	@Test
+	public void acquire() throws Exception {
+
+		RateLimiter rateLimiter = new RateLimiter("client", rateLimitPolicy);
+
+		long start = System.nanoTime();
+
+		rateLimiter.acquire();
+		rateLimiter.acquire();
+		rateLimiter.acquire();
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 180);
+
+		rateLimitPolicy.setMaxWait(0);
+
+		try {
+			rateLimiter.acquire();
+			assertTrue(false);
+		} catch (RateLimitExceededException e) {
+			assertTrue(e.getMessage().contains("client"));
+		}
+	}
+
+	/**
+	 * verifies async callers are completed once their permit is available
+	 */
+	@Test
+	public void acquireAsync() throws Exception {
+
+		RateLimiter rateLimiter = new RateLimiter("client", rateLimitPolicy);
+
+		assertTrue(rateLimiter.acquireAsync().isDone());
+
+		long start = System.nanoTime();
+		CompletableFuture<Void> permit = rateLimiter.acquireAsync();
+
+		assertFalse(permit.isDone());
+
+		permit.get(1, TimeUnit.SECONDS);
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+
+		rateLimitPolicy.setMaxWait(50);
+
+		try {
+			rateLimiter.acquireAsync().get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RateLimitExceededException);
+		}
+	}
+
+	/**
+	 * verifies a paused bucket grants no permits until the pause elapsed
+	 */
+	@Test
+	public void pause() throws Exception {
+
+		rateLimitPolicy.setBurst(5);
+
+		RateLimiter rateLimiter = new RateLimiter("client", rateLimitPolicy);
+
+		rateLimiter.pause(200);
+
+		assertFalse(rateLimiter.tryAcquire());
+
+		Thread.sleep(250);
+
+		// resumes with a single permit
+		assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+	}
+
+	/**
+	 * verifies the Retry-After header is read as delay seconds or http date
+	 */
+	@Test
+	public void getRetryAfter() {
+
+		BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+
+		assertEquals(0, ConnectionUtils.getRetryAfter(httpResponse));
+
+		httpResponse.setHeader("Retry-After", "2");
+		assertEquals(2000, ConnectionUtils.getRetryAfter(httpResponse));
+
+		httpResponse.setHeader("Retry-After", DateUtils.formatDate(new Date(System.currentTimeMillis() + 5000)));
+		long retryAfter = ConnectionUtils.getRetryAfter(httpResponse);
+		assertTrue(retryAfter > 3000 && retryAfter <= 5000);
+
+		httpResponse.setHeader("Retry-After", "soon");
+		assertEquals(0, ConnectionUtils.getRetryAfter(httpResponse));
+
+		httpResponse.setStatusCode(200);
+		httpResponse.setHeader("Retry-After", "2");
+		assertEquals(0, ConnectionUtils.getRetryAfter(httpResponse));
+	}
+
+	/**
+	 * verifies connections of a client share its rate limiter, failing token
+	 * requests without a permit within the maximum wait
+	 */
+	@Test
+	public void connect() throws Exception {
+
+		// refills slower than the first connect, which includes the TLS handshake
+		rateLimitPolicy.setPermitsPerSecond(1);
+		rateLimitPolicy.setMaxWait(0);
+
+		RateLimiter rateLimiter = RateLimiterRegistry.getInstance().getRateLimiter(clientCredentialsConfiguration);
+
+		ClientCredentialsConfiguration another = new ClientCredentialsConfiguration();
+		another.setClientID(clientCredentialsConfiguration.getClientID() + " ");
+		another.setRateLimitPolicy(new RateLimitPolicy());
+
+		assertSame(rateLimiter, RateLimiterRegistry.getInstance().getRateLimiter(another));
+
+		createConnection().connect();
+
+		try {
+			createConnection().connect();
+			assertTrue(false);
+		} catch (RateLimitExceededException e) {
+			assertTrue(e.getMessage().contains(clientCredentialsConfiguration.getClientID()));
+		}
+
+		try {
+			createConnection().connectAsync().get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RateLimitExceededException);
+		}
+
+		assertEquals(1, server.getRequestCount());
+
+		// permits of the global rate limiter are taken as well
+		rateLimitPolicy.setPermitsPerSecond(10);
+		rateLimitPolicy.setMaxWait(1000);
+
+		RateLimitPolicy globalPolicy = new RateLimitPolicy();
+		globalPolicy.setPermitsPerSecond(0.1);
+		globalPolicy.setBurst(1);
+		globalPolicy.setMaxWait(0);
+		RateLimiterRegistry.getInstance().setGlobalRateLimiter(new RateLimiter("global", globalPolicy));
+
+		assertTrue(createConnection().connectAsync().get().getAccess_token() != null);
+
+		try {
+			createConnection().connect();
+			assertTrue(false);
+		} catch (RateLimitExceededException e) {
+			assertTrue(e.getMessage().contains("global"));
+		}
+
+		assertEquals(2, server.getRequestCount());
+	}
+
+	/**
+	 * verifies a throttled token request is retried after its Retry-After,
+	 * which pauses the rate limiter of the client
+	 */
+	@Test
+	public void retryAfter() throws Exception {
+
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.setBaseDelay(10);
+		clientCredentialsConfiguration.setRetryPolicy(retryPolicy);
+
+		server.setErrorStatus(429);
+		server.setRetryAfter("1");
+		server.setFailureCount(1);
+
+		ClientCredentialsConnection clientCredentialsConnection = createConnection();
+
+		long start = System.nanoTime();
+		clientCredentialsConnection.connect();
+
+		assertTrue(clientCredentialsConnection.isConnectionIndicator());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+		assertEquals(2, server.getRequestCount());
+
+		// without a retry policy the rate limiter is paused for the next request
+		clientCredentialsConfiguration.setRetryPolicy(null);
+		server.setFailureCount(1);
+
+		try {
+			createConnection().connectAsync().get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() != null);
+		}
+
+		RateLimiter rateLimiter = RateLimiterRegistry.getInstance().getRateLimiter(clientCredentialsConfiguration);
+
+		assertFalse(rateLimiter.tryAcquire());
+	}
+
+	/**
+	 * Returns a new connection of the mock token server
+	 *
+	 * @return ClientCredentialsConnection
+	 * @throws Exception
+	 */
+	private ClientCredentialsConnection createConnection() throws Exception {
+		return (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance()
+				.createConnection(clientCredentialsConfiguration);
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class RetryPolicyTest {
+
+	RetryPolicy retryPolicy = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+	ClientCredentialsConnection clientCredentialsConnection = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		retryPolicy = new RetryPolicy();
+		retryPolicy.setBaseDelay(10);
+		retryPolicy.setMaxDelay(50);
+
+		server = new MockTokenServer();
+		server.setErrorStatus(503);
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setRetryPolicy(retryPolicy);
+		server.configure(clientCredentialsConfiguration);
+
+		clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance()
+				.createConnection(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * verifies delays grow within the base delay and three times the
+	 * previous delay, capped by the maximum delay, until attempts are exhausted
+	 */
+	@Test
+	public void nextDelay() {
+
+		retryPolicy.setMaxAttempts(100);
+
+		long delay = 0;
+
+		for ( int attempts = 1; attempts < 100; attempts++ ) {
+
+			long next = retryPolicy.nextDelay(attempts, delay);
+
+			assertTrue(next >= 10 && next <= 50);
+			assertTrue(next <= Math.max(10, delay) * 3);
+
+			delay = next;
+		}
+
+		assertEquals(-1, retryPolicy.nextDelay(100, delay));
+
+		retryPolicy.setMaxDelay(0);
+		assertEquals(10, retryPolicy.nextDelay(1, 10));
+	}
+
+	/**
+	 * verifies the retried status codes and exceptions
+	 */
+	@Test
+	public void isRetryable() {
+
+		assertTrue(retryPolicy.isRetryable(503));
+		assertTrue(retryPolicy.isRetryable(429));
+		assertFalse(retryPolicy.isRetryable(400));
+		assertFalse(retryPolicy.isRetryable(401));
+
+		assertTrue(retryPolicy.isRetryable(new IOException("Connection reset")));
+		assertFalse(retryPolicy.isRetryable(new SSLHandshakeException("Untrusted certificate")));
+
+		retryPolicy.setRetryStatusCodes(new HashSet<Integer>(Arrays.asList(502)));
+
+		assertTrue(retryPolicy.isRetryable(502));
+		assertFalse(retryPolicy.isRetryable(503));
+
+		retryPolicy.setRetryStatusCodes(null);
+		assertFalse(retryPolicy.isRetryable(502));
+	}
+
+	/**
+	 * verifies transient failures of the token server are absorbed by retries
+	 */
+	@Test
+	public void retryTransientFailures() throws Exception {
+
+		server.setFailureCount(2);
+
+		clientCredentialsConnection.connect();
+
+		assertTrue(clientCredentialsConnection.isConnectionIndicator());
+		assertEquals(3, server.getRequestCount());
+		assertEquals(1, server.getTokenCount());
+	}
+
+	/**
+	 * verifies the connect request fails once attempts are exhausted
+	 */
+	@Test
+	public void retryAttemptsExhausted() throws Exception {
+
+		server.setFailureCount(3);
+
+		clientCredentialsConnection.connect();
+
+		assertFalse(clientCredentialsConnection.isConnectionIndicator());
+		assertEquals(3, server.getRequestCount());
+		assertEquals(0, server.getTokenCount());
+
+		// the asynchronous connect request is retried as well
+		server.setFailureCount(2);
+
+		Token token = clientCredentialsConnection.connectAsync().get();
+
+		assertEquals(token, clientCredentialsConnection.getToken());
+		assertEquals(6, server.getRequestCount());
+	}
+
+	/**
+	 * verifies rejected token requests and requests past the maximum duration
+	 * are not retried
+	 */
+	@Test
+	public void noRetry() throws Exception {
+
+		server.setResponseStatus(401);
+
+		clientCredentialsConnection.connect();
+
+		assertNull(clientCredentialsConnection.getToken());
+		assertEquals(1, server.getRequestCount());
+
+		server.setResponseStatus(200);
+		server.setFailureCount(1);
+		retryPolicy.setMaxDuration(0);
+
+		clientCredentialsConnection.connect();
+
+		assertFalse(clientCredentialsConnection.isConnectionIndicator());
+		assertEquals(2, server.getRequestCount());
+
+		server.setFailureCount(1);
+
+		try {
+			clientCredentialsConnection.connectAsync().get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+		}
+	}
+
+	/**
+	 * verifies a token request aborted by the request timeout is not retried
+	 */
+	@Test
+	public void noRetryAfterRequestTimeout() throws Exception {
+
+		// the pooled connection to the token server is established first
+		clientCredentialsConnection.connect();
+
+		server.setLatency(500);
+		clientCredentialsConfiguration.setRequestTimeout(200);
+
+		try {
+			clientCredentialsConnection.connect();
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+
+		assertEquals(2, server.getRequestCount());
+	}
+
+}
@@ -0,0 +1,333 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.constants.GrantType;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class FileTokenStoreTest {
+
+	static final ConnectionKey CONNECTION_KEY = new ConnectionKey("88a73992-07f2-4714-ab4b-de782acd9c4d",
+			GrantType.CLIENT_CREDENTIALS, null);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	FileTokenStore tokenStore = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		tokenStore = new FileTokenStore(new File(folder.getRoot(), "tokens"), key(1));
+
+		server = new MockTokenServer();
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setTokenStore(tokenStore);
+		server.configure(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * verifies a stored token is loaded with the seconds remaining until expiry
+	 */
+	@Test
+	public void saveAndLoad() throws Exception {
+
+		assertNull(tokenStore.load(CONNECTION_KEY));
+
+		tokenStore.save(CONNECTION_KEY, token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 3600));
+
+		Token token = tokenStore.load(CONNECTION_KEY);
+
+		assertNotNull(token);
+		assertEquals("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", token.getAccess_token());
+		assertEquals("Bearer", token.getToken_type());
+		assertTrue(token.getExpires_in() > 3590 && token.getExpires_in() <= 3600);
+
+		// tokens are replaced and encrypted, no temporary files remain
+		tokenStore.save(CONNECTION_KEY, token("2f3b4c5d-6e7f-4a8b-9c0d-1e2f3a4b5c6d", 3600));
+		assertEquals("2f3b4c5d-6e7f-4a8b-9c0d-1e2f3a4b5c6d", tokenStore.load(CONNECTION_KEY).getAccess_token());
+
+		File[] files = tokenStore.getDirectory().listFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().endsWith(".token"));
+		assertFalse(new String(Files.readAllBytes(files[0].toPath()), "ISO-8859-1").contains("2f3b4c5d"));
+
+		tokenStore.remove(CONNECTION_KEY);
+		assertNull(tokenStore.load(CONNECTION_KEY));
+	}
+
+	/**
+	 * verifies expired tokens are not loaded
+	 */
+	@Test
+	public void expiredToken() throws Exception {
+
+		tokenStore.save(CONNECTION_KEY, token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 0));
+
+		assertNull(tokenStore.load(CONNECTION_KEY));
+	}
+
+	/**
+	 * verifies tokens cannot be read with another key or under another
+	 * connection key
+	 */
+	@Test
+	public void invalidFile() throws Exception {
+
+		tokenStore.save(CONNECTION_KEY, token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 3600));
+
+		try {
+			new FileTokenStore(tokenStore.getDirectory(), key(2)).load(CONNECTION_KEY);
+			assertTrue(false);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Invalid token store file"));
+		}
+
+		ConnectionKey otherKey = new ConnectionKey("7f0c2b8e-5d1a-4c3e-9b6f-2a8d4e1c0b7a",
+				GrantType.CLIENT_CREDENTIALS, null);
+		tokenStore.save(otherKey, token("2f3b4c5d-6e7f-4a8b-9c0d-1e2f3a4b5c6d", 3600));
+
+		File[] files = tokenStore.getDirectory().listFiles();
+		Files.copy(files[0].toPath(), files[1].toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		try {
+			tokenStore.load(CONNECTION_KEY);
+			tokenStore.load(otherKey);
+			assertTrue(false);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Invalid token store file"));
+		}
+	}
+
+	/**
+	 * verifies lease files are held by one owner until released or expired
+	 */
+	@Test
+	public void lease() throws Exception {
+
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+		assertFalse(new FileTokenStore(tokenStore.getDirectory(), key(1))
+				.acquireLease(CONNECTION_KEY, "node-2", 60000));
+
+		tokenStore.releaseLease(CONNECTION_KEY, "node-2");
+		assertFalse(tokenStore.acquireLease(CONNECTION_KEY, "node-2", 60000));
+
+		tokenStore.releaseLease(CONNECTION_KEY, "node-1");
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-2", 1));
+
+		Thread.sleep(10);
+
+		// expired leases are taken over
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+		tokenStore.releaseLease(CONNECTION_KEY, "node-1");
+
+		assertEquals(0, tokenStore.getDirectory().listFiles().length);
+	}
+
+	/**
+	 * verifies two nodes taking over the same expired lease at once never
+	 * both hold it
+	 */
+	@Test
+	public void leaseContention() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+
+			for ( int i = 0; i < 50; i++ ) {
+
+				final ConnectionKey connectionKey = new ConnectionKey("client-" + i, GrantType.CLIENT_CREDENTIALS,
+						null);
+
+				assertTrue(tokenStore.acquireLease(connectionKey, "node-0", 1));
+				Thread.sleep(2);
+
+				final CyclicBarrier barrier = new CyclicBarrier(2);
+				Future<?>[] results = new Future<?>[2];
+
+				for ( int node = 1; node <= 2; node++ ) {
+
+					final String owner = "node-" + node;
+					final FileTokenStore nodeStore = new FileTokenStore(tokenStore.getDirectory(), key(1));
+
+					results[node - 1] = executor.submit(new Callable<Boolean>() {
+
+						@Override
+						public Boolean call() throws Exception {
+							barrier.await();
+							return nodeStore.acquireLease(connectionKey, owner, 60000);
+						}
+					});
+				}
+
+				int holders = 0;
+
+				for ( Future<?> result : results ) {
+					if ( Boolean.TRUE.equals(result.get()) ) {
+						holders++;
+					}
+				}
+
+				assertEquals(1, holders);
+			}
+
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * verifies a new connection starts with the stored token instead of
+	 * requesting one, and later connects request a new token
+	 */
+	@Test
+	public void restoreToken() throws Exception {
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		connection.connect();
+
+		assertEquals(1, server.getTokenCount());
+
+		// a restarted application
+		ClientCredentialsConnection restarted = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		restarted.connect();
+
+		assertEquals(1, server.getTokenCount());
+		assertTrue(restarted.isConnectionIndicator());
+		assertEquals(connection.getToken().getAccess_token(), restarted.getToken().getAccess_token());
+		assertTrue(restarted.getTokenTimeToExpiry() > 0);
+
+		ClientCredentialsConnection restartedAsync = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+
+		assertEquals(connection.getToken().getAccess_token(),
+				restartedAsync.connectAsync().get().getAccess_token());
+		assertEquals(1, server.getTokenCount());
+
+		restarted.connect();
+
+		assertEquals(2, server.getTokenCount());
+		assertEquals(restarted.getToken().getAccess_token(), tokenStore.load(ConnectionKey.of(clientCredentialsConfiguration)).getAccess_token());
+	}
+
+	/**
+	 * verifies a store failure falls back to a token request
+	 */
+	@Test
+	public void restoreTokenInvalidFile() throws Exception {
+
+		new FileTokenStore(tokenStore.getDirectory(), key(2)).save(ConnectionKey.of(clientCredentialsConfiguration),
+				token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 3600));
+
+		ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		connection.connect();
+
+		assertEquals(1, server.getTokenCount());
+		assertTrue(connection.isConnectionIndicator());
+		assertEquals(connection.getToken().getAccess_token(), tokenStore.load(ConnectionKey.of(clientCredentialsConfiguration)).getAccess_token());
+	}
+
+	/**
+	 * verifies the store rejects keys of other algorithms
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidKey() {
+		new FileTokenStore(folder.getRoot(), new SecretKeySpec(new byte[16], "HmacSHA256"));
+	}
+
+	/**
+	 * Returns a 256 bit AES key filled with the seed
+	 */
+	static SecretKeySpec key(int seed) {
+
+		byte[] key = new byte[32];
+		for ( int i = 0; i < key.length; i++ ) {
+			key[i] = (byte) (seed + i);
+		}
+
+		return new SecretKeySpec(key, "AES");
+	}
+
+	/**
+	 * Returns a bearer token expiring in the seconds
+	 */
+	static Token token(String accessToken, long expiresIn) {
+
+		Token token = new Token();
+		token.setAccess_token(accessToken);
+		token.setToken_type("Bearer");
+		token.setExpires_in(expiresIn);
+
+		return token;
+	}
+}
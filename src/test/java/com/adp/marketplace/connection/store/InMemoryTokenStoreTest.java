@@ -0,0 +1,207 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class InMemoryTokenStoreTest {
+
+	static final ConnectionKey CONNECTION_KEY = FileTokenStoreTest.CONNECTION_KEY;
+
+	InMemoryTokenStore tokenStore = null;
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		tokenStore = new InMemoryTokenStore();
+
+		server = new MockTokenServer();
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		clientCredentialsConfiguration.setTokenStore(tokenStore);
+		server.configure(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * verifies stored tokens are copies loaded with the seconds remaining
+	 */
+	@Test
+	public void saveAndLoad() {
+
+		Token token = FileTokenStoreTest.token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 3600);
+		tokenStore.save(CONNECTION_KEY, token);
+
+		Token loaded = tokenStore.load(CONNECTION_KEY);
+
+		assertNotSame(token, loaded);
+		assertEquals("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", loaded.getAccess_token());
+		assertTrue(loaded.getExpires_in() > 3590 && loaded.getExpires_in() <= 3600);
+
+		tokenStore.save(CONNECTION_KEY, FileTokenStoreTest.token("9a6d1a1d-7c04-4c48-a0a8-7c2d3e0bd6f0", 0));
+		assertNull(tokenStore.load(CONNECTION_KEY));
+	}
+
+	/**
+	 * verifies a lease is held by one owner until released or expired
+	 */
+	@Test
+	public void lease() throws Exception {
+
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+		assertFalse(tokenStore.acquireLease(CONNECTION_KEY, "node-2", 60000));
+
+		// only the owner releases its lease
+		tokenStore.releaseLease(CONNECTION_KEY, "node-2");
+		assertFalse(tokenStore.acquireLease(CONNECTION_KEY, "node-2", 60000));
+
+		tokenStore.releaseLease(CONNECTION_KEY, "node-1");
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-2", 1));
+
+		Thread.sleep(10);
+
+		// expired leases are taken over
+		assertTrue(tokenStore.acquireLease(CONNECTION_KEY, "node-1", 60000));
+	}
+
+	/**
+	 * verifies concurrent connections of one client request a single token
+	 * and share it
+	 */
+	@Test
+	public void shareToken() throws Exception {
+
+		server.setLatency(100);
+
+		final int nodes = 40;
+		final CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(nodes);
+
+		try {
+
+			List<Future<Token>> tokens = new ArrayList<Future<Token>>();
+
+			for ( int i = 0; i < nodes; i++ ) {
+
+				final ClientCredentialsConnection connection = (ClientCredentialsConnection)
+						ADPAPIConnectionFactory.getInstance().createConnection(clientCredentialsConfiguration);
+
+				tokens.add(executor.submit(new Callable<Token>() {
+
+					@Override
+					public Token call() throws Exception {
+						start.await();
+						connection.connect();
+						return connection.getToken();
+					}
+				}));
+			}
+
+			start.countDown();
+
+			String accessToken = tokens.get(0).get().getAccess_token();
+
+			for ( Future<Token> token : tokens ) {
+				assertEquals(accessToken, token.get().getAccess_token());
+			}
+
+			assertEquals(1, server.getTokenCount());
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * verifies a token refreshed by one connection is adopted by the others
+	 * instead of requesting another
+	 */
+	@Test
+	public void adoptRefreshedToken() throws Exception {
+
+		ClientCredentialsConnection first = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+		ClientCredentialsConnection second = (ClientCredentialsConnection) ADPAPIConnectionFactory
+				.getInstance().createConnection(clientCredentialsConfiguration);
+
+		first.connect();
+		second.connect();
+
+		assertEquals(1, server.getTokenCount());
+
+		Thread.sleep(10);
+
+		// refresh of the stored token
+		first.connect();
+		assertEquals(2, server.getTokenCount());
+
+		second.connect();
+		assertEquals(2, server.getTokenCount());
+		assertEquals(first.getToken().getAccess_token(), second.getToken().getAccess_token());
+
+		// the stored token is the token of both, so a new token is requested
+		Token token = second.connectAsync().get();
+
+		assertEquals(3, server.getTokenCount());
+		assertEquals(token.getAccess_token(), tokenStore.load(ConnectionKey.of(clientCredentialsConfiguration)).getAccess_token());
+	}
+}
@@ -23,7 +23,14 @@ import java.io.IOException;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.NameValuePair;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -32,6 +39,7 @@ import org.junit.Test;
 
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
 import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
@@ -506,4 +514,98 @@ public class ConnectionUtilsTest {
 			// assertTrue(false);
 		}
 	}
+	
+	/**
+	 * verifies the token is parsed from the response stream
+	 */
+	@Test
+	public void testProcessTokenResponseStream() {
+		
+		try {
+			
+			Token token = ConnectionUtils.processTokenResponse(createResponse(
+					"{\"access_token\":\"7a3f\",\"token_type\":\"Bearer\",\"expires_in\":3600,\"scope\":\"api\"}",
+					ContentType.APPLICATION_JSON));
+			
+			assertNotNull(token);
+			assertEquals("7a3f", token.getAccess_token());
+			assertEquals("Bearer", token.getToken_type());
+			assertEquals(3600, token.getExpires_in());
+			assertEquals("api", token.getScope());
+			
+		} catch (Exception e) {
+			assertTrue(false);
+		}
+	}
+	
+	/**
+	 * verifies responses are decoded as UTF-8 without charset
+	 */
+	@Test
+	public void testProcessResponseUTF8() {
+		
+		try {
+			
+			String body = "{\"error_description\":\"cl\u00e9 invalide \u2013 \u00fcberpr\u00fcfen\"}";
+			
+			assertEquals(body, ConnectionUtils.processResponse(createResponse(body, 
+					ContentType.create("application/json", Consts.UTF_8))));
+			
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setEntity(new ByteArrayEntity(body.getBytes(Consts.UTF_8)));
+			
+			assertEquals(body, ConnectionUtils.processResponse(response));
+			
+		} catch (Exception e) {
+			assertTrue(false);
+		}
+	}
+	
+	/**
+	 * verifies empty responses return null
+	 */
+	@Test
+	public void testProcessEmptyResponse() {
+		
+		try {
+			
+			assertNull(ConnectionUtils.processTokenResponse(createResponse("", ContentType.APPLICATION_JSON)));
+			assertNull(ConnectionUtils.processResponse(createResponse("", ContentType.APPLICATION_JSON)));
+			assertNull(ConnectionUtils.processResponse(new BasicHttpResponse(HttpVersion.HTTP_1_1, 204, "No Content")));
+			
+		} catch (Exception e) {
+			assertTrue(false);
+		}
+	}
+	
+	/**
+	 * verifies responses larger than the maximum response size are rejected
+	 */
+	@Test
+	public void testProcessOversizedResponse() {
+		
+		String body = "{\"access_token\":\"" + StringUtils.repeat('a', Constants.MAX_RESPONSE_SIZE) + "\"}";
+		
+		try {
+			ConnectionUtils.processTokenResponse(createResponse(body, ContentType.APPLICATION_JSON));
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		
+		try {
+			ConnectionUtils.processResponse(createResponse(body, ContentType.APPLICATION_JSON));
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+	
+	private static HttpResponse createResponse(String body, ContentType contentType) {
+		
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new StringEntity(body, contentType));
+		
+		return response;
+	}
 }
@@ -0,0 +1,215 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.constants.Constants;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ExecutorUtilsTest {
+
+	ExecutorUtils instance = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		instance = ExecutorUtils.getInstance();
+	}
+
+	/**
+	 * verifies that a singleton instance is created for ExecutorUtils
+	 */
+	@Test
+	public void singletonInstanceCreated() {
+
+		ExecutorUtils anotherInstance = ExecutorUtils.getInstance();
+
+		assertNotNull(instance);
+		assertSame(instance, anotherInstance);
+		assertSame(instance.getConnectExecutor(), anotherInstance.getConnectExecutor());
+	}
+
+	/**
+	 * verifies virtual threads are used where the runtime supports them
+	 */
+	@Test
+	public void isVirtualThreadSupported() {
+
+		boolean supported = true;
+
+		try {
+			java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			supported = false;
+		}
+
+		if ( !supported ) {
+			assertFalse(instance.isVirtualThreadSupported());
+		}
+	}
+
+	/**
+	 * verifies new executors run tasks on daemon or virtual threads
+	 */
+	@Test
+	public void newConnectExecutor() throws Exception {
+
+		ExecutorService executor = instance.newConnectExecutor();
+
+		try {
+
+			assertNotSame(instance.getConnectExecutor(), executor);
+
+			Boolean daemon = executor.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() throws Exception {
+					return Thread.currentThread().isDaemon();
+				}
+			}).get(10, TimeUnit.SECONDS);
+
+			// virtual threads are always daemon threads
+			assertEquals(Boolean.TRUE, daemon);
+
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * verifies the bounded executor queues tasks while its threads are busy
+	 * and rejects tasks once its queue is full
+	 */
+	@Test
+	public void newBoundedExecutor() throws Exception {
+
+		ExecutorService executor = instance.newBoundedExecutor(1, 1);
+
+		try {
+
+			Boolean daemon = executor.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() throws Exception {
+					return Thread.currentThread().isDaemon()
+							&& Thread.currentThread().getName().startsWith(Constants.CONNECT_THREAD_NAME);
+				}
+			}).get(10, TimeUnit.SECONDS);
+
+			assertEquals(Boolean.TRUE, daemon);
+
+			final CountDownLatch started = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+
+			Runnable task = new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						started.countDown();
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+
+			// the thread is busy, the next task waits in the queue
+			executor.execute(task);
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			executor.execute(task);
+
+			try {
+				executor.execute(task);
+				assertTrue(false);
+			} catch (RejectedExecutionException e) {
+				assertNotNull(e);
+			}
+
+			release.countDown();
+
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * verifies timeouts run on the timeout thread unless cancelled
+	 */
+	@Test
+	public void scheduleTimeout() throws Exception {
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		final String[] threadName = new String[1];
+
+		ScheduledFuture<?> timeout = instance.scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+				threadName[0] = Thread.currentThread().getName();
+				latch.countDown();
+			}
+		}, 10);
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals(Constants.TIMEOUT_THREAD_NAME, threadName[0]);
+
+		// the latch is counted down before the future completes
+		timeout.get(10, TimeUnit.SECONDS);
+		assertTrue(timeout.isDone());
+
+		timeout = instance.scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+				assertTrue(false);
+			}
+		}, 60000);
+
+		assertTrue(timeout.cancel(false));
+
+		assertNull(instance.scheduleTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, 0));
+	}
+}
@@ -0,0 +1,174 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class GsonTokenParserTest {
+
+	GsonTokenParser instance = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		instance = GsonTokenParser.getInstance();
+	}
+
+	/**
+	 * verifies that a singleton instance is created for GsonTokenParser and
+	 * is the default parser of connection configurations
+	 */
+	@Test
+	public void singletonInstanceCreated() {
+
+		assertNotNull(instance);
+		assertSame(instance, GsonTokenParser.getInstance());
+		assertSame(instance, new ClientCredentialsConfiguration().getTokenParser());
+	}
+
+	/**
+	 * verifies all token fields are mapped
+	 */
+	@Test
+	public void parse() throws IOException {
+
+		Token token = instance.parse(new StringReader(
+				"{\"access_token\":\"7a3f\",\"token_type\":\"Bearer\",\"expires_in\":3600,"
+				+ "\"scope\":\"api openid\",\"refresh_token\":\"r1\",\"id_token\":\"i1\"}"));
+
+		assertEquals("7a3f", token.getAccess_token());
+		assertEquals("Bearer", token.getToken_type());
+		assertEquals(3600, token.getExpires_in());
+		assertEquals("api openid", token.getScope());
+		assertEquals("r1", token.getRefresh_token());
+		assertEquals("i1", token.getId_token());
+	}
+
+	/**
+	 * verifies unknown fields and null values are skipped and expires_in is
+	 * accepted as a string
+	 */
+	@Test
+	public void parseUnknownFields() throws IOException {
+
+		Token token = instance.parse(new StringReader(
+				"{\"issued_at\":1450000000,\"access_token\":\"7a3f\",\"scope\":null,"
+				+ "\"claims\":{\"roles\":[\"admin\",{\"id\":1}]},\"expires_in\":\"3600\",\"active\":true}"));
+
+		assertEquals("7a3f", token.getAccess_token());
+		assertEquals(3600, token.getExpires_in());
+		assertNull(token.getScope());
+		assertNull(token.getToken_type());
+	}
+
+	/**
+	 * verifies empty responses and JSON null return null
+	 */
+	@Test
+	public void parseEmpty() throws IOException {
+
+		assertNull(instance.parse(new StringReader("")));
+		assertNull(instance.parse(new StringReader("null")));
+	}
+
+	/**
+	 * verifies IOException on malformed responses
+	 */
+	@Test
+	public void parseInvalid() {
+
+		try {
+			instance.parse(new StringReader("{\"access_token\":"));
+			assertTrue(false);
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+
+		try {
+			instance.parse(new StringReader("{\"expires_in\":\"soon\"}"));
+			assertTrue(false);
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+	}
+
+	/**
+	 * verifies tokens written by the shared Gson instance are read back
+	 */
+	@Test
+	public void writeAndParse() throws IOException {
+
+		Token token = new Token();
+		token.setAccess_token("7a3f");
+		token.setExpires_in(3600);
+		token.setToken_type("Bearer");
+
+		String json = instance.getGson().toJson(token);
+
+		assertEquals("{\"access_token\":\"7a3f\",\"expires_in\":3600,\"token_type\":\"Bearer\"}", json);
+		assertEquals(token.toString(), instance.parse(new StringReader(json)).toString());
+	}
+
+	/**
+	 * verifies the configured token parser is used for token responses
+	 */
+	@Test
+	public void processTokenResponseWithParser() throws Exception {
+
+		final Token parsed = new Token();
+
+		TokenParser tokenParser = new TokenParser() {
+
+			@Override
+			public Token parse(Reader reader) throws IOException {
+				parsed.setAccess_token(String.valueOf(reader.read()));
+				return parsed;
+			}
+		};
+
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new StringEntity("{}", ContentType.APPLICATION_JSON));
+
+		assertSame(parsed, ConnectionUtils.processTokenResponse(response, tokenParser));
+		assertEquals(String.valueOf((int) '{'), parsed.getAccess_token());
+	}
+}
@@ -0,0 +1,277 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnection;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.exception.ConnectionValidatorException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class HttpClientRegistryTest {
+
+	HttpClientRegistry instance = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		instance = HttpClientRegistry.getInstance();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+
+		String currentDirectory = (new java.io.File( "." ).getCanonicalPath());
+		clientCredentialsConfiguration.setSslCertPath(currentDirectory.concat("//src/main/resources/certs/keystore.jks"));
+		clientCredentialsConfiguration.setKeyPassword("adpadp10");
+		clientCredentialsConfiguration.setStorePassword("adpadp10");
+
+		clientCredentialsConfiguration.setTokenServerUrl("https://iat-api.adp.com/auth/oauth/v2/token");
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		instance.shutdown();
+		instance = null;
+		clientCredentialsConfiguration = null;
+	}
+
+	/**
+	 * verifies that a singleton instance is created for HttpClientRegistry
+	 */
+	@Test
+	public void singletonInstanceCreated() {
+
+		HttpClientRegistry anotherInstance = HttpClientRegistry.getInstance();
+
+		assertNotNull(instance);
+		assertNotNull(anotherInstance);
+
+		assertSame(instance, anotherInstance);
+		assertEquals(instance, anotherInstance);
+	}
+
+	/**
+	 * verifies the same pooled client is returned for configurations sharing
+	 * certificate and token server host
+	 */
+	@Test
+	public void getHttpsClientReused() {
+
+		try {
+
+			CloseableHttpClient closeableHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			// same host, different path
+			clientCredentialsConfiguration.setTokenServerUrl("https://iat-api.adp.com/hr/v2/workers");
+			CloseableHttpClient anotherHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			assertNotNull(closeableHttpClient);
+			assertSame(closeableHttpClient, anotherHttpClient);
+
+		} catch (ConnectionException e) {
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * verifies a separate pooled client is returned for another token server host
+	 * and pool settings of the configuration are applied
+	 */
+	@Test
+	public void getHttpsClientPerHost() {
+
+		try {
+
+			clientCredentialsConfiguration.setMaxConnectionsTotal(7);
+			CloseableHttpClient closeableHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			clientCredentialsConfiguration.setTokenServerUrl("https://iat-accounts.adp.com/auth/oauth/v2/token");
+			CloseableHttpClient anotherHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			assertNotSame(closeableHttpClient, anotherHttpClient);
+
+			PoolStats poolStats = instance.getPoolStats(clientCredentialsConfiguration);
+
+			assertNotNull(poolStats);
+			assertEquals(7, poolStats.getMax());
+			assertEquals(0, poolStats.getLeased());
+
+		} catch (ConnectionException e) {
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * verifies the request configuration carries the timeouts of the configuration
+	 */
+	@Test
+	public void getRequestConfig() {
+
+		clientCredentialsConfiguration.setConnectTimeout(1000);
+		clientCredentialsConfiguration.setSocketTimeout(2000);
+		clientCredentialsConfiguration.setConnectionRequestTimeout(500);
+
+		RequestConfig requestConfig = instance.getRequestConfig(clientCredentialsConfiguration);
+
+		assertEquals(1000, requestConfig.getConnectTimeout());
+		assertEquals(2000, requestConfig.getSocketTimeout());
+		assertEquals(500, requestConfig.getConnectionRequestTimeout());
+
+		clientCredentialsConfiguration.setSocketTimeout(0);
+		clientCredentialsConfiguration.setConnectTimeout(-1);
+
+		requestConfig = instance.getRequestConfig(clientCredentialsConfiguration);
+
+		assertEquals(0, requestConfig.getSocketTimeout());
+		assertEquals(0, requestConfig.getConnectTimeout());
+	}
+
+	/**
+	 * verifies a request in flight completes on the client replaced after
+	 * its certificate changed on disk
+	 */
+	@Test
+	public void getHttpsClientReloadedInFlight() throws Exception {
+
+		MockTokenServer server = new MockTokenServer();
+		server.setLatency(500);
+		server.start();
+
+		File keyStoreFile = File.createTempFile("keystore", ".jks");
+
+		try {
+
+			server.configure(clientCredentialsConfiguration);
+
+			// work on a copy so the certificate can be modified
+			Files.copy(new File(clientCredentialsConfiguration.getSslCertPath()).toPath(), keyStoreFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			clientCredentialsConfiguration.setSslCertPath(keyStoreFile.getPath());
+
+			final ADPAPIConnection connection = ADPAPIConnectionFactory.getInstance()
+					.createConnection(clientCredentialsConfiguration);
+			final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						connection.connect();
+					} catch (Exception e) {
+						failure.set(e);
+					}
+				}
+			});
+			thread.start();
+
+			for ( int i = 0; i < 100 && server.getRequestCount() == 0; i++ ) {
+				Thread.sleep(20);
+			}
+
+			CloseableHttpClient closeableHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			assertTrue(keyStoreFile.setLastModified(keyStoreFile.lastModified() - 60000));
+
+			assertNotSame(closeableHttpClient, instance.getHttpsClient(clientCredentialsConfiguration));
+
+			thread.join(10000);
+
+			assertNull(failure.get());
+			assertTrue(connection.isConnectionIndicator());
+
+		} finally {
+			server.stop();
+			keyStoreFile.delete();
+		}
+	}
+
+	/**
+	 * verifies pool statistics are not available and clients are recreated after shutdown
+	 */
+	@Test
+	public void shutdown() {
+
+		try {
+
+			CloseableHttpClient closeableHttpClient = instance.getHttpsClient(clientCredentialsConfiguration);
+
+			instance.shutdown();
+
+			assertNull(instance.getPoolStats(clientCredentialsConfiguration));
+			assertNotSame(closeableHttpClient, instance.getHttpsClient(clientCredentialsConfiguration));
+
+		} catch (ConnectionException e) {
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * verifies exceptions and error messages when SSL fields are null
+	 */
+	@Test
+	public void getHttpsClientSSLFieldsInvalid() {
+
+		clientCredentialsConfiguration.setSslCertPath(null);
+
+		try {
+
+			instance.getHttpsClient(clientCredentialsConfiguration);
+
+			assertTrue(false);
+
+		} catch (Exception e) {
+			assertNotNull(e);
+			assertTrue(e instanceof ConnectionException);
+			assertTrue(e.getCause() instanceof ConnectionValidatorException);
+			assertTrue(e.getCause().getMessage().equals("One or more key SSL attributes are missing in request!!"));
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.connection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.mock.MockTokenServer;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class SSLContextCacheTest {
+
+	SSLContextCache instance = null;
+	File keyStoreFile = null;
+
+	char[] password = "adpadp10".toCharArray();
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		instance = SSLContextCache.getInstance();
+		instance.clear();
+
+		// work on a copy so the key store can be modified
+		keyStoreFile = File.createTempFile("keystore", ".jks");
+		copy(new File((new File( "." ).getCanonicalPath()).concat("//src/main/resources/certs/keystore.jks")), keyStoreFile);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		instance.clear();
+		instance = null;
+		keyStoreFile.delete();
+	}
+
+	/**
+	 * verifies that a singleton instance is created for SSLContextCache
+	 */
+	@Test
+	public void singletonInstanceCreated() {
+
+		SSLContextCache anotherInstance = SSLContextCache.getInstance();
+
+		assertNotNull(instance);
+		assertSame(instance, anotherInstance);
+	}
+
+	/**
+	 * verifies key store is loaded once and the cached ssl context returned afterwards
+	 */
+	@Test
+	public void getSSLContextCached() throws Exception {
+
+		SSLContext sslContext = instance.getSSLContext(keyStoreFile.getPath(), password, password);
+		SSLContext anotherSSLContext = instance.getSSLContext(keyStoreFile.getAbsolutePath(), password, password);
+
+		assertNotNull(sslContext);
+		assertSame(sslContext, anotherSSLContext);
+		assertEquals(1, instance.size());
+	}
+
+	/**
+	 * verifies key store is reloaded when the file changes on disk
+	 */
+	@Test
+	public void getSSLContextFileChanged() throws Exception {
+
+		SSLContext sslContext = instance.getSSLContext(keyStoreFile.getPath(), password, password);
+
+		assertTrue(keyStoreFile.setLastModified(keyStoreFile.lastModified() - 60000));
+
+		SSLContext reloadedSSLContext = instance.getSSLContext(keyStoreFile.getPath(), password, password);
+
+		assertNotSame(sslContext, reloadedSSLContext);
+		assertSame(reloadedSSLContext, instance.getSSLContext(keyStoreFile.getPath(), password, password));
+		assertEquals(1, instance.size());
+	}
+
+	/**
+	 * verifies cached ssl context is not returned for a wrong password
+	 */
+	@Test
+	public void getSSLContextPasswordChanged() throws Exception {
+
+		instance.getSSLContext(keyStoreFile.getPath(), password, password);
+
+		try {
+
+			instance.getSSLContext(keyStoreFile.getPath(), "invalid".toCharArray(), password);
+
+			assertTrue(false);
+
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+	}
+
+	/**
+	 * verifies configurations opening the same key store with different
+	 * passwords are cached apart rather than reloading each other's context
+	 */
+	@Test
+	public void getSSLContextPerPassword() throws Exception {
+
+		SSLContext sslContext = instance.getSSLContext(keyStoreFile.getPath(), password, password);
+
+		// the integrity of the key store is not checked without a store password
+		SSLContext anotherSSLContext = instance.getSSLContext(keyStoreFile.getPath(), null, password);
+
+		assertNotSame(sslContext, anotherSSLContext);
+		assertSame(sslContext, instance.getSSLContext(keyStoreFile.getPath(), password, password));
+		assertSame(anotherSSLContext, instance.getSSLContext(keyStoreFile.getPath(), null, password));
+		assertEquals(2, instance.size());
+	}
+
+	/**
+	 * verifies exception when key store file does not exist
+	 */
+	@Test
+	public void getSSLContextFileNotFound() {
+
+		try {
+
+			instance.getSSLContext(keyStoreFile.getPath() + ".missing", password, password);
+
+			assertTrue(false);
+
+		} catch (Exception e) {
+			assertNotNull(e);
+			assertTrue(e.toString().contains("FileNotFoundException"));
+		}
+	}
+
+	/**
+	 * verify a trust store yields its own cached ssl context
+	 */
+	@Test
+	public void getSSLContextTrustStore() throws Exception {
+
+		char[] trustStorePassword = MockTokenServer.PASSWORD.toCharArray();
+		String trustStorePath = MockTokenServer.getTrustStorePath();
+
+		SSLContext sslContext = instance.getSSLContext(keyStoreFile.getPath(), password, password);
+		SSLContext trustingSSLContext = instance.getSSLContext(keyStoreFile.getPath(), password, password,
+				trustStorePath, trustStorePassword);
+
+		assertNotSame(sslContext, trustingSSLContext);
+		assertSame(trustingSSLContext, instance.getSSLContext(keyStoreFile.getPath(), password, password,
+				trustStorePath, trustStorePassword));
+		assertSame(sslContext, instance.getSSLContext(keyStoreFile.getPath(), password, password, null, null));
+		assertEquals(2, instance.size());
+
+		try {
+
+			instance.getSSLContext(keyStoreFile.getPath(), password, password, trustStorePath, 
+					"invalid".toCharArray());
+
+			assertTrue(false);
+
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+	}
+
+	/**
+	 * copies the source file to the target file
+	 */
+	private void copy(File source, File target) throws IOException {
+
+		InputStream inputStream = new FileInputStream(source);
+		OutputStream outputStream = new FileOutputStream(target);
+
+		try {
+			byte[] buffer = new byte[4096];
+			int read = 0;
+			while ( (read = inputStream.read(buffer)) != -1 ) {
+				outputStream.write(buffer, 0, read);
+			}
+		} finally {
+			inputStream.close();
+			outputStream.close();
+		}
+	}
+}
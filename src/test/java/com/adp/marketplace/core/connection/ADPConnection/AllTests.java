@@ -21,12 +21,26 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.adp.marketplace.connection.metrics.MicrometerConnectionMetricsTest;
+import com.adp.marketplace.connection.resilience.CircuitBreakerTest;
+import com.adp.marketplace.connection.resilience.RateLimiterTest;
+import com.adp.marketplace.connection.resilience.RetryPolicyTest;
+import com.adp.marketplace.connection.store.FileTokenStoreTest;
+import com.adp.marketplace.connection.store.InMemoryTokenStoreTest;
 import com.adp.marketplace.connection.utils.ConnectionUtilsTest;
 import com.adp.marketplace.connection.utils.ConnectionValidatorUtilsTest;
+import com.adp.marketplace.connection.utils.ExecutorUtilsTest;
+import com.adp.marketplace.connection.utils.GsonTokenParserTest;
+import com.adp.marketplace.connection.utils.HttpClientRegistryTest;
+import com.adp.marketplace.connection.utils.SSLContextCacheTest;
 import com.adp.marketplace.connection.utils.SSLUtils;
+import com.adp.marketplace.core.connection.core.ADPAPIClientTest;
 import com.adp.marketplace.core.connection.core.ADPAPIConnectionFactoryTest;
+import com.adp.marketplace.core.connection.core.ADPAPIPageIteratorTest;
 import com.adp.marketplace.core.connection.core.AuthorizationCodeConnectionTest;
 import com.adp.marketplace.core.connection.core.ClientCredentialsConnectionTest;
+import com.adp.marketplace.core.connection.core.ConnectionManagerTest;
+import com.adp.marketplace.core.connection.core.TokenRefreshSchedulerTest;
 
 
 /**
@@ -36,7 +50,14 @@ import com.adp.marketplace.core.connection.core.ClientCredentialsConnectionTest;
 @RunWith(Suite.class)
 @SuiteClasses({ ADPAPIConnectionFactoryTest.class,
 	AuthorizationCodeConnectionTest.class, ClientCredentialsConnectionTest.class, 
-	SSLUtils.class, ConnectionUtilsTest.class, ConnectionValidatorUtilsTest.class})
+	SSLUtils.class, ConnectionUtilsTest.class, ConnectionValidatorUtilsTest.class,
+	HttpClientRegistryTest.class, SSLContextCacheTest.class,
+	TokenRefreshSchedulerTest.class, ExecutorUtilsTest.class,
+	ConnectionManagerTest.class, GsonTokenParserTest.class,
+	MicrometerConnectionMetricsTest.class, ADPAPIClientTest.class,
+	ADPAPIPageIteratorTest.class, FileTokenStoreTest.class,
+	InMemoryTokenStoreTest.class, RetryPolicyTest.class, CircuitBreakerTest.class,
+	RateLimiterTest.class})
 public class AllTests {
 
 } 
\ No newline at end of file
@@ -0,0 +1,268 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.core.connection.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIClient;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.ADPAPIResponse;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ADPAPIClientTest {
+
+	MockTokenServer server = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+	ClientCredentialsConnection clientCredentialsConnection = null;
+	ADPAPIClient client = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		server = new MockTokenServer();
+		server.start();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		server.configure(clientCredentialsConfiguration);
+
+		clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+				createConnection(clientCredentialsConfiguration);
+
+		client = new ADPAPIClient(clientCredentialsConnection);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * verifies a GET request connects first and is authorized with the
+	 * bearer token of the connection
+	 */
+	@Test
+	public void get() throws Exception {
+
+		ADPAPIResponse response = client.get(MockTokenServer.API_PATH);
+
+		assertEquals(200, response.getStatusCode());
+		assertTrue(response.isSuccess());
+		assertEquals("{\"path\":\"" + MockTokenServer.API_PATH + "\"}", response.getBody());
+		assertTrue(response.getHeader("content-type").startsWith("application/json"));
+		assertTrue(clientCredentialsConnection.isConnectionIndicator());
+
+		// the valid token is reused
+		client.get(MockTokenServer.API_PATH + "?$top=10");
+
+		assertEquals(1, server.getTokenCount());
+		assertEquals(2, server.getApiRequestCount());
+	}
+
+	/**
+	 * verifies a POST request sends its JSON body
+	 */
+	@Test
+	public void post() throws Exception {
+
+		ADPAPIResponse response = client.post(MockTokenServer.API_PATH, "{\"workerID\":\"G3349PZGBADQY8H7\"}");
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("{\"workerID\":\"G3349PZGBADQY8H7\"}", response.getBody());
+	}
+
+	/**
+	 * verifies a request answered with 401 is replayed once with a new token
+	 */
+	@Test
+	public void replayUnauthorized() throws Exception {
+
+		client.get(MockTokenServer.API_PATH);
+		Token token = clientCredentialsConnection.getToken();
+
+		server.revokeTokens();
+
+		ADPAPIResponse response = client.get(MockTokenServer.API_PATH);
+
+		assertEquals(200, response.getStatusCode());
+		assertNotSame(token, clientCredentialsConnection.getToken());
+		assertEquals(2, server.getTokenCount());
+		assertEquals(3, server.getApiRequestCount());
+	}
+
+	/**
+	 * verifies a request answered with 401 is not replayed if the token
+	 * refresh is rejected
+	 */
+	@Test
+	public void replayUnauthorizedRefreshRejected() throws Exception {
+
+		clientCredentialsConnection.connect();
+
+		Token token = new Token();
+		token.setAccess_token("revoked");
+		token.setToken_type("Bearer");
+		token.setExpires_in(3600);
+		clientCredentialsConnection.setToken(token);
+
+		server.setResponseStatus(401);
+
+		try {
+			client.get(MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertTrue(e.getMessage().contains("invalid_client"));
+		}
+
+		assertEquals(1, server.getApiRequestCount());
+	}
+
+	/**
+	 * verifies an API request is aborted once the request timeout elapsed
+	 */
+	@Test
+	public void requestTimeout() throws Exception {
+
+		clientCredentialsConnection.connect();
+
+		clientCredentialsConfiguration.setRequestTimeout(200);
+		server.setLatency(5000);
+
+		long start = System.nanoTime();
+
+		try {
+			client.get(MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+		}
+	}
+
+	/**
+	 * verifies relative and absolute request urls
+	 */
+	@Test
+	public void requestUrl() throws Exception {
+
+		clientCredentialsConfiguration.setApiRequestUrl("https://localhost:" + server.getPort() + "/");
+
+		assertEquals(200, client.get("hr/v2/workers").getStatusCode());
+		assertEquals(200, client.get("https://localhost:" + server.getPort() + MockTokenServer.API_PATH)
+				.getStatusCode());
+		assertEquals(404, client.get("/hr/v2/unknown").getStatusCode());
+
+		// the token is only sent over https to the configured host
+		int apiRequestCount = server.getApiRequestCount();
+
+		try {
+			client.get("http://localhost:" + server.getPort() + MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("API Request URL must use https!!", e.getMessage());
+		}
+
+		try {
+			client.get("https://127.0.0.1:" + server.getPort() + MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("API Request URL host does not match configuration!!", e.getMessage());
+		}
+
+		try {
+			client.get("https://localhost:1" + MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("API Request URL host does not match configuration!!", e.getMessage());
+		}
+
+		assertEquals(apiRequestCount, server.getApiRequestCount());
+
+		clientCredentialsConfiguration.setApiRequestUrl(null);
+
+		try {
+			client.get(MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("API Request URL is Not Set in configuration!!", e.getMessage());
+		}
+	}
+
+	/**
+	 * verifies a rejected token request fails the API request
+	 */
+	@Test
+	public void tokenRejected() throws Exception {
+
+		server.setResponseStatus(401);
+
+		try {
+			client.get(MockTokenServer.API_PATH);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertTrue(e.getMessage().contains("invalid_client"));
+		}
+
+		assertEquals(0, server.getApiRequestCount());
+	}
+
+	/**
+	 * verifies ConnectionException on a null connection
+	 */
+	@Test
+	public void nullConnection() {
+
+		try {
+			new ADPAPIClient(null);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("Connection is Null!", e.getMessage());
+		}
+	}
+
+	/**
+	 * verifies the client keeps its connection
+	 */
+	@Test
+	public void getConnection() {
+		assertSame(clientCredentialsConnection, client.getConnection());
+	}
+}
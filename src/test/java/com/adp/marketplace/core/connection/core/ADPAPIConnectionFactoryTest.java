@@ -19,9 +19,14 @@ package com.adp.marketplace.core.connection.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -35,6 +40,10 @@ import com.adp.marketplace.connection.constants.GrantType;
 import com.adp.marketplace.connection.core.ADPAPIConnection;
 import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
 import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.exception.ConnectionValidatorException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.BulkConnectResult;
+import com.adp.marketplace.connection.vo.ConnectResult;
 
 
 /**
@@ -157,4 +166,94 @@ public class ADPAPIConnectionFactoryTest {
 		}
 	}
 
+	/**
+	 * 
+	 * verifies configurations are connected concurrently with bounded 
+	 * parallelism, a failing configuration not failing the others
+	 */
+	@Test
+	public void connectAll() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setLatency(100);
+		server.start();
+		
+		try {
+			
+			List<ConnectionConfiguration> connectionConfigurations = new ArrayList<ConnectionConfiguration>();
+			
+			for ( int i = 0; i < 40; i++ ) {
+				
+				ClientCredentialsConfiguration clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+				clientCredentialsConfiguration.setClientID("client-" + i);
+				clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+				server.configure(clientCredentialsConfiguration);
+				
+				connectionConfigurations.add(clientCredentialsConfiguration);
+			}
+			
+			// fails validation, and cannot be created
+			((ClientCredentialsConfiguration) connectionConfigurations.get(7)).setClientSecret(null);
+			connectionConfigurations.set(23, null);
+			
+			BulkConnectResult bulkConnectResult = instance.connectAll(connectionConfigurations, 10);
+			
+			assertEquals(40, bulkConnectResult.getResults().size());
+			assertEquals(38, bulkConnectResult.getSuccessCount());
+			assertEquals(2, bulkConnectResult.getFailureCount());
+			assertEquals(38, server.getRequestCount());
+			
+			// 4 rounds of 10 concurrent requests rather than 40 sequential ones
+			assertTrue(bulkConnectResult.getElapsedTime() < 2000);
+			assertTrue(bulkConnectResult.getMaxConnectTime() >= 100);
+			assertTrue(bulkConnectResult.getConnectTime(50) <= bulkConnectResult.getMaxConnectTime());
+			
+			for ( int i = 0; i < 40; i++ ) {
+				
+				ConnectResult connectResult = bulkConnectResult.getResults().get(i);
+				
+				assertSame(connectionConfigurations.get(i), connectResult.getConnectionConfiguration());
+				assertEquals(i != 7 && i != 23, connectResult.isSuccess());
+			}
+			
+			ConnectResult invalid = bulkConnectResult.getFailures().get(0);
+			
+			assertTrue(invalid.getException().getCause() instanceof ConnectionValidatorException);
+			assertNull(invalid.getToken());
+			assertTrue(bulkConnectResult.getResults().get(0).getConnection().isConnectionIndicator());
+			assertNull(bulkConnectResult.getFailures().get(1).getConnection());
+			
+			assertEquals(0, instance.connectAll(Collections.<ConnectionConfiguration>emptyList()).getResults().size());
+			
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * 
+	 * verifies null configurations and invalid parallelism are rejected alike
+	 */
+	@Test
+	public void connectAllInvalidArguments() {
+		
+		try {
+			
+			instance.connectAll(null);
+			assertTrue(false);
+			
+		} catch (ConnectionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		
+		try {
+			
+			instance.connectAll(Collections.<ConnectionConfiguration>emptyList(), 0);
+			assertTrue(false);
+			
+		} catch (ConnectionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
 }
@@ -0,0 +1,218 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.core.connection.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.core.ADPAPIClient;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ADPAPIPageIterator;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ADPAPIPageIteratorTest {
+
+	MockTokenServer server = null;
+	ADPAPIClient client = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		server = new MockTokenServer();
+		server.start();
+
+		ClientCredentialsConfiguration clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+		server.configure(clientCredentialsConfiguration);
+
+		client = new ADPAPIClient(ADPAPIConnectionFactory.getInstance().createConnection(clientCredentialsConfiguration));
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * verifies all records are iterated in order across pages, ending with
+	 * a partial page
+	 */
+	@Test
+	public void iterate() throws Exception {
+
+		server.setWorkerCount(1050);
+
+		ADPAPIPageIterator<Worker> workers = client.iterate(MockTokenServer.API_PATH, "workers", Worker.class, 100);
+
+		int count = 0;
+
+		while ( workers.hasNext() ) {
+			Worker worker = workers.next();
+			assertEquals("G" + count, worker.associateOID);
+			assertEquals(String.valueOf(count), worker.workerID.idValue);
+			count++;
+		}
+
+		assertEquals(1050, count);
+		assertEquals(11, workers.getPageCount());
+		assertEquals(11, server.getApiRequestCount());
+
+		try {
+			workers.next();
+			assertTrue(false);
+		} catch (NoSuchElementException e) {
+			assertFalse(workers.hasNext());
+		}
+	}
+
+	/**
+	 * verifies iteration ends on a 204 response after full pages
+	 */
+	@Test
+	public void iterateNoContent() throws Exception {
+
+		server.setWorkerCount(200);
+
+		ADPAPIPageIterator<Worker> workers = client.iterate(MockTokenServer.API_PATH, "workers", Worker.class, 100);
+
+		int count = 0;
+		while ( workers.hasNext() ) {
+			workers.next();
+			count++;
+		}
+
+		assertEquals(200, count);
+		assertEquals(3, workers.getPageCount());
+
+		server.setWorkerCount(0);
+
+		assertFalse(client.iterate(MockTokenServer.API_PATH, "workers", Worker.class).hasNext());
+	}
+
+	/**
+	 * verifies iteration ends on an empty 200 response after full pages
+	 */
+	@Test
+	public void iterateEmptyPage() throws Exception {
+
+		server.setWorkerCount(200);
+		server.setEndOfCollectionStatus(Constants.HTTP_SUCCESS);
+
+		ADPAPIPageIterator<Worker> workers = client.iterate(MockTokenServer.API_PATH, "workers", Worker.class, 100);
+
+		int count = 0;
+		while ( workers.hasNext() ) {
+			workers.next();
+			count++;
+		}
+
+		assertEquals(200, count);
+		assertEquals(3, workers.getPageCount());
+	}
+
+	/**
+	 * verifies the next page is fetched while the current page is consumed
+	 */
+	@Test
+	public void prefetchNextPage() throws Exception {
+
+		server.setWorkerCount(1000);
+
+		ADPAPIPageIterator<Worker> workers = client.iterate(MockTokenServer.API_PATH, "workers", Worker.class, 10);
+
+		try {
+
+			workers.next();
+
+			for ( int i = 0; i < 100 && server.getApiRequestCount() < 2; i++ ) {
+				Thread.sleep(50);
+			}
+
+			// only one page ahead
+			assertEquals(2, server.getApiRequestCount());
+			assertEquals(1, workers.getPageCount());
+
+		} finally {
+			workers.close();
+		}
+
+		assertFalse(workers.hasNext());
+	}
+
+	/**
+	 * verifies a failed page request fails the iteration
+	 */
+	@Test
+	public void iterateNotFound() throws Exception {
+
+		ADPAPIPageIterator<Worker> workers = client.iterate("/hr/v2/unknown", "workers", Worker.class);
+
+		try {
+			workers.hasNext();
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertTrue(e.getMessage().contains("404"));
+		}
+	}
+
+	/**
+	 * verifies invalid iterator arguments are rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidPageSize() {
+		client.iterate(MockTokenServer.API_PATH, "workers", Worker.class, 0);
+	}
+
+	/**
+	 * A worker record of the workers collection
+	 */
+	static class Worker {
+
+		String associateOID;
+		WorkerID workerID;
+	}
+
+	/**
+	 * The id of a worker record
+	 */
+	static class WorkerID {
+
+		String idValue;
+	}
+}
@@ -17,6 +17,8 @@
 */
 package com.adp.marketplace.core.connection.core;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -32,8 +34,11 @@ import com.adp.marketplace.connection.configuration.AuthorizationCodeConfigurati
 import com.adp.marketplace.connection.constants.Constants;
 import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
 import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
+import com.adp.marketplace.connection.core.TokenRefreshScheduler;
 import com.adp.marketplace.connection.exception.ConnectionException;
 import com.adp.marketplace.connection.exception.ConnectionValidatorException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.resilience.RetryPolicy;
 import com.adp.marketplace.connection.vo.Token;
 
 /**
@@ -521,5 +526,223 @@ public class AuthorizationCodeConnectionTest {
 				// 
 			}
 	}
+	
+	/**
+	 * verify connect exchanges the authorization code for a token with the 
+	 * mock token server
+	 */
+	@Test
+	public void connectMockTokenServer() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.start();
+		
+		try {
+			
+			authorizationCodeConfiguration.setBaseAuthorizationUrl(baseAuthorizationUrl);
+			authorizationCodeConfiguration.setRedirectUrl(redirectUrl);
+			authorizationCodeConfiguration.setClientID(clientID);
+			authorizationCodeConfiguration.setClientSecret(clientSecret);
+			authorizationCodeConfiguration.setScope(scope);
+			authorizationCodeConfiguration.setAuthorizationCode(UUID.randomUUID().toString());
+			server.configure(authorizationCodeConfiguration);
+			
+			AuthorizationCodeConnection authorizationCodeConnection = 
+					(AuthorizationCodeConnection) ADPAPIConnectionFactory.getInstance().
+						createConnection(authorizationCodeConfiguration);
+			
+			authorizationCodeConnection.connect();
+			
+			Token token = authorizationCodeConnection.getToken();
+			
+			assertNotNull(token.getAccess_token());
+			assertNotNull(token.getRefresh_token());
+			assertTrue(scope.equals(token.getScope()));
+			assertTrue(authorizationCodeConnection.isConnectionIndicator());
+			
+			// authorization code rejected, the token issued before is kept
+			server.setResponseStatus(Constants.HTTP_CLIENT_ERROR);
+			
+			authorizationCodeConnection.connect();
+			
+			assertTrue(token == authorizationCodeConnection.getToken());
+			assertTrue(authorizationCodeConnection.getErrorResponse().contains("HTTP/1.1 400 Bad Request"));
+			
+		} finally {
+			server.stop();
+		}
+	}
+
+	
+	/**
+	 * verify connect renews the token with its refresh token once the 
+	 * authorization code was exchanged, and exchanges a new authorization code
+	 */
+	@Test
+	public void refreshToken() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.start();
+		
+		try {
+			
+			AuthorizationCodeConnection authorizationCodeConnection = createMockTokenServerConnection(server);
+			
+			authorizationCodeConnection.connect();
+			
+			Token token = authorizationCodeConnection.getToken();
+			
+			assertEquals(token.getRefresh_token(), authorizationCodeConnection.getRefreshToken());
+			assertEquals(0, server.getRefreshCount());
+			
+			authorizationCodeConnection.connect();
+			
+			Token refreshedToken = authorizationCodeConnection.getToken();
+			
+			assertEquals(1, server.getRefreshCount());
+			assertFalse(token.getAccess_token().equals(refreshedToken.getAccess_token()));
+			assertFalse(token.getRefresh_token().equals(refreshedToken.getRefresh_token()));
+			assertTrue(authorizationCodeConnection.isConnectionIndicator());
+			
+			// a new authorization of the user is exchanged
+			authorizationCodeConfiguration.setAuthorizationCode(UUID.randomUUID().toString());
+			authorizationCodeConnection.connect();
+			
+			assertEquals(1, server.getRefreshCount());
+			assertEquals(3, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify the exchange of a single use authorization code is not retried,
+	 * while the refresh token request is
+	 */
+	@Test
+	public void retryRefreshTokenOnly() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.setErrorStatus(503);
+		server.start();
+		
+		try {
+			
+			RetryPolicy retryPolicy = new RetryPolicy();
+			retryPolicy.setBaseDelay(10);
+			authorizationCodeConfiguration.setRetryPolicy(retryPolicy);
+			
+			AuthorizationCodeConnection authorizationCodeConnection = createMockTokenServerConnection(server);
+			
+			server.setFailureCount(1);
+			authorizationCodeConnection.connect();
+			
+			assertFalse(authorizationCodeConnection.isConnectionIndicator());
+			assertEquals(1, server.getRequestCount());
+			
+			authorizationCodeConfiguration.setAuthorizationCode(UUID.randomUUID().toString());
+			authorizationCodeConnection.connect();
+			
+			assertTrue(authorizationCodeConnection.isConnectionIndicator());
+			
+			server.setFailureCount(1);
+			authorizationCodeConnection.connect();
+			
+			assertEquals(1, server.getRefreshCount());
+			assertEquals(4, server.getRequestCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify a rejected refresh token keeps the token issued before
+	 */
+	@Test
+	public void refreshTokenRejected() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.start();
+		
+		try {
+			
+			AuthorizationCodeConnection authorizationCodeConnection = createMockTokenServerConnection(server);
+			
+			authorizationCodeConnection.connect();
+			Token token = authorizationCodeConnection.getToken();
+			
+			server.revokeRefreshTokens();
+			authorizationCodeConnection.connect();
+			
+			assertTrue(token == authorizationCodeConnection.getToken());
+			assertTrue(authorizationCodeConnection.getErrorResponse().contains("invalid_grant"));
+			assertEquals(1, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify the token of a scheduled connection is renewed with its refresh 
+	 * token before it expires, until disconnected
+	 */
+	@Test
+	public void refreshTokenScheduled() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.setExpiresIn(1);
+		server.start();
+		
+		TokenRefreshScheduler scheduler = TokenRefreshScheduler.getInstance();
+		
+		try {
+			
+			AuthorizationCodeConnection authorizationCodeConnection = createMockTokenServerConnection(server);
+			
+			authorizationCodeConnection.connect();
+			scheduler.schedule(authorizationCodeConnection);
+			
+			for ( int i = 0; i < 100 && server.getRefreshCount() < 2; i++ ) {
+				Thread.sleep(50);
+			}
+			
+			assertTrue(server.getRefreshCount() >= 2);
+			assertTrue(scheduler.isScheduled(authorizationCodeConnection));
+			
+			authorizationCodeConnection.disconnect();
+			
+			assertFalse(scheduler.isScheduled(authorizationCodeConnection));
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * Returns a connection exchanging a new authorization code with the mock 
+	 * token server
+	 */
+	private AuthorizationCodeConnection createMockTokenServerConnection(MockTokenServer server)
+			throws ConnectionException, IOException {
+		
+		authorizationCodeConfiguration.setBaseAuthorizationUrl(baseAuthorizationUrl);
+		authorizationCodeConfiguration.setRedirectUrl(redirectUrl);
+		authorizationCodeConfiguration.setClientID(clientID);
+		authorizationCodeConfiguration.setClientSecret(clientSecret);
+		authorizationCodeConfiguration.setScope(scope);
+		authorizationCodeConfiguration.setAuthorizationCode(UUID.randomUUID().toString());
+		server.configure(authorizationCodeConfiguration);
+		
+		return (AuthorizationCodeConnection) ADPAPIConnectionFactory.getInstance().
+				createConnection(authorizationCodeConfiguration);
+	}
 
 }
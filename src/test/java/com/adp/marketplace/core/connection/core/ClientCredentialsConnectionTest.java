@@ -17,20 +17,39 @@
 */
 package com.adp.marketplace.core.connection.core;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.configuration.ConnectionConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.core.ADPAPIConnection;
 import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.utils.ExecutorUtils;
 import com.adp.marketplace.connection.vo.Token;
 
 /**
@@ -400,4 +419,750 @@ public class ClientCredentialsConnectionTest {
 		}	
 	}
 	
+/**
+	 * verify concurrent connect calls in single flight mode share one token request
+	 */
+	@Test
+	public void connectSingleFlight() throws Exception {
+		
+		clientCredentialsConfiguration.setSingleFlight(true);
+		
+		CountingConnection connection = new CountingConnection(clientCredentialsConfiguration, null);
+		
+		List<Future<Throwable>> results = connectConcurrently(connection, 16);
+		
+		for ( Future<Throwable> result : results ) {
+			assertNull(result.get());
+		}
+		
+		assertEquals(1, connection.connectCount.get());
+		assertTrue(connection.isConnectionIndicator());
+		assertEquals("token-1", connection.getToken().getAccess_token());
+		
+		// a later call issues a new token request
+		connection.connect();
+		assertEquals(2, connection.connectCount.get());
+		assertEquals("token-2", connection.getToken().getAccess_token());
+		
+		connection.disconnect();
+		assertTrue(connection.isConnectionIndicator() == false);
+		assertNull(connection.getToken().getAccess_token());
+	}
+	
+	/**
+	 * verify concurrent connect calls in single flight mode share the failure 
+	 * of the token request
+	 */
+	@Test
+	public void connectSingleFlightSharesFailure() throws Exception {
+		
+		clientCredentialsConfiguration.setSingleFlight(true);
+		
+		ConnectionException failure = new ConnectionException("Token request failed");
+		CountingConnection connection = new CountingConnection(clientCredentialsConfiguration, failure);
+		
+		List<Future<Throwable>> results = connectConcurrently(connection, 16);
+		
+		for ( Future<Throwable> result : results ) {
+			assertSame(failure, result.get());
+		}
+		
+		assertEquals(1, connection.connectCount.get());
+	}
+	
+	/**
+	 * verify concurrent connect calls issue a token request each when single 
+	 * flight mode is off
+	 */
+	@Test
+	public void connectWithoutSingleFlight() throws Exception {
+		
+		CountingConnection connection = new CountingConnection(clientCredentialsConfiguration, null);
+		
+		List<Future<Throwable>> results = connectConcurrently(connection, 4);
+		
+		for ( Future<Throwable> result : results ) {
+			assertNull(result.get());
+		}
+		
+		assertEquals(4, connection.connectCount.get());
+	}
+	
+	/**
+	 * verify async connect completes exceptionally on SSL context path error
+	 */
+	@Test
+	public void connectAsyncExceptionSSLContextPathInvalid() throws Exception {
+		
+		clientCredentialsConfiguration.setTokenServerUrl(tokenServerUrl);
+		clientCredentialsConfiguration.setClientID(clientID);
+		clientCredentialsConfiguration.setClientSecret(clientSecret);
+		
+		clientCredentialsConfiguration.setSslCertPath(sslCertPath);
+		clientCredentialsConfiguration.setKeyPassword(keyPassword);
+		clientCredentialsConfiguration.setStorePassword(storePassword);
+		
+		clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+				createConnection(clientCredentialsConfiguration);
+		
+		CompletableFuture<Token> future = clientCredentialsConnection.connectAsync();
+		
+		try {
+			
+			future.get(30, TimeUnit.SECONDS);
+			
+			assertTrue(false);
+			
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+			assertTrue(e.getCause().getCause().getMessage().contains("FileNotFoundException"));
+		}
+		
+		assertTrue(clientCredentialsConnection.isConnectionIndicator() == false);
+	}
+	
+	/**
+	 * verify async connect retrieves a token or completes exceptionally
+	 */
+	@Test
+	public void connectAsync() throws Exception {
+		
+		String FILE_PATH = (new java.io.File( "." ).getCanonicalPath()).concat(sslCertPath);
+		
+		clientCredentialsConfiguration.setTokenServerUrl(tokenServerUrl);
+		clientCredentialsConfiguration.setClientID(clientID);
+		clientCredentialsConfiguration.setClientSecret(clientSecret);
+		
+		clientCredentialsConfiguration.setSslCertPath(FILE_PATH);
+		clientCredentialsConfiguration.setKeyPassword(keyPassword);
+		clientCredentialsConfiguration.setStorePassword(storePassword);
+		
+		clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+				createConnection(clientCredentialsConfiguration);
+		
+		try {
+			
+			Token token = clientCredentialsConnection.connectAsync().get(60, TimeUnit.SECONDS);
+			
+			assertNotNull(token);
+			assertSame(token, clientCredentialsConnection.getToken());
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			
+		} catch (ExecutionException e) {
+			// token server unreachable or client certificate rejected
+			assertTrue(e.getCause() instanceof ConnectionException);
+		}
+	}
+	
+	/**
+	 * verify a valid token is returned without a new token request
+	 */
+	@Test
+	public void getValidTokenAsync() throws Exception {
+		
+		CountingConnection connection = new CountingConnection(clientCredentialsConfiguration, null);
+		
+		connection.connect();
+		
+		CompletableFuture<Token> future = connection.getValidTokenAsync();
+		
+		assertTrue(future.isDone());
+		assertSame(connection.getToken(), future.get());
+		assertEquals(1, connection.connectCount.get());
+	}
+	
+	/**
+	 * verify the default async methods of a connection implementing only the 
+	 * blocking methods connect on the connect executor
+	 */
+	@Test
+	public void defaultAsyncMethods() throws Exception {
+		
+		CountingConnection delegate = new CountingConnection(clientCredentialsConfiguration, null);
+		ADPAPIConnection connection = blockingConnection(delegate);
+		
+		assertFalse(connection.isValidFor(0));
+		
+		Token token = connection.getValidTokenAsync().get(10, TimeUnit.SECONDS);
+		
+		assertSame(delegate.getToken(), token);
+		assertSame(token, connection.getValidTokenAsync().get());
+		assertEquals(1, delegate.connectCount.get());
+		
+		assertTrue(connection.isValidFor(0));
+		assertFalse(connection.isValidFor(1000));
+		
+		connection = blockingConnection(new CountingConnection(clientCredentialsConfiguration,
+				new ConnectionException("Token request was rejected")));
+		
+		try {
+			connection.connectAsync().get(10, TimeUnit.SECONDS);
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+		}
+	}
+	
+	/**
+	 * verify concurrent async connects in virtual thread mode complete together
+	 * while their blocking token requests wait on the mock token server, 
+	 * which they cannot if carrier threads get pinned during the requests
+	 */
+	@Test
+	public void connectAsyncVirtualThreadExecution() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.setClientSecret(clientSecret);
+		server.setLatency(200);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			clientCredentialsConfiguration.setVirtualThreadExecution(true);
+			clientCredentialsConfiguration.setMaxConnectionsPerRoute(200);
+			clientCredentialsConfiguration.setMaxConnectionsTotal(200);
+			server.configure(clientCredentialsConfiguration);
+			
+			List<ClientCredentialsConnection> connections = new ArrayList<ClientCredentialsConnection>();
+			List<CompletableFuture<Token>> futures = new ArrayList<CompletableFuture<Token>>();
+			
+			long start = System.nanoTime();
+			
+			for ( int i = 0; i < 200; i++ ) {
+				ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+						.getInstance().createConnection(clientCredentialsConfiguration);
+				connections.add(connection);
+				futures.add(connection.connectAsync());
+			}
+			
+			for ( int i = 0; i < futures.size(); i++ ) {
+				Token token = futures.get(i).get(60, TimeUnit.SECONDS);
+				assertSame(connections.get(i).getToken(), token);
+			}
+			
+			assertEquals(200, server.getTokenCount());
+			
+			// 200 requests of 200ms each take 40 seconds one after another
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 20000);
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify concurrent single flight connects on virtual threads share one 
+	 * token request to the mock token server
+	 */
+	@Test
+	public void connectSingleFlightVirtualThreads() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.setClientSecret(clientSecret);
+		server.setLatency(500);
+		server.start();
+		
+		ExecutorService executor = ExecutorUtils.getInstance().newConnectExecutor();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			clientCredentialsConfiguration.setSingleFlight(true);
+			server.configure(clientCredentialsConfiguration);
+			
+			final ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+					.getInstance().createConnection(clientCredentialsConfiguration);
+			final CountDownLatch start = new CountDownLatch(1);
+			
+			List<Future<Token>> results = new ArrayList<Future<Token>>();
+			
+			// callers beyond the threads of the bounded pool would connect after the first flight
+			int callers = ExecutorUtils.getInstance().isVirtualThreadSupported() ? 2000 
+					: Constants.DEFAULT_CONNECT_THREADS;
+			
+			for ( int i = 0; i < callers; i++ ) {
+				results.add(executor.submit(new Callable<Token>() {
+					
+					@Override
+					public Token call() throws Exception {
+						start.await();
+						connection.connect();
+						return connection.getToken();
+					}
+				}));
+			}
+			
+			start.countDown();
+			
+			Token token = results.get(0).get(60, TimeUnit.SECONDS);
+			
+			for ( Future<Token> result : results ) {
+				assertSame(token, result.get(60, TimeUnit.SECONDS));
+			}
+			
+			assertEquals(1, server.getRequestCount());
+			
+		} finally {
+			executor.shutdown();
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify connect retrieves a token from the mock token server over mutual TLS
+	 */
+	@Test
+	public void connectMockTokenServer() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setClientID(clientID);
+		server.setClientSecret(clientSecret);
+		server.setExpiresIn(120);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection.connect();
+			
+			Token token = clientCredentialsConnection.getToken();
+			
+			assertNotNull(token.getAccess_token());
+			assertEquals("Bearer", token.getToken_type());
+			assertEquals(120, token.getExpires_in());
+			assertEquals(scope, token.getScope());
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			assertEquals(1, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify the token is valid until its expiry less the expiry skew, at most 
+	 * half its expiration time
+	 */
+	@Test
+	public void remainingValidity() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setExpiresIn(120);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			clientCredentialsConfiguration.setTokenExpirySkew(30000);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			assertEquals(0, clientCredentialsConnection.remainingValidity());
+			
+			clientCredentialsConnection.connect();
+			
+			long remainingValidity = clientCredentialsConnection.remainingValidity();
+			
+			assertTrue(remainingValidity > 85000 && remainingValidity <= 90000);
+			assertTrue(clientCredentialsConnection.getTokenTimeToExpiry() > 115);
+			
+			// the skew of short lived tokens is limited to half their expiration time
+			server.setExpiresIn(10);
+			clientCredentialsConnection.connect();
+			
+			remainingValidity = clientCredentialsConnection.remainingValidity();
+			
+			assertTrue(remainingValidity > 4000 && remainingValidity <= 5000);
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			
+			clientCredentialsConnection.disconnect();
+			
+			assertEquals(0, clientCredentialsConnection.remainingValidity());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify an expired token is not reported as valid and the validity
+	 * window of the token
+	 */
+	@Test
+	public void tokenExpired() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setExpiresIn(1);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			assertFalse(clientCredentialsConnection.isValidFor(0));
+			
+			clientCredentialsConnection.connect();
+			
+			// valid for half of its expiration time
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			assertTrue(clientCredentialsConnection.isValidFor(0));
+			assertFalse(clientCredentialsConnection.isValidFor(1000));
+			
+			Thread.sleep(600);
+			
+			assertFalse(clientCredentialsConnection.isValidFor(0));
+			assertFalse(clientCredentialsConnection.isConnectionIndicator());
+			assertNotNull(clientCredentialsConnection.getToken().getAccess_token());
+			
+			// a new token is issued for the expired one
+			clientCredentialsConnection.connect();
+			
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			assertEquals(2, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify a token request of an unresponsive token server fails once the 
+	 * socket or request timeout elapsed
+	 */
+	@Test
+	public void connectTimeout() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setLatency(5000);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			clientCredentialsConfiguration.setSocketTimeout(200);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			long start = System.nanoTime();
+			
+			try {
+				clientCredentialsConnection.connect();
+				assertTrue(false);
+			} catch (ConnectionException e) {
+				assertTrue(e.getCause() instanceof java.net.SocketTimeoutException);
+			}
+			
+			// the request timeout bounds the request when the socket timeout does not
+			clientCredentialsConfiguration.setSocketTimeout(0);
+			clientCredentialsConfiguration.setRequestTimeout(200);
+			
+			try {
+				clientCredentialsConnection.connect();
+				assertTrue(false);
+			} catch (ConnectionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+			
+			try {
+				clientCredentialsConnection.connectAsync().get();
+				assertTrue(false);
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause().getMessage().contains("timed out after 200 ms"));
+			}
+			
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify 400, 401 and 500 responses of the mock token server are recorded 
+	 * as error responses
+	 */
+	@Test
+	public void connectMockTokenServerErrorResponses() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			String[] expected = { "HTTP/1.1 400 Bad Request", "HTTP/1.1 401 Unauthorized", 
+					"HTTP/1.1 500 Internal Server Error" };
+			int[] statuses = { 400, 401, 500 };
+			
+			for ( int i = 0; i < statuses.length; i++ ) {
+				
+				server.setResponseStatus(statuses[i]);
+				
+				clientCredentialsConnection.connect();
+				
+				assertNull(clientCredentialsConnection.getToken());
+				assertTrue(clientCredentialsConnection.getErrorResponse().startsWith(expected[i]));
+				assertTrue(clientCredentialsConnection.isConnectionIndicator() == false);
+			}
+			
+			// wrong client secret
+			server.setResponseStatus(200);
+			server.setClientSecret("another-secret");
+			
+			clientCredentialsConnection.connect();
+			
+			assertTrue(clientCredentialsConnection.getErrorResponse().contains("invalid_client"));
+			assertEquals(0, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify the mock token server rejects clients without a trusted certificate
+	 */
+	@Test
+	public void connectMockTokenServerClientCertificateUntrusted() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			server.configure(clientCredentialsConfiguration);
+			
+			// certificate not issued for the mock token server
+			clientCredentialsConfiguration.setSslCertPath((new java.io.File( "." ).getCanonicalPath()).concat(sslCertPath));
+			clientCredentialsConfiguration.setKeyPassword(keyPassword);
+			clientCredentialsConfiguration.setStorePassword(storePassword);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection.connect();
+			
+			assertTrue(false);
+			
+		} catch (ConnectionException e) {
+			assertNotNull(e);
+		} finally {
+			server.stop();
+		}
+		
+		assertEquals(0, server.getRequestCount());
+	}
+	
+	/**
+	 * verify connects fail during a token server brownout and succeed once 
+	 * the token server recovers
+	 */
+	@Test
+	public void connectMockTokenServerBrownout() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setErrorRate(1);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			server.configure(clientCredentialsConfiguration);
+			
+			clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+					createConnection(clientCredentialsConfiguration);
+			
+			for ( int i = 0; i < 5; i++ ) {
+				clientCredentialsConnection.connect();
+				assertTrue(clientCredentialsConnection.isConnectionIndicator() == false);
+				assertTrue(clientCredentialsConnection.getErrorResponse().contains("server_error"));
+			}
+			
+			server.setErrorRate(0);
+			
+			clientCredentialsConnection.connect();
+			
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			assertEquals(6, server.getRequestCount());
+			assertEquals(1, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * verify a thousand concurrent async connects against the mock token 
+	 * server with latency all retrieve tokens
+	 */
+	@Test
+	public void connectAsyncMockTokenServerConcurrent() throws Exception {
+		
+		MockTokenServer server = new MockTokenServer();
+		server.setLatency(20);
+		server.start();
+		
+		try {
+			
+			clientCredentialsConfiguration.setClientID(clientID);
+			clientCredentialsConfiguration.setClientSecret(clientSecret);
+			clientCredentialsConfiguration.setMaxConnectionsPerRoute(100);
+			server.configure(clientCredentialsConfiguration);
+			
+			List<ClientCredentialsConnection> connections = new ArrayList<ClientCredentialsConnection>();
+			List<CompletableFuture<Token>> futures = new ArrayList<CompletableFuture<Token>>();
+			
+			for ( int i = 0; i < 1000; i++ ) {
+				ClientCredentialsConnection connection = (ClientCredentialsConnection) ADPAPIConnectionFactory
+						.getInstance().createConnection(clientCredentialsConfiguration);
+				connections.add(connection);
+				futures.add(connection.connectAsync());
+			}
+			
+			for ( int i = 0; i < futures.size(); i++ ) {
+				Token token = futures.get(i).get(60, TimeUnit.SECONDS);
+				assertNotNull(token.getAccess_token());
+				assertTrue(connections.get(i).isConnectionIndicator());
+			}
+			
+			assertEquals(1000, server.getTokenCount());
+			
+		} finally {
+			server.stop();
+		}
+	}
+	
+	/**
+	 * calls connect from the given number of threads at once and returns the 
+	 * failure, if any, of each call
+	 */
+	private List<Future<Throwable>> connectConcurrently(final ClientCredentialsConnection connection, 
+			int threads) throws InterruptedException {
+		
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Throwable>> results = new ArrayList<Future<Throwable>>();
+		
+		try {
+			for ( int i = 0; i < threads; i++ ) {
+				results.add(executor.submit(new Callable<Throwable>() {
+					
+					@Override
+					public Throwable call() throws Exception {
+						start.await();
+						try {
+							connection.connect();
+							return null;
+						} catch (ConnectionException e) {
+							return e;
+						}
+					}
+				}));
+			}
+			
+			start.countDown();
+		} finally {
+			executor.shutdown();
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Returns a connection implementing only the blocking methods of 
+	 * {@link ADPAPIConnection}, delegating to the given connection
+	 */
+	private static ADPAPIConnection blockingConnection(final ADPAPIConnection delegate) {
+		
+		return new ADPAPIConnection() {
+			
+			@Override
+			public void connect() throws ConnectionException {
+				delegate.connect();
+			}
+			
+			@Override
+			public void disconnect() throws ConnectionException {
+				delegate.disconnect();
+			}
+			
+			@Override
+			public Token getToken() {
+				return delegate.getToken();
+			}
+			
+			@Override
+			public boolean isConnectionIndicator() {
+				return delegate.isConnectionIndicator();
+			}
+		};
+	}
+	
+	/**
+	 * connection counting its token requests, each taking long enough for 
+	 * concurrent callers to overlap
+	 */
+	private static class CountingConnection extends ClientCredentialsConnection {
+		
+		private final AtomicInteger connectCount = new AtomicInteger();
+		private final ConnectionException failure;
+		
+		private CountingConnection(ConnectionConfiguration connectionConfiguration, ConnectionException failure) {
+			super(connectionConfiguration);
+			this.failure = failure;
+		}
+		
+		@Override
+		protected void doConnect() throws ConnectionException {
+			
+			connectCount.incrementAndGet();
+			
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+				throw new ConnectionException(e);
+			}
+			
+			if ( failure != null ) {
+				throw failure;
+			}
+			
+			Token token = new Token();
+			token.setAccess_token("token-" + connectCount.get());
+			token.setExpires_in(3600);
+			tokenIssued(token);
+		}
+	}
+	
 }
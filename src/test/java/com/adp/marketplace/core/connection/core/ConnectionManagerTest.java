@@ -0,0 +1,297 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.core.connection.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.constants.GrantType;
+import com.adp.marketplace.connection.core.ADPAPIConnection;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.core.ConnectionManager;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.ConnectionKey;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ConnectionManagerTest {
+
+	ConnectionManager connectionManager = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		connectionManager = new ConnectionManager(2, 60000);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		connectionManager.clear();
+		connectionManager = null;
+	}
+
+	/**
+	 * verifies the same connection is returned for the same client id, grant
+	 * type and scope
+	 */
+	@Test
+	public void getConnectionCached() throws ConnectionException {
+
+		ADPAPIConnection connection = connectionManager.getConnection(getConfiguration("client-1"));
+		ADPAPIConnection anotherConnection = connectionManager.getConnection(getConfiguration("client-1"));
+
+		assertNotNull(connection);
+		assertTrue(connection instanceof ClientCredentialsConnection);
+		assertSame(connection, anotherConnection);
+
+		assertEquals(1, connectionManager.getHitCount());
+		assertEquals(1, connectionManager.getMissCount());
+		assertEquals(0.5, connectionManager.getHitRate(), 0.0);
+		assertEquals(1, connectionManager.size());
+	}
+
+	/**
+	 * verifies connections are cached per client id, grant type and scope
+	 */
+	@Test
+	public void getConnectionPerKey() throws ConnectionException {
+
+		AuthorizationCodeConfiguration authorizationCodeConfiguration = new AuthorizationCodeConfiguration();
+		authorizationCodeConfiguration.setClientID("client-1");
+		authorizationCodeConfiguration.setScope("openid");
+
+		ADPAPIConnection connection = connectionManager.getConnection(getConfiguration("client-1"));
+		ADPAPIConnection authorizationCodeConnection = connectionManager.getConnection(authorizationCodeConfiguration);
+
+		assertNotSame(connection, authorizationCodeConnection);
+		assertEquals(2, connectionManager.getMissCount());
+
+		assertEquals(new ConnectionKey(" client-1 ", GrantType.AUTHORIZATION_CODE, "openid"),
+				new ConnectionKey("client-1", GrantType.AUTHORIZATION_CODE, "openid"));
+		assertTrue(!new ConnectionKey("client-1", GrantType.AUTHORIZATION_CODE, "api").equals(
+				ConnectionKey.of(authorizationCodeConfiguration)));
+	}
+
+	/**
+	 * verifies users, token servers and client secrets never share a connection
+	 */
+	@Test
+	public void getConnectionPerUserAndEnvironment() throws ConnectionException {
+
+		AuthorizationCodeConfiguration firstUser = new AuthorizationCodeConfiguration();
+		firstUser.setClientID("client-1");
+		firstUser.setScope("openid");
+		firstUser.setAuthorizationCode("code-of-first-user");
+
+		AuthorizationCodeConfiguration secondUser = new AuthorizationCodeConfiguration();
+		secondUser.setClientID("client-1");
+		secondUser.setScope("openid");
+		secondUser.setAuthorizationCode("code-of-second-user");
+
+		assertNotSame(connectionManager.getConnection(firstUser), connectionManager.getConnection(secondUser));
+
+		ClientCredentialsConfiguration configuration = getConfiguration("client-1");
+		ADPAPIConnection connection = connectionManager.getConnection(configuration);
+
+		ClientCredentialsConfiguration otherEnvironment = getConfiguration("client-1");
+		otherEnvironment.setTokenServerUrl("https://accounts.example.com/auth/oauth/v2/token");
+
+		ClientCredentialsConfiguration rotatedSecret = getConfiguration("client-1");
+		rotatedSecret.setClientSecret("rotated-secret");
+
+		assertSame(connection, connectionManager.getConnection(getConfiguration("client-1")));
+		assertNotSame(connection, connectionManager.getConnection(otherEnvironment));
+		assertNotSame(connection, connectionManager.getConnection(rotatedSecret));
+
+		// the key holds a hash, never the secret
+		assertTrue(!ConnectionKey.of(rotatedSecret).getCredentialFingerprint().contains("rotated-secret"));
+	}
+
+	/**
+	 * verifies the least recently used connection is evicted beyond the maximum size
+	 */
+	@Test
+	public void getConnectionEvictsLeastRecentlyUsed() throws ConnectionException {
+
+		ADPAPIConnection first = connectionManager.getConnection(getConfiguration("client-1"));
+		ADPAPIConnection second = connectionManager.getConnection(getConfiguration("client-2"));
+
+		// client-2 becomes least recently used
+		connectionManager.getConnection(getConfiguration("client-1"));
+		connectionManager.getConnection(getConfiguration("client-3"));
+
+		assertEquals(2, connectionManager.size());
+		assertEquals(1, connectionManager.getEvictionCount());
+
+		assertSame(first, connectionManager.getConnection(getConfiguration("client-1")));
+		assertNotSame(second, connectionManager.getConnection(getConfiguration("client-2")));
+	}
+
+	/**
+	 * verifies expired connections are replaced
+	 */
+	@Test
+	public void getConnectionExpired() throws Exception {
+
+		connectionManager = new ConnectionManager(2, 50);
+
+		ADPAPIConnection connection = connectionManager.getConnection(getConfiguration("client-1"));
+		connectionManager.getConnection(getConfiguration("client-2"));
+
+		Thread.sleep(100);
+
+		assertNotSame(connection, connectionManager.getConnection(getConfiguration("client-1")));
+		assertEquals(1, connectionManager.getExpirationCount());
+
+		assertEquals(1, connectionManager.evictExpired());
+		assertEquals(2, connectionManager.getExpirationCount());
+		assertEquals(1, connectionManager.size());
+	}
+
+	/**
+	 * verifies a connection with a token expires with its live token, so a
+	 * refreshed connection stays cached past the validity of its first token
+	 */
+	@Test
+	public void getConnectionExpiresWithLiveToken() throws Exception {
+
+		MockTokenServer server = new MockTokenServer();
+		server.setExpiresIn(1);
+		server.start();
+
+		try {
+
+			connectionManager = new ConnectionManager(2, 50);
+
+			ClientCredentialsConfiguration configuration = getConfiguration("client-1");
+			server.configure(configuration);
+
+			connectionManager.getToken(configuration);
+			ADPAPIConnection connection = connectionManager.getConnection(configuration);
+
+			// valid past the time to live, then refreshed as the scheduler would
+			Thread.sleep(300);
+			assertSame(connection, connectionManager.getConnection(configuration));
+			connection.connect();
+
+			// past the validity of the first token
+			Thread.sleep(300);
+			assertSame(connection, connectionManager.getConnection(configuration));
+			assertEquals(0, connectionManager.getExpirationCount());
+
+			Thread.sleep(600);
+			assertNotSame(connection, connectionManager.getConnection(configuration));
+			assertEquals(1, connectionManager.getExpirationCount());
+
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * verifies removing a cached connection
+	 */
+	@Test
+	public void remove() throws ConnectionException {
+
+		ADPAPIConnection connection = connectionManager.getConnection(getConfiguration("client-1"));
+
+		assertSame(connection, connectionManager.remove(getConfiguration("client-1")));
+		assertNull(connectionManager.remove(getConfiguration("client-1")));
+		assertEquals(0, connectionManager.size());
+	}
+
+	/**
+	 * verifies ConnectionException when the connect request of getToken fails
+	 */
+	@Test
+	public void getTokenConnectFails() {
+
+		ClientCredentialsConfiguration configuration = getConfiguration("client-1");
+
+		// invalid path
+		configuration.setSslCertPath("//src/main/resources/certs/keystore.jks");
+
+		try {
+
+			connectionManager.getToken(configuration);
+
+			assertTrue(false);
+
+		} catch (ConnectionException e) {
+			assertNotNull(e);
+			assertEquals(1, connectionManager.size());
+		}
+	}
+
+	/**
+	 * verifies ConnectionException for a null configuration
+	 */
+	@Test
+	public void getConnectionNullConfiguration() {
+
+		try {
+
+			connectionManager.getConnection(null);
+
+			assertTrue(false);
+
+		} catch (ConnectionException e) {
+			assertTrue(e.getMessage().equals("Connection Configuration is Not Set in request!!"));
+		}
+	}
+
+	/**
+	 * verifies IllegalArgumentException for an invalid size
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaxSize() {
+		new ConnectionManager(0, 60000);
+	}
+
+	/**
+	 * returns a client credentials configuration for this client id
+	 */
+	private ClientCredentialsConfiguration getConfiguration(String clientID) {
+
+		ClientCredentialsConfiguration configuration = new ClientCredentialsConfiguration();
+		configuration.setClientID(clientID);
+		configuration.setClientSecret("secret");
+		configuration.setTokenServerUrl("https://iat-accounts.adp.com/auth/oauth/v2/token");
+
+		return configuration;
+	}
+}
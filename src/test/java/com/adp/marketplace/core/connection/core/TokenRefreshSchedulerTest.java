@@ -0,0 +1,283 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.core.connection.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
+import com.adp.marketplace.connection.core.ClientCredentialsConnection;
+import com.adp.marketplace.connection.core.TokenRefreshScheduler;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.mock.MockTokenServer;
+import com.adp.marketplace.connection.vo.Token;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class TokenRefreshSchedulerTest {
+
+	TokenRefreshScheduler instance = null;
+	ClientCredentialsConfiguration clientCredentialsConfiguration = null;
+	ClientCredentialsConnection clientCredentialsConnection = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		instance = TokenRefreshScheduler.getInstance();
+
+		clientCredentialsConfiguration = new ClientCredentialsConfiguration();
+		clientCredentialsConfiguration.setClientID("88a73992-07f2-4714-ab4b-de782acd9c4d");
+		clientCredentialsConfiguration.setClientSecret("a130adb7-aa51-49ac-9d02-0d4036b63541");
+
+		// invalid path - refresh attempts fail without reaching the token server
+		clientCredentialsConfiguration.setSslCertPath("//src/main/resources/certs/keystore.jks");
+		clientCredentialsConfiguration.setKeyPassword("adpadp10");
+		clientCredentialsConfiguration.setStorePassword("adpadp10");
+		clientCredentialsConfiguration.setTokenServerUrl("https://iat-accounts.adp.com/auth/oauth/v2/token");
+
+		clientCredentialsConnection = (ClientCredentialsConnection) ADPAPIConnectionFactory.getInstance().
+				createConnection(clientCredentialsConfiguration);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		instance.shutdown();
+		instance = null;
+		clientCredentialsConfiguration = null;
+		clientCredentialsConnection = null;
+	}
+
+	/**
+	 * verifies that a singleton instance is created for TokenRefreshScheduler
+	 */
+	@Test
+	public void singletonInstanceCreated() {
+
+		TokenRefreshScheduler anotherInstance = TokenRefreshScheduler.getInstance();
+
+		assertNotNull(instance);
+		assertSame(instance, anotherInstance);
+	}
+
+	/**
+	 * verifies refresh delay is the configured fraction of token expiration
+	 * within the configured jitter
+	 */
+	@Test
+	public void getRefreshDelay() {
+
+		Token token = new Token();
+		token.setExpires_in(100);
+
+		clientCredentialsConfiguration.setTokenRefreshFraction(0.5);
+		clientCredentialsConfiguration.setTokenRefreshJitter(0);
+
+		assertEquals(50000, instance.getRefreshDelay(clientCredentialsConfiguration, token));
+
+		clientCredentialsConfiguration.setTokenRefreshJitter(0.1);
+
+		for ( int i = 0; i < 100; i++ ) {
+			long delay = instance.getRefreshDelay(clientCredentialsConfiguration, token);
+			assertTrue(delay >= 45000 && delay <= 55000);
+		}
+	}
+
+	/**
+	 * verifies refresh delay falls back to defaults for invalid fractions and
+	 * never exceeds token expiration
+	 */
+	@Test
+	public void getRefreshDelayInvalidFraction() {
+
+		Token token = new Token();
+		token.setExpires_in(100);
+
+		clientCredentialsConfiguration.setTokenRefreshFraction(2);
+		clientCredentialsConfiguration.setTokenRefreshJitter(5);
+
+		for ( int i = 0; i < 100; i++ ) {
+			long delay = instance.getRefreshDelay(clientCredentialsConfiguration, token);
+			assertTrue(delay >= 0 && delay <= 100000);
+		}
+
+		assertEquals(0, instance.getRefreshDelay(clientCredentialsConfiguration, new Token()));
+	}
+
+	/**
+	 * verifies a connection remains scheduled after a failed refresh until cancelled
+	 */
+	@Test
+	public void scheduleAndCancel() {
+
+		try {
+
+			instance.schedule(clientCredentialsConnection);
+
+			// immediate refresh fails on the invalid certificate path and is retried
+			Thread.sleep(500);
+
+			assertTrue(instance.isScheduled(clientCredentialsConnection));
+
+			instance.cancel(clientCredentialsConnection);
+
+			assertFalse(instance.isScheduled(clientCredentialsConnection));
+
+		} catch (ConnectionException e) {
+			assertTrue(false);
+		} catch (InterruptedException e) {
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * verifies a short lived token is refreshed before it is no longer valid
+	 * on every refresh cycle, not only the first
+	 */
+	@Test
+	public void scheduleShortLivedToken() throws Exception {
+
+		MockTokenServer server = new MockTokenServer();
+		server.setExpiresIn(2);
+		server.start();
+
+		try {
+
+			server.configure(clientCredentialsConfiguration);
+
+			// refreshed at expiry, but valid for only half the expiration time
+			clientCredentialsConfiguration.setTokenRefreshFraction(1);
+			clientCredentialsConfiguration.setTokenRefreshJitter(0);
+			clientCredentialsConfiguration.setTokenExpirySkew(1000);
+
+			clientCredentialsConnection.connect();
+			instance.schedule(clientCredentialsConnection);
+
+			long end = System.currentTimeMillis() + 3500;
+			int invalid = 0;
+
+			// refreshed as its validity ends, so invalid only while refreshing
+			while ( System.currentTimeMillis() < end ) {
+				if ( !clientCredentialsConnection.isValidFor(0) ) {
+					invalid++;
+				}
+				Thread.sleep(50);
+			}
+
+			assertTrue(invalid < 5);
+			assertTrue(server.getRequestCount() >= 4);
+
+		} finally {
+			instance.cancel(clientCredentialsConnection);
+			server.stop();
+		}
+	}
+
+	/**
+	 * verifies a failed scheduled refresh keeps the connection alive with the
+	 * token issued before while that token is valid
+	 */
+	@Test
+	public void scheduledRefreshRejected() throws Exception {
+
+		MockTokenServer server = new MockTokenServer();
+		server.setExpiresIn(60);
+		server.start();
+
+		try {
+
+			server.configure(clientCredentialsConfiguration);
+
+			clientCredentialsConfiguration.setTokenRefreshFraction(0.01);
+			clientCredentialsConfiguration.setTokenRefreshJitter(0);
+
+			clientCredentialsConnection.connect();
+			Token token = clientCredentialsConnection.getToken();
+
+			server.setResponseStatus(Constants.HTTP_CLIENT_ERROR);
+			instance.schedule(clientCredentialsConnection);
+
+			for ( int i = 0; i < 100 && clientCredentialsConnection.getErrorResponse() == null; i++ ) {
+				Thread.sleep(50);
+			}
+
+			assertNotNull(clientCredentialsConnection.getErrorResponse());
+			assertTrue(server.getRequestCount() >= 2);
+			assertTrue(clientCredentialsConnection.isConnectionIndicator());
+			assertTrue(clientCredentialsConnection.isValidFor(0));
+			assertSame(token, clientCredentialsConnection.getToken());
+
+		} finally {
+			instance.cancel(clientCredentialsConnection);
+			server.stop();
+		}
+	}
+
+	/**
+	 * verifies disconnect stops the proactive refresh of the connection
+	 */
+	@Test
+	public void disconnectCancelsSchedule() {
+
+		try {
+
+			instance.schedule(clientCredentialsConnection);
+
+			clientCredentialsConnection.disconnect();
+
+			assertFalse(instance.isScheduled(clientCredentialsConnection));
+
+		} catch (ConnectionException e) {
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * verifies ConnectionException on scheduling a null connection
+	 */
+	@Test
+	public void scheduleNullConnection() {
+
+		try {
+
+			instance.schedule(null);
+
+			assertTrue(false);
+
+		} catch (ConnectionException e) {
+			assertNotNull(e);
+			assertTrue(e.getMessage().equals("Connection is Null!"));
+		}
+	}
+}